@@ -0,0 +1,127 @@
+package dev.satyrn.papermc.api.commands.v1;
+
+import dev.satyrn.papermc.api.lang.v1.I18n;
+import dev.satyrn.papermc.api.lang.v1.MissingTranslationTracker;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+
+/**
+ * Reports the translation keys which were looked up but are missing.
+ * <p>
+ * Without arguments, the command lists the most frequently missed keys. {@code dump} writes every missed key to
+ * {@code missing-translations.txt} in the plugin data folder, and {@code clear} forgets the recorded misses so that each
+ * missing key is logged again.
+ * <p>
+ * The output is intentionally not translated. The command is a diagnostic for the people maintaining the language
+ * files, the library ships no language file for its messages, and looking its own messages up in a plugin bundle which
+ * lacks them would record those keys as missing translations too.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class MissingTranslationsCommand extends CommandHandler {
+    // The number of keys listed by the command.
+    private static final int LIST_SIZE = 10;
+    // The subcommands.
+    private static final @NotNull List<String> SUBCOMMANDS = List.of("clear", "dump");
+
+    // The internationalization handler whose misses are reported.
+    private final transient @NotNull I18n i18n;
+
+    /**
+     * Initializes a new missing translations command.
+     *
+     * @param plugin The parent plugin.
+     * @param i18n   The internationalization handler whose misses are reported.
+     *
+     * @since 1.11.0
+     */
+    public MissingTranslationsCommand(final @NotNull Plugin plugin, final @NotNull I18n i18n) {
+        super(plugin);
+        this.i18n = i18n;
+    }
+
+    /**
+     * Executes the command.
+     *
+     * @param sender  The command's sender.
+     * @param command The command.
+     * @param label   The alias used.
+     * @param args    The command arguments.
+     *
+     * @return {@code false} if the usage should be shown; otherwise, {@code true}.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public boolean onCommand(final @NotNull CommandSender sender, final @NotNull Command command, final @NotNull String label, final @NotNull String[] args) {
+        final @NotNull MissingTranslationTracker tracker = this.i18n.getMissingTranslations();
+        if (args.length == 0) {
+            final @NotNull List<MissingTranslationTracker.Entry> top = tracker.getTop(LIST_SIZE);
+            sender.sendMessage(String.format("%d missing translation keys, %d lookups.", tracker.size(), tracker.getTotal()));
+            for (final @NotNull MissingTranslationTracker.Entry entry : top) {
+                sender.sendMessage(String.format("  %s", entry));
+            }
+            return true;
+        }
+        if (args.length > 1) {
+            return false;
+        }
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "clear":
+                tracker.clear();
+                sender.sendMessage("Cleared the missing translation keys.");
+                return true;
+            case "dump":
+                final @NotNull Path file = this.getPlugin().getDataFolder().toPath().resolve("missing-translations.txt");
+                this.getPlugin().getServer().getScheduler().runTaskAsynchronously(this.getPlugin(), () -> {
+                    try {
+                        tracker.export(file);
+                        sender.sendMessage(String.format("Wrote the missing translation keys to %s.", file));
+                    } catch (IOException ex) {
+                        this.getPlugin().getLogger().log(Level.WARNING, String.format("[I18n] Failed to write the missing translation keys to %s.", file), ex);
+                        sender.sendMessage(String.format("Failed to write the missing translation keys: %s", ex.getMessage()));
+                    }
+                });
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Completes the subcommand.
+     *
+     * @param sender  The command's sender.
+     * @param command The command.
+     * @param label   The alias used.
+     * @param args    The command arguments.
+     *
+     * @return The matching subcommands.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable List<String> onTabComplete(final @NotNull CommandSender sender, final @NotNull Command command, final @NotNull String label, final @NotNull String[] args) {
+        final @NotNull List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            for (final @NotNull String subcommand : SUBCOMMANDS) {
+                if (subcommand.startsWith(args[0].toLowerCase(Locale.ROOT))) {
+                    completions.add(subcommand);
+                }
+            }
+        }
+        return completions;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which dictate how a connection manager reacts to an unreachable data source.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class CircuitBreakerConfiguration extends ContainerNode {
+    /**
+     * Whether connection attempts should fail fast while the data source is unreachable.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode enabled = new BooleanNode(this, "enabled") {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A boolean value, {@code true}.
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Boolean defaultValue() {
+            return true;
+        }
+    };
+
+    /**
+     * The number of consecutive failed connection attempts after which the data source is considered unreachable.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode failureThreshold = new IntegerNode(this, "failureThreshold", 1, 100) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 3}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 3;
+        }
+    };
+
+    /**
+     * The delay, in milliseconds, before the first background reconnection attempt.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode initialBackoff = new IntegerNode(this, "initialBackoff", 100, 600000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 1000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 1000;
+        }
+    };
+
+    /**
+     * The longest delay, in milliseconds, between background reconnection attempts.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode maxBackoff = new IntegerNode(this, "maxBackoff", 100, 3600000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 60000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 60000;
+        }
+    };
+
+    /**
+     * Creates a new circuit breaker configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public CircuitBreakerConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "circuitBreaker");
+    }
+}
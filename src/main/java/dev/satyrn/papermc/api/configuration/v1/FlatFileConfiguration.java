@@ -0,0 +1,111 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which dictate the function of and options for the flat-file storage backend.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class FlatFileConfiguration extends ContainerNode {
+    /**
+     * The directory, relative to the plugin data folder, in which the storage files are kept.
+     *
+     * @since 1.11.0
+     */
+    public final transient StringNode directory = new StringNode(this, "directory") {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A string value, {@code data}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull String defaultValue() {
+            return "data";
+        }
+    };
+
+    /**
+     * The size, in megabytes, at which the active segment file is sealed and a new one is started.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode segmentSize = new IntegerNode(this, "segmentSize", 1, 1024) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 64}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 64;
+        }
+    };
+
+    /**
+     * The interval, in milliseconds, between batched flushes of written data to disk.
+     * <p>
+     * A value of {@code 0} flushes every write before it returns.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode syncInterval = new IntegerNode(this, "syncInterval", 0, 60000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 1000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 1000;
+        }
+    };
+
+    /**
+     * The fraction of stale data in a sealed segment at which the segment is compacted.
+     *
+     * @since 1.11.0
+     */
+    public final transient DoubleNode compactionThreshold = new DoubleNode(this, "compactionThreshold", 0.0D, 1.0D) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A double value, {@code 0.5}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Double defaultValue() {
+            return 0.5D;
+        }
+    };
+
+    /**
+     * Whether sealed segments should be memory-mapped, so that reads are served from the mapping instead of through
+     * file reads.
+     * <p>
+     * Suited to data which is read much more often than it is written.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode memoryMapped = new BooleanNode(this, "memoryMapped");
+
+    /**
+     * Creates a new flat-file configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public FlatFileConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "flatFile");
+    }
+}
@@ -0,0 +1,99 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which dictate how writes are kept while a remote data source is unreachable.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class JournalConfiguration extends ContainerNode {
+    /**
+     * Whether writes should be journaled to a local file while the data source is unreachable.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode enabled = new BooleanNode(this, "enabled") {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A boolean value, {@code true}.
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Boolean defaultValue() {
+            return true;
+        }
+    };
+
+    /**
+     * The directory, relative to the plugin data folder, in which the journal files are kept.
+     *
+     * @since 1.11.0
+     */
+    public final transient StringNode directory = new StringNode(this, "directory") {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A string value, {@code journal}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull String defaultValue() {
+            return "journal";
+        }
+    };
+
+    /**
+     * The interval, in milliseconds, between attempts to replay journaled writes.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode replayInterval = new IntegerNode(this, "replayInterval", 100, 600000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 5000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 5000;
+        }
+    };
+
+    /**
+     * The maximum number of journaled writes sent to the data source in one batch.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode batchSize = new IntegerNode(this, "batchSize", 1, 10000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 500}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 500;
+        }
+    };
+
+    /**
+     * Creates a new journal configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public JournalConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "journal");
+    }
+}
@@ -0,0 +1,74 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which dictate how connections which are never closed are detected and reclaimed.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class LeakDetectionConfiguration extends ContainerNode {
+    /**
+     * Whether borrowed connections should be tracked.
+     * <p>
+     * Tracked connections are wrapped in a proxy, so they can no longer be cast to driver classes; use
+     * {@link java.sql.Connection#unwrap(Class)} instead. Disabled by default for that reason.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode enabled = new BooleanNode(this, "enabled");
+
+    /**
+     * The time, in milliseconds, after which a connection which has not been closed is reported as leaked.
+     * <p>
+     * Must be longer than the longest legitimate use of a connection, such as a streaming query over a large table.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode threshold = new IntegerNode(this, "threshold", 1000, 3600000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 60000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 60000;
+        }
+    };
+
+    /**
+     * Whether the stack trace of every borrow should be recorded, so that a leak report shows where the connection
+     * was opened.
+     * <p>
+     * Capturing a stack trace on every borrow is costly, so this is intended for tracking down a reported leak.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode trace = new BooleanNode(this, "trace");
+
+    /**
+     * Whether leaked connections should be closed, so that they stop holding a server connection.
+     * <p>
+     * Any later use of a reclaimed connection fails, including legitimate long work such as a storage migration, a
+     * shard rebalance or a streaming query which runs past the threshold. Disabled by default for that reason.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode reclaim = new BooleanNode(this, "reclaim");
+
+    /**
+     * Creates a new leak detection configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public LeakDetectionConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "leakDetection");
+    }
+}
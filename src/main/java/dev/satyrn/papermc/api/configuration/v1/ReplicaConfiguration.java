@@ -0,0 +1,58 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which list the read replicas of a database server and how reads are spread across
+ * them.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class ReplicaConfiguration extends ContainerNode {
+    /**
+     * The replica endpoints. Each entry is a map with a {@code hostname} and an optional {@code port}, which defaults
+     * to the port of the primary server.
+     *
+     * @since 1.11.0
+     */
+    public final transient MapListNode endpoints = new MapListNode(this, "endpoints");
+
+    /**
+     * How reads are spread across healthy replicas.
+     *
+     * @since 1.11.0
+     */
+    public final transient ReplicaRoutingNode routing = new ReplicaRoutingNode(this, "routing");
+
+    /**
+     * The interval, in milliseconds, between replica health checks.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode healthCheckInterval = new IntegerNode(this, "healthCheckInterval", 1000, 600000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 10000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 10000;
+        }
+    };
+
+    /**
+     * Creates a new replica configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public ReplicaConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "replicas");
+    }
+}
@@ -0,0 +1,52 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import dev.satyrn.papermc.api.storage.v1.ReplicaRouting;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a configuration node which stores a {@link ReplicaRouting} value.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class ReplicaRoutingNode extends EnumNode<ReplicaRouting> {
+    /**
+     * Creates a new configuration node with a replica routing value.
+     *
+     * @param parent The parent container.
+     * @param name   The node's name.
+     *
+     * @since 1.11.0
+     */
+    public ReplicaRoutingNode(final @NotNull ConfigurationNode<?> parent, final @NotNull String name) {
+        super(parent, name);
+    }
+
+    /**
+     * Parses the enum value.
+     *
+     * @param value The string value from the config file
+     * @return The parsed enum value.
+     *
+     * @throws IllegalArgumentException Thrown when the enum value fails to parse.
+     * @since 1.11.0
+     */
+    @Override
+    protected @NotNull ReplicaRouting parse(final @NotNull String value) throws IllegalArgumentException {
+        return ReplicaRouting.valueOf(value);
+    }
+
+    /**
+     * Gets the default enum value.
+     * <p>
+     * Defaults to {@link ReplicaRouting ROUND_ROBIN}.
+     *
+     * @return The default enum value.
+     * @since 1.11.0
+     */
+    @Override
+    protected @NotNull ReplicaRouting getDefault() {
+        return ReplicaRouting.ROUND_ROBIN;
+    }
+}
@@ -0,0 +1,150 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which dictate the function of and options for the embedded SQLite storage backend.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class SQLiteConfiguration extends ContainerNode {
+    /**
+     * The name of the database file, relative to the plugin data folder.
+     *
+     * @since 1.11.0
+     */
+    public final transient StringNode fileName = new StringNode(this, "fileName") {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A string value, {@code storage.db}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull String defaultValue() {
+            return "storage.db";
+        }
+    };
+
+    /**
+     * Whether the database should use a write-ahead log instead of a rollback journal.
+     * <p>
+     * Lets asynchronous readers run while a write is in progress. Defaults to true.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode writeAheadLog = new BooleanNode(this, "writeAheadLog") {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return A boolean value, {@code true}.
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Boolean defaultValue() {
+            return true;
+        }
+    };
+
+    /**
+     * Whether every commit should be flushed to disk before it returns.
+     * <p>
+     * When disabled, a power loss may roll back the last few commits, but the database is never corrupted.
+     * Defaults to false.
+     *
+     * @since 1.11.0
+     */
+    public final transient BooleanNode fullSync = new BooleanNode(this, "fullSync");
+
+    /**
+     * The size, in kibibytes, of each connection's page cache.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode cacheSize = new IntegerNode(this, "cacheSize", 0, 1048576) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 8192}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 8192;
+        }
+    };
+
+    /**
+     * The size, in megabytes, of the database file region which is memory-mapped for reads.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode mmapSize = new IntegerNode(this, "mmapSize", 0, 4096) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 64}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 64;
+        }
+    };
+
+    /**
+     * The time, in milliseconds, a connection waits for a lock held by another connection before failing.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode busyTimeout = new IntegerNode(this, "busyTimeout", 0, 60000) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 5000}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 5000;
+        }
+    };
+
+    /**
+     * The maximum number of idle connections which are kept open for reuse, so that each keeps its page cache and
+     * memory map between statements.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode poolSize = new IntegerNode(this, "poolSize", 1, 32) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 4}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 4;
+        }
+    };
+
+    /**
+     * Creates a new SQLite configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public SQLiteConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "sqlite");
+    }
+}
@@ -0,0 +1,73 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which split per-player data across several database servers.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class ShardingConfiguration extends ContainerNode {
+    /**
+     * The shard endpoints.
+     * <p>
+     * Each entry is a map with a {@code name}, which must not change once data has been stored, and any of
+     * {@code hostname}, {@code port}, {@code database}, {@code userID} and {@code password} which differ from the
+     * main connection settings. An entry with {@code draining: true} receives no new keys, and is emptied by a
+     * rebalance.
+     *
+     * @since 1.11.0
+     */
+    public final transient MapListNode shards = new MapListNode(this, "shards");
+
+    /**
+     * The number of points each shard occupies on the hash ring. More points spread keys more evenly.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode virtualNodes = new IntegerNode(this, "virtualNodes", 1, 4096) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 160}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 160;
+        }
+    };
+
+    /**
+     * The number of threads used to query shards in parallel.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode threads = new IntegerNode(this, "threads", 1, 64) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 4}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 4;
+        }
+    };
+
+    /**
+     * Creates a new sharding configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public ShardingConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "sharding");
+    }
+}
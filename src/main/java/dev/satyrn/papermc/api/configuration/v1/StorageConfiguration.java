@@ -0,0 +1,122 @@
+package dev.satyrn.papermc.api.configuration.v1;
+
+import dev.satyrn.papermc.api.configuration.v2.MySQLConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents a container of nodes which select and configure the storage backend of a plugin.
+ * <p>
+ * Only the backend selected by {@link #type} is used; the options of the other backends are ignored.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class StorageConfiguration extends ContainerNode {
+    /**
+     * The storage backend to use.
+     *
+     * @since 1.11.0
+     */
+    public final transient StorageTypeNode type = new StorageTypeNode(this, "type");
+
+    /**
+     * Options for the flat-file storage backend.
+     *
+     * @since 1.11.0
+     */
+    public final transient FlatFileConfiguration flatFile = new FlatFileConfiguration(this);
+
+    /**
+     * Options for the MySQL storage backend.
+     *
+     * @since 1.11.0
+     */
+    public final transient MySQLConfiguration mysql = new MySQLConfiguration(this);
+
+    /**
+     * Options for the local journal which holds MySQL writes while the server is unreachable.
+     *
+     * @since 1.11.0
+     */
+    public final transient JournalConfiguration journal = new JournalConfiguration(this);
+
+    /**
+     * Options for the embedded SQLite storage backend.
+     *
+     * @since 1.11.0
+     */
+    public final transient SQLiteConfiguration sqlite = new SQLiteConfiguration(this);
+
+    /**
+     * The maximum number of values each repository keeps cached in memory.
+     * <p>
+     * A value of {@code 0} disables caching.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode cacheSize = new IntegerNode(this, "cacheSize", 0, Integer.MAX_VALUE) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 1024}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 1024;
+        }
+    };
+
+    /**
+     * The number of threads each repository uses for asynchronous operations.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode threads = new IntegerNode(this, "threads", 1, 64) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 2}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 2;
+        }
+    };
+
+    /**
+     * The duration, in milliseconds, above which a SQL statement is logged as slow.
+     * <p>
+     * A value of {@code 0} disables the slow statement log.
+     *
+     * @since 1.11.0
+     */
+    public final transient IntegerNode slowQueryThreshold = new IntegerNode(this, "slowQueryThreshold", 0, Integer.MAX_VALUE) {
+        /**
+         * Gets the default value of the node.
+         *
+         * @return An integer value, {@code 250}
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull Integer defaultValue() {
+            return 250;
+        }
+    };
+
+    /**
+     * Creates a new storage configuration container.
+     *
+     * @param parent The parent container.
+     *
+     * @since 1.11.0
+     */
+    public StorageConfiguration(final @NotNull ConfigurationNode<?> parent) {
+        super(parent, "storage");
+    }
+}
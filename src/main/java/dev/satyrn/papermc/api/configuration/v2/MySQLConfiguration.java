@@ -143,6 +143,34 @@ public class MySQLConfiguration extends BooleanNode {
         }
     };
 
+    /**
+     * How connection attempts behave while the server is unreachable.
+     *
+     * @since 1.11.0
+     */
+    public final transient CircuitBreakerConfiguration circuitBreaker = new CircuitBreakerConfiguration(this);
+
+    /**
+     * How connections which are never closed are detected and reclaimed.
+     *
+     * @since 1.11.0
+     */
+    public final transient LeakDetectionConfiguration leakDetection = new LeakDetectionConfiguration(this);
+
+    /**
+     * Read replicas of the server, which serve read-only work.
+     *
+     * @since 1.11.0
+     */
+    public final transient ReplicaConfiguration replicas = new ReplicaConfiguration(this);
+
+    /**
+     * Additional servers which per-player data is split across.
+     *
+     * @since 1.11.0
+     */
+    public final transient ShardingConfiguration sharding = new ShardingConfiguration(this);
+
     /**
      * Creates a new MySQL configuration container.
      *
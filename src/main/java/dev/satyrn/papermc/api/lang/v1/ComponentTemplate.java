@@ -0,0 +1,187 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A translation compiled into an Adventure component tree with argument slots, which fills the slots without
+ * reparsing the formatting codes of the translation.
+ * <p>
+ * The translation is deserialized once, with each argument replaced by a marker character, and the resulting tree is
+ * split at the markers. Parts of the tree without arguments are built once and shared. Arguments which are components
+ * are inserted as they are and inherit the style around their slot; any other argument is formatted as the
+ * {@link MessageTemplate} would format it and inserted as plain text, so formatting codes in arguments are never
+ * interpreted.
+ * <p>
+ * Templates are immutable and may be shared between threads.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class ComponentTemplate {
+    // The first marker character. Unicode noncharacters, which never occur in translations.
+    private static final char FIRST_MARKER = '\uFDD0';
+    // The number of marker characters.
+    private static final int MARKER_COUNT = 32;
+
+    // The message template the component template was compiled from.
+    private final @NotNull MessageTemplate template;
+    // The serializer the translation is deserialized with.
+    private final @NotNull LegacyComponentSerializer serializer;
+    // The root of the compiled tree, or null if the template cannot be marked and is parsed on every call instead.
+    private final @Nullable Node root;
+
+    private ComponentTemplate(final @NotNull MessageTemplate template, final @NotNull LegacyComponentSerializer serializer, final @Nullable Node root) {
+        this.template = template;
+        this.serializer = serializer;
+        this.root = root;
+    }
+
+    /**
+     * Compiles a message template into a component template.
+     *
+     * @param template   The message template.
+     * @param serializer The serializer which reads the formatting codes of the translation.
+     *
+     * @return The component template.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull ComponentTemplate compile(final @NotNull MessageTemplate template, final @NotNull LegacyComponentSerializer serializer) {
+        final @NotNull StringBuilder marked = new StringBuilder();
+        for (int segment = 0; segment < template.getSegmentCount(); ++segment) {
+            final @Nullable String literal = template.getLiteral(segment);
+            if (literal == null) {
+                if (segment >= MARKER_COUNT) {
+                    // Too many segments to mark; every call parses the formatted text instead.
+                    return new ComponentTemplate(template, serializer, null);
+                }
+                marked.append((char) (FIRST_MARKER + segment));
+            } else {
+                for (int i = 0; i < literal.length(); ++i) {
+                    if (isMarker(literal.charAt(i))) {
+                        return new ComponentTemplate(template, serializer, null);
+                    }
+                }
+                marked.append(literal);
+            }
+        }
+        return new ComponentTemplate(template, serializer, compile(serializer.deserialize(marked.toString())));
+    }
+
+    /**
+     * Fills the argument slots of the template.
+     *
+     * @param args The arguments. Components are inserted as they are; anything else is formatted as text.
+     *
+     * @return The component.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Component render(final @Nullable Object... args) {
+        if (this.root == null) {
+            return this.serializer.deserialize(this.template.format(args));
+        }
+        return this.render(this.root, args);
+    }
+
+    // Builds the component of a node.
+    private @NotNull Component render(final @NotNull Node node, final @Nullable Object[] args) {
+        if (node.constant != null) {
+            return node.constant;
+        }
+        final @NotNull TextComponent.Builder builder = Component.text().style(node.style);
+        int piece = 0;
+        if (node.pieces.length > 0 && node.pieces[0] instanceof String) {
+            builder.content((String) node.pieces[0]);
+            piece = 1;
+        }
+        for (; piece < node.pieces.length; ++piece) {
+            final @NotNull Object value = node.pieces[piece];
+            if (value instanceof String) {
+                builder.append(Component.text((String) value));
+            } else {
+                builder.append(this.argument((Integer) value, args));
+            }
+        }
+        for (final @NotNull Node child : node.children) {
+            builder.append(this.render(child, args));
+        }
+        return builder.build();
+    }
+
+    // Builds the component of an argument slot.
+    private @NotNull Component argument(final int segment, final @Nullable Object[] args) {
+        final int argument = this.template.getArgument(segment);
+        if (args != null && argument < args.length && args[argument] instanceof ComponentLike) {
+            return ((ComponentLike) args[argument]).asComponent();
+        }
+        return Component.text(this.template.formatArgument(segment, args));
+    }
+
+    // Compiles a deserialized component, splitting its text at the argument markers.
+    private static @NotNull Node compile(final @NotNull Component component) {
+        final @NotNull List<Node> children = new ArrayList<>(component.children().size());
+        boolean slotted = false;
+        for (final @NotNull Component child : component.children()) {
+            final @NotNull Node node = compile(child);
+            slotted |= node.constant == null;
+            children.add(node);
+        }
+        final @NotNull List<Object> pieces = new ArrayList<>();
+        if (component instanceof TextComponent) {
+            final @NotNull String content = ((TextComponent) component).content();
+            int start = 0;
+            for (int i = 0; i < content.length(); ++i) {
+                if (isMarker(content.charAt(i))) {
+                    if (i > start) {
+                        pieces.add(content.substring(start, i));
+                    }
+                    pieces.add(content.charAt(i) - FIRST_MARKER);
+                    start = i + 1;
+                    slotted = true;
+                }
+            }
+            if (start < content.length()) {
+                pieces.add(content.substring(start));
+            }
+        }
+        return new Node(component.style(), pieces.toArray(), children.toArray(new Node[0]), slotted ? null : component);
+    }
+
+    private static boolean isMarker(final char ch) {
+        return ch >= FIRST_MARKER && ch < FIRST_MARKER + MARKER_COUNT;
+    }
+
+    /**
+     * A compiled component.
+     *
+     * @since 1.11.0
+     */
+    private static final class Node {
+        // The style of the component.
+        private final @NotNull Style style;
+        // The text of the component: strings, and the segment indices of argument slots.
+        private final @NotNull Object[] pieces;
+        // The children of the component.
+        private final @NotNull Node[] children;
+        // The component itself, if neither it nor its children contain slots.
+        private final @Nullable Component constant;
+
+        private Node(final @NotNull Style style, final @NotNull Object[] pieces, final @NotNull Node[] children, final @Nullable Component constant) {
+            this.style = style;
+            this.pieces = pieces;
+            this.children = children;
+            this.constant = constant;
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package dev.satyrn.papermc.api.lang.v1;
 
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.net.JarURLConnection;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.StandardCharsets;
-import java.text.MessageFormat;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.logging.Level;
-import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Provides internationalization support for a plugin.
@@ -28,24 +41,40 @@ public class I18n {
      * @since 1.1.0
      */
     public static final @NotNull Locale DEFAULT_LOCALE = Locale.US;
-    // Double apostrophe pattern
-    private static final @NotNull Pattern DOUBLE_APOS = Pattern.compile("''");
     // The instance.
-    private static @Nullable I18n instance;
-    // The default resource bundle
-    private final transient @NotNull ResourceBundle defaultBundle;
+    private static volatile @Nullable I18n instance;
+    // The default resource bundle, or null until it is first needed.
+    private transient volatile @Nullable ResourceBundle defaultBundle;
     // The plugin.
     private final transient @NotNull Plugin plugin;
-    // Cache for message format instances.
-    private final transient @NotNull HashMap<String, MessageFormat> messageFormatCache = new HashMap<>();
+    // How long a locale other than the current locale may go unused before its translations are evicted.
+    private static final long LOCALE_IDLE_TIMEOUT = TimeUnit.MINUTES.toMillis(10L);
+    // The minimum interval between sweeps for unused locales.
+    private static final long LOCALE_SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(1L);
+    // The largest number of requested locales whose bundle locale is remembered.
+    private static final int MAX_RESOLVED_LOCALES = 256;
+    // The translations of every bundle locale in use.
+    private final transient @NotNull ConcurrentHashMap<Locale, LocaleTranslations> locales = new ConcurrentHashMap<>();
+    // The bundle locales which were preloaded, and are never evicted.
+    private final transient @NotNull Set<Locale> pinnedLocales = ConcurrentHashMap.newKeySet();
+    // The bundle locale of each requested locale.
+    private final transient @NotNull ConcurrentHashMap<Locale, Locale> resolvedLocales = new ConcurrentHashMap<>();
     // The base name of the internationalization instance.
     private final transient @NotNull String baseName;
-    // The current locale's resource bundle.
-    private transient @Nullable ResourceBundle localeBundle;
-    // A file resource bundle.
-    private transient @Nullable ResourceBundle fileBundle;
+    // When the locales were last swept for unused translations, in milliseconds since the epoch.
+    private transient volatile long lastSweep = System.currentTimeMillis();
     // The current locale to use for translation.
-    private transient @NotNull Locale currentLocale = DEFAULT_LOCALE;
+    private transient volatile @NotNull Locale currentLocale = DEFAULT_LOCALE;
+    // The class loader which finds language files in the plugin data folder. Created on first use.
+    private transient volatile @Nullable FileResourceClassLoader fileClassLoader;
+    // The watcher which reloads changed language files, or null if hot reloading is off.
+    private transient @Nullable LangFileWatcher watcher;
+    // The folder compiled language packs are cached in, or null if language packs are not used.
+    private transient volatile @Nullable Path packFolder;
+    // The largest number of threads locales are preloaded on.
+    private static final int MAX_PRELOAD_THREADS = 4;
+    // The lookups of missing translation keys.
+    private final transient @NotNull MissingTranslationTracker missingTranslations = new MissingTranslationTracker();
 
     /**
      * Initializes a new I18n instance.
@@ -63,16 +92,24 @@ public class I18n {
 
     /**
      * Initializes a new I18n instance.
+     * <p>
+     * The default resource bundle is loaded the first time a locale is loaded, rather than here; the constructor only
+     * checks that it exists.
      *
      * @param plugin   The plugin instance.
      * @param baseName The default resource bundle.
      *
+     * @throws MissingResourceException Thrown when no language file of the default resource bundle exists.
      * @since 1.1.0
      */
     public I18n(final @NotNull Plugin plugin, final @NotNull String baseName) {
         this.plugin = plugin;
         this.baseName = baseName;
-        this.defaultBundle = ResourceBundle.getBundle(baseName, DEFAULT_LOCALE, new Utf8LangFileControl());
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        final @NotNull ClassLoader classLoader = I18n.class.getClassLoader();
+        if (control.getCandidateLocales(baseName, DEFAULT_LOCALE).stream().noneMatch(candidate -> classLoader.getResource(control.toResourceName(control.toBundleName(baseName, candidate), "lang")) != null)) {
+            throw new MissingResourceException(String.format("Can't find bundle for base name %s, locale %s", baseName, DEFAULT_LOCALE), baseName + "_" + DEFAULT_LOCALE, "");
+        }
     }
 
     /**
@@ -96,10 +133,102 @@ public class I18n {
      * @since 1.0.0
      */
     public static String tr(final @NotNull String key, final @NotNull Object... format) {
-        if (instance == null) {
+        final @Nullable I18n i18n = instance;
+        if (i18n == null) {
+            return key;
+        }
+        return i18n.translate(key, format);
+    }
+
+    /**
+     * Translates a resource key into the locale of a command sender.
+     *
+     * @param sender The command sender. Players receive their client locale; anyone else receives the current locale.
+     * @param key    The resource key.
+     * @param format The formatting for the message.
+     * @return The translated key.
+     *
+     * @since 1.11.0
+     */
+    public static String tr(final @NotNull CommandSender sender, final @NotNull String key, final @NotNull Object... format) {
+        final @Nullable I18n i18n = instance;
+        if (i18n == null) {
+            return key;
+        }
+        return i18n.translate(i18n.getLocale(sender), key, format);
+    }
+
+    /**
+     * Translates a resource key into a locale.
+     *
+     * @param locale The locale.
+     * @param key    The resource key.
+     * @param format The formatting for the message.
+     * @return The translated key.
+     *
+     * @since 1.11.0
+     */
+    public static String tr(final @NotNull Locale locale, final @NotNull String key, final @NotNull Object... format) {
+        final @Nullable I18n i18n = instance;
+        if (i18n == null) {
             return key;
         }
-        return instance.translate(key, format);
+        return i18n.translate(locale, key, format);
+    }
+
+    /**
+     * Translates a resource key into a component in the locale of a command sender.
+     *
+     * @param sender The command sender. Players receive their client locale; anyone else receives the current locale.
+     * @param key    The resource key.
+     * @param format The formatting for the message. Components are inserted as they are.
+     * @return The translated component.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull Component trComponent(final @NotNull CommandSender sender, final @NotNull String key, final @NotNull Object... format) {
+        final @Nullable I18n i18n = instance;
+        if (i18n == null) {
+            return Component.text(key);
+        }
+        return i18n.translateComponent(i18n.getLocale(sender), key, format);
+    }
+
+    /**
+     * Translates a resource key into a component in the current locale.
+     *
+     * @param key    The resource key.
+     * @param format The formatting for the message. Components are inserted as they are.
+     * @return The translated component.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull Component trComponent(final @NotNull String key, final @NotNull Object... format) {
+        final @Nullable I18n i18n = instance;
+        if (i18n == null) {
+            return Component.text(key);
+        }
+        return i18n.translateComponent(i18n.getCurrentLocale(), key, format);
+    }
+
+    /**
+     * Parses a locale string such as {@code en_US} or {@code de_de}.
+     *
+     * @param locale The locale string.
+     *
+     * @return The locale, or {@code null} if the string is empty.
+     *
+     * @since 1.11.0
+     */
+    public static @Nullable Locale parseLocale(final @Nullable String locale) {
+        if (locale == null || locale.isEmpty()) {
+            return null;
+        }
+        final String[] parts = locale.split("_");
+        if (parts.length == 1) {
+            return new Locale(parts[0]);
+        }
+        return new Locale(parts[0], parts[parts.length - 1]);
     }
 
     /**
@@ -124,6 +253,64 @@ public class I18n {
         return plugin;
     }
 
+    /**
+     * Gets the lookups of missing translation keys.
+     * <p>
+     * Each missing key is logged the first time it is looked up in a locale; later lookups are only counted here.
+     *
+     * @return The missing translation tracker.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull MissingTranslationTracker getMissingTranslations() {
+        return this.missingTranslations;
+    }
+
+    /**
+     * Gets the locale a command sender reads messages in.
+     *
+     * @param sender The command sender.
+     *
+     * @return The client locale of a player, or the current locale for anyone else.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Locale getLocale(final @NotNull CommandSender sender) {
+        if (sender instanceof Player) {
+            final @Nullable Locale locale = ((Player) sender).locale();
+            if (locale != null) {
+                return locale;
+            }
+        }
+        return this.currentLocale;
+    }
+
+    /**
+     * Resolves a locale to the locale of the most specific language file it loads, as {@link ResourceBundle} would.
+     * <p>
+     * Locales which load the same language files, such as {@code en_GB} and {@code en_AU} when only {@code en} is
+     * translated, resolve to the same bundle locale and share their translations and templates. A locale without
+     * language files of its own falls back to the JVM default locale, and then to the base bundle, which resolves to
+     * {@link Locale#ROOT}.
+     *
+     * @param locale The requested locale.
+     *
+     * @return The bundle locale.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Locale resolveLocale(final @NotNull Locale locale) {
+        @Nullable Locale resolved = this.resolvedLocales.get(locale);
+        if (resolved == null) {
+            resolved = this.findBundleLocale(locale);
+            if (this.resolvedLocales.size() >= MAX_RESOLVED_LOCALES) {
+                this.resolvedLocales.clear();
+            }
+            this.resolvedLocales.put(locale, resolved);
+        }
+        return resolved;
+    }
+
     /**
      * Translates a string with the given formatting parts.
      *
@@ -133,13 +320,66 @@ public class I18n {
      * @since 1.1.0
      */
     protected final @NotNull String translate(final @NotNull String key, final @NotNull Object... format) {
+        return this.translate(this.currentLocale, key, format);
+    }
+
+    /**
+     * Translates a string into a locale with the given formatting parts.
+     * <p>
+     * The bundles of each locale are loaded the first time the locale is used, and kept until the locale has not been
+     * used for a while. Translations are shared by every locale which {@linkplain #resolveLocale(Locale) resolves} to
+     * the same bundle locale, and numbers and dates are formatted in the bundle locale.
+     *
+     * @param locale The locale.
+     * @param key    The key to translate.
+     * @param format The message format parts
+     * @return The translated key.
+     * @since 1.11.0
+     */
+    public final @NotNull String translate(final @NotNull Locale locale, final @NotNull String key, final @NotNull Object... format) {
+        final @NotNull LocaleTranslations translations = this.getTranslations(locale);
         if (format.length == 0) {
-            return DOUBLE_APOS.matcher(this.translate(key)).replaceAll("'");
+            final @Nullable String text = translations.getText(key);
+            return text == null ? this.translate(translations, key) : text;
         } else {
-            return this.format(key, format);
+            return this.format(translations, key, format);
         }
     }
 
+    /**
+     * Translates a string into a component in a locale with the given formatting parts.
+     * <p>
+     * The translation is parsed into a component tree once per locale and cached; each call only fills in the
+     * arguments. Arguments which are components are inserted as they are, and any other argument is inserted as plain
+     * text, so formatting codes in arguments are not interpreted.
+     *
+     * @param locale The locale.
+     * @param key    The key to translate.
+     * @param format The message format parts
+     * @return The translated component.
+     * @since 1.11.0
+     */
+    public final @NotNull Component translateComponent(final @NotNull Locale locale, final @NotNull String key, final @NotNull Object... format) {
+        final @NotNull LocaleTranslations translations = this.getTranslations(locale);
+        final @Nullable ComponentTemplate template = translations.getComponentCache()
+                .get(this.translate(translations, key), pattern -> {
+                    final @Nullable MessageTemplate message = translations.getTemplateCache().get(pattern, p -> this.compile(key, p, translations.getLocale()));
+                    return message == null ? null : ComponentTemplate.compile(message, this.getComponentSerializer());
+                });
+        return template == null ? Component.text(key) : template.render(format);
+    }
+
+    /**
+     * Gets the serializer which parses the formatting codes of translations into components.
+     *
+     * @return The serializer. By default, the legacy serializer for section sign formatting codes.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull LegacyComponentSerializer getComponentSerializer() {
+        return LegacyComponentSerializer.legacySection();
+    }
+
     /**
      * Sets the current locale of the internationalization handler.
      *
@@ -148,32 +388,272 @@ public class I18n {
      * @since 1.1.0
      */
     public final void setLocale(final @Nullable String locale) {
-        if (locale != null && !locale.isEmpty()) {
-            final String[] parts = locale.split("_");
-            if (parts.length == 1) {
-                this.currentLocale = new Locale(parts[0]);
-            } else if (parts.length >= 2) {
-                this.currentLocale = new Locale(parts[0], parts[parts.length - 1]);
+        final @Nullable Locale parsed = parseLocale(locale);
+        if (parsed != null) {
+            this.currentLocale = parsed;
+        }
+        this.invalidateFiles();
+        final @NotNull Locale resolved = this.resolveLocale(this.currentLocale);
+        this.locales.put(resolved, this.loadTranslations(resolved));
+    }
+
+    /**
+     * Reloads the translations of every loaded locale from the language files.
+     * <p>
+     * Each locale is loaded in full before it replaces the previous translations, so translations running at the same
+     * time use either the old or the new translations, never a mix.
+     *
+     * @since 1.11.0
+     */
+    public final void reload() {
+        this.reloadFiles(null);
+    }
+
+    /**
+     * Reloads the translations of the loaded locales which a set of changed language files contribute to.
+     *
+     * @param fileLocales The locales of the changed files, or {@code null} to reload every loaded locale.
+     *
+     * @since 1.11.0
+     */
+    final void reloadFiles(final @Nullable Set<Locale> fileLocales) {
+        this.invalidateFiles();
+        for (final @NotNull Locale locale : this.locales.keySet()) {
+            if (fileLocales != null && Collections.disjoint(fileLocales, this.getBundleChain(locale))) {
+                continue;
+            }
+            final @NotNull LocaleTranslations loaded = this.loadTranslations(locale);
+            // Skips locales evicted while loading.
+            if (this.locales.computeIfPresent(locale, (key, previous) -> loaded) != null) {
+                this.plugin.getLogger().log(Level.INFO, "[I18n] Reloaded translations for locale {0}.", new Object[]{locale});
             }
         }
+    }
+
+    /**
+     * Starts reloading language files in the plugin data folder when they change.
+     * <p>
+     * A background thread watches the data folder and reloads the locales a changed file contributes to, once the file
+     * has stopped changing. Does nothing if the files are already being watched.
+     *
+     * @throws IOException Thrown when the data folder cannot be watched.
+     * @since 1.11.0
+     */
+    public final synchronized void startWatching() throws IOException {
+        if (this.watcher != null) {
+            return;
+        }
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        final @NotNull Path folder = this.plugin.getDataFolder().toPath();
+        final @NotNull Path baseFile = folder.resolve(control.toResourceName(this.baseName, "lang"));
+        final @NotNull Path localeFile = folder.resolve(control.toResourceName(control.toBundleName(this.baseName, DEFAULT_LOCALE), "lang"));
+        this.watcher = new LangFileWatcher(this, baseFile, localeFile.getParent());
+        this.watcher.start();
+    }
+
+    /**
+     * Stops reloading changed language files.
+     *
+     * @since 1.11.0
+     */
+    public final synchronized void stopWatching() {
+        if (this.watcher != null) {
+            this.watcher.close();
+            this.watcher = null;
+        }
+    }
 
+    /**
+     * Gets the translations of a locale, loading them if the locale has not been used recently.
+     *
+     * @param locale The locale.
+     *
+     * @return The translations of the bundle locale the locale resolves to.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull LocaleTranslations getTranslations(final @NotNull Locale locale) {
+        final @NotNull Locale resolved = this.resolveLocale(locale);
+        @Nullable LocaleTranslations translations = this.locales.get(resolved);
+        if (translations == null) {
+            translations = this.locales.computeIfAbsent(resolved, this::loadTranslations);
+        }
+        translations.touch();
+        if (System.currentTimeMillis() - this.lastSweep > LOCALE_SWEEP_INTERVAL) {
+            this.evictUnusedLocales();
+        }
+        return translations;
+    }
+
+    /**
+     * Loads the bundles of a locale.
+     *
+     * @param locale The bundle locale, as resolved by {@link #resolveLocale(Locale)}.
+     *
+     * @return The translations of the locale.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull LocaleTranslations loadTranslations(final @NotNull Locale locale) {
+        final @Nullable Path packFolder = this.packFolder;
+        @Nullable Path packFile = null;
+        long stamp = 0L;
+        if (packFolder != null) {
+            packFile = this.getPackFile(packFolder, locale);
+            stamp = packFile == null ? 0L : this.getSourceStamp(locale);
+            final @Nullable LanguagePack pack = stamp == 0L ? null : this.openPack(packFile, stamp);
+            if (pack != null) {
+                return new LocaleTranslations(locale, pack);
+            }
+        }
+
+        @Nullable ResourceBundle localeBundle;
         try {
-            this.localeBundle = this.getResourceBundleForLocale(this.currentLocale);
+            localeBundle = this.getResourceBundleForLocale(locale);
         } catch (MissingResourceException ex) {
             this.getPlugin()
                     .getLogger()
-                    .log(Level.FINE, "[Localization] Failed to load internal locale bundle for current locale {0}.", new Object[]{this.currentLocale});
-            this.localeBundle = null;
+                    .log(Level.FINE, "[Localization] Failed to load internal locale bundle for locale {0}.", new Object[]{locale});
+            localeBundle = null;
         }
 
+        @Nullable ResourceBundle fileBundle;
         try {
-            this.fileBundle = ResourceBundle.getBundle(this.baseName, this.currentLocale, new FileResourceClassLoader(I18n.class.getClassLoader(), this.plugin), new Utf8LangFileControl());
+            fileBundle = ResourceBundle.getBundle(this.baseName, locale, this.getFileClassLoader(), new Utf8LangFileControl());
         } catch (MissingResourceException ex) {
             this.getPlugin()
                     .getLogger()
-                    .log(Level.FINE, "[Localization] Failed to load custom locale bundle for current locale {0}.", new Object[]{this.currentLocale});
-            this.fileBundle = null;
+                    .log(Level.FINE, "[Localization] Failed to load custom locale bundle for locale {0}.", new Object[]{locale});
+            fileBundle = null;
+        }
+        final @NotNull LocaleTranslations translations = LocaleTranslations.merge(locale, this.getDefaultBundle(), localeBundle, fileBundle);
+        if (packFile != null && stamp != 0L) {
+            try {
+                LanguagePack.write(translations.toMap(), stamp, packFile);
+            } catch (IOException ex) {
+                this.plugin.getLogger()
+                        .log(Level.WARNING, String.format("[I18n] Failed to write language pack %s.", packFile), ex);
+            }
+        }
+        return translations;
+    }
+
+    /**
+     * Finds the locales the plugin has language files for, both shipped in the plugin jar and in the data folder.
+     *
+     * @return The locales, without the base bundle.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Set<Locale> discoverLocales() {
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        final @NotNull String localeResource = control.toResourceName(control.toBundleName(this.baseName, DEFAULT_LOCALE), "lang");
+        final @NotNull String folder = localeResource.substring(0, localeResource.lastIndexOf('/') + 1);
+        final @NotNull Set<String> names = new TreeSet<>();
+        try {
+            final @Nullable CodeSource source = this.plugin.getClass().getProtectionDomain().getCodeSource();
+            final @Nullable Path location = source == null ? null : Path.of(source.getLocation().toURI());
+            if (location != null && Files.isRegularFile(location)) {
+                try (final @NotNull JarFile jar = new JarFile(location.toFile())) {
+                    jar.stream().map(JarEntry::getName).filter(name -> name.startsWith(folder)).forEach(name -> names.add(name.substring(folder.length())));
+                }
+            } else if (location != null) {
+                listLangFiles(location.resolve(folder), names);
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException | SecurityException ex) {
+            this.plugin.getLogger()
+                    .log(Level.FINE, "[I18n] Failed to list the language files shipped with the plugin.");
+            this.plugin.getLogger().log(Level.FINER, ex.getMessage(), ex);
+        }
+        try {
+            listLangFiles(this.plugin.getDataFolder().toPath().resolve(folder), names);
+        } catch (IOException ex) {
+            this.plugin.getLogger()
+                    .log(Level.FINE, "[I18n] Failed to list the language files in the data folder.");
+            this.plugin.getLogger().log(Level.FINER, ex.getMessage(), ex);
+        }
+        final @NotNull Set<Locale> locales = new LinkedHashSet<>();
+        for (final @NotNull String name : names) {
+            if (name.endsWith(".lang") && name.indexOf('/') < 0) {
+                final @Nullable Locale locale = parseLocale(name.substring(0, name.length() - ".lang".length()));
+                if (locale != null) {
+                    locales.add(locale);
+                }
+            }
         }
+        return locales;
+    }
+
+    /**
+     * Loads the translations of locales in parallel on an executor.
+     * <p>
+     * Locales which are already loaded complete immediately. Preloaded locales are pinned: unlike locales loaded on
+     * first use, they are never evicted when unused, so that they are never loaded again on the thread which needs
+     * them.
+     *
+     * @param locales  The locales.
+     * @param executor The executor the locales are loaded on.
+     *
+     * @return A future for the translations of each locale.
+     *
+     * @since 1.11.0
+     */
+    public final @NotNull Map<Locale, CompletableFuture<LocaleTranslations>> preload(final @NotNull Collection<Locale> locales, final @NotNull Executor executor) {
+        final @NotNull Map<Locale, CompletableFuture<LocaleTranslations>> futures = new LinkedHashMap<>();
+        for (final @NotNull Locale locale : locales) {
+            futures.computeIfAbsent(locale, key -> CompletableFuture.supplyAsync(() -> {
+                this.pinnedLocales.add(this.resolveLocale(key));
+                return this.getTranslations(key);
+            }, executor).whenComplete((translations, ex) -> {
+                if (ex != null) {
+                    this.plugin.getLogger().log(Level.WARNING, String.format("[I18n] Failed to preload locale %s.", key), ex);
+                }
+            }));
+        }
+        return futures;
+    }
+
+    /**
+     * Loads the translations of the current locale and of every locale found by {@link #discoverLocales()} in
+     * parallel, on a small executor which shuts down once they are loaded.
+     * <p>
+     * The preloaded locales are never evicted. Without preloading, each locale is loaded the first time it is needed,
+     * and evicted again once it has not been used for a while.
+     *
+     * @return A future which completes once every locale has been loaded.
+     *
+     * @since 1.11.0
+     */
+    public final @NotNull CompletableFuture<Void> preloadAll() {
+        final @NotNull Set<Locale> locales = new LinkedHashSet<>();
+        locales.add(this.currentLocale);
+        locales.addAll(this.discoverLocales());
+        final @NotNull AtomicInteger threadCount = new AtomicInteger();
+        final @NotNull ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(Math.min(MAX_PRELOAD_THREADS, Runtime.getRuntime().availableProcessors()), locales.size())), runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, String.format("I18n-Preload-%s-%d", this.plugin.getName(), threadCount.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+        final @NotNull CompletableFuture<Void> all = CompletableFuture.allOf(this.preload(locales, executor).values().toArray(new CompletableFuture<?>[0]));
+        all.whenComplete((ignored, ex) -> executor.shutdown());
+        return all;
+    }
+
+    /**
+     * Sets the folder compiled language packs are cached in.
+     * <p>
+     * When set, the merged translations of a bundle locale are compiled into a {@link LanguagePack} in the folder the
+     * first time the locale is loaded. Later loads, including after a restart, map the pack into memory instead of
+     * parsing the language files, for as long as the language files are unchanged. Packs are only written for locales
+     * which have language files of their own, and never outside the folder. Packs are only used with the default
+     * resource lookup; subclasses overriding {@link #getResourceBundleForLocale(Locale)} should not set a folder.
+     *
+     * @param folder The folder, or {@code null} to always parse the language files.
+     *
+     * @since 1.11.0
+     */
+    public final void setLanguagePackFolder(final @Nullable Path folder) {
+        this.packFolder = folder;
     }
 
     /**
@@ -204,77 +684,265 @@ public class I18n {
      * @since 1.1.0
      */
     public void disable() {
+        this.stopWatching();
         instance = null;
     }
 
     /**
-     * Translates a given resource key using the current locale bundle.
+     * Translates a given resource key using the translations of a locale.
      *
-     * @param key The resource key
+     * @param translations The translations of the locale.
+     * @param key          The resource key
      *
-     * @return The translated value from the current or default locale, or the key itself if no such key exists.
+     * @return The translated value from the locale's merged bundles, or the key itself if no such key exists.
      *
      * @since 1.1.0
      */
-    private @NotNull String translate(@NotNull final String key) {
-        if (this.fileBundle != null) {
-            try {
-                return this.fileBundle.getString(key);
-            } catch (final MissingResourceException ex) {
-                this.plugin.getLogger()
-                        .log(Level.FINE, "[I18n] Missing translation key \"{0}\" in custom resource file \"{1}{2}{3}.lang\"; falling back to internal locale.", new Object[]{ex.getKey(), this.getPlugin()
-                                .getDataFolder().getPath(), File.separator, this.fileBundle.getLocale()});
-            }
-        }
-        if (this.localeBundle != null) {
-            try {
-                return this.localeBundle.getString(key);
-            } catch (MissingResourceException ex) {
-                this.plugin.getLogger()
-                        .log(Level.FINE, "[I18n] Missing translation key \"{0}\" in resource file \"{1}.lang\"; falling back to default.", new Object[]{ex.getKey(), localeBundle.getLocale()});
-            }
+    private @NotNull String translate(final @NotNull LocaleTranslations translations, @NotNull final String key) {
+        final @Nullable String translation = translations.get(key);
+        if (translation != null) {
+            return translation;
         }
-        try {
-            return this.defaultBundle.getString(key);
-        } catch (MissingResourceException ex) {
+        if (this.missingTranslations.record(translations.getLocale(), key)) {
             this.plugin.getLogger()
-                    .log(Level.WARNING, "[I18n] Missing default translation key \"{0}\" in resource file \"{1}.lang\"!", new Object[]{ex.getKey(), defaultBundle.getLocale()});
-            return key;
+                    .log(Level.WARNING, "[I18n] Missing translation key \"{0}\" for locale {1}! Further lookups of the key are only counted.", new Object[]{key, translations.getLocale()});
         }
+        return key;
     }
 
     /**
      * Formats a resource value using the specified formatting parts.
      *
-     * @param key    The key of the resource to format.
-     * @param format The format parts.
+     * @param translations The translations of the locale.
+     * @param key          The key of the resource to format.
+     * @param format       The format parts.
      *
      * @return The translated and formatted key from the resource file, or the key itself if no such key exists.
      *
      * @since 1.1.0
      */
-    private @NotNull String format(final @NotNull String key, final @NotNull Object... format) {
-        @NotNull String translatedKey = this.translate(key);
-        @Nullable MessageFormat messageFormat = this.messageFormatCache.get(translatedKey);
-        if (messageFormat == null) {
+    private @NotNull String format(final @NotNull LocaleTranslations translations, final @NotNull String key, final @NotNull Object... format) {
+        final @NotNull Locale locale = translations.getLocale();
+        final @Nullable MessageTemplate template = translations.getTemplateCache().get(this.translate(translations, key), pattern -> this.compile(key, pattern, locale));
+        return template == null ? key : template.format(format);
+    }
+
+    /**
+     * Compiles a translated pattern into a message template, escaping non-numeric argument braces if the pattern is
+     * invalid.
+     *
+     * @param key     The key of the resource, for log messages.
+     * @param pattern The translated pattern.
+     * @param locale  The locale numbers and dates are formatted in.
+     *
+     * @return The message template, or {@code null} if the pattern cannot be compiled.
+     *
+     * @since 1.11.0
+     */
+    private @Nullable MessageTemplate compile(final @NotNull String key, final @NotNull String pattern, final @NotNull Locale locale) {
+        try {
+            return MessageTemplate.compile(pattern, locale);
+        } catch (IllegalArgumentException ex) {
+            this.plugin.getLogger()
+                    .log(Level.WARNING, String.format("[I18n] Invalid translation key for \"%s\": %s", key, ex.getMessage()), ex);
             try {
-                messageFormat = new MessageFormat(translatedKey);
-                this.messageFormatCache.put(translatedKey, messageFormat);
-            } catch (IllegalArgumentException ex) {
+                return MessageTemplate.compile(pattern.replaceAll("\\{(\\D*?)}", "\\[$1\\]"), locale);
+            } catch (IllegalArgumentException ex1) {
                 this.plugin.getLogger()
-                        .log(Level.WARNING, String.format("[I18n] Invalid translation key for \"%s\": %s", key, ex.getMessage()), ex);
-                translatedKey = translatedKey.replaceAll("\\{(\\D*?)}", "\\[$1\\]");
-                try {
-                    messageFormat = new MessageFormat(translatedKey);
-                    this.messageFormatCache.put(translatedKey, messageFormat);
-                } catch (IllegalArgumentException ex1) {
-                    this.plugin.getLogger()
-                            .log(Level.SEVERE, String.format("[I18n] Invalid translation key for \"%s\": %s", key, ex.getMessage()), ex);
-                    return key;
+                        .log(Level.SEVERE, String.format("[I18n] Invalid translation key for \"%s\": %s", key, ex.getMessage()), ex);
+                return null;
+            }
+        }
+    }
+
+    // Gets the class loader which finds language files in the data folder.
+    private @NotNull FileResourceClassLoader getFileClassLoader() {
+        @Nullable FileResourceClassLoader classLoader = this.fileClassLoader;
+        if (classLoader == null) {
+            synchronized (this.locales) {
+                classLoader = this.fileClassLoader;
+                if (classLoader == null) {
+                    classLoader = new FileResourceClassLoader(I18n.class.getClassLoader(), this.plugin);
+                    this.fileClassLoader = classLoader;
                 }
             }
         }
-        return messageFormat.format(format);
+        return classLoader;
+    }
+
+    // Makes the next load read the language files in the data folder again.
+    private void invalidateFiles() {
+        final @NotNull FileResourceClassLoader classLoader = this.getFileClassLoader();
+        classLoader.refresh();
+        ResourceBundle.clearCache(classLoader);
+        this.resolvedLocales.clear();
+    }
+
+    // Finds the bundle locale of a locale, falling back to the JVM default locale and then the base bundle.
+    private @NotNull Locale findBundleLocale(final @NotNull Locale locale) {
+        if (Locale.ROOT.equals(locale)) {
+            return Locale.ROOT;
+        }
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        @Nullable Locale found = this.findLanguageFile(control, locale);
+        if (found == null) {
+            found = this.findLanguageFile(control, Locale.getDefault());
+        }
+        return found == null ? Locale.ROOT : found;
+    }
+
+    // Finds the most specific candidate of a locale with a language file, shipped or in the data folder.
+    private @Nullable Locale findLanguageFile(final @NotNull Utf8LangFileControl control, final @NotNull Locale locale) {
+        for (final @NotNull Locale candidate : control.getCandidateLocales(this.baseName, locale)) {
+            // Scripts and variants are not part of language file names, and locales sent by clients are not validated.
+            if (candidate.getLanguage().isEmpty() || !candidate.getScript().isEmpty() || !candidate.getVariant().isEmpty()
+                    || !isAlphanumeric(candidate.getLanguage()) || !isAlphanumeric(candidate.getCountry())) {
+                continue;
+            }
+            if (this.getFileClassLoader().getResource(control.toResourceName(control.toBundleName(this.baseName, candidate), "lang")) != null) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    // Gets the default bundle, loading it on first use.
+    private @NotNull ResourceBundle getDefaultBundle() {
+        @Nullable ResourceBundle bundle = this.defaultBundle;
+        if (bundle == null) {
+            synchronized (this.locales) {
+                bundle = this.defaultBundle;
+                if (bundle == null) {
+                    bundle = ResourceBundle.getBundle(this.baseName, DEFAULT_LOCALE, new Utf8LangFileControl());
+                    this.defaultBundle = bundle;
+                }
+            }
+        }
+        return bundle;
+    }
+
+    // Adds the names of the language files in a folder, if it exists.
+    private static void listLangFiles(final @NotNull Path folder, final @NotNull Set<String> names) throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        try (final @NotNull Stream<Path> files = Files.list(folder)) {
+            files.map(file -> file.getFileName().toString()).filter(name -> name.endsWith(".lang")).forEach(names::add);
+        }
+    }
+
+    // Gets the pack file of a locale, or returns null if the locale has no language file of its own or its pack would
+    // lie outside the pack folder.
+    private @Nullable Path getPackFile(final @NotNull Path packFolder, final @NotNull Locale locale) {
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        if (!Locale.ROOT.equals(locale) && !locale.equals(this.findLanguageFile(control, locale))) {
+            return null;
+        }
+        final @NotNull Path folder = packFolder.toAbsolutePath().normalize();
+        final @NotNull Path packFile = folder.resolve(control.toBundleName(this.baseName, locale) + ".pack").normalize();
+        if (!packFile.startsWith(folder) || packFile.equals(folder)) {
+            this.plugin.getLogger().log(Level.WARNING, "[I18n] Refusing to write language pack {0} outside of {1}.", new Object[]{packFile, folder});
+            return null;
+        }
+        return packFile;
+    }
+
+    // Opens the cached language pack of a locale, or returns null if it is missing, invalid or stale.
+    private @Nullable LanguagePack openPack(final @NotNull Path packFile, final long stamp) {
+        if (!Files.isRegularFile(packFile)) {
+            return null;
+        }
+        try {
+            final @NotNull LanguagePack pack = LanguagePack.open(packFile);
+            if (pack.getStamp() == stamp) {
+                return pack;
+            }
+            this.plugin.getLogger().log(Level.FINE, "[I18n] Language pack {0} is stale.", new Object[]{packFile});
+        } catch (IOException ex) {
+            this.plugin.getLogger()
+                    .log(Level.FINE, "[I18n] Failed to open language pack {0}.", new Object[]{packFile});
+            this.plugin.getLogger().log(Level.FINER, ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    // Computes a stamp of the language files a locale is loaded from, from their sizes, modification times and
+    // checksums, without reading them. Returns 0 if a file cannot be stamped.
+    private long getSourceStamp(final @NotNull Locale locale) {
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        final @NotNull Set<Locale> candidates = new LinkedHashSet<>(control.getCandidateLocales(this.baseName, DEFAULT_LOCALE));
+        candidates.addAll(control.getCandidateLocales(this.baseName, locale));
+        // Bundles of the JVM default locale are used when a locale has none of its own.
+        candidates.addAll(control.getCandidateLocales(this.baseName, Locale.getDefault()));
+        final @NotNull ClassLoader classLoader = I18n.class.getClassLoader();
+        long stamp = 17L;
+        try {
+            for (final @NotNull Locale candidate : candidates) {
+                final @NotNull String name = control.toResourceName(control.toBundleName(this.baseName, candidate), "lang");
+                stamp = 31L * stamp + name.hashCode();
+                final @NotNull File file = new File(this.plugin.getDataFolder(), name);
+                if (file.isFile()) {
+                    stamp = 31L * (31L * stamp + file.length()) + file.lastModified();
+                }
+                final @Nullable URL url = classLoader.getResource(name);
+                if (url == null) {
+                    continue;
+                }
+                if ("file".equals(url.getProtocol())) {
+                    final @NotNull File resource = new File(url.toURI());
+                    stamp = 31L * (31L * stamp + resource.length()) + resource.lastModified();
+                    continue;
+                }
+                final @NotNull URLConnection connection = url.openConnection();
+                if (!(connection instanceof JarURLConnection)) {
+                    return 0L;
+                }
+                final @NotNull JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+                stamp = 31L * (31L * stamp + entry.getSize()) + entry.getCrc();
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException ex) {
+            this.plugin.getLogger().log(Level.FINER, ex.getMessage(), ex);
+            return 0L;
+        }
+        return stamp == 0L ? 1L : stamp;
+    }
+
+    // Checks whether a locale part consists only of ASCII letters and digits.
+    private static boolean isAlphanumeric(final @NotNull String part) {
+        for (int i = 0; i < part.length(); ++i) {
+            final char ch = part.charAt(i);
+            if (!(ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Gets the locales of the language files the translations of a bundle locale are loaded from.
+    private @NotNull Set<Locale> getBundleChain(final @NotNull Locale locale) {
+        final @NotNull Utf8LangFileControl control = new Utf8LangFileControl();
+        final @NotNull Set<Locale> chain = new HashSet<>();
+        addFileLocales(chain, control, locale);
+        if (!Locale.ROOT.equals(locale) && this.findLanguageFile(control, locale) == null) {
+            // ResourceBundle falls back to the bundles of the JVM default locale.
+            addFileLocales(chain, control, Locale.getDefault());
+        }
+        return chain;
+    }
+
+    // Adds the locales of the language files a locale's bundle is looked up in, as their file names identify them.
+    private void addFileLocales(final @NotNull Set<Locale> chain, final @NotNull Utf8LangFileControl control, final @NotNull Locale locale) {
+        for (final @NotNull Locale candidate : control.getCandidateLocales(this.baseName, locale)) {
+            chain.add(candidate.getLanguage().isEmpty() ? Locale.ROOT : new Locale(candidate.getLanguage(), candidate.getCountry()));
+        }
+    }
+
+    // Evicts the translations of locales, other than the current and preloaded locales, which have not been used for a while.
+    private void evictUnusedLocales() {
+        final long now = System.currentTimeMillis();
+        this.lastSweep = now;
+        final @NotNull Locale current = this.resolveLocale(this.currentLocale);
+        this.locales.values().removeIf(translations -> !translations.getLocale().equals(current) && !this.pinnedLocales.contains(translations.getLocale()) && now - translations.getLastAccess() > LOCALE_IDLE_TIMEOUT);
     }
 
     /**
@@ -368,8 +1036,12 @@ public class I18n {
      * @since 1.8.0
      */
     public static final class FileResourceClassLoader extends ClassLoader {
+        // The greatest depth of the data folder searched for language files.
+        private static final int MAX_DEPTH = 8;
         // The plugin.
         private final @NotNull Plugin plugin;
+        // The language files in the data folder, relative to it, or null until the folder has been listed.
+        private volatile @Nullable Set<String> langFiles;
 
         /**
          * Creates a new file resource class loader.
@@ -418,7 +1090,7 @@ public class I18n {
         @Override
         public URL getResource(final @NotNull String name) {
             final File file = new File(this.plugin.getDataFolder().getPath(), name);
-            if (file.exists()) {
+            if (this.exists(name, file)) {
                 try {
                     return file.toURI().toURL();
                 } catch (final MalformedURLException ex) {
@@ -458,7 +1130,7 @@ public class I18n {
         @Override
         public InputStream getResourceAsStream(String name) {
             final File file = new File(this.plugin.getDataFolder().getPath(), name);
-            if (file.exists()) {
+            if (this.exists(name, file)) {
                 try {
                     return new FileInputStream(file);
                 } catch (final FileNotFoundException ex) {
@@ -470,5 +1142,49 @@ public class I18n {
 
             return super.getResourceAsStream(name);
         }
+
+        /**
+         * Discards the cached listing of language files in the data folder, so that the next lookup lists the folder
+         * again.
+         *
+         * @since 1.11.0
+         */
+        public void refresh() {
+            this.langFiles = null;
+        }
+
+        // Checks whether a resource exists in the data folder. Language files are looked up in a cached listing.
+        private boolean exists(final @NotNull String name, final @NotNull File file) {
+            if (!name.endsWith(".lang")) {
+                return file.exists();
+            }
+            @Nullable Set<String> langFiles = this.langFiles;
+            if (langFiles == null) {
+                langFiles = this.listLangFiles();
+                if (langFiles == null) {
+                    return file.exists();
+                }
+                this.langFiles = langFiles;
+            }
+            return langFiles.contains(name);
+        }
+
+        // Lists the language files in the data folder, or returns null if the folder cannot be listed.
+        private @Nullable Set<String> listLangFiles() {
+            final @NotNull Path folder = this.plugin.getDataFolder().toPath();
+            if (!Files.isDirectory(folder)) {
+                return Set.of();
+            }
+            try (final @NotNull Stream<Path> paths = Files.walk(folder, MAX_DEPTH)) {
+                return paths.filter(path -> path.getFileName().toString().endsWith(".lang") && Files.isRegularFile(path))
+                        .map(path -> folder.relativize(path).toString().replace(File.separatorChar, '/'))
+                        .collect(Collectors.toUnmodifiableSet());
+            } catch (IOException | UncheckedIOException ex) {
+                this.plugin.getLogger()
+                        .log(Level.FINE, "[I18n] Failed to list language files in data folder {0}.", new Object[]{folder});
+                this.plugin.getLogger().log(Level.FINER, ex.getMessage(), ex);
+                return null;
+            }
+        }
     }
 }
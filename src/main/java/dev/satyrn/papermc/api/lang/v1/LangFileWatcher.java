@@ -0,0 +1,173 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches the language files in the plugin data folder and reloads the locales they contribute to when they change.
+ * <p>
+ * Changes are collected until the files have been quiet for a short while, so that an editor saving a file in several
+ * steps causes one reload. Reloading happens on the watcher thread.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+final class LangFileWatcher implements Closeable {
+    // How long the files must be quiet before changes are reloaded, in milliseconds.
+    private static final long DEBOUNCE_INTERVAL = 250L;
+
+    // The internationalization handler to reload.
+    private final transient @NotNull I18n i18n;
+    // The base language file, which contributes to every locale.
+    private final transient @NotNull Path baseFile;
+    // The folder containing the language files of each locale.
+    private final transient @NotNull Path localeFolder;
+    // The watch service.
+    private final transient @NotNull WatchService watchService;
+    // The watcher thread.
+    private final transient @NotNull Thread thread;
+    // Whether the watcher has been closed.
+    private transient volatile boolean closed;
+    // Whether the locale folder is registered with the watch service.
+    private transient boolean localeFolderWatched;
+
+    /**
+     * Creates a new language file watcher.
+     *
+     * @param i18n         The internationalization handler to reload.
+     * @param baseFile     The base language file.
+     * @param localeFolder The folder containing the language files of each locale.
+     *
+     * @throws IOException Thrown when the data folder cannot be watched.
+     * @since 1.11.0
+     */
+    LangFileWatcher(final @NotNull I18n i18n, final @NotNull Path baseFile, final @NotNull Path localeFolder) throws IOException {
+        this.i18n = i18n;
+        this.baseFile = baseFile.toAbsolutePath();
+        this.localeFolder = localeFolder.toAbsolutePath();
+        final @NotNull Path baseFolder = this.baseFile.getParent();
+        Files.createDirectories(baseFolder);
+        this.watchService = baseFolder.getFileSystem().newWatchService();
+        try {
+            this.register(baseFolder);
+            this.registerLocaleFolder();
+        } catch (IOException ex) {
+            this.watchService.close();
+            throw ex;
+        }
+        this.thread = new Thread(this::run, String.format("I18n-Watcher-%s", i18n.getPlugin().getName()));
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the language files.
+     *
+     * @since 1.11.0
+     */
+    void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stops watching the language files.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        try {
+            this.watchService.close();
+        } catch (IOException ex) {
+            this.i18n.getPlugin().getLogger().log(Level.FINE, "[I18n] Failed to close the language file watcher.", ex);
+        }
+        this.thread.interrupt();
+    }
+
+    // Waits for changes and reloads the affected locales until closed.
+    private void run() {
+        while (!this.closed) {
+            try {
+                final @NotNull Set<Locale> changed = new HashSet<>();
+                boolean all = this.collect(this.watchService.take(), changed);
+                @Nullable WatchKey key;
+                while ((key = this.watchService.poll(DEBOUNCE_INTERVAL, TimeUnit.MILLISECONDS)) != null) {
+                    all |= this.collect(key, changed);
+                }
+                if (all) {
+                    this.i18n.reloadFiles(null);
+                } else if (!changed.isEmpty()) {
+                    this.i18n.reloadFiles(changed);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                this.i18n.getPlugin().getLogger().log(Level.WARNING, "[I18n] Failed to reload changed language files.", ex);
+            }
+        }
+    }
+
+    // Collects the locales of the changed files of a watch key. Returns true if every locale must be reloaded.
+    private boolean collect(final @NotNull WatchKey key, final @NotNull Set<Locale> changed) {
+        boolean all = false;
+        final @NotNull Path folder = ((Path) key.watchable()).toAbsolutePath();
+        for (final @NotNull WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                all = true;
+                continue;
+            }
+            final @NotNull Path path = folder.resolve((Path) event.context());
+            if (path.equals(this.baseFile)) {
+                all = true;
+            } else if (path.equals(this.localeFolder)) {
+                // The locale folder was created after the watcher started.
+                all |= this.registerLocaleFolder();
+            } else if (folder.equals(this.localeFolder)) {
+                final @NotNull String name = path.getFileName().toString();
+                if (name.endsWith(".lang")) {
+                    final @Nullable Locale locale = I18n.parseLocale(name.substring(0, name.length() - ".lang".length()));
+                    if (locale != null) {
+                        changed.add(locale);
+                    }
+                }
+            }
+        }
+        if (!key.reset() && folder.equals(this.localeFolder)) {
+            // The locale folder was deleted.
+            this.localeFolderWatched = false;
+            all = true;
+        }
+        return all;
+    }
+
+    // Registers the locale folder if it exists and is not yet registered. Returns true if it was registered.
+    private boolean registerLocaleFolder() {
+        if (this.localeFolderWatched || this.localeFolder.equals(this.baseFile.getParent()) || !Files.isDirectory(this.localeFolder)) {
+            return false;
+        }
+        try {
+            this.register(this.localeFolder);
+            this.localeFolderWatched = true;
+            return true;
+        } catch (IOException ex) {
+            this.i18n.getPlugin()
+                    .getLogger()
+                    .log(Level.WARNING, String.format("[I18n] Failed to watch language folder %s.", this.localeFolder), ex);
+            return false;
+        }
+    }
+
+    // Registers a folder with the watch service.
+    private void register(final @NotNull Path folder) throws IOException {
+        folder.register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+}
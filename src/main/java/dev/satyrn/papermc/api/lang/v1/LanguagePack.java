@@ -0,0 +1,418 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The translations of a locale, precompiled into a compact binary file which is read through a memory mapping.
+ * <p>
+ * A pack holds a string table, in which every distinct string is stored once as UTF-8, and a minimal perfect hash
+ * index of the keys built with the hash-and-displace method: a key is hashed into a bucket, the bucket's displacement
+ * selects a second hash function, and the second hash gives the key's slot. Every lookup therefore probes exactly one
+ * slot. Opening a pack validates its header and index, so that a corrupt pack fails to open rather than failing a
+ * lookup; strings are decoded the first time they are looked up, and shared afterwards.
+ * <p>
+ * The layout, in big-endian order, is: a header of magic number, format version, source stamp, key count, string
+ * count, bucket count and slot count; the displacement of each bucket; the key, value and text string of each slot, or
+ * {@code -1} for empty slots; the end offset of each string; and the string data.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class LanguagePack {
+    // The magic number of pack files, "LPAK".
+    private static final int MAGIC = 0x4C50414B;
+    // The version of the pack format.
+    private static final int VERSION = 1;
+    // The size of the header in bytes.
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 * 4;
+    // The average number of keys per bucket.
+    private static final int KEYS_PER_BUCKET = 4;
+    // The number of displacements tried for a bucket before the index is rebuilt with more slots.
+    private static final int MAX_DISPLACEMENT = 1 << 16;
+
+    // The pack data.
+    private final @NotNull ByteBuffer buffer;
+    // The stamp of the sources the pack was compiled from.
+    private final long stamp;
+    // The number of keys.
+    private final int keyCount;
+    // The number of strings.
+    private final int stringCount;
+    // The number of buckets.
+    private final int bucketCount;
+    // The number of slots.
+    private final int slotCount;
+    // The offset of the bucket displacements.
+    private final int displacementsOffset;
+    // The offset of the slots.
+    private final int slotsOffset;
+    // The offset of the string end offsets.
+    private final int stringEndsOffset;
+    // The offset of the string data.
+    private final int stringsOffset;
+    // The decoded strings, filled in as they are looked up. Strings are immutable, so racing writes are harmless.
+    private final @Nullable String[] strings;
+
+    private LanguagePack(final @NotNull ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a language pack.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException(String.format("Unsupported language pack version %d.", buffer.getInt(4)));
+        }
+        this.stamp = buffer.getLong(8);
+        this.keyCount = buffer.getInt(16);
+        this.stringCount = buffer.getInt(20);
+        this.bucketCount = buffer.getInt(24);
+        this.slotCount = buffer.getInt(28);
+        if (this.keyCount < 0 || this.stringCount < 0 || this.bucketCount < 1 || this.slotCount < this.keyCount) {
+            throw new IOException("Corrupt language pack header.");
+        }
+        if (HEADER_SIZE + 4L * this.bucketCount + 12L * this.slotCount + 4L * this.stringCount > buffer.capacity()) {
+            throw new IOException("Truncated language pack.");
+        }
+        this.displacementsOffset = HEADER_SIZE;
+        this.slotsOffset = this.displacementsOffset + 4 * this.bucketCount;
+        this.stringEndsOffset = this.slotsOffset + 12 * this.slotCount;
+        this.stringsOffset = this.stringEndsOffset + 4 * this.stringCount;
+        this.validate();
+        this.strings = new String[this.stringCount];
+    }
+
+    /**
+     * Opens a pack file through a read-only memory mapping.
+     *
+     * @param file The pack file.
+     *
+     * @return The pack.
+     *
+     * @throws IOException Thrown when the file cannot be read or is not a valid pack.
+     * @since 1.11.0
+     */
+    public static @NotNull LanguagePack open(final @NotNull Path file) throws IOException {
+        try (final @NotNull FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed.
+            return new LanguagePack(channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a pack from memory.
+     *
+     * @param data The pack data.
+     *
+     * @return The pack.
+     *
+     * @throws IOException Thrown when the data is not a valid pack.
+     * @since 1.11.0
+     */
+    public static @NotNull LanguagePack read(final byte @NotNull [] data) throws IOException {
+        return new LanguagePack(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * Compiles translations into a pack file. The file is replaced atomically.
+     *
+     * @param translations The translations by key.
+     * @param stamp        The stamp of the sources of the translations, which callers can use to detect stale packs.
+     * @param file         The pack file.
+     *
+     * @throws IOException Thrown when the file cannot be written.
+     * @since 1.11.0
+     */
+    public static void write(final @NotNull Map<String, String> translations, final long stamp, final @NotNull Path file) throws IOException {
+        final @Nullable Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final @NotNull Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final @NotNull OutputStream stream = Files.newOutputStream(temporary)) {
+            stream.write(compile(translations, stamp));
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Compiles translations into pack data.
+     *
+     * @param translations The translations by key.
+     * @param stamp        The stamp of the sources of the translations.
+     *
+     * @return The pack data.
+     *
+     * @since 1.11.0
+     */
+    public static byte @NotNull [] compile(final @NotNull Map<String, String> translations, final long stamp) {
+        // Assign each distinct string an identifier.
+        final @NotNull Map<String, Integer> ids = new LinkedHashMap<>();
+        final @NotNull String[] keys = translations.keySet().toArray(new String[0]);
+        final int[][] entries = new int[keys.length][];
+        for (int i = 0; i < keys.length; ++i) {
+            final @NotNull String value = translations.get(keys[i]);
+            entries[i] = new int[]{intern(ids, keys[i]), intern(ids, value), intern(ids, value.contains("''") ? value.replace("''", "'") : value)};
+        }
+
+        final int bucketCount = Math.max(1, keys.length / KEYS_PER_BUCKET);
+        int slotCount = Math.max(1, keys.length);
+        int[] displacements;
+        int[] slots;
+        while (true) {
+            displacements = new int[bucketCount];
+            slots = index(keys, bucketCount, slotCount, displacements);
+            if (slots != null) {
+                break;
+            }
+            slotCount += Math.max(1, slotCount / 10);
+        }
+
+        final @NotNull byte[][] encoded = new byte[ids.size()][];
+        int stringBytes = 0;
+        for (final @NotNull Map.Entry<String, Integer> id : ids.entrySet()) {
+            encoded[id.getValue()] = id.getKey().getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[id.getValue()].length;
+        }
+        final @NotNull ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 * bucketCount + 12 * slotCount + 4 * encoded.length + stringBytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(stamp).putInt(keys.length).putInt(encoded.length).putInt(bucketCount).putInt(slotCount);
+        for (final int displacement : displacements) {
+            buffer.putInt(displacement);
+        }
+        for (final int slot : slots) {
+            if (slot < 0) {
+                buffer.putInt(-1).putInt(-1).putInt(-1);
+            } else {
+                buffer.putInt(entries[slot][0]).putInt(entries[slot][1]).putInt(entries[slot][2]);
+            }
+        }
+        int end = 0;
+        for (final byte @NotNull [] string : encoded) {
+            end += string.length;
+            buffer.putInt(end);
+        }
+        for (final byte @NotNull [] string : encoded) {
+            buffer.put(string);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Gets the stamp of the sources the pack was compiled from.
+     *
+     * @return The stamp.
+     *
+     * @since 1.11.0
+     */
+    public long getStamp() {
+        return this.stamp;
+    }
+
+    /**
+     * Gets the number of keys in the pack.
+     *
+     * @return The number of keys.
+     *
+     * @since 1.11.0
+     */
+    public int size() {
+        return this.keyCount;
+    }
+
+    /**
+     * Gets the number of distinct strings in the pack.
+     *
+     * @return The number of strings.
+     *
+     * @since 1.11.0
+     */
+    public int getStringCount() {
+        return this.stringCount;
+    }
+
+    /**
+     * Gets the translation of a key.
+     *
+     * @param key The key.
+     *
+     * @return The translation, or {@code null} if the pack does not contain the key.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable String get(final @NotNull String key) {
+        final int slot = this.find(key);
+        return slot < 0 ? null : this.string(this.buffer.getInt(this.slotsOffset + 12 * slot + 4));
+    }
+
+    /**
+     * Gets the translation of a key for use without arguments, with doubled apostrophes unescaped.
+     *
+     * @param key The key.
+     *
+     * @return The text, or {@code null} if the pack does not contain the key.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable String getText(final @NotNull String key) {
+        final int slot = this.find(key);
+        return slot < 0 ? null : this.string(this.buffer.getInt(this.slotsOffset + 12 * slot + 8));
+    }
+
+    /**
+     * Copies the translations of the pack into a map.
+     *
+     * @return The translations by key.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Map<String, String> toMap() {
+        final @NotNull Map<String, String> translations = new HashMap<>(this.keyCount * 4 / 3 + 1);
+        for (int slot = 0; slot < this.slotCount; ++slot) {
+            final int key = this.buffer.getInt(this.slotsOffset + 12 * slot);
+            if (key >= 0) {
+                translations.put(this.string(key), this.string(this.buffer.getInt(this.slotsOffset + 12 * slot + 4)));
+            }
+        }
+        return translations;
+    }
+
+    // Finds the slot of a key, or returns -1 if the pack does not contain it.
+    private int find(final @NotNull String key) {
+        if (this.keyCount == 0) {
+            return -1;
+        }
+        final int displacement = this.buffer.getInt(this.displacementsOffset + 4 * Math.floorMod(hash(key, 0), this.bucketCount));
+        final int slot = Math.floorMod(hash(key, displacement), this.slotCount);
+        final int id = this.buffer.getInt(this.slotsOffset + 12 * slot);
+        return id >= 0 && key.equals(this.string(id)) ? slot : -1;
+    }
+
+    // Checks that every displacement, string identifier and string offset lies within the pack, so that lookups cannot
+    // read outside of it.
+    private void validate() throws IOException {
+        for (int bucket = 0; bucket < this.bucketCount; ++bucket) {
+            final int displacement = this.buffer.getInt(this.displacementsOffset + 4 * bucket);
+            if (displacement < 0 || displacement >= MAX_DISPLACEMENT) {
+                throw new IOException(String.format("Corrupt language pack: bucket %d has displacement %d.", bucket, displacement));
+            }
+        }
+        int keys = 0;
+        for (int slot = 0; slot < this.slotCount; ++slot) {
+            final int key = this.buffer.getInt(this.slotsOffset + 12 * slot);
+            final int value = this.buffer.getInt(this.slotsOffset + 12 * slot + 4);
+            final int text = this.buffer.getInt(this.slotsOffset + 12 * slot + 8);
+            if (key == -1 && value == -1 && text == -1) {
+                continue;
+            }
+            if (key < 0 || key >= this.stringCount || value < 0 || value >= this.stringCount || text < 0 || text >= this.stringCount) {
+                throw new IOException(String.format("Corrupt language pack: slot %d refers to a missing string.", slot));
+            }
+            ++keys;
+        }
+        if (keys != this.keyCount) {
+            throw new IOException(String.format("Corrupt language pack: %d keys in %d slots, expected %d.", keys, this.slotCount, this.keyCount));
+        }
+        final int stringBytes = this.buffer.capacity() - this.stringsOffset;
+        int previous = 0;
+        for (int id = 0; id < this.stringCount; ++id) {
+            final int end = this.buffer.getInt(this.stringEndsOffset + 4 * id);
+            if (end < previous || end > stringBytes) {
+                throw new IOException(String.format("Corrupt language pack: string %d ends at %d.", id, end));
+            }
+            previous = end;
+        }
+    }
+
+    // Decodes a string, or returns it if it was decoded before.
+    private @NotNull String string(final int id) {
+        @Nullable String string = this.strings[id];
+        if (string == null) {
+            final int start = id == 0 ? 0 : this.buffer.getInt(this.stringEndsOffset + 4 * (id - 1));
+            final byte @NotNull [] bytes = new byte[this.buffer.getInt(this.stringEndsOffset + 4 * id) - start];
+            this.buffer.get(this.stringsOffset + start, bytes);
+            string = new String(bytes, StandardCharsets.UTF_8);
+            this.strings[id] = string;
+        }
+        return string;
+    }
+
+    // Assigns a string the next identifier, unless it already has one.
+    private static int intern(final @NotNull Map<String, Integer> ids, final @NotNull String string) {
+        return ids.computeIfAbsent(string, ignored -> ids.size());
+    }
+
+    // Places every key into its own slot. Returns the key index of each slot, or null if no displacement fits a bucket.
+    private static int @Nullable [] index(final @NotNull String[] keys, final int bucketCount, final int slotCount, final int @NotNull [] displacements) {
+        final @NotNull List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; ++i) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            buckets.get(Math.floorMod(hash(keys[i], 0), bucketCount)).add(i);
+        }
+        final @NotNull Integer[] order = new Integer[bucketCount];
+        for (int i = 0; i < bucketCount; ++i) {
+            order[i] = i;
+        }
+        // Place the largest buckets first, while most slots are still free.
+        Arrays.sort(order, (a, b) -> Integer.compare(buckets.get(b).size(), buckets.get(a).size()));
+
+        final int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        final int[] placed = new int[keys.length];
+        for (final int bucket : order) {
+            final @NotNull List<Integer> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            boolean fits = false;
+            for (int displacement = 1; displacement < MAX_DISPLACEMENT && !fits; ++displacement) {
+                fits = true;
+                int count = 0;
+                for (final int member : members) {
+                    final int slot = Math.floorMod(hash(keys[member], displacement), slotCount);
+                    if (slots[slot] >= 0) {
+                        fits = false;
+                        break;
+                    }
+                    slots[slot] = member;
+                    placed[count++] = slot;
+                }
+                if (fits) {
+                    displacements[bucket] = displacement;
+                } else {
+                    for (int i = 0; i < count; ++i) {
+                        slots[placed[i]] = -1;
+                    }
+                }
+            }
+            if (!fits) {
+                return null;
+            }
+        }
+        return slots;
+    }
+
+    // Hashes a key with a seed. FNV-1a over the characters, followed by a finalizer to spread the bits.
+    private static int hash(final @NotNull String key, final int seed) {
+        int hash = 0x811C9DC5 ^ seed * 0x9E3779B9;
+        for (int i = 0; i < key.length(); ++i) {
+            hash = (hash ^ key.charAt(i)) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        return hash;
+    }
+}
@@ -0,0 +1,140 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Sends translated messages to many recipients, translating each message once per locale rather than once per
+ * recipient.
+ * <p>
+ * Recipients are grouped by the bundle locale their locale {@linkplain I18n#resolveLocale(Locale) resolves} to, so
+ * that recipients whose locales load the same language files share a group. The message is translated once for each
+ * group, and the same string or component is sent to every member of the group. The asynchronous variants translate
+ * and send each locale group on an executor; Paper allows sending messages to players from any thread.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class LocaleBroadcast {
+    private LocaleBroadcast() { }
+
+    /**
+     * Groups recipients by the bundle locale they read messages in.
+     *
+     * @param i18n       The internationalization handler which resolves locales.
+     * @param recipients The recipients.
+     *
+     * @return The recipients by bundle locale, in the order the locales were first encountered.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull Map<Locale, List<CommandSender>> groupByLocale(final @NotNull I18n i18n, final @NotNull Iterable<? extends CommandSender> recipients) {
+        final @NotNull Map<Locale, List<CommandSender>> groups = new LinkedHashMap<>();
+        for (final @NotNull CommandSender recipient : recipients) {
+            groups.computeIfAbsent(i18n.resolveLocale(i18n.getLocale(recipient)), locale -> new ArrayList<>()).add(recipient);
+        }
+        return groups;
+    }
+
+    /**
+     * Sends a translated message to every recipient.
+     *
+     * @param i18n       The internationalization handler.
+     * @param recipients The recipients.
+     * @param key        The resource key.
+     * @param format     The formatting for the message.
+     *
+     * @return The number of locales the message was translated into.
+     *
+     * @since 1.11.0
+     */
+    public static int broadcast(final @NotNull I18n i18n, final @NotNull Iterable<? extends CommandSender> recipients, final @NotNull String key, final @NotNull Object... format) {
+        return send(groupByLocale(i18n, recipients), locale -> i18n.translate(locale, key, format), CommandSender::sendMessage);
+    }
+
+    /**
+     * Sends a translated component to every recipient.
+     *
+     * @param i18n       The internationalization handler.
+     * @param recipients The recipients.
+     * @param key        The resource key.
+     * @param format     The formatting for the message. Components are inserted as they are.
+     *
+     * @return The number of locales the message was translated into.
+     *
+     * @since 1.11.0
+     */
+    public static int broadcastComponent(final @NotNull I18n i18n, final @NotNull Iterable<? extends CommandSender> recipients, final @NotNull String key, final @NotNull Object... format) {
+        return send(groupByLocale(i18n, recipients), locale -> i18n.translateComponent(locale, key, format), CommandSender::sendMessage);
+    }
+
+    /**
+     * Sends a translated message to every recipient, translating and sending each locale group on an executor.
+     * <p>
+     * Recipients are grouped on the calling thread.
+     *
+     * @param i18n       The internationalization handler.
+     * @param recipients The recipients.
+     * @param executor   The executor the locale groups are handled on.
+     * @param key        The resource key.
+     * @param format     The formatting for the message.
+     *
+     * @return A future which completes once the message has been sent to every recipient.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull CompletableFuture<Void> broadcastAsync(final @NotNull I18n i18n, final @NotNull Iterable<? extends CommandSender> recipients, final @NotNull Executor executor, final @NotNull String key, final @NotNull Object... format) {
+        return sendAsync(groupByLocale(i18n, recipients), executor, locale -> i18n.translate(locale, key, format), CommandSender::sendMessage);
+    }
+
+    /**
+     * Sends a translated component to every recipient, translating and sending each locale group on an executor.
+     * <p>
+     * Recipients are grouped on the calling thread.
+     *
+     * @param i18n       The internationalization handler.
+     * @param recipients The recipients.
+     * @param executor   The executor the locale groups are handled on.
+     * @param key        The resource key.
+     * @param format     The formatting for the message. Components are inserted as they are.
+     *
+     * @return A future which completes once the message has been sent to every recipient.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull CompletableFuture<Void> broadcastComponentAsync(final @NotNull I18n i18n, final @NotNull Iterable<? extends CommandSender> recipients, final @NotNull Executor executor, final @NotNull String key, final @NotNull Object... format) {
+        return sendAsync(groupByLocale(i18n, recipients), executor, locale -> i18n.translateComponent(locale, key, format), CommandSender::sendMessage);
+    }
+
+    // Translates the message once per locale and sends it to the group.
+    private static <T> int send(final @NotNull Map<Locale, List<CommandSender>> groups, final @NotNull Function<Locale, T> translator, final @NotNull BiConsumer<CommandSender, T> sender) {
+        groups.forEach((locale, group) -> sendGroup(locale, group, translator, sender));
+        return groups.size();
+    }
+
+    // Translates and sends the message of each locale group on the executor.
+    private static <T> @NotNull CompletableFuture<Void> sendAsync(final @NotNull Map<Locale, List<CommandSender>> groups, final @NotNull Executor executor, final @NotNull Function<Locale, T> translator, final @NotNull BiConsumer<CommandSender, T> sender) {
+        final @NotNull CompletableFuture<?>[] futures = new CompletableFuture<?>[groups.size()];
+        int i = 0;
+        for (final @NotNull Map.Entry<Locale, List<CommandSender>> group : groups.entrySet()) {
+            futures[i++] = CompletableFuture.runAsync(() -> sendGroup(group.getKey(), group.getValue(), translator, sender), executor);
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    // Sends the message of one locale to each member of its group.
+    private static <T> void sendGroup(final @NotNull Locale locale, final @NotNull List<CommandSender> group, final @NotNull Function<Locale, T> translator, final @NotNull BiConsumer<CommandSender, T> sender) {
+        final @NotNull T message = translator.apply(locale);
+        for (final @NotNull CommandSender recipient : group) {
+            sender.accept(recipient, message);
+        }
+    }
+}
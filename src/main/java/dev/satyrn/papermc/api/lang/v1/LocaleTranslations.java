@@ -0,0 +1,203 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ResourceBundle;
+
+/**
+ * The translations of a single locale, along with the message and component templates compiled from them.
+ * <p>
+ * The bundles of a locale are merged into one immutable map when the locale is loaded, with the custom bundle from the
+ * plugin data folder taking precedence over the bundle shipped with the plugin, which in turn takes precedence over the
+ * default bundle. Looking up a translation is a single hash probe. Translations can also be read directly from a
+ * precompiled {@link LanguagePack}.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class LocaleTranslations {
+    // The locale.
+    private final transient @NotNull Locale locale;
+    // The merged translations by key, or null if the translations are read from a language pack.
+    private final transient @Nullable Map<String, String> translations;
+    // The translations by key with doubled apostrophes unescaped, for messages without arguments, or null if the
+    // translations are read from a language pack.
+    private final transient @Nullable Map<String, String> texts;
+    // The language pack the translations are read from, or null if they are held in maps.
+    private final transient @Nullable LanguagePack pack;
+    // Cache for message templates by pattern.
+    private final transient @NotNull TemplateCache<MessageTemplate> templateCache = new TemplateCache<>(TemplateCache.DEFAULT_MAXIMUM_SIZE);
+    // Cache for component templates by pattern.
+    private final transient @NotNull TemplateCache<ComponentTemplate> componentCache = new TemplateCache<>(TemplateCache.DEFAULT_MAXIMUM_SIZE);
+    // When the translations were last used, in milliseconds since the epoch.
+    private transient volatile long lastAccess = System.currentTimeMillis();
+
+    /**
+     * Creates the translations of a locale.
+     *
+     * @param locale       The locale.
+     * @param translations The translations by key. Copied.
+     *
+     * @since 1.11.0
+     */
+    public LocaleTranslations(final @NotNull Locale locale, final @NotNull Map<String, String> translations) {
+        this.locale = locale;
+        this.translations = Map.copyOf(translations);
+        final @NotNull Map<String, String> texts = new HashMap<>(translations.size() * 4 / 3 + 1);
+        translations.forEach((key, value) -> texts.put(key, value.contains("''") ? value.replace("''", "'") : value));
+        this.texts = Map.copyOf(texts);
+        this.pack = null;
+    }
+
+    /**
+     * Creates the translations of a locale from a language pack.
+     *
+     * @param locale The locale.
+     * @param pack   The language pack with the merged translations of the locale.
+     *
+     * @since 1.11.0
+     */
+    public LocaleTranslations(final @NotNull Locale locale, final @NotNull LanguagePack pack) {
+        this.locale = locale;
+        this.translations = null;
+        this.texts = null;
+        this.pack = pack;
+    }
+
+    /**
+     * Merges the bundles of a locale into its translations.
+     *
+     * @param locale  The locale.
+     * @param bundles The bundles, from lowest to highest precedence. {@code null} bundles are skipped.
+     *
+     * @return The translations.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull LocaleTranslations merge(final @NotNull Locale locale, final @Nullable ResourceBundle... bundles) {
+        final @NotNull Map<String, String> translations = new HashMap<>();
+        for (final @Nullable ResourceBundle bundle : bundles) {
+            if (bundle == null) {
+                continue;
+            }
+            // The key set includes the keys of parent bundles, which getString resolves.
+            for (final @NotNull String key : bundle.keySet()) {
+                translations.put(key, bundle.getString(key));
+            }
+        }
+        return new LocaleTranslations(locale, translations);
+    }
+
+    /**
+     * Gets the locale.
+     *
+     * @return The locale.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Locale getLocale() {
+        return this.locale;
+    }
+
+    /**
+     * Gets the translation of a key.
+     *
+     * @param key The key.
+     *
+     * @return The translation, or {@code null} if no bundle of the locale contains the key.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable String get(final @NotNull String key) {
+        return this.translations == null ? Objects.requireNonNull(this.pack).get(key) : this.translations.get(key);
+    }
+
+    /**
+     * Gets the translation of a key for use without arguments, with doubled apostrophes unescaped.
+     *
+     * @param key The key.
+     *
+     * @return The text, or {@code null} if no bundle of the locale contains the key.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable String getText(final @NotNull String key) {
+        return this.texts == null ? Objects.requireNonNull(this.pack).getText(key) : this.texts.get(key);
+    }
+
+    /**
+     * Gets the number of translated keys.
+     *
+     * @return The number of keys.
+     *
+     * @since 1.11.0
+     */
+    public int size() {
+        return this.translations == null ? Objects.requireNonNull(this.pack).size() : this.translations.size();
+    }
+
+    /**
+     * Gets the merged translations as a map.
+     *
+     * @return The translations by key. Copied from the language pack if the translations are read from one.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Map<String, String> toMap() {
+        return this.translations == null ? Objects.requireNonNull(this.pack).toMap() : this.translations;
+    }
+
+    /**
+     * Gets the cache of message templates compiled for this locale.
+     *
+     * @return The message template cache.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull TemplateCache<MessageTemplate> getTemplateCache() {
+        return this.templateCache;
+    }
+
+    /**
+     * Gets the cache of component templates compiled for this locale.
+     *
+     * @return The component template cache.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull TemplateCache<ComponentTemplate> getComponentCache() {
+        return this.componentCache;
+    }
+
+    /**
+     * Gets when the translations were last used.
+     *
+     * @return The time, in milliseconds since the epoch.
+     *
+     * @since 1.11.0
+     */
+    public long getLastAccess() {
+        return this.lastAccess;
+    }
+
+    /**
+     * Marks the translations as used.
+     * <p>
+     * The access time only has a granularity of one second, so that threads translating concurrently rarely write to
+     * it.
+     *
+     * @since 1.11.0
+     */
+    public void touch() {
+        final long now = System.currentTimeMillis();
+        if (now - this.lastAccess > 1000L) {
+            this.lastAccess = now;
+        }
+    }
+}
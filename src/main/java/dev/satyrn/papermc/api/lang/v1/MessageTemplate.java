@@ -0,0 +1,331 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.text.*;
+import java.util.*;
+
+/**
+ * A translation compiled into literal text and argument slots, which formats without reparsing.
+ * <p>
+ * Templates use the {@link MessageFormat} pattern syntax and produce the same output: quoting with apostrophes is
+ * resolved when the template is compiled, plain {@code {0}} arguments are appended directly, and typed arguments such
+ * as {@code {0,number,integer}} or {@code {0,choice,...}} use the same {@link Format} as {@link MessageFormat} would,
+ * reused per thread instead of created per call. Formatting appends to a reusable per-thread buffer, so that formatting
+ * a template costs little more than concatenating its parts.
+ * <p>
+ * Templates are immutable and may be shared between threads.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class MessageTemplate {
+    // The largest buffer kept for reuse; larger buffers are dropped after use.
+    private static final int MAX_BUFFER_CAPACITY = 8192;
+    // The reusable format buffer of each thread.
+    private static final @NotNull ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    // The default number format of each locale, per thread.
+    private static final @NotNull ThreadLocal<Map<Locale, NumberFormat>> NUMBER_FORMATS = ThreadLocal.withInitial(HashMap::new);
+    // The default date format of each locale, per thread.
+    private static final @NotNull ThreadLocal<Map<Locale, DateFormat>> DATE_FORMATS = ThreadLocal.withInitial(HashMap::new);
+
+    // The locale numbers and dates are formatted in.
+    private final @NotNull Locale locale;
+    // The literal text of each segment, or null for argument segments.
+    private final @Nullable String[] literals;
+    // The argument index of each segment, or -1 for literal segments.
+    private final int[] arguments;
+    // The format of each typed argument segment, or null. Prototypes which are only ever cloned.
+    private final @Nullable Format[] formats;
+    // Copies of the typed formats for each thread, if the template has typed arguments.
+    private final @Nullable ThreadLocal<Format[]> threadFormats;
+    // The length of the literal text, used to size buffers.
+    private final int literalLength;
+
+    private MessageTemplate(final @NotNull Locale locale, final @NotNull List<String> literals, final @NotNull List<Integer> arguments, final @NotNull List<Format> formats) {
+        this.locale = locale;
+        this.literals = literals.toArray(new String[0]);
+        this.arguments = arguments.stream().mapToInt(Integer::intValue).toArray();
+        this.formats = formats.toArray(new Format[0]);
+        int literalLength = 0;
+        boolean typed = false;
+        for (int i = 0; i < this.arguments.length; ++i) {
+            if (this.literals[i] != null) {
+                literalLength += this.literals[i].length();
+            }
+            typed |= this.formats[i] != null;
+        }
+        this.literalLength = literalLength;
+        this.threadFormats = typed ? ThreadLocal.withInitial(() -> {
+            final @NotNull Format[] copies = new Format[this.formats.length];
+            for (int i = 0; i < copies.length; ++i) {
+                if (this.formats[i] != null) {
+                    copies[i] = (Format) this.formats[i].clone();
+                }
+            }
+            return copies;
+        }) : null;
+    }
+
+    /**
+     * Compiles a pattern.
+     *
+     * @param pattern The pattern, in {@link MessageFormat} syntax.
+     * @param locale  The locale numbers and dates are formatted in.
+     *
+     * @return The compiled template.
+     *
+     * @throws IllegalArgumentException Thrown when the pattern is invalid.
+     * @since 1.11.0
+     */
+    public static @NotNull MessageTemplate compile(final @NotNull String pattern, final @NotNull Locale locale) {
+        final @NotNull List<String> literals = new ArrayList<>();
+        final @NotNull List<Integer> arguments = new ArrayList<>();
+        final @NotNull List<Format> formats = new ArrayList<>();
+        final @NotNull StringBuilder literal = new StringBuilder();
+        // The index, type and style parts of the current argument, as MessageFormat splits them.
+        final @NotNull StringBuilder[] parts = {new StringBuilder(), new StringBuilder(), new StringBuilder()};
+        int part = -1;
+        int braces = 0;
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); ++i) {
+            final char ch = pattern.charAt(i);
+            if (part < 0) {
+                if (ch == '\'') {
+                    if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+                        literal.append(ch);
+                        ++i;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (ch == '{' && !quoted) {
+                    part = 0;
+                } else {
+                    literal.append(ch);
+                }
+            } else if (quoted) {
+                // Quotes inside an argument are kept for the format style, as MessageFormat does.
+                parts[part].append(ch);
+                if (ch == '\'') {
+                    quoted = false;
+                }
+            } else {
+                switch (ch) {
+                    case ',':
+                        if (part < 2) {
+                            ++part;
+                        } else {
+                            parts[part].append(ch);
+                        }
+                        break;
+                    case '{':
+                        ++braces;
+                        parts[part].append(ch);
+                        break;
+                    case '}':
+                        if (braces == 0) {
+                            if (literal.length() > 0) {
+                                literals.add(literal.toString());
+                                arguments.add(-1);
+                                formats.add(null);
+                                literal.setLength(0);
+                            }
+                            literals.add(null);
+                            arguments.add(parseArgument(parts[0]));
+                            formats.add(subformat(parts, part, locale));
+                            for (final @NotNull StringBuilder builder : parts) {
+                                builder.setLength(0);
+                            }
+                            part = -1;
+                        } else {
+                            --braces;
+                            parts[part].append(ch);
+                        }
+                        break;
+                    case ' ':
+                        // Leading spaces of the type are skipped.
+                        if (part != 1 || parts[1].length() > 0) {
+                            parts[part].append(ch);
+                        }
+                        break;
+                    case '\'':
+                        quoted = true;
+                        parts[part].append(ch);
+                        break;
+                    default:
+                        parts[part].append(ch);
+                        break;
+                }
+            }
+        }
+        if (part >= 0) {
+            throw new IllegalArgumentException("Unmatched braces in the pattern.");
+        }
+        if (literal.length() > 0 || literals.isEmpty()) {
+            literals.add(literal.toString());
+            arguments.add(-1);
+            formats.add(null);
+        }
+        return new MessageTemplate(locale, literals, arguments, formats);
+    }
+
+    /**
+     * Gets the locale numbers and dates are formatted in.
+     *
+     * @return The locale.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Locale getLocale() {
+        return this.locale;
+    }
+
+    /**
+     * Formats the template.
+     *
+     * @param args The arguments.
+     *
+     * @return The formatted message.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull String format(final @Nullable Object... args) {
+        final @NotNull StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(this.literalLength + 16 * this.arguments.length);
+        this.formatTo(buffer, args);
+        final @NotNull String result = buffer.toString();
+        if (buffer.capacity() > MAX_BUFFER_CAPACITY) {
+            BUFFER.remove();
+        }
+        return result;
+    }
+
+    /**
+     * Formats the template, appending the message to a builder.
+     *
+     * @param builder The builder.
+     * @param args    The arguments.
+     *
+     * @since 1.11.0
+     */
+    public void formatTo(final @NotNull StringBuilder builder, final @Nullable Object... args) {
+        final @Nullable Format[] formats = this.threadFormats == null ? null : this.threadFormats.get();
+        for (int i = 0; i < this.arguments.length; ++i) {
+            final int argument = this.arguments[i];
+            if (argument < 0) {
+                builder.append(this.literals[i]);
+            } else {
+                this.appendArgument(builder, argument, formats == null ? null : formats[i], args);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of segments in the template.
+     *
+     * @return The number of literal and argument segments.
+     *
+     * @since 1.11.0
+     */
+    int getSegmentCount() {
+        return this.arguments.length;
+    }
+
+    /**
+     * Gets the literal text of a segment.
+     *
+     * @param segment The index of the segment.
+     *
+     * @return The literal text, or {@code null} if the segment is an argument.
+     *
+     * @since 1.11.0
+     */
+    @Nullable String getLiteral(final int segment) {
+        return this.literals[segment];
+    }
+
+    /**
+     * Gets the argument index of a segment.
+     *
+     * @param segment The index of the segment.
+     *
+     * @return The argument index, or {@code -1} if the segment is literal text.
+     *
+     * @since 1.11.0
+     */
+    int getArgument(final int segment) {
+        return this.arguments[segment];
+    }
+
+    /**
+     * Formats the argument of a single segment.
+     *
+     * @param segment The index of the segment, which must be an argument segment.
+     * @param args    The arguments.
+     *
+     * @return The formatted argument.
+     *
+     * @since 1.11.0
+     */
+    @NotNull String formatArgument(final int segment, final @Nullable Object... args) {
+        final @NotNull StringBuilder builder = new StringBuilder();
+        this.appendArgument(builder, this.arguments[segment], this.threadFormats == null ? null : this.threadFormats.get()[segment], args);
+        return builder.toString();
+    }
+
+    // Appends one argument the way MessageFormat would.
+    private void appendArgument(final @NotNull StringBuilder builder, final int argument, final @Nullable Format format, final @Nullable Object[] args) {
+        if (args == null || argument >= args.length) {
+            builder.append('{').append(argument).append('}');
+            return;
+        }
+        final @Nullable Object value = args[argument];
+        if (value == null) {
+            builder.append("null");
+        } else if (format != null) {
+            final @NotNull String formatted = format.format(value);
+            if (format instanceof ChoiceFormat && formatted.indexOf('{') >= 0) {
+                compile(formatted, this.locale).formatTo(builder, args);
+            } else {
+                builder.append(formatted);
+            }
+        } else if (value instanceof String) {
+            builder.append((String) value);
+        } else if (value instanceof Number) {
+            builder.append(NUMBER_FORMATS.get().computeIfAbsent(this.locale, NumberFormat::getInstance).format(value));
+        } else if (value instanceof Date) {
+            builder.append(DATE_FORMATS.get().computeIfAbsent(this.locale, locale -> DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale)).format(value));
+        } else {
+            builder.append(value);
+        }
+    }
+
+    // Parses the index of an argument.
+    private static int parseArgument(final @NotNull StringBuilder index) {
+        final int argument;
+        try {
+            argument = Integer.parseInt(index.toString());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("can't parse argument number: " + index, ex);
+        }
+        if (argument < 0) {
+            throw new IllegalArgumentException("negative argument number: " + argument);
+        }
+        return argument;
+    }
+
+    // Creates the format of a typed argument through MessageFormat, so that types and styles are parsed identically.
+    private static @Nullable Format subformat(final @NotNull StringBuilder[] parts, final int lastPart, final @NotNull Locale locale) {
+        if (lastPart < 1 || parts[1].toString().trim().isEmpty()) {
+            return null;
+        }
+        final @NotNull StringBuilder pattern = new StringBuilder("{0,").append(parts[1]);
+        if (lastPart >= 2) {
+            pattern.append(',').append(parts[2]);
+        }
+        return new MessageFormat(pattern.append('}').toString(), locale).getFormats()[0];
+    }
+}
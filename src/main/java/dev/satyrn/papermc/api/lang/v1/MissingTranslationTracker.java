@@ -0,0 +1,262 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts lookups of translation keys which are missing, by locale and key.
+ * <p>
+ * Recording a repeated miss is a lookup in a concurrent table and a counter increment, without locks or allocation, so
+ * that a missing key in a frequently sent message costs little. The first miss of each locale and key is reported as
+ * such, so that the caller can log it once. To bound memory when keys are generated at runtime, at most
+ * {@link #MAXIMUM_TRACKED_KEYS} distinct keys are tracked; further misses of other keys are only counted in total.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class MissingTranslationTracker {
+    /**
+     * The maximum number of distinct missing keys tracked.
+     *
+     * @since 1.11.0
+     */
+    public static final int MAXIMUM_TRACKED_KEYS = 10000;
+
+    // The miss counts by locale and key.
+    private final transient @NotNull ConcurrentHashMap<Locale, ConcurrentHashMap<String, LongAdder>> misses = new ConcurrentHashMap<>();
+    // The number of distinct keys tracked.
+    private final transient @NotNull LongAdder trackedKeys = new LongAdder();
+    // The number of misses of keys which were not tracked because the table was full.
+    private final transient @NotNull LongAdder untracked = new LongAdder();
+
+    /**
+     * Records a lookup of a missing key.
+     *
+     * @param locale The locale the key was looked up in.
+     * @param key    The key.
+     *
+     * @return {@code true} if this is the first miss of the key in the locale; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean record(final @NotNull Locale locale, final @NotNull String key) {
+        @Nullable ConcurrentHashMap<String, LongAdder> keys = this.misses.get(locale);
+        if (keys == null) {
+            keys = this.misses.computeIfAbsent(locale, ignored -> new ConcurrentHashMap<>());
+        }
+        final @Nullable LongAdder count = keys.get(key);
+        if (count != null) {
+            count.increment();
+            return false;
+        }
+        if (this.trackedKeys.sum() >= MAXIMUM_TRACKED_KEYS) {
+            this.untracked.increment();
+            return false;
+        }
+        final @NotNull LongAdder created = new LongAdder();
+        created.increment();
+        final @Nullable LongAdder raced = keys.putIfAbsent(key, created);
+        if (raced != null) {
+            raced.increment();
+            return false;
+        }
+        this.trackedKeys.increment();
+        return true;
+    }
+
+    /**
+     * Gets the number of recorded misses of a key in a locale.
+     *
+     * @param locale The locale.
+     * @param key    The key.
+     *
+     * @return The number of misses.
+     *
+     * @since 1.11.0
+     */
+    public long getCount(final @NotNull Locale locale, final @NotNull String key) {
+        final @Nullable ConcurrentHashMap<String, LongAdder> keys = this.misses.get(locale);
+        final @Nullable LongAdder count = keys == null ? null : keys.get(key);
+        return count == null ? 0L : count.sum();
+    }
+
+    /**
+     * Gets the number of distinct missing keys tracked, across all locales.
+     *
+     * @return The number of keys.
+     *
+     * @since 1.11.0
+     */
+    public int size() {
+        return (int) this.trackedKeys.sum();
+    }
+
+    /**
+     * Gets the total number of recorded misses, including misses of keys which were not tracked.
+     *
+     * @return The number of misses.
+     *
+     * @since 1.11.0
+     */
+    public long getTotal() {
+        long total = this.untracked.sum();
+        for (final @NotNull ConcurrentHashMap<String, LongAdder> keys : this.misses.values()) {
+            for (final @NotNull LongAdder count : keys.values()) {
+                total += count.sum();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets the tracked missing keys, most frequently missed first.
+     *
+     * @param limit The maximum number of entries to return.
+     *
+     * @return The entries.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull List<Entry> getTop(final int limit) {
+        final @NotNull List<Entry> entries = new ArrayList<>();
+        this.misses.forEach((locale, keys) -> keys.forEach((key, count) -> entries.add(new Entry(locale, key, count.sum()))));
+        entries.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparing(Entry::getKey));
+        return entries.size() > limit ? new ArrayList<>(entries.subList(0, Math.max(limit, 0))) : entries;
+    }
+
+    /**
+     * Forgets every recorded miss, so that each missing key is reported again on its next miss.
+     *
+     * @since 1.11.0
+     */
+    public void clear() {
+        this.misses.clear();
+        this.trackedKeys.reset();
+        this.untracked.reset();
+    }
+
+    /**
+     * Builds a human-readable summary of the recorded misses.
+     *
+     * @return The summary, one {@code locale key=count} line per missing key, most frequently missed first.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull String report() {
+        final @NotNull StringBuilder builder = new StringBuilder();
+        this.report(builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes the recorded misses to a local file.
+     * <p>
+     * The file is replaced atomically, so it can be read by external tools at any time.
+     *
+     * @param file The file to write.
+     *
+     * @throws IOException Thrown when the file cannot be written.
+     * @since 1.11.0
+     */
+    public void export(final @NotNull Path file) throws IOException {
+        final @NotNull StringBuilder builder = new StringBuilder("# Missing translations at ").append(Instant.now()).append('\n');
+        this.report(builder);
+        final @Nullable Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final @NotNull Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final @NotNull Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(builder.toString());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Appends one line per missing key, and the number of untracked misses.
+    private void report(final @NotNull StringBuilder builder) {
+        for (final @NotNull Entry entry : this.getTop(Integer.MAX_VALUE)) {
+            builder.append(entry).append('\n');
+        }
+        final long untracked = this.untracked.sum();
+        if (untracked > 0L) {
+            builder.append("untracked=").append(untracked).append('\n');
+        }
+    }
+
+    /**
+     * The number of misses of a key in a locale.
+     *
+     * @since 1.11.0
+     */
+    public static final class Entry {
+        // The locale.
+        private final @NotNull Locale locale;
+        // The key.
+        private final @NotNull String key;
+        // The number of misses.
+        private final long count;
+
+        private Entry(final @NotNull Locale locale, final @NotNull String key, final long count) {
+            this.locale = locale;
+            this.key = key;
+            this.count = count;
+        }
+
+        /**
+         * Gets the locale the key is missing in.
+         *
+         * @return The locale.
+         *
+         * @since 1.11.0
+         */
+        public @NotNull Locale getLocale() {
+            return this.locale;
+        }
+
+        /**
+         * Gets the missing key.
+         *
+         * @return The key.
+         *
+         * @since 1.11.0
+         */
+        public @NotNull String getKey() {
+            return this.key;
+        }
+
+        /**
+         * Gets the number of misses.
+         *
+         * @return The number of misses.
+         *
+         * @since 1.11.0
+         */
+        public long getCount() {
+            return this.count;
+        }
+
+        /**
+         * Formats the entry as {@code locale key=count}.
+         *
+         * @return The formatted entry.
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull String toString() {
+            return String.format("%s %s=%d", this.locale, this.key, this.count);
+        }
+    }
+}
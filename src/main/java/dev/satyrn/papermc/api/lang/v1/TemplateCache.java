@@ -0,0 +1,97 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * A bounded cache of compiled message templates, keyed by their pattern.
+ * <p>
+ * Lookups of cached templates take no locks. A miss compiles the pattern on the calling thread; when two threads miss
+ * on the same pattern at once, both compile it and the first result is kept. Once the cache is full, adding a template
+ * evicts an arbitrary one. Cached templates are shared between threads, so they must be immutable.
+ *
+ * @param <T> The compiled template type.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class TemplateCache<T> {
+    /**
+     * The default maximum number of cached templates.
+     *
+     * @since 1.11.0
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    // The cached templates by pattern.
+    private final transient @NotNull ConcurrentHashMap<String, T> templates = new ConcurrentHashMap<>();
+    // The maximum number of cached templates.
+    private final transient int maximumSize;
+
+    /**
+     * Creates a new template cache.
+     *
+     * @param maximumSize The maximum number of cached templates.
+     *
+     * @since 1.11.0
+     */
+    public TemplateCache(final int maximumSize) {
+        this.maximumSize = Math.max(maximumSize, 1);
+    }
+
+    /**
+     * Gets the compiled template of a pattern, compiling and caching it if it is not cached.
+     *
+     * @param pattern  The pattern.
+     * @param compiler Compiles the pattern. May return {@code null} if the pattern is invalid, in which case nothing is
+     *                 cached.
+     *
+     * @return The compiled template, or {@code null} if the pattern could not be compiled.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable T get(final @NotNull String pattern, final @NotNull Function<String, T> compiler) {
+        final @Nullable T cached = this.templates.get(pattern);
+        if (cached != null) {
+            return cached;
+        }
+        final @Nullable T compiled = compiler.apply(pattern);
+        if (compiled == null) {
+            return null;
+        }
+        if (this.templates.size() >= this.maximumSize) {
+            final @NotNull Iterator<String> iterator = this.templates.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        final @Nullable T raced = this.templates.putIfAbsent(pattern, compiled);
+        return raced == null ? compiled : raced;
+    }
+
+    /**
+     * Gets the number of cached templates.
+     *
+     * @return The number of templates.
+     *
+     * @since 1.11.0
+     */
+    public int size() {
+        return this.templates.size();
+    }
+
+    /**
+     * Removes every cached template.
+     *
+     * @since 1.11.0
+     */
+    public void clear() {
+        this.templates.clear();
+    }
+}
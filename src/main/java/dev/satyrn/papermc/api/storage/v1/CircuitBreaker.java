@@ -0,0 +1,321 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stops callers from waiting on a data source which is known to be unreachable.
+ * <p>
+ * After a number of consecutive failures the circuit opens, and {@link #allowRequest()} refuses every request
+ * without touching the data source. While open, a background thread probes the data source with exponentially
+ * increasing delays; the first successful probe closes the circuit again. {@link #close()} stops the probes once the
+ * data source is no longer used.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class CircuitBreaker implements Closeable {
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The name of the protected data source, used in log messages.
+    private final transient @NotNull String name;
+    // The number of consecutive failures which opens the circuit.
+    private final transient int failureThreshold;
+    // The first probe delay, in milliseconds.
+    private final transient long initialBackoff;
+    // The longest probe delay, in milliseconds.
+    private final transient long maxBackoff;
+    // Checks whether the data source is reachable again.
+    private final transient @NotNull BooleanSupplier probe;
+    // Runs the background probes. Its thread exits while the circuit is closed.
+    private final transient @NotNull ScheduledThreadPoolExecutor scheduler;
+    // The current state.
+    private final transient @NotNull AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    // The number of consecutive failures.
+    private final transient @NotNull AtomicInteger consecutiveFailures = new AtomicInteger();
+    // The number of requests refused while the circuit was open.
+    private final transient @NotNull LongAdder rejected = new LongAdder();
+    // Notified whenever the state changes.
+    private final transient @NotNull List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+    // The delay before the next probe, in milliseconds.
+    private transient volatile long backoff;
+    // The next scheduled probe, if any.
+    private transient volatile @Nullable ScheduledFuture<?> probeTask;
+
+    /**
+     * Creates a new circuit breaker.
+     *
+     * @param logger           The logger to report state changes to.
+     * @param name             The name of the protected data source.
+     * @param failureThreshold The number of consecutive failures which opens the circuit.
+     * @param initialBackoff   The delay, in milliseconds, before the first probe.
+     * @param maxBackoff       The longest delay, in milliseconds, between probes.
+     * @param probe            Checks whether the data source is reachable. Runs on a background thread.
+     *
+     * @since 1.11.0
+     */
+    public CircuitBreaker(final @NotNull Logger logger, final @NotNull String name, final int failureThreshold, final long initialBackoff, final long maxBackoff, final @NotNull BooleanSupplier probe) {
+        this.logger = logger;
+        this.name = name;
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.initialBackoff = Math.max(initialBackoff, 1L);
+        this.maxBackoff = Math.max(maxBackoff, this.initialBackoff);
+        this.probe = probe;
+        this.backoff = this.initialBackoff;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "CircuitBreaker-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setKeepAliveTime(1L, TimeUnit.SECONDS);
+        this.scheduler.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Checks whether a request may be sent to the data source.
+     *
+     * @return {@code true} if the circuit is closed; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean allowRequest() {
+        if (this.state.get() == State.CLOSED) {
+            return true;
+        }
+        this.rejected.increment();
+        return false;
+    }
+
+    /**
+     * Records a successful request, closing the circuit if it was open.
+     *
+     * @since 1.11.0
+     */
+    public void recordSuccess() {
+        this.consecutiveFailures.set(0);
+        if (this.state.get() != State.CLOSED) {
+            this.closeCircuit();
+        }
+    }
+
+    /**
+     * Records a failed request, opening the circuit once the failure threshold is reached.
+     *
+     * @since 1.11.0
+     */
+    public void recordFailure() {
+        if (this.consecutiveFailures.incrementAndGet() >= this.failureThreshold && this.state.compareAndSet(State.CLOSED, State.OPEN)) {
+            this.backoff = this.initialBackoff;
+            this.logger.log(Level.WARNING, String.format("[Storage] %s is unreachable after %d failed attempts; failing fast and retrying in the background.", this.name, this.consecutiveFailures.get()));
+            this.notifyListeners(State.OPEN);
+            this.scheduleProbe();
+        }
+    }
+
+    /**
+     * Closes the circuit immediately, without waiting for a probe to succeed.
+     *
+     * @since 1.11.0
+     */
+    public void reset() {
+        this.consecutiveFailures.set(0);
+        this.closeCircuit();
+    }
+
+    /**
+     * Gets the state of the circuit.
+     *
+     * @return The state.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull State getState() {
+        return this.state.get();
+    }
+
+    /**
+     * Checks whether the data source is currently considered reachable.
+     *
+     * @return {@code true} if the circuit is closed; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean isAvailable() {
+        return this.state.get() == State.CLOSED;
+    }
+
+    /**
+     * Gets the number of consecutive failed requests.
+     *
+     * @return The number of failures.
+     *
+     * @since 1.11.0
+     */
+    public int getConsecutiveFailures() {
+        return this.consecutiveFailures.get();
+    }
+
+    /**
+     * Gets the delay before the next probe, before jitter is added.
+     *
+     * @return The backoff, in milliseconds.
+     *
+     * @since 1.11.0
+     */
+    public long getBackoff() {
+        return this.backoff;
+    }
+
+    /**
+     * Gets the number of requests refused while the circuit was open.
+     *
+     * @return The number of refused requests.
+     *
+     * @since 1.11.0
+     */
+    public long getRejectedCount() {
+        return this.rejected.sum();
+    }
+
+    /**
+     * Registers a listener which is notified whenever the state changes.
+     * <p>
+     * Listeners may be called from any thread, including the background probe thread.
+     *
+     * @param listener The listener.
+     *
+     * @since 1.11.0
+     */
+    public void addListener(final @NotNull Consumer<State> listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a state listener.
+     *
+     * @param listener The listener.
+     *
+     * @since 1.11.0
+     */
+    public void removeListener(final @NotNull Consumer<State> listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Cancels the scheduled probe and stops the probe thread. The circuit keeps its state, but an open circuit is no
+     * longer probed.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public void close() {
+        final @Nullable ScheduledFuture<?> task = this.probeTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+        this.scheduler.shutdownNow();
+    }
+
+    // Closes the circuit, if it is not closed already.
+    private void closeCircuit() {
+        final @Nullable ScheduledFuture<?> task = this.probeTask;
+        if (task != null) {
+            task.cancel(false);
+        }
+        final @Nullable State previous = this.state.getAndSet(State.CLOSED);
+        if (previous != State.CLOSED) {
+            this.logger.log(Level.INFO, String.format("[Storage] %s is reachable again.", this.name));
+            this.notifyListeners(State.CLOSED);
+        }
+    }
+
+    // Adds up to 20% jitter to a backoff, so that breakers which opened together do not probe together.
+    static long probeDelay(final long backoff) {
+        return backoff + ThreadLocalRandom.current().nextLong(backoff / 5L + 1L);
+    }
+
+    // Schedules the next background probe after the current backoff, with jitter.
+    private void scheduleProbe() {
+        try {
+            this.probeTask = this.scheduler.schedule(this::runProbe, probeDelay(this.backoff), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            // The breaker has been closed.
+        }
+    }
+
+    // Probes the data source, and either closes the circuit or schedules another probe.
+    private void runProbe() {
+        if (!this.state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return;
+        }
+        this.notifyListeners(State.HALF_OPEN);
+        boolean reachable;
+        try {
+            reachable = this.probe.getAsBoolean();
+        } catch (RuntimeException ex) {
+            reachable = false;
+        }
+        if (reachable) {
+            this.recordSuccess();
+        } else if (this.state.compareAndSet(State.HALF_OPEN, State.OPEN)) {
+            this.backoff = Math.min(this.backoff * 2L, this.maxBackoff);
+            this.logger.log(Level.FINE, String.format("[Storage] %s is still unreachable; retrying in %d ms.", this.name, this.backoff));
+            this.notifyListeners(State.OPEN);
+            this.scheduleProbe();
+        }
+    }
+
+    // Notifies the listeners of a state change.
+    private void notifyListeners(final @NotNull State state) {
+        for (final @NotNull Consumer<State> listener : this.listeners) {
+            try {
+                listener.accept(state);
+            } catch (RuntimeException ex) {
+                this.logger.log(Level.WARNING, String.format("[Storage] Circuit breaker listener for %s failed: %s", this.name, ex.getMessage()), ex);
+            }
+        }
+    }
+
+    /**
+     * The state of a circuit breaker.
+     *
+     * @since 1.11.0
+     */
+    public enum State {
+        /**
+         * Requests are sent to the data source.
+         *
+         * @since 1.11.0
+         */
+        CLOSED,
+        /**
+         * The data source is unreachable; requests are refused.
+         *
+         * @since 1.11.0
+         */
+        OPEN,
+        /**
+         * A background probe is checking whether the data source is reachable; requests are still refused.
+         *
+         * @since 1.11.0
+         */
+        HALF_OPEN
+    }
+}
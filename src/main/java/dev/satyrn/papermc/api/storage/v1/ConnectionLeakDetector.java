@@ -0,0 +1,271 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks borrowed connections and reports those which are held for too long, which usually means they are never
+ * closed.
+ * <p>
+ * A background sweep checks the borrowed connections periodically, starting with the first borrow. A connection held
+ * past the threshold is logged once, together with the name of the borrowing thread and, when tracing is enabled, the
+ * stack trace of the borrow. When reclaiming is enabled, the connection is also closed, so that a single leak cannot
+ * hold a server connection forever; every later call on a reclaimed connection throws an {@link SQLException}.
+ * Reclaiming also closes connections which are legitimately held for long, so the threshold must exceed the longest
+ * such use when it is enabled.
+ * <p>
+ * Every detector sweeps on one shared daemon thread, which stops while there is nothing to sweep. A detector which is
+ * never closed stops sweeping once it is garbage collected.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class ConnectionLeakDetector implements Closeable {
+    // The shortest interval between sweeps, in milliseconds.
+    private static final long MIN_SWEEP_INTERVAL = 250L;
+    // Runs the sweeps of every detector. Its thread stops while there is nothing to sweep.
+    private static final ScheduledThreadPoolExecutor SWEEPER = createSweeper();
+
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The name of the data source, for log messages.
+    private final transient @NotNull String name;
+    // The metrics collector, if any.
+    private final transient @Nullable StorageMetrics metrics;
+    // The time after which a borrowed connection is considered leaked, in nanoseconds.
+    private final transient long threshold;
+    // Whether the stack trace of each borrow is recorded.
+    private final transient boolean trace;
+    // Whether leaked connections are closed.
+    private final transient boolean reclaim;
+    // The connections which are currently borrowed.
+    private final transient @NotNull Set<Borrow> borrowed = ConcurrentHashMap.newKeySet();
+    // The interval between sweeps, in milliseconds.
+    private final transient long interval;
+    // The scheduled sweep, once a connection has been borrowed.
+    private transient @Nullable ScheduledFuture<?> sweep;
+    // Whether the detector has been closed.
+    private transient boolean closed;
+
+    /**
+     * Creates a new connection leak detector.
+     *
+     * @param logger    The logger to report leaks to.
+     * @param name      The name of the data source, for log messages.
+     * @param metrics   The metrics collector to count leaks in, or {@code null}.
+     * @param threshold The time after which a borrowed connection is considered leaked, in milliseconds.
+     * @param trace     Whether the stack trace of each borrow is recorded.
+     * @param reclaim   Whether leaked connections are closed.
+     *
+     * @since 1.11.0
+     */
+    public ConnectionLeakDetector(final @NotNull Logger logger, final @NotNull String name, final @Nullable StorageMetrics metrics, final long threshold, final boolean trace, final boolean reclaim) {
+        this.logger = logger;
+        this.name = name;
+        this.metrics = metrics;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(Math.max(threshold, 1L));
+        this.trace = trace;
+        this.reclaim = reclaim;
+        this.interval = Math.max(Math.max(threshold, 1L) / 4L, MIN_SWEEP_INTERVAL);
+    }
+
+    /**
+     * Starts tracking a borrowed connection.
+     *
+     * @param connection The connection, or {@code null} if the borrow failed.
+     *
+     * @return The tracked connection, which stops being tracked once closed, or {@code null} if the connection was
+     *         {@code null}.
+     *
+     * @since 1.11.0
+     */
+    @Contract("null -> null; !null -> !null")
+    public @Nullable Connection track(final @Nullable Connection connection) {
+        if (connection == null) {
+            return null;
+        }
+        final @NotNull Borrow borrow = new Borrow(connection, Thread.currentThread().getName(), System.nanoTime(),
+                this.trace ? new Throwable("Connection borrowed here") : null);
+        this.borrowed.add(borrow);
+        this.scheduleSweep();
+        return ConnectionProxy.wrap((proxy, method, args) -> {
+            final boolean close = "close".equals(method.getName()) && method.getParameterCount() == 0;
+            if (borrow.reclaimed.get()) {
+                if (close || "isClosed".equals(method.getName())) {
+                    return close ? null : true;
+                }
+                throw new SQLException(String.format("The connection was reclaimed after being held for more than %d ms.", TimeUnit.NANOSECONDS.toMillis(this.threshold)));
+            }
+            if (close) {
+                this.borrowed.remove(borrow);
+            }
+            return ConnectionProxy.invoke(connection, method, args);
+        });
+    }
+
+    /**
+     * Gets the number of connections which are currently borrowed.
+     *
+     * @return The number of borrowed connections.
+     *
+     * @since 1.11.0
+     */
+    public int getBorrowedCount() {
+        return this.borrowed.size();
+    }
+
+    /**
+     * Checks the borrowed connections for leaks immediately.
+     *
+     * @since 1.11.0
+     */
+    public void sweep() {
+        final long now = System.nanoTime();
+        for (final @NotNull Borrow borrow : this.borrowed) {
+            final long held = now - borrow.since;
+            if (held < this.threshold || !borrow.reported.compareAndSet(false, true)) {
+                continue;
+            }
+            if (this.metrics != null) {
+                this.metrics.recordLeak();
+            }
+            final @NotNull String message = String.format("[Storage] A connection to %s borrowed by thread %s has been held for %d ms without being closed%s.",
+                    this.name, borrow.thread, TimeUnit.NANOSECONDS.toMillis(held),
+                    this.reclaim ? "; reclaiming it" : "");
+            if (borrow.trace == null) {
+                this.logger.log(Level.WARNING, message + " Enable storage leak tracing to record where it was borrowed.");
+            } else {
+                this.logger.log(Level.WARNING, message, borrow.trace);
+            }
+            if (this.reclaim) {
+                this.reclaim(borrow);
+            }
+        }
+    }
+
+    /**
+     * Stops the sweep. Connections which are still borrowed are left open.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public synchronized void close() {
+        this.closed = true;
+        if (this.sweep != null) {
+            this.sweep.cancel(false);
+            this.sweep = null;
+        }
+        this.borrowed.clear();
+    }
+
+    // Schedules the sweep on the shared sweeper, if it is not scheduled yet.
+    private synchronized void scheduleSweep() {
+        if (this.sweep == null && !this.closed) {
+            this.sweep = new Sweep(this).schedule(this.interval);
+        }
+    }
+
+    // Creates the shared sweeper, whose thread stops while no sweep is scheduled.
+    private static @NotNull ScheduledThreadPoolExecutor createSweeper() {
+        final @NotNull ScheduledThreadPoolExecutor sweeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "ConnectionLeakDetector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.setRemoveOnCancelPolicy(true);
+        sweeper.setKeepAliveTime(1L, TimeUnit.MINUTES);
+        sweeper.allowCoreThreadTimeOut(true);
+        return sweeper;
+    }
+
+    /**
+     * The periodic sweep of a detector. Holds the detector weakly, so that a detector which is never closed can still
+     * be garbage collected, and cancels itself once it has been.
+     *
+     * @since 1.11.0
+     */
+    private static final class Sweep implements Runnable {
+        // The detector to sweep.
+        private final @NotNull WeakReference<ConnectionLeakDetector> detector;
+        // The scheduled sweep.
+        private volatile @Nullable ScheduledFuture<?> future;
+
+        private Sweep(final @NotNull ConnectionLeakDetector detector) {
+            this.detector = new WeakReference<>(detector);
+        }
+
+        // Schedules the sweep on the shared sweeper.
+        private @NotNull ScheduledFuture<?> schedule(final long interval) {
+            this.future = SWEEPER.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+            return this.future;
+        }
+
+        @Override
+        public void run() {
+            final @Nullable ConnectionLeakDetector detector = this.detector.get();
+            if (detector != null) {
+                detector.sweep();
+            } else if (this.future != null) {
+                this.future.cancel(false);
+            }
+        }
+    }
+
+    // Closes a leaked connection, so that it stops holding a server connection.
+    private void reclaim(final @NotNull Borrow borrow) {
+        if (!borrow.reclaimed.compareAndSet(false, true)) {
+            return;
+        }
+        this.borrowed.remove(borrow);
+        try {
+            borrow.connection.close();
+        } catch (SQLException ex) {
+            this.logger.log(Level.FINE, String.format("[Storage] Failed to close a leaked connection to %s: %s", this.name, ex.getMessage()), ex);
+        }
+        if (this.metrics != null) {
+            this.metrics.recordReclaim();
+        }
+    }
+
+    /**
+     * A borrowed connection.
+     *
+     * @since 1.11.0
+     */
+    private static final class Borrow {
+        // The underlying connection.
+        private final @NotNull Connection connection;
+        // The name of the borrowing thread.
+        private final @NotNull String thread;
+        // When the connection was borrowed, in nanoseconds.
+        private final long since;
+        // Where the connection was borrowed, if tracing is enabled.
+        private final @Nullable Throwable trace;
+        // Whether the leak has been reported.
+        private final @NotNull AtomicBoolean reported = new AtomicBoolean();
+        // Whether the connection has been reclaimed.
+        private final @NotNull AtomicBoolean reclaimed = new AtomicBoolean();
+
+        private Borrow(final @NotNull Connection connection, final @NotNull String thread, final long since, final @Nullable Throwable trace) {
+            this.connection = connection;
+            this.thread = thread;
+            this.since = since;
+            this.trace = trace;
+        }
+    }
+}
@@ -20,4 +20,30 @@ public interface ConnectionManager {
      * @since 1.6.0
      */
     @Nullable Connection connect();
+
+    /**
+     * Opens a connection for work which only reads, and may therefore be served by a read replica.
+     * <p>
+     * Replicas may lag behind the primary data source. Defaults to {@link #connect()}.
+     *
+     * @return The connection to the data source.
+     *
+     * @since 1.11.0
+     */
+    default @Nullable Connection connectReadOnly() {
+        return this.connect();
+    }
+
+    /**
+     * Checks whether the data source is currently considered reachable.
+     * <p>
+     * Callers can use this to degrade gracefully instead of attempting a connection which is expected to fail.
+     *
+     * @return {@code true} if connections are expected to succeed; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    default boolean isAvailable() {
+        return true;
+    }
 }
@@ -0,0 +1,82 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wraps connections so that connection managers can observe when they are closed.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class ConnectionProxy {
+    private ConnectionProxy() {
+    }
+
+    /**
+     * Wraps a connection so that a callback runs the first time it is closed.
+     *
+     * @param connection The connection.
+     * @param onClose    Runs once, after the connection has been closed.
+     *
+     * @return The wrapped connection.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull Connection onClose(final @NotNull Connection connection, final @NotNull Runnable onClose) {
+        final @NotNull AtomicBoolean closed = new AtomicBoolean();
+        return wrap((proxy, method, args) -> {
+            if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                try {
+                    return invoke(connection, method, args);
+                } finally {
+                    if (closed.compareAndSet(false, true)) {
+                        onClose.run();
+                    }
+                }
+            }
+            return invoke(connection, method, args);
+        });
+    }
+
+    /**
+     * Creates a connection which passes every method call to an invocation handler.
+     *
+     * @param handler Handles every method call on the connection. Usually forwards it with
+     *                {@link #invoke(Connection, Method, Object[])}.
+     *
+     * @return The proxy connection.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull Connection wrap(final @NotNull InvocationHandler handler) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Calls a method on a connection, rethrowing the exception the method threw rather than a reflection wrapper.
+     *
+     * @param connection The connection.
+     * @param method     The method.
+     * @param args       The arguments, or {@code null} if there are none.
+     *
+     * @return The result of the method.
+     *
+     * @throws Throwable Thrown by the method.
+     * @since 1.11.0
+     */
+    public static Object invoke(final @NotNull Connection connection, final @NotNull Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Assigns keys to nodes by consistent hashing.
+ * <p>
+ * Each node is placed on the ring at several points, so keys spread evenly and adding or removing a node only moves
+ * the keys of the ring segments it gains or loses. The ring is immutable; build a new ring to change the nodes.
+ *
+ * @param <N> The node type.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class ConsistentHashRing<N> {
+    // The FNV-1a 64-bit offset basis.
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    // The FNV-1a 64-bit prime.
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // The nodes by their points on the ring.
+    private final @NotNull NavigableMap<Long, N> ring = new TreeMap<>();
+    // The nodes by name.
+    private final @NotNull Map<String, N> nodes;
+
+    /**
+     * Creates a new ring.
+     *
+     * @param nodes        The nodes by name. The names decide where the nodes are placed, so they must stay the same
+     *                     for keys to keep their nodes.
+     * @param virtualNodes The number of points per node.
+     *
+     * @throws IllegalArgumentException Thrown when there are no nodes.
+     * @since 1.11.0
+     */
+    public ConsistentHashRing(final @NotNull Map<String, N> nodes, final int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node.");
+        }
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+        final int points = Math.max(virtualNodes, 1);
+        for (final @NotNull Map.Entry<String, N> entry : this.nodes.entrySet()) {
+            for (int i = 0; i < points; ++i) {
+                // On the unlikely collision of two points, the node listed first keeps the point.
+                this.ring.merge(hash(entry.getKey() + '#' + i), entry.getValue(), (existing, added) -> existing);
+            }
+        }
+    }
+
+    /**
+     * Gets the node which owns a UUID.
+     *
+     * @param key The key.
+     *
+     * @return The owning node.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull N get(final @NotNull UUID key) {
+        return this.nodeAt(mix(key.getMostSignificantBits() ^ mix(key.getLeastSignificantBits())));
+    }
+
+    /**
+     * Gets the node which owns a string key.
+     *
+     * @param key The key.
+     *
+     * @return The owning node.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull N get(final @NotNull String key) {
+        return this.nodeAt(hash(key));
+    }
+
+    /**
+     * Gets the nodes of the ring.
+     *
+     * @return The nodes by name.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable Map<String, N> getNodes() {
+        return this.nodes;
+    }
+
+    // Gets the first node at or after a point, wrapping around the ring.
+    private @NotNull N nodeAt(final long point) {
+        final Map.Entry<Long, N> entry = this.ring.ceilingEntry(point);
+        return entry != null ? entry.getValue() : this.ring.firstEntry().getValue();
+    }
+
+    // Hashes a string with FNV-1a, then mixes the bits so that similar strings land far apart.
+    private static long hash(final @NotNull String value) {
+        long hash = FNV_OFFSET;
+        for (final byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    // The MurmurHash3 64-bit finalizer.
+    private static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,151 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage backend which keeps its data in a {@link FlatFileStore}.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings({"unused", "ClassCanBeRecord"})
+public class FlatFileStorageBackend implements StorageBackend {
+    // The underlying store.
+    private final transient @NotNull FlatFileStore store;
+
+    /**
+     * Creates a new flat-file storage backend.
+     *
+     * @param store The store which holds the data. Closed along with the backend.
+     *
+     * @since 1.11.0
+     */
+    public FlatFileStorageBackend(final @NotNull FlatFileStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Gets the underlying store.
+     *
+     * @return The flat-file store.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull FlatFileStore getStore() {
+        return this.store;
+    }
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key The key.
+     *
+     * @return The stored value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable byte[] get(final @NotNull String key) throws IOException {
+        return this.store.get(key);
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @throws IOException Thrown when the value cannot be written.
+     * @since 1.11.0
+     */
+    @Override
+    public void put(final @NotNull String key, final @NotNull byte[] value) throws IOException {
+        this.store.put(key, value);
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key was present; otherwise, {@code false}.
+     *
+     * @throws IOException Thrown when the key cannot be removed.
+     * @since 1.11.0
+     */
+    @Override
+    public boolean delete(final @NotNull String key) throws IOException {
+        return this.store.delete(key);
+    }
+
+    /**
+     * Visits every key which starts with a prefix, in ascending key order.
+     *
+     * @param prefix   The key prefix. An empty prefix visits every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public void scan(final @NotNull String prefix, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        final @NotNull List<String> keys = new ArrayList<>();
+        for (final @NotNull String key : this.store.keys()) {
+            if (key.startsWith(prefix)) {
+                keys.add(key);
+            }
+        }
+        this.visit(keys, consumer);
+    }
+
+    /**
+     * Visits every key which sorts after a key, in ascending key order.
+     *
+     * @param after    The key to start after, or {@code null} to visit every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public void scanAfter(final @Nullable String after, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        final @NotNull List<String> keys = new ArrayList<>();
+        for (final @NotNull String key : this.store.keys()) {
+            if (after == null || key.compareTo(after) > 0) {
+                keys.add(key);
+            }
+        }
+        this.visit(keys, consumer);
+    }
+
+    /**
+     * Closes the underlying store.
+     *
+     * @throws IOException Thrown when the store cannot be closed cleanly.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        this.store.close();
+    }
+
+    // Visits keys in ascending order, reading each value only when it is visited.
+    private void visit(final @NotNull List<String> keys, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        Collections.sort(keys);
+        for (final @NotNull String key : keys) {
+            final @Nullable byte[] value = this.store.get(key);
+            // Skip keys which were removed while scanning.
+            if (value != null) {
+                consumer.accept(key, value);
+            }
+        }
+    }
+}
@@ -0,0 +1,923 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.FlatFileConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Key/value storage engine which backs the {@link StorageType#FLAT_FILE} storage type.
+ * <p>
+ * Records are appended to a log of segment files, and an in-memory index maps every key to the position of its latest
+ * record. Writes are therefore sequential, and a read takes a single positional read from the owning segment. Written
+ * data is flushed to disk in batches, sealed segments which are mostly stale are compacted in the background, and the
+ * index is saved to a hint file so that startup does not need to replay the whole log.
+ * <p>
+ * Stores opened with memory mapping enabled map every sealed segment when it is sealed, and serve reads from those
+ * segments straight out of the mapping without a system call or any locking. Mappings are never unmapped explicitly;
+ * once a segment has been compacted its mapping is dropped and released by the garbage collector, so a reader which
+ * still holds it can never touch unmapped memory.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class FlatFileStore implements Closeable {
+    // The size of a record header: checksum, key length and value length.
+    private static final int HEADER_SIZE = 12;
+    // The value length which marks a deleted key.
+    private static final int TOMBSTONE = -1;
+    // Identifies a hint file.
+    private static final int HINT_MAGIC = 0x53545748;
+    // The version of the hint file format.
+    private static final int HINT_VERSION = 1;
+    // The name of the hint file.
+    private static final String HINT_FILE = "index.hint";
+    // The file name suffix of segment files.
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The directory which contains the segment files.
+    private final transient @NotNull Path directory;
+    // The size at which the active segment is sealed.
+    private final transient long maxSegmentSize;
+    // The interval between batched flushes, in milliseconds.
+    private final transient long syncInterval;
+    // The fraction of stale data at which a sealed segment is compacted.
+    private final transient double compactionThreshold;
+    // Whether sealed segments are memory-mapped.
+    private final transient boolean memoryMapped;
+    // Maps every live key to its latest record.
+    private final transient @NotNull ConcurrentHashMap<String, RecordPointer> index = new ConcurrentHashMap<>();
+    // Maps every deleted key to its latest tombstone, while an older segment could still hold a value for the key.
+    private final transient @NotNull ConcurrentHashMap<String, RecordPointer> tombstones = new ConcurrentHashMap<>();
+    // All segments, ordered by ID.
+    private final transient @NotNull ConcurrentSkipListMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    // Guards appends to the active segment.
+    private final transient @NotNull Object writeLock = new Object();
+    // Ensures only one compaction runs at a time.
+    private final transient @NotNull Object compactionLock = new Object();
+    // Whether data has been written since the last flush.
+    private final transient @NotNull AtomicBoolean dirty = new AtomicBoolean();
+    // Segments which have been compacted, but whose files have not been removed yet.
+    private final transient @NotNull Queue<Segment> retired = new ConcurrentLinkedQueue<>();
+    // Runs flushes and compactions.
+    private final transient @NotNull ScheduledExecutorService executor;
+    // The segment which receives writes.
+    private transient volatile @NotNull Segment activeSegment;
+    // Whether the store has been closed.
+    private transient volatile boolean closed;
+
+    /**
+     * Opens a flat-file store in the plugin data folder.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The flat-file configuration.
+     * @param name          The name of the store. Used as the name of the directory which holds its files.
+     *
+     * @throws IOException Thrown when the store's files cannot be opened or created.
+     * @since 1.11.0
+     */
+    public FlatFileStore(final @NotNull Plugin plugin, final @NotNull FlatFileConfiguration configuration, final @NotNull String name) throws IOException {
+        this(plugin.getLogger(),
+                new File(new File(plugin.getDataFolder(), Objects.requireNonNull(configuration.directory.value())), name),
+                configuration.segmentSize.value() * 1024L * 1024L,
+                configuration.syncInterval.value(),
+                configuration.compactionThreshold.value(),
+                configuration.memoryMapped.value());
+    }
+
+    /**
+     * Opens a flat-file store in the given directory.
+     *
+     * @param logger              The logger to report background failures to.
+     * @param directory           The directory which holds the store's files.
+     * @param maxSegmentSize      The size, in bytes, at which the active segment is sealed.
+     * @param syncInterval        The interval, in milliseconds, between batched flushes. {@code 0} flushes every write.
+     * @param compactionThreshold The fraction of stale data at which a sealed segment is compacted.
+     *
+     * @throws IOException Thrown when the store's files cannot be opened or created.
+     * @since 1.11.0
+     */
+    public FlatFileStore(final @NotNull Logger logger, final @NotNull File directory, final long maxSegmentSize, final long syncInterval, final double compactionThreshold) throws IOException {
+        this(logger, directory, maxSegmentSize, syncInterval, compactionThreshold, false);
+    }
+
+    /**
+     * Opens a flat-file store in the given directory.
+     *
+     * @param logger              The logger to report background failures to.
+     * @param directory           The directory which holds the store's files.
+     * @param maxSegmentSize      The size, in bytes, at which the active segment is sealed.
+     * @param syncInterval        The interval, in milliseconds, between batched flushes. {@code 0} flushes every write.
+     * @param compactionThreshold The fraction of stale data at which a sealed segment is compacted.
+     * @param memoryMapped        Whether reads from sealed segments should be served from memory mappings.
+     *
+     * @throws IOException Thrown when the store's files cannot be opened or created.
+     * @since 1.11.0
+     */
+    public FlatFileStore(final @NotNull Logger logger, final @NotNull File directory, final long maxSegmentSize, final long syncInterval, final double compactionThreshold, final boolean memoryMapped) throws IOException {
+        this.logger = logger;
+        this.directory = directory.toPath();
+        // A mapping cannot be larger than the largest int.
+        this.maxSegmentSize = Math.max(memoryMapped ? Math.min(maxSegmentSize, Integer.MAX_VALUE) : maxSegmentSize, HEADER_SIZE);
+        this.syncInterval = Math.max(syncInterval, 0L);
+        this.compactionThreshold = compactionThreshold;
+        this.memoryMapped = memoryMapped;
+
+        Files.createDirectories(this.directory);
+        this.activeSegment = this.load();
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "FlatFileStore-" + directory.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (this.syncInterval > 0) {
+            this.executor.scheduleWithFixedDelay(this::flushQuietly, this.syncInterval, this.syncInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key The key.
+     *
+     * @return The stored value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read.
+     * @since 1.11.0
+     */
+    public @Nullable byte[] get(final @NotNull String key) throws IOException {
+        this.ensureOpen();
+        @Nullable RecordPointer pointer = this.index.get(key);
+        while (pointer != null) {
+            try {
+                return this.read(pointer);
+            } catch (ClosedChannelException ex) {
+                // The segment was compacted away while we were reading it; the index now points somewhere else.
+                final @Nullable RecordPointer current = this.index.get(key);
+                if (current == pointer) {
+                    throw ex;
+                }
+                pointer = current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets a read-only view of the value stored under a key.
+     * <p>
+     * For values in a memory-mapped segment the view is backed directly by the mapping, and no data is copied.
+     * Otherwise, the value is read into a new buffer.
+     *
+     * @param key The key.
+     *
+     * @return A read-only buffer containing the stored value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read.
+     * @since 1.11.0
+     */
+    public @Nullable ByteBuffer getBuffer(final @NotNull String key) throws IOException {
+        this.ensureOpen();
+        final @Nullable RecordPointer pointer = this.index.get(key);
+        if (pointer != null) {
+            final @Nullable MappedByteBuffer mapped = pointer.segment.mapped;
+            if (mapped != null) {
+                return mapped.slice((int) pointer.valueOffset(), pointer.valueLength).asReadOnlyBuffer();
+            }
+        }
+        final @Nullable byte[] value = this.get(key);
+        return value == null ? null : ByteBuffer.wrap(value).asReadOnlyBuffer();
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @throws IOException Thrown when the value cannot be written.
+     * @since 1.11.0
+     */
+    public void put(final @NotNull String key, final @NotNull byte[] value) throws IOException {
+        this.ensureOpen();
+        final @NotNull ByteBuffer record = encode(key.getBytes(StandardCharsets.UTF_8), value);
+        synchronized (this.writeLock) {
+            final @NotNull RecordPointer pointer = this.append(record, value.length);
+            pointer.segment.liveBytes.addAndGet(pointer.recordLength);
+            this.release(this.index.put(key, pointer));
+            // The new value hides any older value on its own.
+            this.release(this.tombstones.remove(key));
+        }
+        this.afterWrite();
+    }
+
+    /**
+     * Removes a key from the store.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key was present; otherwise, {@code false}.
+     *
+     * @throws IOException Thrown when the deletion cannot be written.
+     * @since 1.11.0
+     */
+    public boolean delete(final @NotNull String key) throws IOException {
+        this.ensureOpen();
+        if (!this.index.containsKey(key)) {
+            return false;
+        }
+        final @NotNull ByteBuffer record = encode(key.getBytes(StandardCharsets.UTF_8), null);
+        final @Nullable RecordPointer previous;
+        synchronized (this.writeLock) {
+            previous = this.index.get(key);
+            if (previous != null) {
+                final @NotNull RecordPointer tombstone = this.append(record, TOMBSTONE);
+                tombstone.segment.liveBytes.addAndGet(tombstone.recordLength);
+                this.release(this.tombstones.put(key, tombstone));
+                this.release(this.index.remove(key));
+            }
+        }
+        if (previous != null) {
+            this.afterWrite();
+        }
+        return previous != null;
+    }
+
+    /**
+     * Checks whether a key is present in the store.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key is present; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean contains(final @NotNull String key) {
+        return this.index.containsKey(key);
+    }
+
+    /**
+     * Gets a live view of the keys in the store.
+     *
+     * @return The keys in the store.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable Set<String> keys() {
+        return Collections.unmodifiableSet(this.index.keySet());
+    }
+
+    /**
+     * Gets the number of keys in the store.
+     *
+     * @return The number of keys.
+     *
+     * @since 1.11.0
+     */
+    public int size() {
+        return this.index.size();
+    }
+
+    /**
+     * Flushes all written data to disk.
+     *
+     * @throws IOException Thrown when the data cannot be flushed.
+     * @since 1.11.0
+     */
+    public void sync() throws IOException {
+        if (this.dirty.getAndSet(false)) {
+            this.activeSegment.channel.force(false);
+        }
+    }
+
+    /**
+     * Compacts every sealed segment whose fraction of stale data has reached the compaction threshold.
+     * <p>
+     * The live records of a compacted segment are re-appended to the active segment, after which the segment file is
+     * removed. Tombstones count as live data, and are re-appended, only while an older segment could still hold a value
+     * for their key; those in the oldest segment are dropped.
+     *
+     * @throws IOException Thrown when a segment cannot be compacted.
+     * @since 1.11.0
+     */
+    public void compact() throws IOException {
+        synchronized (this.compactionLock) {
+            this.releaseObsoleteTombstones();
+            boolean compacted = false;
+            for (final @NotNull Segment segment : new ArrayList<>(this.segments.values())) {
+                if (this.closed) {
+                    return;
+                }
+                if (segment != this.activeSegment && segment.staleRatio() >= this.compactionThreshold) {
+                    this.compact(segment);
+                    compacted = true;
+                }
+            }
+            if (compacted) {
+                this.releaseObsoleteTombstones();
+                this.writeHint();
+                this.deleteRetiredSegments();
+            }
+        }
+    }
+
+    /**
+     * Flushes and closes the store, and saves the index to the hint file.
+     *
+     * @throws IOException Thrown when the store cannot be closed cleanly.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                this.executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this.compactionLock) {
+            synchronized (this.writeLock) {
+                this.closed = true;
+                this.activeSegment.channel.force(true);
+            }
+            this.writeHint();
+            this.deleteRetiredSegments();
+            for (final @NotNull Segment segment : this.segments.values()) {
+                segment.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Gets the directory which holds the store's files.
+     *
+     * @return The store directory.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Path getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Checks whether sealed segments are memory-mapped.
+     *
+     * @return {@code true} if reads from sealed segments are served from memory mappings; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean isMemoryMapped() {
+        return this.memoryMapped;
+    }
+
+    /**
+     * Gets the logger.
+     *
+     * @return The logger.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull Logger getLogger() {
+        return this.logger;
+    }
+
+    // Reads the value which a pointer refers to.
+    private @NotNull byte[] read(final @NotNull RecordPointer pointer) throws IOException {
+        final @NotNull byte[] value = new byte[pointer.valueLength];
+        // Absolute reads leave the mapping's position untouched, so concurrent readers can share it.
+        final @Nullable MappedByteBuffer mapped = pointer.segment.mapped;
+        if (mapped != null) {
+            mapped.get((int) pointer.valueOffset(), value);
+        } else {
+            readFully(pointer.segment.channel, ByteBuffer.wrap(value), pointer.valueOffset());
+        }
+        return value;
+    }
+
+    // Appends a record to the active segment. Must be called while holding the write lock.
+    private @NotNull RecordPointer append(final @NotNull ByteBuffer record, final int valueLength) throws IOException {
+        final int recordLength = record.remaining();
+        @NotNull Segment segment = this.activeSegment;
+        if (segment.size > 0 && segment.size + recordLength > this.maxSegmentSize) {
+            segment = this.roll();
+        }
+        final long offset = segment.size;
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += segment.channel.write(record, position);
+        }
+        segment.size = position;
+        this.dirty.set(true);
+        return new RecordPointer(segment, offset, recordLength, valueLength);
+    }
+
+    // Seals the active segment and starts a new one. Must be called while holding the write lock.
+    private @NotNull Segment roll() throws IOException {
+        final @NotNull Segment sealed = this.activeSegment;
+        sealed.channel.force(false);
+        this.map(sealed);
+        final @NotNull Segment segment = this.openSegment(sealed.id + 1);
+        this.segments.put(segment.id, segment);
+        this.activeSegment = segment;
+        this.dirty.set(false);
+        this.executor.execute(this::compactQuietly);
+        return segment;
+    }
+
+    // Updates the accounting of a record which has been superseded.
+    private void release(final @Nullable RecordPointer previous) {
+        if (previous != null) {
+            previous.segment.liveBytes.addAndGet(-previous.recordLength);
+        }
+    }
+
+    // Stops counting the tombstones of the oldest segment as live, since no older segment can hold a value for their keys.
+    private void releaseObsoleteTombstones() {
+        synchronized (this.writeLock) {
+            final @NotNull Segment oldest = this.segments.firstEntry().getValue();
+            for (final @NotNull Map.Entry<String, RecordPointer> entry : this.tombstones.entrySet()) {
+                if (entry.getValue().segment == oldest && this.tombstones.remove(entry.getKey(), entry.getValue())) {
+                    this.release(entry.getValue());
+                }
+            }
+        }
+    }
+
+    // Flushes immediately if batching is disabled.
+    private void afterWrite() throws IOException {
+        if (this.syncInterval == 0) {
+            this.sync();
+        }
+    }
+
+    // Copies the live records of a sealed segment to the active segment.
+    private void compact(final @NotNull Segment segment) throws IOException {
+        final boolean oldest = this.segments.firstKey() == segment.id;
+        try (final @NotNull DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.path), 65536))) {
+            long offset = 0;
+            while (offset < segment.size) {
+                final @Nullable RawRecord raw = RawRecord.read(input);
+                if (raw == null) {
+                    break;
+                }
+                final @NotNull String key = new String(raw.key, StandardCharsets.UTF_8);
+                synchronized (this.writeLock) {
+                    if (this.closed) {
+                        return;
+                    }
+                    final @Nullable RecordPointer current = this.index.get(key);
+                    if (raw.value == null) {
+                        final @Nullable RecordPointer tombstone = this.tombstones.get(key);
+                        final boolean latest = tombstone != null && tombstone.segment == segment && tombstone.offset == offset;
+                        // A tombstone must be kept while older segments could still hold a value for its key. Tombstones
+                        // which are not tracked were loaded from before the hint file, and are kept to be safe.
+                        if (current == null && !oldest && (latest || tombstone == null)) {
+                            final @NotNull RecordPointer pointer = this.append(encode(raw.key, null), TOMBSTONE);
+                            pointer.segment.liveBytes.addAndGet(pointer.recordLength);
+                            this.tombstones.put(key, pointer);
+                            if (latest) {
+                                this.release(tombstone);
+                            }
+                        } else if (latest) {
+                            this.tombstones.remove(key, tombstone);
+                            this.release(tombstone);
+                        }
+                    } else if (current != null && current.segment == segment && current.offset == offset) {
+                        final @NotNull RecordPointer pointer = this.append(encode(raw.key, raw.value), raw.value.length);
+                        pointer.segment.liveBytes.addAndGet(pointer.recordLength);
+                        this.index.put(key, pointer);
+                        this.release(current);
+                    }
+                }
+                offset += raw.length();
+            }
+        }
+        synchronized (this.writeLock) {
+            this.activeSegment.channel.force(false);
+            this.segments.remove(segment.id);
+        }
+        // Readers which already hold the mapping keep using it; the garbage collector unmaps it once they are done.
+        segment.mapped = null;
+        this.retired.add(segment);
+    }
+
+    // Closes and deletes the files of compacted segments. Must only be called once the hint file no longer refers to them.
+    private void deleteRetiredSegments() {
+        final @NotNull List<Segment> pending = new ArrayList<>();
+        @Nullable Segment segment;
+        while ((segment = this.retired.poll()) != null) {
+            try {
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+            } catch (IOException ex) {
+                if (this.memoryMapped) {
+                    // Some platforms refuse to delete a file while it is mapped; try again once the mapping has been collected.
+                    this.logger.log(Level.FINE, "[Storage] Deferring deletion of mapped segment {0}.", segment.path);
+                    pending.add(segment);
+                } else {
+                    this.logger.log(Level.WARNING, String.format("[Storage] Failed to delete compacted segment %s: %s", segment.path, ex.getMessage()), ex);
+                }
+            }
+        }
+        this.retired.addAll(pending);
+    }
+
+    // Maps a sealed segment into memory, if memory mapping is enabled.
+    private void map(final @NotNull Segment segment) throws IOException {
+        if (this.memoryMapped && segment.size > 0) {
+            segment.mapped = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, segment.size);
+        }
+    }
+
+    // Runs a compaction from the background executor.
+    private void compactQuietly() {
+        try {
+            this.compact();
+        } catch (IOException ex) {
+            this.logger.log(Level.SEVERE, String.format("[Storage] Failed to compact flat-file store %s: %s", this.directory, ex.getMessage()), ex);
+        }
+    }
+
+    // Runs a batched flush from the background executor.
+    private void flushQuietly() {
+        try {
+            this.sync();
+        } catch (ClosedChannelException ex) {
+            // The store is being closed, and close() flushes on its own.
+        } catch (IOException ex) {
+            this.dirty.set(true);
+            this.logger.log(Level.SEVERE, String.format("[Storage] Failed to flush flat-file store %s: %s", this.directory, ex.getMessage()), ex);
+        }
+    }
+
+    // Throws if the store has been closed.
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    // Opens all segments and rebuilds the index. Returns the active segment.
+    private @NotNull Segment load() throws IOException {
+        final @NotNull List<Long> segmentIds = new ArrayList<>();
+        try (final @NotNull DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+            for (final @NotNull Path path : stream) {
+                final @NotNull String fileName = path.getFileName().toString();
+                try {
+                    segmentIds.add(Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ex) {
+                    this.logger.log(Level.WARNING, "[Storage] Ignoring unrecognized file {0} in flat-file store {1}.", new Object[]{fileName, this.directory});
+                }
+            }
+        }
+        Collections.sort(segmentIds);
+        for (final long id : segmentIds) {
+            this.segments.put(id, this.openSegment(id));
+        }
+        if (this.segments.isEmpty()) {
+            final @NotNull Segment segment = this.openSegment(1L);
+            this.segments.put(segment.id, segment);
+            return segment;
+        }
+
+        long replayFromSegment = this.segments.firstKey();
+        long replayFromOffset = 0;
+        final @Nullable long[] hinted = this.readHint();
+        if (hinted != null) {
+            replayFromSegment = hinted[0];
+            replayFromOffset = hinted[1];
+        } else {
+            this.index.clear();
+        }
+
+        final long lastId = this.segments.lastKey();
+        for (final @NotNull Segment segment : this.segments.tailMap(replayFromSegment, true).values()) {
+            this.replay(segment, segment.id == replayFromSegment ? replayFromOffset : 0, segment.id == lastId);
+        }
+        for (final @NotNull RecordPointer pointer : this.index.values()) {
+            pointer.segment.liveBytes.addAndGet(pointer.recordLength);
+        }
+        for (final @NotNull RecordPointer pointer : this.tombstones.values()) {
+            pointer.segment.liveBytes.addAndGet(pointer.recordLength);
+        }
+        this.releaseObsoleteTombstones();
+        final @NotNull Segment active = this.segments.lastEntry().getValue();
+        for (final @NotNull Segment segment : this.segments.headMap(active.id, false).values()) {
+            this.map(segment);
+        }
+        return active;
+    }
+
+    // Applies the records of a segment to the index, starting at the given offset.
+    private void replay(final @NotNull Segment segment, final long from, final boolean active) throws IOException {
+        long offset = from;
+        try (final @NotNull DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment.path), 65536))) {
+            input.skipNBytes(from);
+            while (offset < segment.size) {
+                final @Nullable RawRecord raw;
+                try {
+                    raw = RawRecord.read(input);
+                } catch (EOFException ex) {
+                    break;
+                }
+                if (raw == null) {
+                    break;
+                }
+                final @NotNull String key = new String(raw.key, StandardCharsets.UTF_8);
+                if (raw.value == null) {
+                    this.index.remove(key);
+                    this.tombstones.put(key, new RecordPointer(segment, offset, raw.length(), TOMBSTONE));
+                } else {
+                    this.index.put(key, new RecordPointer(segment, offset, raw.length(), raw.value.length));
+                    this.tombstones.remove(key);
+                }
+                offset += raw.length();
+            }
+        }
+        if (offset < segment.size) {
+            this.logger.log(Level.WARNING, "[Storage] Discarding {0} corrupt or incomplete bytes at the end of segment {1}.", new Object[]{segment.size - offset, segment.path});
+            if (active) {
+                segment.channel.truncate(offset);
+            }
+            segment.size = offset;
+        }
+    }
+
+    // Loads the hint file into the index. Returns the segment and offset from which the log must be replayed, or null if no usable hint exists.
+    private @Nullable long[] readHint() {
+        final @NotNull Path path = this.directory.resolve(HINT_FILE);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            final @NotNull byte[] bytes = Files.readAllBytes(path);
+            if (bytes.length < Integer.BYTES) {
+                return null;
+            }
+            final @NotNull CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, bytes.length - Integer.BYTES);
+            final @NotNull ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (buffer.getInt(bytes.length - Integer.BYTES) != (int) crc.getValue() || buffer.getInt() != HINT_MAGIC || buffer.getInt() != HINT_VERSION) {
+                this.logger.log(Level.WARNING, "[Storage] Ignoring invalid hint file {0}; the log will be replayed in full.", path);
+                return null;
+            }
+            final long activeId = buffer.getLong();
+            final long activeSize = buffer.getLong();
+            final @Nullable Segment hintedActive = this.segments.get(activeId);
+            if (hintedActive == null || hintedActive.size < activeSize) {
+                return null;
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; ++i) {
+                final @Nullable Segment segment = this.segments.get(buffer.getLong());
+                final long offset = buffer.getLong();
+                final int recordLength = buffer.getInt();
+                final int valueLength = buffer.getInt();
+                final @NotNull byte[] key = new byte[buffer.getInt()];
+                buffer.get(key);
+                if (segment == null || offset + recordLength > segment.size) {
+                    this.logger.log(Level.WARNING, "[Storage] Hint file {0} refers to missing data; the log will be replayed in full.", path);
+                    this.index.clear();
+                    return null;
+                }
+                this.index.put(new String(key, StandardCharsets.UTF_8), new RecordPointer(segment, offset, recordLength, valueLength));
+            }
+            return new long[]{activeId, activeSize};
+        } catch (IOException | RuntimeException ex) {
+            this.logger.log(Level.WARNING, String.format("[Storage] Failed to read hint file %s; the log will be replayed in full: %s", path, ex.getMessage()), ex);
+            this.index.clear();
+            return null;
+        }
+    }
+
+    // Saves a snapshot of the index to the hint file.
+    private void writeHint() throws IOException {
+        final @NotNull List<Map.Entry<String, RecordPointer>> entries;
+        final long activeId;
+        final long activeSize;
+        synchronized (this.writeLock) {
+            entries = new ArrayList<>(this.index.entrySet());
+            activeId = this.activeSegment.id;
+            activeSize = this.activeSegment.size;
+            this.activeSegment.channel.force(false);
+        }
+
+        final @NotNull Path path = this.directory.resolve(HINT_FILE);
+        final @NotNull Path temporary = this.directory.resolve(HINT_FILE + ".tmp");
+        final @NotNull CRC32C crc = new CRC32C();
+        try (final @NotNull DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new ChecksumOutputStream(Files.newOutputStream(temporary), crc), 65536))) {
+            output.writeInt(HINT_MAGIC);
+            output.writeInt(HINT_VERSION);
+            output.writeLong(activeId);
+            output.writeLong(activeSize);
+            output.writeInt(entries.size());
+            for (final @NotNull Map.Entry<String, RecordPointer> entry : entries) {
+                final @NotNull RecordPointer pointer = entry.getValue();
+                final @NotNull byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                output.writeLong(pointer.segment.id);
+                output.writeLong(pointer.offset);
+                output.writeInt(pointer.recordLength);
+                output.writeInt(pointer.valueLength);
+                output.writeInt(key.length);
+                output.write(key);
+            }
+            output.flush();
+            output.writeInt((int) crc.getValue());
+        }
+        try (final @NotNull FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Opens or creates the segment with the given ID.
+    private @NotNull Segment openSegment(final long id) throws IOException {
+        final @NotNull Path path = this.directory.resolve(String.format("%016d%s", id, SEGMENT_SUFFIX));
+        final @NotNull FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel, channel.size());
+    }
+
+    // Encodes a record. A null value encodes a tombstone.
+    private static @NotNull ByteBuffer encode(final @NotNull byte[] key, final @Nullable byte[] value) {
+        final int valueLength = value == null ? TOMBSTONE : value.length;
+        final @NotNull ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + Math.max(valueLength, 0));
+        buffer.putInt(0).putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        final @NotNull CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), Integer.BYTES, buffer.capacity() - Integer.BYTES);
+        buffer.putInt(0, (int) crc.getValue());
+        return buffer.flip();
+    }
+
+    // Reads from a channel until the buffer is full.
+    private static void readFully(final @NotNull FileChannel channel, final @NotNull ByteBuffer buffer, final long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * A segment file of the log.
+     *
+     * @since 1.11.0
+     */
+    private static final class Segment {
+        // The segment ID. Segments are replayed in ID order.
+        private final long id;
+        // The segment file.
+        private final @NotNull Path path;
+        // The channel used to read and write the file.
+        private final @NotNull FileChannel channel;
+        // The number of bytes which belong to live records.
+        private final @NotNull AtomicLong liveBytes = new AtomicLong();
+        // The number of bytes in the segment.
+        private volatile long size;
+        // The read-only mapping of the segment, once it is sealed and if memory mapping is enabled.
+        private volatile @Nullable MappedByteBuffer mapped;
+
+        private Segment(final long id, final @NotNull Path path, final @NotNull FileChannel channel, final long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+
+        // The fraction of the segment which no longer belongs to live records.
+        private double staleRatio() {
+            final long size = this.size;
+            return size == 0 ? 0.0D : 1.0D - ((double) this.liveBytes.get() / size);
+        }
+    }
+
+    /**
+     * The location of a key's latest record.
+     *
+     * @since 1.11.0
+     */
+    private static final class RecordPointer {
+        // The segment which contains the record.
+        private final @NotNull Segment segment;
+        // The offset of the record within the segment.
+        private final long offset;
+        // The length of the whole record.
+        private final int recordLength;
+        // The length of the record's value.
+        private final int valueLength;
+
+        private RecordPointer(final @NotNull Segment segment, final long offset, final int recordLength, final int valueLength) {
+            this.segment = segment;
+            this.offset = offset;
+            this.recordLength = recordLength;
+            this.valueLength = valueLength;
+        }
+
+        // The offset of the record's value within the segment.
+        private long valueOffset() {
+            return this.offset + this.recordLength - this.valueLength;
+        }
+    }
+
+    /**
+     * A decoded record, read sequentially from a segment.
+     *
+     * @since 1.11.0
+     */
+    private static final class RawRecord {
+        // The key bytes.
+        private final @NotNull byte[] key;
+        // The value bytes, or null for a tombstone.
+        private final @Nullable byte[] value;
+
+        private RawRecord(final @NotNull byte[] key, final @Nullable byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        // Reads and verifies the next record. Returns null if the record is corrupt.
+        private static @Nullable RawRecord read(final @NotNull DataInputStream input) throws IOException {
+            final int checksum = input.readInt();
+            final int keyLength = input.readInt();
+            final int valueLength = input.readInt();
+            if (keyLength < 0 || valueLength < TOMBSTONE) {
+                return null;
+            }
+            final @NotNull byte[] key = input.readNBytes(keyLength);
+            final @Nullable byte[] value = valueLength == TOMBSTONE ? null : input.readNBytes(valueLength);
+            if (key.length != keyLength || (value != null && value.length != valueLength)) {
+                return null;
+            }
+            final @NotNull CRC32C crc = new CRC32C();
+            crc.update(ByteBuffer.allocate(Integer.BYTES * 2).putInt(keyLength).putInt(valueLength).flip());
+            crc.update(key);
+            if (value != null) {
+                crc.update(value);
+            }
+            return (int) crc.getValue() == checksum ? new RawRecord(key, value) : null;
+        }
+
+        // The length of the encoded record.
+        private int length() {
+            return HEADER_SIZE + this.key.length + (this.value == null ? 0 : this.value.length);
+        }
+    }
+
+    /**
+     * Output stream which updates a checksum with the data written through it.
+     *
+     * @since 1.11.0
+     */
+    private static final class ChecksumOutputStream extends FilterOutputStream {
+        // The checksum.
+        private final @NotNull CRC32C crc;
+
+        private ChecksumOutputStream(final @NotNull OutputStream output, final @NotNull CRC32C crc) {
+            super(output);
+            this.crc = crc;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.crc.update(b);
+            this.out.write(b);
+        }
+
+        @Override
+        public void write(final @NotNull byte[] b, final int off, final int len) throws IOException {
+            this.crc.update(b, off, len);
+            this.out.write(b, off, len);
+        }
+    }
+}
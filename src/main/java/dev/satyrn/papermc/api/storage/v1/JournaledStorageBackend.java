@@ -0,0 +1,496 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Storage backend which keeps accepting writes while its data source is unreachable.
+ * <p>
+ * Writes which cannot be sent to the wrapped backend because the data source is unreachable are appended to a
+ * {@link WriteJournal} instead, and reads see them immediately. Writes which the data source rejects for any other
+ * reason, such as a value which is too long, are not journaled; their failure is thrown to the caller. A background
+ * task replays the journal in batches once the wrapped backend is available again, and deletes it once every batch has
+ * been written. Replay only ever sends the latest write per key, so replaying the same journal twice after a crash is
+ * harmless.
+ * <p>
+ * A journaled write which the data source rejects on replay for a reason other than an outage would block the journal
+ * forever. Such writes are set aside in a {@code .rejected} journal next to the journal file, and logged.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class JournaledStorageBackend implements StorageBackend {
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The wrapped backend.
+    private final transient @NotNull StorageBackend backend;
+    // The journal of writes which have not reached the wrapped backend.
+    private final transient @NotNull WriteJournal journal;
+    // The journal of writes which the wrapped backend rejected on replay.
+    private final transient @NotNull WriteJournal rejected;
+    // The maximum number of writes per replayed batch.
+    private final transient int batchSize;
+    // Journaled writes by key, so that reads see them. A null value is a delete.
+    private final transient @NotNull ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    // Numbers journaled writes, so that replay only forgets the writes it sent.
+    private final transient @NotNull AtomicLong sequence = new AtomicLong();
+    // Runs the background replay.
+    private final transient @NotNull ScheduledExecutorService scheduler;
+    // Guards the choice between writing through and journaling, so that writes never overtake journaled writes.
+    private final transient @NotNull Object writeLock = new Object();
+    // Serializes replays.
+    private final transient @NotNull Object replayLock = new Object();
+    // Whether the journal holds writes. While set, every write is journaled to keep writes in order.
+    private transient volatile boolean journaling;
+
+    /**
+     * Creates a new journaled storage backend, and schedules replay of any writes left in the journal.
+     *
+     * @param logger         The logger.
+     * @param backend        The wrapped backend. Closed along with this backend.
+     * @param journal        The journal. Closed along with this backend. Writes rejected on replay are set aside in a
+     *                       file named after it, with a {@code .rejected} suffix.
+     * @param replayInterval The interval, in milliseconds, between replay attempts.
+     * @param batchSize      The maximum number of writes per replayed batch.
+     *
+     * @throws IOException Thrown when the journal cannot be read.
+     * @since 1.11.0
+     */
+    public JournaledStorageBackend(final @NotNull Logger logger, final @NotNull StorageBackend backend, final @NotNull WriteJournal journal, final long replayInterval, final int batchSize) throws IOException {
+        this.logger = logger;
+        this.backend = backend;
+        this.journal = journal;
+        this.rejected = new WriteJournal(new File(journal.getFile().getPath() + ".rejected"));
+        this.batchSize = Math.max(batchSize, 1);
+        final @NotNull Map<String, byte[]> journaled = journal.read();
+        for (final @NotNull Map.Entry<String, byte[]> entry : journaled.entrySet()) {
+            this.pending.put(entry.getKey(), new PendingWrite(entry.getValue(), this.sequence.incrementAndGet()));
+        }
+        this.journaling = !journal.isEmpty();
+        if (this.journaling) {
+            this.logger.log(Level.INFO, String.format("[Storage] Found %d journaled writes in %s; they will be replayed once the data source is available.", journaled.size(), journal.getFile().getName()));
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "WriteJournal-" + journal.getFile().getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(replayInterval, 1L);
+        this.scheduler.scheduleWithFixedDelay(this::replayQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the wrapped backend.
+     *
+     * @return The wrapped backend.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull StorageBackend getBackend() {
+        return this.backend;
+    }
+
+    /**
+     * Gets the number of keys with journaled writes which have not reached the wrapped backend.
+     *
+     * @return The number of pending keys.
+     *
+     * @since 1.11.0
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Gets the value stored under a key, including journaled writes.
+     *
+     * @param key The key.
+     *
+     * @return The stored value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable byte[] get(final @NotNull String key) throws IOException {
+        final @Nullable PendingWrite write = this.pending.get(key);
+        return write != null ? write.value : this.backend.get(key);
+    }
+
+    /**
+     * Gets the values stored under several keys, including journaled writes.
+     *
+     * @param keys The keys.
+     *
+     * @return The stored values by key. Keys which are not present are omitted.
+     *
+     * @throws IOException Thrown when the values cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public @NotNull Map<String, byte[]> getAll(final @NotNull Collection<String> keys) throws IOException {
+        final @NotNull Map<String, byte[]> values = new HashMap<>();
+        final @NotNull List<String> remaining = new ArrayList<>(keys.size());
+        for (final @NotNull String key : keys) {
+            final @Nullable PendingWrite write = this.pending.get(key);
+            if (write == null) {
+                remaining.add(key);
+            } else if (write.value != null) {
+                values.put(key, write.value);
+            }
+        }
+        if (!remaining.isEmpty()) {
+            values.putAll(this.backend.getAll(remaining));
+        }
+        return values;
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @throws IOException Thrown when the wrapped backend rejects the value, or it can neither be written nor
+     *                     journaled.
+     * @since 1.11.0
+     */
+    @Override
+    public void put(final @NotNull String key, final @NotNull byte[] value) throws IOException {
+        this.putAll(Map.of(key, value));
+    }
+
+    /**
+     * Stores several values, journaling them if the wrapped backend cannot take them.
+     *
+     * @param values The values by key.
+     *
+     * @throws IOException Thrown when the wrapped backend rejects the values, or they can neither be written nor
+     *                     journaled.
+     * @since 1.11.0
+     */
+    @Override
+    public void putAll(final @NotNull Map<String, byte[]> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        synchronized (this.writeLock) {
+            if (this.canWriteThrough()) {
+                try {
+                    this.backend.putAll(values);
+                    return;
+                } catch (IOException ex) {
+                    this.checkJournalable(ex);
+                }
+            }
+            this.journal(values);
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key was present, or may have been present when the removal was journaled;
+     *         otherwise, {@code false}.
+     *
+     * @throws IOException Thrown when the wrapped backend rejects the removal, or it can neither be written nor
+     *                     journaled.
+     * @since 1.11.0
+     */
+    @Override
+    public boolean delete(final @NotNull String key) throws IOException {
+        synchronized (this.writeLock) {
+            if (this.canWriteThrough()) {
+                try {
+                    return this.backend.delete(key);
+                } catch (IOException ex) {
+                    this.checkJournalable(ex);
+                }
+            }
+            final @Nullable PendingWrite previous = this.pending.get(key);
+            this.journal(Collections.singletonMap(key, null));
+            return previous == null || previous.value != null;
+        }
+    }
+
+    /**
+     * Removes several keys, journaling the removals if the wrapped backend cannot take them.
+     *
+     * @param keys The keys.
+     *
+     * @throws IOException Thrown when the wrapped backend rejects the removals, or they can neither be written nor
+     *                     journaled.
+     * @since 1.11.0
+     */
+    @Override
+    public void deleteAll(final @NotNull Collection<String> keys) throws IOException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        synchronized (this.writeLock) {
+            if (this.canWriteThrough()) {
+                try {
+                    this.backend.deleteAll(keys);
+                    return;
+                } catch (IOException ex) {
+                    this.checkJournalable(ex);
+                }
+            }
+            final @NotNull Map<String, byte[]> deletes = new LinkedHashMap<>();
+            for (final @NotNull String key : keys) {
+                deletes.put(key, null);
+            }
+            this.journal(deletes);
+        }
+    }
+
+    /**
+     * Visits every key which starts with a prefix, in ascending key order, including journaled writes.
+     *
+     * @param prefix   The key prefix. An empty prefix visits every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public void scan(final @NotNull String prefix, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        final @NotNull Map<String, PendingWrite> overlay = new HashMap<>();
+        this.pending.forEach((key, write) -> {
+            if (key.startsWith(prefix)) {
+                overlay.put(key, write);
+            }
+        });
+        if (overlay.isEmpty()) {
+            this.backend.scan(prefix, consumer);
+            return;
+        }
+        final @NotNull SortedMap<String, byte[]> values = new TreeMap<>();
+        this.backend.scan(prefix, values::put);
+        overlay.forEach((key, write) -> {
+            if (write.value == null) {
+                values.remove(key);
+            } else {
+                values.put(key, write.value);
+            }
+        });
+        values.forEach(consumer);
+    }
+
+    /**
+     * Checks whether the wrapped backend is currently available.
+     *
+     * @return {@code true} if the wrapped backend is available; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public boolean isAvailable() {
+        return this.backend.isAvailable();
+    }
+
+    /**
+     * Gets the metrics collector of the wrapped backend.
+     *
+     * @return The metrics collector, or {@code null} if the wrapped backend does not record metrics.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable StorageMetrics getMetrics() {
+        return this.backend.getMetrics();
+    }
+
+    /**
+     * Sends journaled writes to the wrapped backend in batches, and deletes them from the journal once every batch
+     * has been written.
+     * <p>
+     * When the wrapped backend rejects a batch for a reason other than a connection failure, its writes are retried one
+     * at a time, and those which are still rejected are set aside in the rejected journal rather than retried forever.
+     *
+     * @return The number of keys replayed, including any set aside.
+     *
+     * @throws IOException Thrown when the data source cannot be reached, or a rejected write cannot be set aside. The
+     *                     journal is kept for the next attempt.
+     * @since 1.11.0
+     */
+    public int replay() throws IOException {
+        synchronized (this.replayLock) {
+            if (!this.journaling) {
+                return 0;
+            }
+            final @NotNull Map<String, byte[]> writes;
+            final long replayedSequence;
+            synchronized (this.writeLock) {
+                writes = this.journal.beginReplay();
+                replayedSequence = this.sequence.get();
+            }
+            final @NotNull Map<String, byte[]> puts = new HashMap<>();
+            final @NotNull List<String> deletes = new ArrayList<>();
+            final @NotNull Map<String, byte[]> rejects = new LinkedHashMap<>();
+            for (final @NotNull Map.Entry<String, byte[]> entry : writes.entrySet()) {
+                if (entry.getValue() == null) {
+                    deletes.add(entry.getKey());
+                } else {
+                    puts.put(entry.getKey(), entry.getValue());
+                }
+                if (puts.size() + deletes.size() >= this.batchSize) {
+                    this.flushBatch(puts, deletes, rejects);
+                }
+            }
+            this.flushBatch(puts, deletes, rejects);
+            if (!rejects.isEmpty()) {
+                this.rejected.append(rejects);
+                this.logger.log(Level.SEVERE, String.format("[Storage] The data source rejected %d journaled writes; they were set aside in %s: %s",
+                        rejects.size(), this.rejected.getFile().getName(), String.join(", ", rejects.keySet())));
+            }
+            synchronized (this.writeLock) {
+                this.journal.completeReplay();
+                this.pending.forEach((key, write) -> {
+                    if (write.sequence <= replayedSequence) {
+                        this.pending.remove(key, write);
+                    }
+                });
+                this.journaling = !this.journal.isEmpty();
+            }
+            this.logger.log(Level.INFO, String.format("[Storage] Replayed %d journaled writes.", writes.size()));
+            return writes.size();
+        }
+    }
+
+    /**
+     * Replays the journal one last time if possible, and closes the journal and the wrapped backend.
+     * <p>
+     * Writes which could not be replayed stay in the journal file and are replayed after the next start.
+     *
+     * @throws IOException Thrown when the journal or the wrapped backend cannot be closed.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        this.scheduler.shutdownNow();
+        this.replayQuietly();
+        try {
+            this.journal.close();
+            this.rejected.close();
+        } finally {
+            this.backend.close();
+        }
+    }
+
+    // Checks whether a write may go straight to the wrapped backend.
+    private boolean canWriteThrough() {
+        return !this.journaling && this.backend.isAvailable();
+    }
+
+    // Appends writes to the journal and makes them visible to reads. Called with the write lock held.
+    private void journal(final @NotNull Map<String, byte[]> writes) throws IOException {
+        this.journal.append(writes);
+        this.journaling = true;
+        for (final @NotNull Map.Entry<String, byte[]> entry : writes.entrySet()) {
+            this.pending.put(entry.getKey(), new PendingWrite(entry.getValue(), this.sequence.incrementAndGet()));
+        }
+    }
+
+    // Writes and clears a replay batch. Writes which the wrapped backend rejects one at a time are added to rejects.
+    private void flushBatch(final @NotNull Map<String, byte[]> puts, final @NotNull List<String> deletes, final @NotNull Map<String, byte[]> rejects) throws IOException {
+        if (!puts.isEmpty()) {
+            try {
+                this.backend.putAll(puts);
+            } catch (IOException ex) {
+                this.checkRejected(ex);
+                for (final @NotNull Map.Entry<String, byte[]> entry : puts.entrySet()) {
+                    try {
+                        this.backend.put(entry.getKey(), entry.getValue());
+                    } catch (IOException putEx) {
+                        this.checkRejected(putEx);
+                        this.logger.log(Level.WARNING, String.format("[Storage] The data source rejected the journaled write of %s: %s", entry.getKey(), putEx.getMessage()));
+                        rejects.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            puts.clear();
+        }
+        if (!deletes.isEmpty()) {
+            try {
+                this.backend.deleteAll(deletes);
+            } catch (IOException ex) {
+                this.checkRejected(ex);
+                for (final @NotNull String key : deletes) {
+                    try {
+                        this.backend.delete(key);
+                    } catch (IOException deleteEx) {
+                        this.checkRejected(deleteEx);
+                        this.logger.log(Level.WARNING, String.format("[Storage] The data source rejected the journaled removal of %s: %s", key, deleteEx.getMessage()));
+                        rejects.put(key, null);
+                    }
+                }
+            }
+            deletes.clear();
+        }
+    }
+
+    // Rethrows a write failure unless the data source is unreachable, in which case the write may be journaled.
+    private void checkJournalable(final @NotNull IOException ex) throws IOException {
+        if (!this.isOutage(ex)) {
+            throw ex;
+        }
+        this.logger.log(Level.WARNING, String.format("[Storage] Journaling writes until the data source recovers: %s", ex.getMessage()));
+    }
+
+    // Rethrows a replay failure if the data source is unreachable, so that the journal is kept for the next attempt.
+    private void checkRejected(final @NotNull IOException ex) throws IOException {
+        if (this.isOutage(ex)) {
+            throw ex;
+        }
+    }
+
+    // Checks whether a failure was caused by the data source being unreachable, or by its circuit breaker opening.
+    private boolean isOutage(final @NotNull IOException ex) {
+        return StorageUnavailableException.isConnectionFailure(ex) || !this.backend.isAvailable();
+    }
+
+    // Replays the journal if the wrapped backend is available, logging rather than throwing failures.
+    private void replayQuietly() {
+        if (!this.journaling || !this.backend.isAvailable()) {
+            return;
+        }
+        try {
+            this.replay();
+        } catch (IOException | RuntimeException ex) {
+            this.logger.log(Level.WARNING, String.format("[Storage] Journal replay failed; retrying later: %s", ex.getMessage()));
+        }
+    }
+
+    /**
+     * A journaled write.
+     *
+     * @since 1.11.0
+     */
+    private static final class PendingWrite {
+        // The written value, or null for a delete.
+        private final @Nullable byte[] value;
+        // The order of the write.
+        private final long sequence;
+
+        private PendingWrite(final @Nullable byte[] value, final long sequence) {
+            this.value = value;
+            this.sequence = sequence;
+        }
+    }
+}
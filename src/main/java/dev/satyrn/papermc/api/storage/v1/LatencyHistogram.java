@@ -0,0 +1,141 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations.
+ * <p>
+ * Durations are counted in buckets whose upper bounds double from one microsecond upwards, so recording a value is a
+ * single atomic increment and percentiles are accurate to within a factor of two.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public final class LatencyHistogram {
+    // The number of buckets. The last bucket collects everything above roughly 35 minutes.
+    private static final int BUCKETS = 32;
+
+    // The number of values per bucket.
+    private final @NotNull AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    // The number of recorded values.
+    private final @NotNull LongAdder count = new LongAdder();
+    // The sum of all recorded values, in nanoseconds.
+    private final @NotNull LongAdder total = new LongAdder();
+    // The largest recorded value, in nanoseconds.
+    private final @NotNull AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration, in nanoseconds.
+     *
+     * @since 1.11.0
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(nanos, 0L);
+        this.buckets.incrementAndGet(bucketOf(value));
+        this.count.increment();
+        this.total.add(value);
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Gets the number of recorded durations.
+     *
+     * @return The number of recorded durations.
+     *
+     * @since 1.11.0
+     */
+    public long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * Gets the mean of the recorded durations.
+     *
+     * @param unit The unit of the result.
+     *
+     * @return The mean duration, or {@code 0} if nothing was recorded.
+     *
+     * @since 1.11.0
+     */
+    public double mean(final @NotNull TimeUnit unit) {
+        final long count = this.count.sum();
+        return count == 0 ? 0.0D : (double) this.total.sum() / count / unit.toNanos(1L);
+    }
+
+    /**
+     * Gets the largest recorded duration.
+     *
+     * @param unit The unit of the result.
+     *
+     * @return The largest duration.
+     *
+     * @since 1.11.0
+     */
+    public long max(final @NotNull TimeUnit unit) {
+        return unit.convert(this.max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets an upper bound for a percentile of the recorded durations.
+     *
+     * @param percentile The percentile, between {@code 0} and {@code 100}.
+     * @param unit       The unit of the result.
+     *
+     * @return The upper bound of the bucket which contains the percentile, capped at the largest recorded duration.
+     *
+     * @since 1.11.0
+     */
+    public long percentile(final double percentile, final @NotNull TimeUnit unit) {
+        final long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            counts[i] = this.buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0L;
+        }
+        final long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0.0D), 100.0D) / 100.0D * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return unit.convert(Math.min(upperBoundOf(i), this.max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return this.max(unit);
+    }
+
+    /**
+     * Clears all recorded durations.
+     *
+     * @since 1.11.0
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; ++i) {
+            this.buckets.set(i, 0L);
+        }
+        this.count.reset();
+        this.total.reset();
+        this.max.set(0L);
+    }
+
+    // Gets the bucket for a duration in nanoseconds.
+    private static int bucketOf(final long nanos) {
+        final long micros = nanos / 1000L;
+        return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+    }
+
+    // Gets the upper bound of a bucket in nanoseconds.
+    private static long upperBoundOf(final int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) * 1000L;
+    }
+}
@@ -0,0 +1,621 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the scores of players in memory, ordered, so that ranks and top-N lists are answered without querying the
+ * storage backend.
+ * <p>
+ * Scores are held in an order-statistic tree (a treap which tracks the size of each subtree), ordered by descending
+ * score and then by UUID. Updates, removals and rank lookups take O(log n) time; listing {@code n} entries from any
+ * rank takes O(log n + n) time.
+ * <p>
+ * The leaderboard is loaded once from a {@link ScoreLoader}, and then kept current by calling
+ * {@link #update(UUID, double)} from the code which writes the scores. Because updates can be missed, for example when
+ * another server writes to the same database, the leaderboard can be rebuilt from the loader periodically. Updates which
+ * happen while a rebuild is loading are applied on top of the rebuilt scores.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class Leaderboard implements Closeable {
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The name of the leaderboard, for log messages.
+    private final transient @NotNull String name;
+    // Loads every score from storage.
+    private final transient @NotNull ScoreLoader loader;
+    // Guards the tree, the score index and the update log.
+    private final transient @NotNull ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Serializes reconciliations.
+    private final transient @NotNull Object reconcileLock = new Object();
+    // The current score of each player.
+    private transient @NotNull Map<UUID, Double> scores = new HashMap<>();
+    // The root of the tree.
+    private transient @Nullable Node root;
+    // Updates made while a reconciliation is loading, by player. A null score removes the player.
+    private transient @Nullable Map<UUID, Double> updateLog;
+    // Runs the periodic reconciliation, if started.
+    private transient @Nullable ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * Creates a new, empty leaderboard. Call {@link #reconcile()} to load it.
+     *
+     * @param logger The logger to report reconciliations to.
+     * @param name   The name of the leaderboard, for log messages.
+     * @param loader Loads every score from storage.
+     *
+     * @since 1.11.0
+     */
+    public Leaderboard(final @NotNull Logger logger, final @NotNull String name, final @NotNull ScoreLoader loader) {
+        this.logger = logger;
+        this.name = name;
+        this.loader = loader;
+    }
+
+    /**
+     * Sets the score of a player.
+     *
+     * @param uuid  The UUID of the player.
+     * @param score The new score.
+     *
+     * @since 1.11.0
+     */
+    public void update(final @NotNull UUID uuid, final double score) {
+        this.lock.writeLock().lock();
+        try {
+            this.put(uuid, score);
+            if (this.updateLog != null) {
+                this.updateLog.put(uuid, score);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a player from the leaderboard.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @return {@code true} if the player was ranked; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean remove(final @NotNull UUID uuid) {
+        this.lock.writeLock().lock();
+        try {
+            if (this.updateLog != null) {
+                this.updateLog.put(uuid, null);
+            }
+            return this.take(uuid);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the score of a player.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @return The score, or {@code null} if the player is not ranked.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable Double getScore(final @NotNull UUID uuid) {
+        this.lock.readLock().lock();
+        try {
+            return this.scores.get(uuid);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the rank of a player. The player with the highest score has rank {@code 1}; players with equal scores are
+     * ordered by UUID.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @return The rank, or {@code 0} if the player is not ranked.
+     *
+     * @since 1.11.0
+     */
+    public int getRank(final @NotNull UUID uuid) {
+        this.lock.readLock().lock();
+        try {
+            final @Nullable Double score = this.scores.get(uuid);
+            return score == null ? 0 : countBefore(this.root, score, uuid) + 1;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the entry at a rank.
+     *
+     * @param rank The rank, starting at {@code 1}.
+     *
+     * @return The entry, or {@code null} if fewer players are ranked.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable Entry getEntry(final int rank) {
+        final @NotNull List<Entry> entries = this.range(rank, 1);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * Gets the highest-ranked entries.
+     *
+     * @param count The maximum number of entries.
+     *
+     * @return The entries, highest score first.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable List<Entry> top(final int count) {
+        return this.range(1, count);
+    }
+
+    /**
+     * Gets consecutive entries starting at a rank, such as one page of the leaderboard.
+     *
+     * @param fromRank The rank of the first entry, starting at {@code 1}.
+     * @param count    The maximum number of entries.
+     *
+     * @return The entries, in rank order.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable List<Entry> range(final int fromRank, final int count) {
+        if (fromRank < 1 || count <= 0) {
+            return List.of();
+        }
+        this.lock.readLock().lock();
+        try {
+            final int size = size(this.root);
+            if (fromRank > size) {
+                return List.of();
+            }
+            final int end = (int) Math.min((long) fromRank - 1L + count, size);
+            final @NotNull List<Entry> entries = new ArrayList<>(end - fromRank + 1);
+            collect(this.root, fromRank - 1, end, 0, entries);
+            return Collections.unmodifiableList(entries);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of ranked players.
+     *
+     * @return The number of players.
+     *
+     * @since 1.11.0
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return size(this.root);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the leaderboard from storage.
+     * <p>
+     * The scores are loaded without blocking readers or writers. Updates made while loading are kept, since they are
+     * newer than what was loaded.
+     *
+     * @return The number of players whose score differed from the loaded score, or who were missing from either side.
+     *
+     * @throws IOException Thrown when the scores cannot be loaded. The current scores are kept.
+     * @since 1.11.0
+     */
+    public int reconcile() throws IOException {
+        synchronized (this.reconcileLock) {
+            this.lock.writeLock().lock();
+            try {
+                this.updateLog = new HashMap<>();
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            final @NotNull Map<UUID, Double> loaded = new HashMap<>();
+            try {
+                this.loader.load((uuid, score) -> loaded.put(uuid, score));
+            } catch (IOException | RuntimeException ex) {
+                this.lock.writeLock().lock();
+                try {
+                    this.updateLog = null;
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+                throw ex;
+            }
+
+            this.lock.writeLock().lock();
+            try {
+                final @NotNull Map<UUID, Double> log = Objects.requireNonNull(this.updateLog);
+                this.updateLog = null;
+                log.forEach((uuid, score) -> {
+                    if (score == null) {
+                        loaded.remove(uuid);
+                    } else {
+                        loaded.put(uuid, score);
+                    }
+                });
+                int corrections = 0;
+                for (final @NotNull Map.Entry<UUID, Double> entry : loaded.entrySet()) {
+                    if (!entry.getValue().equals(this.scores.get(entry.getKey()))) {
+                        ++corrections;
+                    }
+                }
+                for (final @NotNull UUID uuid : this.scores.keySet()) {
+                    if (!loaded.containsKey(uuid)) {
+                        ++corrections;
+                    }
+                }
+                if (corrections > 0 || this.root == null) {
+                    this.rebuild(loaded);
+                }
+                if (corrections > 0) {
+                    this.logger.log(Level.FINE, String.format("[Storage] Reconciled leaderboard %s: corrected %d of %d scores.", this.name, corrections, loaded.size()));
+                }
+                return corrections;
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Starts rebuilding the leaderboard from storage periodically, on a background thread.
+     *
+     * @param interval The interval between reconciliations, in milliseconds.
+     *
+     * @since 1.11.0
+     */
+    public synchronized void startReconciliation(final long interval) {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+        }
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "Leaderboard-" + this.name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long delay = Math.max(interval, 1L);
+        this.scheduler.scheduleWithFixedDelay(this::reconcileQuietly, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic reconciliation.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public synchronized void close() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    // Reconciles from the background thread.
+    private void reconcileQuietly() {
+        try {
+            this.reconcile();
+        } catch (IOException | RuntimeException ex) {
+            this.logger.log(Level.WARNING, String.format("[Storage] Failed to reconcile leaderboard %s: %s", this.name, ex.getMessage()), ex);
+        }
+    }
+
+    // Sets a score. Must be called while holding the write lock.
+    private void put(final @NotNull UUID uuid, final double score) {
+        final @Nullable Double previous = this.scores.put(uuid, score);
+        if (previous != null) {
+            if (Double.compare(previous, score) == 0) {
+                return;
+            }
+            this.root = delete(this.root, previous, uuid);
+        }
+        this.root = insert(this.root, new Node(score, uuid));
+    }
+
+    // Removes a score. Must be called while holding the write lock.
+    private boolean take(final @NotNull UUID uuid) {
+        final @Nullable Double previous = this.scores.remove(uuid);
+        if (previous == null) {
+            return false;
+        }
+        this.root = delete(this.root, previous, uuid);
+        return true;
+    }
+
+    // Replaces every score. Must be called while holding the write lock.
+    private void rebuild(final @NotNull Map<UUID, Double> loaded) {
+        final @NotNull List<Node> nodes = new ArrayList<>(loaded.size());
+        loaded.forEach((uuid, score) -> nodes.add(new Node(score, uuid)));
+        nodes.sort((left, right) -> compare(left.score, left.uuid, right));
+        this.scores = new HashMap<>(loaded);
+        this.root = build(nodes, 0, nodes.size());
+    }
+
+    // Builds a balanced tree from sorted nodes, giving parents higher priorities than their children.
+    private static @Nullable Node build(final @NotNull List<Node> nodes, final int from, final int to) {
+        if (from >= to) {
+            return null;
+        }
+        final int middle = (from + to) >>> 1;
+        final @NotNull Node node = nodes.get(middle);
+        node.left = build(nodes, from, middle);
+        node.right = build(nodes, middle + 1, to);
+        node.priority = Math.max(priority(node.left), priority(node.right)) + 1 + ThreadLocalRandom.current().nextInt(16);
+        node.update();
+        return node;
+    }
+
+    // Inserts a node.
+    private static @NotNull Node insert(final @Nullable Node root, final @NotNull Node node) {
+        if (root == null) {
+            return node;
+        }
+        if (node.priority > root.priority) {
+            final @Nullable Node[] halves = split(root, node.score, node.uuid);
+            node.left = halves[0];
+            node.right = halves[1];
+            node.update();
+            return node;
+        }
+        if (compare(node.score, node.uuid, root) < 0) {
+            root.left = insert(root.left, node);
+        } else {
+            root.right = insert(root.right, node);
+        }
+        root.update();
+        return root;
+    }
+
+    // Removes the node with a key.
+    private static @Nullable Node delete(final @Nullable Node root, final double score, final @NotNull UUID uuid) {
+        if (root == null) {
+            return null;
+        }
+        final int comparison = compare(score, uuid, root);
+        if (comparison == 0) {
+            return merge(root.left, root.right);
+        }
+        if (comparison < 0) {
+            root.left = delete(root.left, score, uuid);
+        } else {
+            root.right = delete(root.right, score, uuid);
+        }
+        root.update();
+        return root;
+    }
+
+    // Splits a tree into the nodes ordered before a key and the rest.
+    private static @Nullable Node[] split(final @Nullable Node root, final double score, final @NotNull UUID uuid) {
+        if (root == null) {
+            return new Node[2];
+        }
+        if (compare(score, uuid, root) <= 0) {
+            final @Nullable Node[] halves = split(root.left, score, uuid);
+            root.left = halves[1];
+            root.update();
+            halves[1] = root;
+            return halves;
+        }
+        final @Nullable Node[] halves = split(root.right, score, uuid);
+        root.right = halves[0];
+        root.update();
+        halves[0] = root;
+        return halves;
+    }
+
+    // Joins two trees whose keys do not overlap.
+    private static @Nullable Node merge(final @Nullable Node left, final @Nullable Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    // Counts the nodes ordered before a key.
+    private static int countBefore(@Nullable Node node, final double score, final @NotNull UUID uuid) {
+        int count = 0;
+        while (node != null) {
+            final int comparison = compare(score, uuid, node);
+            if (comparison <= 0) {
+                if (comparison == 0) {
+                    return count + size(node.left);
+                }
+                node = node.left;
+            } else {
+                count += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    // Collects the nodes with indices in [from, to) in order. The offset is the index of the first node in the subtree.
+    private static void collect(final @Nullable Node node, final int from, final int to, final int offset, final @NotNull List<Entry> entries) {
+        if (node == null || offset >= to || offset + node.size <= from) {
+            return;
+        }
+        final int index = offset + size(node.left);
+        collect(node.left, from, to, offset, entries);
+        if (index >= from && index < to) {
+            entries.add(new Entry(node.uuid, node.score, index + 1));
+        }
+        collect(node.right, from, to, index + 1, entries);
+    }
+
+    // Orders a key against a node: higher scores first, then by UUID.
+    private static int compare(final double score, final @NotNull UUID uuid, final @NotNull Node node) {
+        final int comparison = Double.compare(node.score, score);
+        return comparison != 0 ? comparison : uuid.compareTo(node.uuid);
+    }
+
+    private static int size(final @Nullable Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int priority(final @Nullable Node node) {
+        return node == null ? 0 : node.priority;
+    }
+
+    /**
+     * Loads every score from storage.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    public interface ScoreLoader {
+        /**
+         * Creates a loader which reads the scores from the values of a repository keyed by player UUID. Keys which are
+         * not UUIDs are skipped.
+         *
+         * @param repository The repository.
+         * @param score      Gets the score from a value.
+         * @param <V>        The value type.
+         *
+         * @return The loader.
+         *
+         * @since 1.11.0
+         */
+        static <V> @NotNull ScoreLoader of(final @NotNull Repository<V> repository, final @NotNull ToDoubleFunction<V> score) {
+            return consumer -> repository.scan("", (key, value) -> {
+                final @NotNull UUID uuid;
+                try {
+                    uuid = UUID.fromString(key);
+                } catch (IllegalArgumentException ex) {
+                    return;
+                }
+                consumer.accept(uuid, score.applyAsDouble(value));
+            });
+        }
+
+        /**
+         * Loads the scores.
+         *
+         * @param consumer Receives every player and their score.
+         *
+         * @throws IOException Thrown when the scores cannot be read.
+         * @since 1.11.0
+         */
+        void load(final @NotNull BiConsumer<UUID, Double> consumer) throws IOException;
+    }
+
+    /**
+     * A ranked player.
+     *
+     * @since 1.11.0
+     */
+    public static final class Entry {
+        // The UUID of the player.
+        private final @NotNull UUID uuid;
+        // The score.
+        private final double score;
+        // The rank.
+        private final int rank;
+
+        private Entry(final @NotNull UUID uuid, final double score, final int rank) {
+            this.uuid = uuid;
+            this.score = score;
+            this.rank = rank;
+        }
+
+        /**
+         * Gets the UUID of the player.
+         *
+         * @return The UUID.
+         *
+         * @since 1.11.0
+         */
+        public @NotNull UUID getUniqueId() {
+            return this.uuid;
+        }
+
+        /**
+         * Gets the score of the player.
+         *
+         * @return The score.
+         *
+         * @since 1.11.0
+         */
+        public double getScore() {
+            return this.score;
+        }
+
+        /**
+         * Gets the rank of the player, starting at {@code 1}.
+         *
+         * @return The rank.
+         *
+         * @since 1.11.0
+         */
+        public int getRank() {
+            return this.rank;
+        }
+    }
+
+    /**
+     * A node of the tree.
+     *
+     * @since 1.11.0
+     */
+    private static final class Node {
+        // The score.
+        private final double score;
+        // The UUID of the player.
+        private final @NotNull UUID uuid;
+        // The heap priority.
+        private int priority;
+        // The number of nodes in the subtree rooted here.
+        private int size = 1;
+        // The subtree of nodes ordered before this one.
+        private @Nullable Node left;
+        // The subtree of nodes ordered after this one.
+        private @Nullable Node right;
+
+        private Node(final double score, final @NotNull UUID uuid) {
+            this.score = score;
+            this.uuid = uuid;
+            this.priority = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+        }
+
+        private void update() {
+            this.size = 1 + size(this.left) + size(this.right);
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the stored data of each online player for the length of their session.
+ * <p>
+ * Loading starts as soon as the server receives a login attempt, in {@link AsyncPlayerPreLoginEvent}, and the login
+ * is held on its asynchronous thread until the data has been read, so the data is ready by the time the player joins.
+ * Players whose data cannot be read are refused. Changed values are written back periodically, in a single repository
+ * batch, and once more when the player leaves.
+ * <p>
+ * A player who logs in again while still online shares the session of their current connection, so that changes which
+ * have not been written back yet are kept. The session is closed once the last of its connections has left.
+ * <p>
+ * None of the methods of the cache touch the storage backend on the calling thread; reads are served from memory and
+ * writes are queued on the repository's worker threads. The methods which have to wait for the storage backend throw
+ * an {@link IllegalStateException} when called from the server thread.
+ * <p>
+ * Values should either be immutable and replaced through {@link #set(UUID, Object)} or {@link #update(UUID, UnaryOperator)},
+ * or be marked as changed with {@link #markDirty(UUID)} after every change. Values are encoded on the thread which
+ * writes them back, so mutable values must be safe to read from another thread.
+ *
+ * @param <V> The value type.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class PlayerDataCache<V> implements Listener, Closeable {
+    // The plugin instance.
+    private final transient @NotNull Plugin plugin;
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The repository the data is stored in.
+    private final transient @NotNull Repository<V> repository;
+    // Creates the value of players who have no stored data.
+    private final transient @NotNull Function<UUID, V> defaultValue;
+    // The maximum time a login is held while the data loads, in milliseconds.
+    private final transient long loadTimeout;
+    // The open sessions by player.
+    private final transient @NotNull ConcurrentHashMap<UUID, Session<V>> sessions = new ConcurrentHashMap<>();
+    // The sessions acquired by logins which are still in the pre-login phase.
+    private final transient @NotNull ConcurrentHashMap<AsyncPlayerPreLoginEvent, Session<V>> pendingLogins = new ConcurrentHashMap<>();
+    // Writes changed values back periodically.
+    private final transient @NotNull ScheduledExecutorService flushExecutor;
+
+    /**
+     * Creates a new player data cache. The cache does not receive events until it is {@link #register() registered}.
+     *
+     * @param plugin        The plugin instance.
+     * @param repository    The repository the data is stored in, keyed by player UUID. Not closed by the cache.
+     * @param defaultValue  Creates the value of players who have no stored data.
+     * @param flushInterval The interval between write-backs of changed values, in milliseconds.
+     * @param loadTimeout   The maximum time a login is held while the data loads, in milliseconds.
+     *
+     * @since 1.11.0
+     */
+    public PlayerDataCache(final @NotNull Plugin plugin, final @NotNull Repository<V> repository, final @NotNull Function<UUID, V> defaultValue, final long flushInterval, final long loadTimeout) {
+        this.plugin = plugin;
+        this.logger = plugin.getLogger();
+        this.repository = repository;
+        this.defaultValue = defaultValue;
+        this.loadTimeout = Math.max(loadTimeout, 1L);
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "PlayerDataCache-" + plugin.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(flushInterval, 1L);
+        this.flushExecutor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers the cache as an event listener of its plugin.
+     *
+     * @return The cache.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull PlayerDataCache<V> register() {
+        this.plugin.getServer().getPluginManager().registerEvents(this, this.plugin);
+        return this;
+    }
+
+    /**
+     * Gets the data of an online player.
+     *
+     * @param player The player.
+     *
+     * @return The data.
+     *
+     * @throws IllegalStateException Thrown when the player has no open session.
+     * @since 1.11.0
+     */
+    public @NotNull V get(final @NotNull Player player) {
+        return this.get(player.getUniqueId());
+    }
+
+    /**
+     * Gets the data of an online player.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @return The data.
+     *
+     * @throws IllegalStateException Thrown when the player has no open session, or their data has not been loaded yet.
+     * @since 1.11.0
+     */
+    public @NotNull V get(final @NotNull UUID uuid) {
+        final @Nullable V value = this.getIfLoaded(uuid);
+        if (value == null) {
+            throw new IllegalStateException(String.format("No data has been loaded for player %s.", uuid));
+        }
+        return value;
+    }
+
+    /**
+     * Gets the data of a player, if their session is open and their data has been loaded.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @return The data, or {@code null} if it has not been loaded.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable V getIfLoaded(final @NotNull UUID uuid) {
+        final @Nullable Session<V> session = this.sessions.get(uuid);
+        return session == null ? null : session.value;
+    }
+
+    /**
+     * Replaces the data of an online player. The new value is written back with the next flush.
+     *
+     * @param uuid  The UUID of the player.
+     * @param value The new value.
+     *
+     * @throws IllegalStateException Thrown when the player has no open session, or their data has not been loaded yet.
+     * @since 1.11.0
+     */
+    public void set(final @NotNull UUID uuid, final @NotNull V value) {
+        final @NotNull Session<V> session = this.loadedSession(uuid);
+        session.value = value;
+        session.version.incrementAndGet();
+    }
+
+    /**
+     * Replaces the data of an online player with the result of a function. The new value is written back with the next
+     * flush.
+     *
+     * @param uuid     The UUID of the player.
+     * @param function Computes the new value from the current value.
+     *
+     * @return The new value.
+     *
+     * @throws IllegalStateException Thrown when the player has no open session, or their data has not been loaded yet.
+     * @since 1.11.0
+     */
+    public @NotNull V update(final @NotNull UUID uuid, final @NotNull UnaryOperator<V> function) {
+        final @NotNull Session<V> session = this.loadedSession(uuid);
+        synchronized (session) {
+            final @NotNull V value = function.apply(session.value);
+            session.value = value;
+            session.version.incrementAndGet();
+            return value;
+        }
+    }
+
+    /**
+     * Marks the data of an online player as changed, so that it is written back with the next flush.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @throws IllegalStateException Thrown when the player has no open session, or their data has not been loaded yet.
+     * @since 1.11.0
+     */
+    public void markDirty(final @NotNull UUID uuid) {
+        this.loadedSession(uuid).version.incrementAndGet();
+    }
+
+    /**
+     * Checks whether the data of a player has changed since it was last written back.
+     *
+     * @param uuid The UUID of the player.
+     *
+     * @return {@code true} if the player has an open session with unsaved changes; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean isDirty(final @NotNull UUID uuid) {
+        final @Nullable Session<V> session = this.sessions.get(uuid);
+        return session != null && session.isDirty();
+    }
+
+    /**
+     * Gets the UUIDs of the players with an open session.
+     *
+     * @return The UUIDs.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull Set<UUID> getSessions() {
+        return Collections.unmodifiableSet(this.sessions.keySet());
+    }
+
+    /**
+     * Queues the changed data of every open session to be written back.
+     *
+     * @return A future which completes once the changes have been stored.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull CompletableFuture<Void> flushAsync() {
+        final @NotNull List<CompletableFuture<Void>> writes = new ArrayList<>();
+        this.sessions.forEach((uuid, session) -> {
+            if (session.value != null && session.isDirty()) {
+                writes.add(this.write(uuid, session));
+            }
+        });
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Writes back the changed data of every open session and waits for it to be stored.
+     *
+     * @throws IOException           Thrown when the data cannot be stored.
+     * @throws IllegalStateException Thrown when called from the server thread.
+     * @since 1.11.0
+     */
+    public void flush() throws IOException {
+        this.checkNotPrimaryThread("flush");
+        await(this.flushAsync());
+    }
+
+    /**
+     * Stops the periodic write-back, unregisters the cache and writes back the data of every open session.
+     * <p>
+     * Unlike the other blocking methods, this may be called from the server thread, so that plugins can close the
+     * cache while they are disabled. The data is still written on the repository's worker threads.
+     *
+     * @throws IOException Thrown when the data cannot be stored.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        HandlerList.unregisterAll(this);
+        this.flushExecutor.shutdownNow();
+        final @NotNull CompletableFuture<Void> writes = this.flushAsync();
+        this.sessions.clear();
+        this.pendingLogins.clear();
+        await(writes);
+    }
+
+    /**
+     * Starts loading the data of a player who is logging in. A player who is already online shares their open session.
+     *
+     * @param event The event.
+     *
+     * @since 1.11.0
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onAsyncPlayerPreLoginStart(final @NotNull AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        final @NotNull UUID uuid = event.getUniqueId();
+        final @NotNull Session<V> session = this.sessions.compute(uuid, (key, current) -> {
+            final @NotNull Session<V> acquired = current == null ? new Session<>() : current;
+            if (acquired.load == null) {
+                acquired.load = this.repository.getAsync(uuid.toString());
+            }
+            acquired.connections.incrementAndGet();
+            return acquired;
+        });
+        this.pendingLogins.put(event, session);
+    }
+
+    /**
+     * Holds the login of a player until their data has been loaded, and refuses the login if it cannot be.
+     *
+     * @param event The event.
+     *
+     * @since 1.11.0
+     */
+    @SuppressWarnings("deprecation")
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLoginComplete(final @NotNull AsyncPlayerPreLoginEvent event) {
+        final @NotNull UUID uuid = event.getUniqueId();
+        final @Nullable Session<V> session = this.pendingLogins.remove(event);
+        if (session == null || session.load == null) {
+            return;
+        }
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            this.release(uuid, session);
+            return;
+        }
+        try {
+            final @Nullable V loaded = session.load.get(this.loadTimeout, TimeUnit.MILLISECONDS);
+            synchronized (session) {
+                // A session shared with an earlier connection keeps its value, which may hold unsaved changes.
+                if (session.value == null) {
+                    session.value = loaded == null ? this.defaultValue.apply(uuid) : loaded;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            this.refuse(event, uuid, session, ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            this.refuse(event, uuid, session, ex instanceof ExecutionException ? ex.getCause() : ex);
+        }
+    }
+
+    /**
+     * Closes the session of a player whose login was refused after their data had been loaded.
+     *
+     * @param event The event.
+     *
+     * @since 1.11.0
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerLogin(final @NotNull PlayerLoginEvent event) {
+        final @NotNull UUID uuid = event.getPlayer().getUniqueId();
+        final @Nullable Session<V> session = this.sessions.get(uuid);
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED && session != null) {
+            this.release(uuid, session);
+        }
+    }
+
+    /**
+     * Closes the session of a player who left, and queues their changed data to be written back. A session which is
+     * shared with a newer connection of the same player stays open.
+     *
+     * @param event The event.
+     *
+     * @since 1.11.0
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(final @NotNull PlayerQuitEvent event) {
+        final @NotNull UUID uuid = event.getPlayer().getUniqueId();
+        final @Nullable Session<V> session = this.sessions.get(uuid);
+        if (session != null && this.release(uuid, session) && session.value != null && session.isDirty()) {
+            // Queued before the session is gone, so a quick rejoin reads the pending write.
+            this.write(uuid, session);
+        }
+    }
+
+    /**
+     * Throws an exception when called from the server thread, where waiting for the storage backend would stall the
+     * server.
+     *
+     * @param operation The name of the operation, for the exception message.
+     *
+     * @throws IllegalStateException Thrown when called from the server thread.
+     * @since 1.11.0
+     */
+    protected void checkNotPrimaryThread(final @NotNull String operation) {
+        if (this.plugin.getServer().isPrimaryThread()) {
+            throw new IllegalStateException(String.format("PlayerDataCache.%s() must not be called from the server thread.", operation));
+        }
+    }
+
+    // Gets a session whose data has been loaded.
+    private @NotNull Session<V> loadedSession(final @NotNull UUID uuid) {
+        final @Nullable Session<V> session = this.sessions.get(uuid);
+        if (session == null || session.value == null) {
+            throw new IllegalStateException(String.format("No data has been loaded for player %s.", uuid));
+        }
+        return session;
+    }
+
+    // Releases a connection's hold on a session, and closes the session once no connection holds it.
+    private boolean release(final @NotNull UUID uuid, final @NotNull Session<V> session) {
+        this.sessions.computeIfPresent(uuid, (key, current) -> current == session && session.connections.decrementAndGet() <= 0 ? null : current);
+        return session.connections.get() <= 0;
+    }
+
+    // Queues the value of a session to be written, and marks the written version as saved once it has been stored.
+    private @NotNull CompletableFuture<Void> write(final @NotNull UUID uuid, final @NotNull Session<V> session) {
+        final long version;
+        final @NotNull V value;
+        synchronized (session) {
+            version = session.version.get();
+            value = session.value;
+        }
+        return this.repository.putAsync(uuid.toString(), value).whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                session.savedVersion.accumulateAndGet(version, Math::max);
+            } else {
+                this.logger.log(Level.SEVERE, String.format("[Storage] Failed to store the data of player %s: %s", uuid, ex.getMessage()), ex);
+            }
+        });
+    }
+
+    // Refuses a login whose data could not be loaded.
+    @SuppressWarnings("deprecation")
+    private void refuse(final @NotNull AsyncPlayerPreLoginEvent event, final @NotNull UUID uuid, final @NotNull Session<V> session, final @NotNull Throwable cause) {
+        this.release(uuid, session);
+        this.logger.log(Level.SEVERE, String.format("[Storage] Failed to load the data of player %s (%s): %s", event.getName(), uuid, cause.getMessage()), cause);
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER, "Your player data could not be loaded. Please try again later.");
+    }
+
+    // Writes back changed data from the flush thread.
+    private void flushQuietly() {
+        this.flushAsync();
+    }
+
+    // Waits for a write-back future.
+    private static void await(final @NotNull CompletableFuture<Void> future) throws IOException {
+        try {
+            future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while storing player data.", ex);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException(ex.getCause());
+        }
+    }
+
+    /**
+     * The cached data of a single player.
+     *
+     * @param <V> The value type.
+     *
+     * @since 1.11.0
+     */
+    private static final class Session<V> {
+        // Incremented by every change.
+        private final @NotNull AtomicLong version = new AtomicLong();
+        // The newest version which has been stored.
+        private final @NotNull AtomicLong savedVersion = new AtomicLong();
+        // The number of connections which hold the session.
+        private final @NotNull AtomicInteger connections = new AtomicInteger();
+        // Completes with the stored data, or null if there is none.
+        private volatile @Nullable CompletableFuture<V> load;
+        // The data, once loaded.
+        private volatile @Nullable V value;
+
+        private boolean isDirty() {
+            return this.version.get() > this.savedVersion.get();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Routes read-only connections to read replicas, and everything else to the primary data source.
+ * <p>
+ * Replicas are checked in the background, and a replica which fails a check or a connection attempt receives no
+ * reads until it passes a check again. When no replica is healthy, reads fall back to the primary.
+ * <p>
+ * Replicas lag behind the primary, so reads which must see a write that was just made should use {@link #connect()}.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class ReplicaRouter implements ConnectionManager, Closeable {
+    // The number of seconds a health check waits for a replica to answer.
+    private static final int HEALTH_CHECK_TIMEOUT_SECONDS = 2;
+
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The primary data source.
+    private final transient @NotNull ConnectionManager primary;
+    // The replicas.
+    private final transient @NotNull List<Replica> replicas;
+    // How replicas are chosen.
+    private final transient @NotNull ReplicaRouting routing;
+    // Rotates the first replica tried.
+    private final transient @NotNull AtomicInteger next = new AtomicInteger();
+    // Runs the health checks.
+    private final transient @NotNull ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a new replica router.
+     *
+     * @param logger              The logger to report replica health changes to.
+     * @param primary             The primary data source, used for writes and when no replica is healthy.
+     * @param replicas            The replicas by name.
+     * @param routing             How replicas are chosen.
+     * @param healthCheckInterval The interval, in milliseconds, between replica health checks.
+     *
+     * @since 1.11.0
+     */
+    public ReplicaRouter(final @NotNull Logger logger, final @NotNull ConnectionManager primary, final @NotNull Map<String, ConnectionManager> replicas, final @NotNull ReplicaRouting routing, final long healthCheckInterval) {
+        this.logger = logger;
+        this.primary = primary;
+        this.routing = routing;
+        final @NotNull List<Replica> list = new ArrayList<>(replicas.size());
+        replicas.forEach((name, manager) -> list.add(new Replica(name, manager)));
+        this.replicas = Collections.unmodifiableList(list);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "ReplicaRouter-HealthCheck");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!this.replicas.isEmpty()) {
+            final long interval = Math.max(healthCheckInterval, 1L);
+            this.scheduler.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens a connection to the primary data source.
+     *
+     * @return The connection, or {@code null} if the primary is unreachable.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable Connection connect() {
+        return this.primary.connect();
+    }
+
+    /**
+     * Opens a read-only connection to a healthy replica, or to the primary if no replica is healthy.
+     *
+     * @return The connection, or {@code null} if neither a replica nor the primary is reachable.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable Connection connectReadOnly() {
+        final int count = this.replicas.size();
+        if (count > 0) {
+            final int start = Math.floorMod(this.next.getAndIncrement(), count);
+            final @NotNull List<Replica> candidates = new ArrayList<>(count);
+            for (int i = 0; i < count; ++i) {
+                final @NotNull Replica replica = this.replicas.get((start + i) % count);
+                if (replica.healthy) {
+                    candidates.add(replica);
+                }
+            }
+            if (this.routing == ReplicaRouting.LEAST_BUSY) {
+                // Stable, so ties keep their round-robin order.
+                candidates.sort((first, second) -> Integer.compare(first.busy.get(), second.busy.get()));
+            }
+            for (final @NotNull Replica replica : candidates) {
+                final @Nullable Connection connection = this.open(replica);
+                if (connection != null) {
+                    return connection;
+                }
+            }
+        }
+        return this.primary.connect();
+    }
+
+    /**
+     * Checks whether the primary data source is currently considered reachable.
+     *
+     * @return The availability of the primary.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public boolean isAvailable() {
+        return this.primary.isAvailable();
+    }
+
+    /**
+     * Gets the names of the replicas which currently receive reads.
+     *
+     * @return The names of the healthy replicas.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable List<String> getHealthyReplicas() {
+        final @NotNull List<String> healthy = new ArrayList<>();
+        for (final @NotNull Replica replica : this.replicas) {
+            if (replica.healthy) {
+                healthy.add(replica.name);
+            }
+        }
+        return Collections.unmodifiableList(healthy);
+    }
+
+    /**
+     * Stops the health checks. Reads keep being routed to the replicas which were healthy at the time.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+    }
+
+    // Opens a read-only connection to a replica, marking it unhealthy if that fails.
+    private @Nullable Connection open(final @NotNull Replica replica) {
+        final @Nullable Connection connection = replica.manager.connect();
+        if (connection == null) {
+            this.setHealthy(replica, false);
+            return null;
+        }
+        try {
+            connection.setReadOnly(true);
+        } catch (SQLException ignored) {
+            // Only a hint to the driver.
+        }
+        replica.busy.incrementAndGet();
+        return ConnectionProxy.onClose(connection, replica.busy::decrementAndGet);
+    }
+
+    // Checks every replica.
+    private void checkHealth() {
+        for (final @NotNull Replica replica : this.replicas) {
+            boolean healthy;
+            try (final @Nullable Connection connection = replica.manager.connect()) {
+                healthy = connection != null && connection.isValid(HEALTH_CHECK_TIMEOUT_SECONDS);
+            } catch (SQLException | RuntimeException ex) {
+                healthy = false;
+            }
+            this.setHealthy(replica, healthy);
+        }
+    }
+
+    // Updates the health of a replica, logging changes.
+    private void setHealthy(final @NotNull Replica replica, final boolean healthy) {
+        if (replica.healthy != healthy) {
+            replica.healthy = healthy;
+            this.logger.log(healthy ? Level.INFO : Level.WARNING, String.format("[Storage] Read replica %s is %s.", replica.name, healthy ? "healthy again" : "unreachable; reads will skip it"));
+        }
+    }
+
+    /**
+     * A read replica.
+     *
+     * @since 1.11.0
+     */
+    private static final class Replica {
+        // The name of the replica, used in log messages.
+        private final @NotNull String name;
+        // Opens connections to the replica.
+        private final @NotNull ConnectionManager manager;
+        // The number of open connections to the replica.
+        private final @NotNull AtomicInteger busy = new AtomicInteger();
+        // Whether the replica receives reads.
+        private volatile boolean healthy = true;
+
+        private Replica(final @NotNull String name, final @NotNull ConnectionManager manager) {
+            this.name = name;
+            this.manager = manager;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+/**
+ * Indexes the strategies for choosing a read replica.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public enum ReplicaRouting {
+    /**
+     * Each read goes to the next healthy replica in turn.
+     *
+     * @since 1.11.0
+     */
+    ROUND_ROBIN,
+    /**
+     * Each read goes to the healthy replica with the fewest open connections.
+     *
+     * @since 1.11.0
+     */
+    LEAST_BUSY
+}
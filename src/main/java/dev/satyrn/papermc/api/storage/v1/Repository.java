@@ -0,0 +1,584 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.StorageConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Stores values of one type under string keys, independently of the configured storage backend.
+ * <p>
+ * A repository adds a bounded value cache, write batching and asynchronous execution on top of a
+ * {@link StorageBackend}. Asynchronous writes are collected into a pending batch, which is written with a single
+ * {@code putAll}/{@code deleteAll} call once a worker thread is free; reads see pending writes immediately. When a
+ * batch cannot be stored, the cached values of its keys are dropped, so that reads return what the backend holds.
+ *
+ * @param <V> The value type.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class Repository<V> implements Closeable {
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The storage backend.
+    private final transient @NotNull StorageBackend backend;
+    // The value codec.
+    private final transient @NotNull StorageCodec<V> codec;
+    // The maximum number of cached values.
+    private final transient int cacheSize;
+    // Cached values by key.
+    private final transient @NotNull ConcurrentHashMap<String, V> cache = new ConcurrentHashMap<>();
+    // Incremented by every write, so that reads which raced a write do not cache what they read.
+    private final transient @NotNull AtomicLong writeCount = new AtomicLong();
+    // Runs asynchronous operations.
+    private final transient @NotNull ExecutorService executor;
+    // Serializes writes to the backend, so that a batch never overwrites a newer synchronous write.
+    private final transient @NotNull ReentrantLock writeLock = new ReentrantLock();
+    // Guards the pending batch.
+    private final transient @NotNull Object batchLock = new Object();
+    // Writes which have not been sent to the backend yet.
+    private transient @Nullable PendingBatch pendingBatch;
+    // The batch which is currently being sent to the backend.
+    private transient @Nullable PendingBatch writingBatch;
+
+    /**
+     * Creates a new repository.
+     *
+     * @param logger    The logger to report asynchronous failures to.
+     * @param backend   The storage backend. Closed along with the repository.
+     * @param codec     The value codec.
+     * @param cacheSize The maximum number of cached values. {@code 0} disables caching.
+     * @param threads   The number of threads used for asynchronous operations.
+     *
+     * @since 1.11.0
+     */
+    public Repository(final @NotNull Logger logger, final @NotNull StorageBackend backend, final @NotNull StorageCodec<V> codec, final int cacheSize, final int threads) {
+        this.logger = logger;
+        this.backend = backend;
+        this.codec = codec;
+        this.cacheSize = Math.max(cacheSize, 0);
+        final @NotNull AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "Repository-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a repository on the backend selected by the storage configuration.
+     * <p>
+     * SQL backends record their timings into a new {@link StorageMetrics}, available from
+     * {@link StorageBackend#getMetrics()}.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The storage configuration.
+     * @param name          The name of the data set.
+     * @param codec         The value codec.
+     * @param <V>           The value type.
+     *
+     * @return The repository.
+     *
+     * @throws IOException Thrown when the backend cannot be opened.
+     * @since 1.11.0
+     */
+    public static <V> @NotNull Repository<V> open(final @NotNull Plugin plugin, final @NotNull StorageConfiguration configuration, final @NotNull String name, final @NotNull StorageCodec<V> codec) throws IOException {
+        final @NotNull StorageMetrics metrics = new StorageMetrics(plugin.getLogger(), configuration.slowQueryThreshold.value());
+        return new Repository<>(plugin.getLogger(), StorageBackend.open(plugin, configuration, name, metrics), codec, configuration.cacheSize.value(), configuration.threads.value());
+    }
+
+    /**
+     * Gets the storage backend.
+     *
+     * @return The storage backend.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull StorageBackend getBackend() {
+        return this.backend;
+    }
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key The key.
+     *
+     * @return The value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read or decoded.
+     * @since 1.11.0
+     */
+    public @Nullable V get(final @NotNull String key) throws IOException {
+        final @Nullable V cached = this.cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final long writes = this.writeCount.get();
+        synchronized (this.batchLock) {
+            final @Nullable PendingBatch batch = this.batchContaining(key);
+            if (batch != null) {
+                final @Nullable byte[] pending = batch.writes.get(key);
+                return pending == null ? null : this.codec.decode(pending);
+            }
+        }
+        final @Nullable byte[] data = this.backend.get(key);
+        if (data == null) {
+            return null;
+        }
+        final @NotNull V value = this.codec.decode(data);
+        this.cacheLoaded(key, value, writes);
+        return value;
+    }
+
+    /**
+     * Gets the values stored under several keys.
+     *
+     * @param keys The keys.
+     *
+     * @return The values by key. Keys which are not present are omitted.
+     *
+     * @throws IOException Thrown when the values cannot be read or decoded.
+     * @since 1.11.0
+     */
+    public @NotNull Map<String, V> getAll(final @NotNull Collection<String> keys) throws IOException {
+        final @NotNull Map<String, V> values = new HashMap<>();
+        final @NotNull List<String> missing = new ArrayList<>();
+        final long writes = this.writeCount.get();
+        synchronized (this.batchLock) {
+            for (final @NotNull String key : keys) {
+                final @Nullable V cached = this.cache.get(key);
+                final @Nullable PendingBatch batch = cached == null ? this.batchContaining(key) : null;
+                if (cached != null) {
+                    values.put(key, cached);
+                } else if (batch != null) {
+                    final @Nullable byte[] pending = batch.writes.get(key);
+                    if (pending != null) {
+                        values.put(key, this.codec.decode(pending));
+                    }
+                } else {
+                    missing.add(key);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (final @NotNull Map.Entry<String, byte[]> entry : this.backend.getAll(missing).entrySet()) {
+                final @NotNull V value = this.codec.decode(entry.getValue());
+                values.put(entry.getKey(), value);
+                this.cacheLoaded(entry.getKey(), value, writes);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @throws IOException Thrown when the value cannot be encoded or written.
+     * @since 1.11.0
+     */
+    public void put(final @NotNull String key, final @NotNull V value) throws IOException {
+        this.putAll(Map.of(key, value));
+    }
+
+    /**
+     * Stores several values in one batch.
+     *
+     * @param values The values by key.
+     *
+     * @throws IOException Thrown when the values cannot be encoded or written.
+     * @since 1.11.0
+     */
+    public void putAll(final @NotNull Map<String, V> values) throws IOException {
+        final @NotNull Map<String, byte[]> encoded = new HashMap<>();
+        for (final @NotNull Map.Entry<String, V> entry : values.entrySet()) {
+            encoded.put(entry.getKey(), this.codec.encode(entry.getValue()));
+        }
+        this.writeCount.incrementAndGet();
+        this.writeLock.lock();
+        try {
+            this.discardPending(encoded.keySet());
+            this.backend.putAll(encoded);
+        } finally {
+            this.writeLock.unlock();
+        }
+        values.forEach(this::cache);
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key was present; otherwise, {@code false}.
+     *
+     * @throws IOException Thrown when the key cannot be removed.
+     * @since 1.11.0
+     */
+    public boolean delete(final @NotNull String key) throws IOException {
+        this.writeCount.incrementAndGet();
+        this.writeLock.lock();
+        try {
+            this.discardPending(Set.of(key));
+            this.cache.remove(key);
+            return this.backend.delete(key);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes several keys in one batch.
+     *
+     * @param keys The keys.
+     *
+     * @throws IOException Thrown when the keys cannot be removed.
+     * @since 1.11.0
+     */
+    public void deleteAll(final @NotNull Collection<String> keys) throws IOException {
+        this.writeCount.incrementAndGet();
+        this.writeLock.lock();
+        try {
+            this.discardPending(keys);
+            keys.forEach(this.cache::remove);
+            this.backend.deleteAll(keys);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Visits every key which starts with a prefix, in ascending key order.
+     * <p>
+     * Pending asynchronous writes are flushed first, so that the scan sees them.
+     *
+     * @param prefix   The key prefix. An empty prefix visits every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read or decoded.
+     * @since 1.11.0
+     */
+    public void scan(final @NotNull String prefix, final @NotNull BiConsumer<String, V> consumer) throws IOException {
+        this.flush();
+        try {
+            this.backend.scan(prefix, (key, data) -> {
+                try {
+                    consumer.accept(key, this.codec.decode(data));
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Gets the value stored under a key on a worker thread.
+     *
+     * @param key The key.
+     *
+     * @return A future which completes with the value, or {@code null} if the key is not present.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull CompletableFuture<V> getAsync(final @NotNull String key) {
+        return this.supplyAsync(() -> this.get(key));
+    }
+
+    /**
+     * Gets the values stored under several keys on a worker thread.
+     *
+     * @param keys The keys.
+     *
+     * @return A future which completes with the values by key.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull CompletableFuture<Map<String, V>> getAllAsync(final @NotNull Collection<String> keys) {
+        final @NotNull List<String> copy = List.copyOf(keys);
+        return this.supplyAsync(() -> this.getAll(copy));
+    }
+
+    /**
+     * Queues a value to be stored with the next batch.
+     * <p>
+     * The value is visible to reads immediately, and until the batch fails if it cannot be stored.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @return A future which completes once the batch containing the write has been stored.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull CompletableFuture<Void> putAsync(final @NotNull String key, final @NotNull V value) {
+        final @NotNull byte[] data;
+        try {
+            data = this.codec.encode(value);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+        this.writeCount.incrementAndGet();
+        this.cache(key, value);
+        return this.enqueue(key, data);
+    }
+
+    /**
+     * Queues a key to be removed with the next batch.
+     * <p>
+     * The removal is visible to reads immediately.
+     *
+     * @param key The key.
+     *
+     * @return A future which completes once the batch containing the removal has been stored.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull CompletableFuture<Void> deleteAsync(final @NotNull String key) {
+        this.writeCount.incrementAndGet();
+        this.cache.remove(key);
+        return this.enqueue(key, null);
+    }
+
+    /**
+     * Stores all pending asynchronous writes on the calling thread.
+     *
+     * @throws IOException Thrown when the writes cannot be stored.
+     * @since 1.11.0
+     */
+    public void flush() throws IOException {
+        this.writeLock.lock();
+        try {
+            this.writeBatch();
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached values.
+     *
+     * @since 1.11.0
+     */
+    public void invalidate() {
+        this.cache.clear();
+    }
+
+    /**
+     * Removes the cached value of a key.
+     *
+     * @param key The key.
+     *
+     * @since 1.11.0
+     */
+    public void invalidate(final @NotNull String key) {
+        this.cache.remove(key);
+    }
+
+    /**
+     * Stores pending writes, stops the worker threads and closes the backend.
+     *
+     * @throws IOException Thrown when the pending writes cannot be stored or the backend cannot be closed.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                this.logger.log(Level.WARNING, "[Storage] Timed out waiting for asynchronous storage operations to finish.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            this.flush();
+        } finally {
+            this.backend.close();
+        }
+    }
+
+    /**
+     * Gets the logger.
+     *
+     * @return The logger.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull Logger getLogger() {
+        return this.logger;
+    }
+
+    /**
+     * Gets the executor which runs asynchronous operations.
+     *
+     * @return The executor.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    // Adds a value to the cache, evicting an arbitrary entry when the cache is full.
+    private void cache(final @NotNull String key, final @NotNull V value) {
+        if (this.cacheSize == 0) {
+            return;
+        }
+        if (this.cache.size() >= this.cacheSize && !this.cache.containsKey(key)) {
+            final @NotNull Iterator<String> iterator = this.cache.keySet().iterator();
+            if (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+        this.cache.put(key, value);
+    }
+
+    // Caches a value read from the backend, unless a write happened since the read started.
+    private void cacheLoaded(final @NotNull String key, final @NotNull V value, final long writes) {
+        if (this.writeCount.get() == writes) {
+            this.cache(key, value);
+        }
+    }
+
+    // Adds a write to the pending batch, scheduling a flush if the batch is new. A null value removes the key.
+    private @NotNull CompletableFuture<Void> enqueue(final @NotNull String key, final @Nullable byte[] data) {
+        synchronized (this.batchLock) {
+            if (this.pendingBatch == null) {
+                this.pendingBatch = new PendingBatch();
+                try {
+                    this.executor.execute(this::flushQuietly);
+                } catch (RejectedExecutionException ex) {
+                    // The repository is closing; close() flushes the batch.
+                }
+            }
+            this.pendingBatch.writes.put(key, data);
+            return this.pendingBatch.future;
+        }
+    }
+
+    // Gets the newest unwritten batch which contains a key. Must be called while holding the batch lock.
+    private @Nullable PendingBatch batchContaining(final @NotNull String key) {
+        if (this.pendingBatch != null && this.pendingBatch.writes.containsKey(key)) {
+            return this.pendingBatch;
+        }
+        if (this.writingBatch != null && this.writingBatch.writes.containsKey(key)) {
+            return this.writingBatch;
+        }
+        return null;
+    }
+
+    // Removes keys from the pending batch because a newer synchronous write supersedes them.
+    private void discardPending(final @NotNull Collection<String> keys) {
+        synchronized (this.batchLock) {
+            if (this.pendingBatch != null) {
+                this.pendingBatch.writes.keySet().removeAll(keys);
+            }
+        }
+    }
+
+    // Writes the pending batch to the backend. Must be called while holding the write lock.
+    private void writeBatch() throws IOException {
+        final @Nullable PendingBatch batch;
+        synchronized (this.batchLock) {
+            batch = this.pendingBatch;
+            this.pendingBatch = null;
+            this.writingBatch = batch;
+        }
+        if (batch == null) {
+            return;
+        }
+        final @NotNull Map<String, byte[]> puts = new HashMap<>();
+        final @NotNull List<String> deletes = new ArrayList<>();
+        batch.writes.forEach((key, data) -> {
+            if (data == null) {
+                deletes.add(key);
+            } else {
+                puts.put(key, data);
+            }
+        });
+        try {
+            this.backend.putAll(puts);
+            this.backend.deleteAll(deletes);
+            batch.future.complete(null);
+        } catch (IOException | RuntimeException ex) {
+            // The cache must not keep serving values the backend never stored.
+            this.writeCount.incrementAndGet();
+            batch.writes.keySet().forEach(this.cache::remove);
+            batch.future.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            synchronized (this.batchLock) {
+                this.writingBatch = null;
+            }
+        }
+    }
+
+    // Flushes the pending batch from a worker thread.
+    private void flushQuietly() {
+        try {
+            this.flush();
+        } catch (IOException ex) {
+            this.logger.log(Level.SEVERE, String.format("[Storage] Failed to store a batch of writes; their cached values were dropped: %s", ex.getMessage()), ex);
+        }
+    }
+
+    // Runs a storage operation on a worker thread.
+    private <T> @NotNull CompletableFuture<T> supplyAsync(final @NotNull StorageCallable<T> callable) {
+        final @NotNull CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            this.executor.execute(() -> {
+                try {
+                    future.complete(callable.call());
+                } catch (IOException | RuntimeException ex) {
+                    future.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * A storage operation which produces a value.
+     *
+     * @param <T> The result type.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    private interface StorageCallable<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Writes collected for a single batch.
+     *
+     * @since 1.11.0
+     */
+    private static final class PendingBatch {
+        // The pending writes by key. A null value removes the key.
+        private final @NotNull Map<String, byte[]> writes = new LinkedHashMap<>();
+        // Completes once the batch has been stored.
+        private final @NotNull CompletableFuture<Void> future = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,35 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object.
+ * <p>
+ * Mappers which stream large result sets can avoid allocating an object per row by updating and returning the
+ * object they produced for the previous row. Consumers of such a mapper must copy anything they keep past the next
+ * row.
+ *
+ * @param <T> The row type.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+    /**
+     * Maps the current row.
+     *
+     * @param resultSet The result set, positioned on the row to map.
+     * @param previous  The object returned for the previous row, or {@code null} for the first row.
+     *
+     * @return The mapped row. Must not be {@code null}.
+     *
+     * @throws SQLException Thrown when the row cannot be read.
+     * @since 1.11.0
+     */
+    @NotNull T map(final @NotNull ResultSet resultSet, final @Nullable T previous) throws SQLException;
+}
@@ -0,0 +1,609 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.*;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Storage backend which keeps its data in a table of a SQL database.
+ * <p>
+ * The statements use MySQL syntax by default. Backends for other databases can override the statement methods.
+ * <p>
+ * Keys are compared case-sensitively, byte by byte, as the flat-file backend compares them: the key column uses a
+ * binary collation, and prefix scans use a key range rather than {@code LIKE}, which ignores case on MySQL and SQLite.
+ * <p>
+ * Reads use {@link ConnectionManager#connectReadOnly()}, so they are served by read replicas when the connection
+ * manager has any. Writes always go to the primary.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class SQLStorageBackend implements StorageBackend {
+    // The maximum number of keys in a single IN clause.
+    private static final int MAX_KEYS_PER_QUERY = 500;
+
+    // The connection manager.
+    private final transient @NotNull ConnectionManager connectionManager;
+    // The name of the table.
+    private final transient @NotNull String table;
+    // The metrics collector, if any.
+    private final transient @Nullable StorageMetrics metrics;
+    // Whether the table has been created.
+    private transient volatile boolean initialized;
+
+    /**
+     * Creates a new SQL storage backend.
+     *
+     * @param connectionManager The connection manager for the database.
+     * @param table             The name of the table which holds the data. Created if it does not exist.
+     *
+     * @since 1.11.0
+     */
+    public SQLStorageBackend(final @NotNull ConnectionManager connectionManager, final @NotNull String table) {
+        this(connectionManager, table, null);
+    }
+
+    /**
+     * Creates a new SQL storage backend which records statement timings.
+     *
+     * @param connectionManager The connection manager for the database. Closed along with the backend if it is
+     *                          {@link Closeable}.
+     * @param table             The name of the table which holds the data. Created if it does not exist.
+     * @param metrics           The metrics collector, or {@code null} to disable metrics.
+     *
+     * @since 1.11.0
+     */
+    public SQLStorageBackend(final @NotNull ConnectionManager connectionManager, final @NotNull String table, final @Nullable StorageMetrics metrics) {
+        this.connectionManager = connectionManager;
+        this.table = table;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Builds a table name from the configured prefix.
+     *
+     * @param prefix     The table prefix, if any.
+     * @param underscore Whether to add an underscore between the prefix and the name.
+     * @param name       The name of the table.
+     *
+     * @return The prefixed table name.
+     *
+     * @since 1.11.0
+     */
+    public static @NotNull String tableName(final @Nullable String prefix, final boolean underscore, final @NotNull String name) {
+        if (prefix == null || prefix.isEmpty()) {
+            return name;
+        }
+        return underscore ? prefix + '_' + name : prefix + name;
+    }
+
+    /**
+     * Gets the connection manager.
+     *
+     * @return The connection manager.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull ConnectionManager getConnectionManager() {
+        return this.connectionManager;
+    }
+
+    /**
+     * Gets the name of the table.
+     *
+     * @return The table name.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull String getTable() {
+        return this.table;
+    }
+
+    /**
+     * Checks whether the database is currently considered reachable.
+     *
+     * @return The availability reported by the connection manager.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public boolean isAvailable() {
+        return this.connectionManager.isAvailable();
+    }
+
+    /**
+     * Gets the metrics collector.
+     *
+     * @return The metrics collector, or {@code null} if metrics are disabled.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable StorageMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key The key.
+     *
+     * @return The stored value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable byte[] get(final @NotNull String key) throws IOException {
+        final @NotNull String sql = this.selectStatement();
+        return this.execute(sql, true, connection -> {
+            try (final @NotNull PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, key);
+                try (final @NotNull ResultSet resultSet = statement.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    this.recordRows(1);
+                    return resultSet.getBytes(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the values stored under several keys.
+     *
+     * @param keys The keys.
+     *
+     * @return The stored values by key. Keys which are not present are omitted.
+     *
+     * @throws IOException Thrown when the values cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public @NotNull Map<String, byte[]> getAll(final @NotNull Collection<String> keys) throws IOException {
+        final @NotNull Map<String, byte[]> values = new HashMap<>();
+        if (keys.isEmpty()) {
+            return values;
+        }
+        final @NotNull List<String> keyList = new ArrayList<>(keys);
+        return this.execute(this.selectManyStatement(Math.min(keyList.size(), MAX_KEYS_PER_QUERY)), true, connection -> {
+            for (int start = 0; start < keyList.size(); start += MAX_KEYS_PER_QUERY) {
+                final @NotNull List<String> chunk = keyList.subList(start, Math.min(start + MAX_KEYS_PER_QUERY, keyList.size()));
+                try (final @NotNull PreparedStatement statement = connection.prepareStatement(this.selectManyStatement(chunk.size()))) {
+                    for (int i = 0; i < chunk.size(); ++i) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    try (final @NotNull ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            values.put(resultSet.getString(1), resultSet.getBytes(2));
+                        }
+                    }
+                }
+            }
+            this.recordRows(values.size());
+            return values;
+        });
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @throws IOException Thrown when the value cannot be written.
+     * @since 1.11.0
+     */
+    @Override
+    public void put(final @NotNull String key, final @NotNull byte[] value) throws IOException {
+        this.putAll(Map.of(key, value));
+    }
+
+    /**
+     * Stores several values in a single batched transaction.
+     *
+     * @param values The values by key.
+     *
+     * @throws IOException Thrown when the values cannot be written.
+     * @since 1.11.0
+     */
+    @Override
+    public void putAll(final @NotNull Map<String, byte[]> values) throws IOException {
+        if (values.isEmpty()) {
+            return;
+        }
+        this.executeBatch(this.upsertStatement(), values.entrySet(), (statement, entry) -> {
+            statement.setString(1, entry.getKey());
+            statement.setBytes(2, entry.getValue());
+        });
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key was present; otherwise, {@code false}.
+     *
+     * @throws IOException Thrown when the key cannot be removed.
+     * @since 1.11.0
+     */
+    @Override
+    public boolean delete(final @NotNull String key) throws IOException {
+        final @NotNull String sql = this.deleteStatement();
+        return this.execute(sql, connection -> {
+            try (final @NotNull PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, key);
+                return statement.executeUpdate() > 0;
+            }
+        });
+    }
+
+    /**
+     * Removes several keys in a single batched transaction.
+     *
+     * @param keys The keys.
+     *
+     * @throws IOException Thrown when the keys cannot be removed.
+     * @since 1.11.0
+     */
+    @Override
+    public void deleteAll(final @NotNull Collection<String> keys) throws IOException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        this.executeBatch(this.deleteStatement(), keys, (statement, key) -> statement.setString(1, key));
+    }
+
+    /**
+     * Visits every key which starts with a prefix, in ascending key order.
+     *
+     * @param prefix   The key prefix. An empty prefix visits every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public void scan(final @NotNull String prefix, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        final @Nullable String end = prefixEnd(prefix);
+        if (end == null) {
+            this.scanRows(this.scanFromStatement(), statement -> statement.setString(1, prefix), consumer);
+        } else {
+            this.scanRows(this.scanStatement(), statement -> {
+                statement.setString(1, prefix);
+                statement.setString(2, end);
+            }, consumer);
+        }
+    }
+
+    /**
+     * Visits every key which sorts after a key, in ascending key order.
+     *
+     * @param after    The key to start after, or {@code null} to visit every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    @Override
+    public void scanAfter(final @Nullable String after, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        if (after == null) {
+            this.scan("", consumer);
+        } else {
+            this.scanRows(this.scanAfterStatement(), statement -> statement.setString(1, after), consumer);
+        }
+    }
+
+    /**
+     * Closes the connection manager, if it holds resources of its own.
+     *
+     * @throws IOException Thrown when the connection manager cannot be closed.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.connectionManager instanceof Closeable) {
+            ((Closeable) this.connectionManager).close();
+        }
+    }
+
+    /**
+     * Quotes an identifier for use in a statement.
+     *
+     * @param identifier The identifier.
+     *
+     * @return The quoted identifier.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String quote(final @NotNull String identifier) {
+        return '`' + identifier.replace("`", "``") + '`';
+    }
+
+    /**
+     * Gets the statement which creates the table if it does not exist.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String createTableStatement() {
+        return "CREATE TABLE IF NOT EXISTS " + this.quote(this.table) + " (`k` VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL PRIMARY KEY, `v` LONGBLOB NOT NULL)";
+    }
+
+    /**
+     * Gets the statement which selects the value of one key.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String selectStatement() {
+        return "SELECT `v` FROM " + this.quote(this.table) + " WHERE `k` = ?";
+    }
+
+    /**
+     * Gets the statement which selects the keys and values of several keys.
+     *
+     * @param count The number of keys.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String selectManyStatement(final int count) {
+        final @NotNull StringBuilder builder = new StringBuilder("SELECT `k`, `v` FROM ").append(this.quote(this.table)).append(" WHERE `k` IN (");
+        for (int i = 0; i < count; ++i) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * Gets the statement which inserts or replaces the value of a key.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String upsertStatement() {
+        return "INSERT INTO " + this.quote(this.table) + " (`k`, `v`) VALUES (?, ?) ON DUPLICATE KEY UPDATE `v` = VALUES(`v`)";
+    }
+
+    /**
+     * Gets the statement which removes a key.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String deleteStatement() {
+        return "DELETE FROM " + this.quote(this.table) + " WHERE `k` = ?";
+    }
+
+    /**
+     * Gets the statement which selects the keys and values from a key, inclusive, up to another key, exclusive, in key
+     * order.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String scanStatement() {
+        return "SELECT `k`, `v` FROM " + this.quote(this.table) + " WHERE `k` >= ? AND `k` < ? ORDER BY `k`";
+    }
+
+    /**
+     * Gets the statement which selects the keys and values from a key, inclusive, in key order.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String scanFromStatement() {
+        return "SELECT `k`, `v` FROM " + this.quote(this.table) + " WHERE `k` >= ? ORDER BY `k`";
+    }
+
+    /**
+     * Gets the statement which selects the keys and values after a key, in key order.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String scanAfterStatement() {
+        return "SELECT `k`, `v` FROM " + this.quote(this.table) + " WHERE `k` > ? ORDER BY `k`";
+    }
+
+    /**
+     * Gets the fetch size for scans, so that the driver does not hold every scanned row in memory.
+     *
+     * @return The fetch size. MySQL streams rows one at a time for {@link Integer#MIN_VALUE}.
+     *
+     * @since 1.11.0
+     */
+    protected int scanFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Opens a connection, creating the table first if needed.
+     *
+     * @return The connection.
+     *
+     * @throws IOException  Thrown when no connection could be opened.
+     * @throws SQLException Thrown when the table cannot be created.
+     * @since 1.11.0
+     */
+    protected @NotNull Connection connect() throws IOException, SQLException {
+        return this.connect(false);
+    }
+
+    /**
+     * Opens a connection, creating the table first if needed.
+     * <p>
+     * Read-only connections may be served by a read replica once the table exists.
+     *
+     * @param readOnly Whether the work only reads.
+     *
+     * @return The connection.
+     *
+     * @throws IOException  Thrown when no connection could be opened.
+     * @throws SQLException Thrown when the table cannot be created.
+     * @since 1.11.0
+     */
+    protected @NotNull Connection connect(final boolean readOnly) throws IOException, SQLException {
+        final @Nullable Connection connection = readOnly && this.initialized ? this.connectionManager.connectReadOnly() : this.connectionManager.connect();
+        if (connection == null) {
+            throw new StorageUnavailableException(String.format("Unable to connect to the data source for table %s.", this.table));
+        }
+        if (!this.initialized) {
+            try (final @NotNull Statement statement = connection.createStatement()) {
+                statement.execute(this.createTableStatement());
+                this.initialized = true;
+            } catch (SQLException ex) {
+                connection.close();
+                throw ex;
+            }
+        }
+        return connection;
+    }
+
+    /**
+     * Runs work against a connection, and closes the connection afterwards.
+     * <p>
+     * When metrics are enabled, the time spent in the work is recorded against the statement, excluding the time spent
+     * waiting for the connection.
+     *
+     * @param sql  The statement the work runs, used to label metrics.
+     * @param work The work to run.
+     * @param <T>  The result type.
+     *
+     * @return The result of the work.
+     *
+     * @throws IOException Thrown when no connection could be opened, or the work fails.
+     * @since 1.11.0
+     */
+    protected <T> T execute(final @NotNull String sql, final @NotNull SQLFunction<T> work) throws IOException {
+        return this.execute(sql, false, work);
+    }
+
+    /**
+     * Runs work against a connection, and closes the connection afterwards.
+     * <p>
+     * When metrics are enabled, the time spent in the work is recorded against the statement, excluding the time spent
+     * waiting for the connection.
+     *
+     * @param sql      The statement the work runs, used to label metrics.
+     * @param readOnly Whether the work only reads, and may run on a read replica.
+     * @param work     The work to run.
+     * @param <T>      The result type.
+     *
+     * @return The result of the work.
+     *
+     * @throws IOException Thrown when no connection could be opened, or the work fails.
+     * @since 1.11.0
+     */
+    protected <T> T execute(final @NotNull String sql, final boolean readOnly, final @NotNull SQLFunction<T> work) throws IOException {
+        try (final @NotNull Connection connection = this.connect(readOnly)) {
+            final long start = System.nanoTime();
+            final T result = work.apply(connection);
+            if (this.metrics != null) {
+                this.metrics.recordQuery(sql, System.nanoTime() - start);
+            }
+            return result;
+        } catch (SQLException ex) {
+            if (this.metrics != null) {
+                this.metrics.recordError(sql);
+            }
+            throw new IOException(String.format("Storage operation on table %s failed: %s", this.table, ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Records rows returned by a query, if metrics are enabled.
+     *
+     * @param rows The number of rows.
+     *
+     * @since 1.11.0
+     */
+    protected void recordRows(final long rows) {
+        if (this.metrics != null) {
+            this.metrics.recordRows(rows);
+        }
+    }
+
+    // Streams the key/value rows of a scan statement to a consumer.
+    private void scanRows(final @NotNull String sql, final @NotNull StatementBinder binder, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        this.execute(sql, true, connection -> {
+            try (final @NotNull PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(this.scanFetchSize());
+                binder.bind(statement);
+                try (final @NotNull ResultSet resultSet = statement.executeQuery()) {
+                    long rows = 0;
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getString(1), resultSet.getBytes(2));
+                        ++rows;
+                    }
+                    this.recordRows(rows);
+                }
+            }
+            return null;
+        });
+    }
+
+    // Runs a statement once per item as a single batched transaction, retried on deadlock.
+    private <T> void executeBatch(final @NotNull String sql, final @NotNull Collection<T> items, final @NotNull UnitOfWork.RowBinder<T> binder) throws IOException {
+        new UnitOfWork(this.connectionManager) {
+            @Override
+            protected @NotNull Connection connect() throws IOException, SQLException {
+                return SQLStorageBackend.this.connect(false);
+            }
+        }.addAll(sql, items, binder).metrics(this.metrics, sql).commit();
+    }
+
+    // Gets the smallest key which sorts after every key starting with a prefix, or null if there is none.
+    private static @Nullable String prefixEnd(final @NotNull String prefix) {
+        int end = prefix.length();
+        while (end > 0) {
+            final int codePoint = prefix.codePointBefore(end);
+            end -= Character.charCount(codePoint);
+            if (codePoint < Character.MAX_CODE_POINT) {
+                // Skip the surrogate range, which cannot be stored on its own.
+                final int next = codePoint + 1 == Character.MIN_SURROGATE ? Character.MAX_SURROGATE + 1 : codePoint + 1;
+                return new StringBuilder(prefix.substring(0, end)).appendCodePoint(next).toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Work which runs against a SQL connection.
+     *
+     * @param <T> The result type.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    protected interface SQLFunction<T> {
+        /**
+         * Runs the work.
+         *
+         * @param connection The connection.
+         *
+         * @return The result.
+         *
+         * @throws SQLException Thrown when the work fails.
+         * @since 1.11.0
+         */
+        T apply(final @NotNull Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,285 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.SQLiteConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Handles connections to an embedded SQLite database file in the plugin data folder.
+ * <p>
+ * Every connection is tuned for a game server workload: a write-ahead log so that asynchronous readers never wait for
+ * writers, relaxed syncing, a larger page cache, memory-mapped reads and in-memory temporary tables.
+ * <p>
+ * Connections are kept open and reused: closing a connection returns it to a small pool of idle connections, so that
+ * its page cache and memory map survive between statements. The journal mode is stored in the database file, so it is
+ * only set when the first connection opens. Closing the manager closes the idle connections.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class SQLiteConnectionManager implements ConnectionManager, Closeable {
+    private final transient @NotNull Plugin plugin;
+    private final transient @NotNull SQLiteConfiguration configuration;
+    private final transient @Nullable StorageMetrics metrics;
+    // The open connections which are not borrowed, most recently returned first.
+    private final transient @NotNull BlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+    // Whether the journal mode has been set.
+    private final transient @NotNull AtomicBoolean journalConfigured = new AtomicBoolean();
+    // Whether the manager has been closed.
+    private transient volatile boolean closed;
+
+    /**
+     * Creates a new SQLite connection manager.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The connection configuration.
+     *
+     * @since 1.11.0
+     */
+    public SQLiteConnectionManager(final @NotNull Plugin plugin, final @NotNull SQLiteConfiguration configuration) {
+        this(plugin, configuration, null);
+    }
+
+    /**
+     * Creates a new SQLite connection manager which records connection timings.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The connection configuration.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics.
+     *
+     * @since 1.11.0
+     */
+    public SQLiteConnectionManager(final @NotNull Plugin plugin, final @NotNull SQLiteConfiguration configuration, final @Nullable StorageMetrics metrics) {
+        this.plugin = plugin;
+        this.configuration = configuration;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the metrics collector.
+     *
+     * @return The metrics collector, or {@code null} if metrics are disabled.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable StorageMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Borrows an idle connection to the data source, or opens a new one if none is idle. Closing the borrowed
+     * connection returns it to the pool.
+     *
+     * @return The connection to the data source.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable Connection connect() {
+        if (this.closed) {
+            this.plugin.getLogger().log(Level.SEVERE, "[Storage] Failed to open the database: the connection manager is closed.");
+            return null;
+        }
+        final long start = System.nanoTime();
+        @Nullable Connection connection = this.pollIdle();
+        if (connection == null) {
+            connection = this.open();
+        }
+        if (this.metrics != null) {
+            this.metrics.recordBorrow(System.nanoTime() - start);
+            if (connection == null) {
+                this.metrics.recordConnectionFailure();
+            }
+        }
+
+        return connection == null ? null : this.lend(connection);
+    }
+
+    /**
+     * Closes the idle connections. Borrowed connections are closed once they are returned.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        @Nullable Connection connection;
+        while ((connection = this.idle.pollFirst()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Gets the number of open connections which are not borrowed.
+     *
+     * @return The number of idle connections.
+     *
+     * @since 1.11.0
+     */
+    public int getIdleCount() {
+        return this.idle.size();
+    }
+
+    // Opens and configures a new connection.
+    private @Nullable Connection open() {
+        final @NotNull File file = this.getFile();
+        @Nullable Connection connection = null;
+        try {
+            final @Nullable File parent = file.getParentFile();
+            if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+                throw new SQLException(String.format("Unable to create directory %s", parent.getPath()));
+            }
+            this.plugin.getLogger()
+                    .log(Level.FINE, String.format("[Storage] Opening SQLite database at %s", file.getPath()));
+            connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+            if (!this.journalConfigured.get()) {
+                this.configureJournal(connection);
+                this.journalConfigured.set(true);
+            }
+            this.configure(connection);
+        } catch (SQLException ex) {
+            this.plugin.getLogger()
+                    .log(Level.SEVERE, String.format("[Storage] Failed to open the database: %s", ex.getMessage()), ex);
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // Already failing.
+                }
+            }
+            connection = null;
+        }
+        return connection;
+    }
+
+    // Takes an idle connection which is still open, closing any which are not.
+    private @Nullable Connection pollIdle() {
+        @Nullable Connection connection;
+        while ((connection = this.idle.pollFirst()) != null) {
+            try {
+                if (!connection.isClosed()) {
+                    return connection;
+                }
+            } catch (SQLException ignored) {
+                // Treated as closed.
+            }
+            closeQuietly(connection);
+        }
+        return null;
+    }
+
+    // Wraps a connection so that closing it returns it to the pool.
+    private @NotNull Connection lend(final @NotNull Connection connection) {
+        final @NotNull AtomicBoolean returned = new AtomicBoolean();
+        return ConnectionProxy.wrap((proxy, method, args) -> {
+            final @NotNull String name = method.getName();
+            if ("close".equals(name) && method.getParameterCount() == 0) {
+                if (returned.compareAndSet(false, true)) {
+                    this.release(connection);
+                }
+                return null;
+            }
+            if ("isClosed".equals(name) && method.getParameterCount() == 0) {
+                return returned.get() || connection.isClosed();
+            }
+            if (returned.get()) {
+                throw new SQLException("The connection has been closed.");
+            }
+            return ConnectionProxy.invoke(connection, method, args);
+        });
+    }
+
+    // Returns a borrowed connection to the pool, or closes it if the pool is full or the connection cannot be reset.
+    private void release(final @NotNull Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return;
+            }
+            if (!connection.getAutoCommit()) {
+                // Discard whatever the borrower left uncommitted.
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            this.plugin.getLogger().log(Level.FINE, String.format("[Storage] Failed to reset a SQLite connection: %s", ex.getMessage()), ex);
+            closeQuietly(connection);
+            return;
+        }
+        if (this.closed || this.idle.size() >= this.configuration.poolSize.value() || !this.idle.offerFirst(connection)) {
+            closeQuietly(connection);
+        } else if (this.closed && this.idle.remove(connection)) {
+            // Closed while the connection was being returned.
+            closeQuietly(connection);
+        }
+    }
+
+    // Closes a connection, ignoring failures.
+    private static void closeQuietly(final @NotNull Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Nothing left to release.
+        }
+    }
+
+    /**
+     * Gets the database file.
+     *
+     * @return The database file.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull File getFile() {
+        return new File(this.plugin.getDataFolder(), Objects.requireNonNull(this.configuration.fileName.value()));
+    }
+
+    /**
+     * Sets the journal mode of the database. Runs once, on the first connection, since the mode is stored in the
+     * database file.
+     *
+     * @param connection The connection.
+     *
+     * @throws SQLException Thrown when the journal mode cannot be set.
+     * @since 1.11.0
+     */
+    protected void configureJournal(final @NotNull Connection connection) throws SQLException {
+        try (final @NotNull Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode = " + (this.configuration.writeAheadLog.value() ? "WAL" : "DELETE"));
+        }
+    }
+
+    /**
+     * Applies the configured settings to a new connection. Runs once per connection, which then keeps them for as
+     * long as it stays in the pool.
+     *
+     * @param connection The connection.
+     *
+     * @throws SQLException Thrown when a setting cannot be applied.
+     * @since 1.11.0
+     */
+    protected void configure(final @NotNull Connection connection) throws SQLException {
+        try (final @NotNull Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA synchronous = " + (this.configuration.fullSync.value() ? "FULL" : "NORMAL"));
+            statement.execute("PRAGMA busy_timeout = " + this.configuration.busyTimeout.value());
+            // A negative cache size is measured in kibibytes rather than pages.
+            statement.execute("PRAGMA cache_size = " + -this.configuration.cacheSize.value());
+            statement.execute("PRAGMA mmap_size = " + this.configuration.mmapSize.value() * 1024L * 1024L);
+            statement.execute("PRAGMA temp_store = MEMORY");
+            statement.execute("PRAGMA foreign_keys = ON");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Storage backend which keeps its data in a table of an embedded SQLite database.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class SQLiteStorageBackend extends SQLStorageBackend {
+    /**
+     * Creates a new SQLite storage backend.
+     *
+     * @param connectionManager The connection manager for the database.
+     * @param table             The name of the table which holds the data. Created if it does not exist.
+     *
+     * @since 1.11.0
+     */
+    public SQLiteStorageBackend(final @NotNull ConnectionManager connectionManager, final @NotNull String table) {
+        super(connectionManager, table);
+    }
+
+    /**
+     * Creates a new SQLite storage backend which records statement timings.
+     *
+     * @param connectionManager The connection manager for the database.
+     * @param table             The name of the table which holds the data. Created if it does not exist.
+     * @param metrics           The metrics collector, or {@code null} to disable metrics.
+     *
+     * @since 1.11.0
+     */
+    public SQLiteStorageBackend(final @NotNull ConnectionManager connectionManager, final @NotNull String table, final @Nullable StorageMetrics metrics) {
+        super(connectionManager, table, metrics);
+    }
+
+    /**
+     * Gets the statement which creates the table if it does not exist.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    protected @NotNull String createTableStatement() {
+        return "CREATE TABLE IF NOT EXISTS " + this.quote(this.getTable()) + " (`k` TEXT NOT NULL PRIMARY KEY, `v` BLOB NOT NULL) WITHOUT ROWID";
+    }
+
+    /**
+     * Gets the statement which inserts or replaces the value of a key.
+     *
+     * @return The statement.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    protected @NotNull String upsertStatement() {
+        return "INSERT INTO " + this.quote(this.getTable()) + " (`k`, `v`) VALUES (?, ?) ON CONFLICT (`k`) DO UPDATE SET `v` = excluded.`v`";
+    }
+
+    /**
+     * Gets the fetch size for scans. SQLite always steps through rows one at a time.
+     *
+     * @return {@code 0}, the driver default.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    protected int scanFetchSize() {
+        return 0;
+    }
+}
@@ -0,0 +1,222 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.*;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Moves rows of a sharded table to the shards which own them.
+ * <p>
+ * Run after adding a shard, or after marking a shard as draining. Every shard is processed in parallel: rows whose
+ * key now belongs to another shard are copied to that shard in batches, and deleted from the old shard only once the
+ * copy has been committed. A rebalance which is interrupted can simply be run again.
+ * <p>
+ * Once the ring has changed, live writes already go to the new owner, so a row on the owner is always at least as new
+ * as the misplaced copy. Rows are therefore copied column by column with an insert which skips rows the owner already
+ * has ({@code INSERT IGNORE} on MySQL, {@code INSERT OR IGNORE} on SQLite), and the misplaced copy is deleted either way.
+ * The key column may hold UUIDs as text or as 16 bytes.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings({"unused", "ClassCanBeRecord"})
+public class ShardRebalancer {
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The sharded connection manager.
+    private final transient @NotNull ShardedConnectionManager shards;
+    // The maximum number of rows moved per batch.
+    private final transient int batchSize;
+
+    /**
+     * Creates a new shard rebalancer.
+     *
+     * @param logger    The logger to report progress to.
+     * @param shards    The sharded connection manager.
+     * @param batchSize The maximum number of rows moved per batch.
+     *
+     * @since 1.11.0
+     */
+    public ShardRebalancer(final @NotNull Logger logger, final @NotNull ShardedConnectionManager shards, final int batchSize) {
+        this.logger = logger;
+        this.shards = shards;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * Moves every misplaced row of a table to its owning shard.
+     *
+     * @param table     The table.
+     * @param keyColumn The column which holds the UUID the rows are sharded by.
+     *
+     * @return The number of rows moved.
+     *
+     * @throws IOException Thrown when a shard cannot be read or written. Rows moved until then stay moved.
+     * @since 1.11.0
+     */
+    public long rebalance(final @NotNull String table, final @NotNull String keyColumn) throws IOException {
+        final long moved = this.shards.scatter((shard, connection) -> this.rebalanceShard(shard, connection, table, keyColumn))
+                .values().stream().mapToLong(Long::longValue).sum();
+        this.logger.log(Level.INFO, String.format("[Storage] Moved %d rows of %s to their shards.", moved, table));
+        return moved;
+    }
+
+    // Moves the misplaced rows of one shard.
+    private long rebalanceShard(final @NotNull String shard, final @NotNull Connection source, final @NotNull String table, final @NotNull String keyColumn) throws SQLException {
+        // Collect the misplaced keys first, so that no read stays open while rows are deleted.
+        final @NotNull Map<String, List<Object>> misplaced = new HashMap<>();
+        try (final @NotNull PreparedStatement statement = source.prepareStatement("SELECT " + quote(keyColumn) + " FROM " + quote(table));
+             final @NotNull ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                final @Nullable Object key = resultSet.getObject(1);
+                final @Nullable UUID uuid = toUUID(key);
+                if (uuid == null) {
+                    continue;
+                }
+                final @NotNull String owner = this.shards.shardFor(uuid);
+                if (!owner.equals(shard)) {
+                    misplaced.computeIfAbsent(owner, name -> new ArrayList<>()).add(key);
+                }
+            }
+        }
+        long moved = 0;
+        for (final @NotNull Map.Entry<String, List<Object>> entry : misplaced.entrySet()) {
+            final @NotNull List<Object> keys = entry.getValue();
+            for (int start = 0; start < keys.size(); start += this.batchSize) {
+                moved += this.move(source, entry.getKey(), table, keyColumn, keys.subList(start, Math.min(start + this.batchSize, keys.size())));
+            }
+        }
+        if (moved > 0) {
+            this.logger.log(Level.FINE, String.format("[Storage] Moved %d rows of %s off shard %s.", moved, table, shard));
+        }
+        return moved;
+    }
+
+    // Copies a batch of rows to their owner, then deletes them from the source.
+    private int move(final @NotNull Connection source, final @NotNull String owner, final @NotNull String table, final @NotNull String keyColumn, final @NotNull List<Object> keys) throws SQLException {
+        final @NotNull List<Object[]> rows = new ArrayList<>(keys.size());
+        @Nullable List<String> columns = null;
+        try (final @NotNull PreparedStatement statement = source.prepareStatement("SELECT * FROM " + quote(table) + " WHERE " + quote(keyColumn) + " IN (" + placeholders(keys.size()) + ")")) {
+            for (int i = 0; i < keys.size(); ++i) {
+                statement.setObject(i + 1, keys.get(i));
+            }
+            try (final @NotNull ResultSet resultSet = statement.executeQuery()) {
+                final @NotNull ResultSetMetaData metaData = resultSet.getMetaData();
+                columns = new ArrayList<>(metaData.getColumnCount());
+                for (int i = 1; i <= metaData.getColumnCount(); ++i) {
+                    columns.add(metaData.getColumnName(i));
+                }
+                while (resultSet.next()) {
+                    final @NotNull Object[] row = new Object[columns.size()];
+                    for (int i = 0; i < row.length; ++i) {
+                        row[i] = resultSet.getObject(i + 1);
+                    }
+                    rows.add(row);
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        try (final @Nullable Connection target = this.shards.getShards().get(owner).connect()) {
+            if (target == null) {
+                throw new SQLException(String.format("Unable to connect to shard %s.", owner));
+            }
+            // The owner's row wins: it was either copied earlier or written after the ring changed.
+            final @NotNull StringBuilder insert = new StringBuilder(insertIfAbsent(target)).append(' ').append(quote(table)).append(" (");
+            for (int i = 0; i < columns.size(); ++i) {
+                insert.append(i == 0 ? "" : ", ").append(quote(columns.get(i)));
+            }
+            insert.append(") VALUES (").append(placeholders(columns.size())).append(')');
+            inTransaction(target, connection -> {
+                try (final @NotNull PreparedStatement statement = connection.prepareStatement(insert.toString())) {
+                    for (final @NotNull Object[] row : rows) {
+                        for (int i = 0; i < row.length; ++i) {
+                            statement.setObject(i + 1, row[i]);
+                        }
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+            });
+        }
+
+        inTransaction(source, connection -> {
+            try (final @NotNull PreparedStatement statement = connection.prepareStatement("DELETE FROM " + quote(table) + " WHERE " + quote(keyColumn) + " = ?")) {
+                for (final @NotNull Object key : keys) {
+                    statement.setObject(1, key);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        return rows.size();
+    }
+
+    // Runs work in a transaction, restoring the auto-commit mode afterwards.
+    private static void inTransaction(final @NotNull Connection connection, final @NotNull TransactionWork work) throws SQLException {
+        final boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            work.run(connection);
+            connection.commit();
+        } catch (SQLException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Gets the insert statement prefix which skips rows whose key already exists.
+    private static @NotNull String insertIfAbsent(final @NotNull Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("sqlite") ? "INSERT OR IGNORE INTO" : "INSERT IGNORE INTO";
+    }
+
+    // Reads a UUID stored as text or as 16 bytes.
+    private static @Nullable UUID toUUID(final @Nullable Object value) {
+        if (value instanceof byte[] && ((byte[]) value).length == 16) {
+            final @NotNull ByteBuffer buffer = ByteBuffer.wrap((byte[]) value);
+            return new UUID(buffer.getLong(), buffer.getLong());
+        }
+        if (value == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(value.toString());
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    // Quotes an identifier.
+    private static @NotNull String quote(final @NotNull String identifier) {
+        return '`' + identifier.replace("`", "``") + '`';
+    }
+
+    // Builds a list of parameter placeholders.
+    private static @NotNull String placeholders(final int count) {
+        final @NotNull StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            builder.append(i == 0 ? "?" : ", ?");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Work which runs inside a transaction.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    private interface TransactionWork {
+        void run(final @NotNull Connection connection) throws SQLException;
+    }
+}
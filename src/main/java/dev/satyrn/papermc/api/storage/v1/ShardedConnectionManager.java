@@ -0,0 +1,291 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.ShardingConfiguration;
+import dev.satyrn.papermc.api.configuration.v2.MySQLConfiguration;
+import dev.satyrn.papermc.api.storage.v2.MySQLConnectionManager;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Splits per-player data across several databases by a consistent hash of the player UUID.
+ * <p>
+ * {@link #connect(UUID)} opens a connection to the shard which owns a UUID. Work which needs every shard, such as
+ * leaderboards and lookups by name, runs on all shards in parallel through {@link #scatter(ShardWork)}. The plain
+ * {@link #connect()} goes to the first shard, which suits tables that are not sharded.
+ * <p>
+ * Draining shards own no keys but are still part of scatter queries, so that their data stays visible until a
+ * {@link ShardRebalancer} has moved it.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class ShardedConnectionManager implements ConnectionManager, Closeable {
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // Every shard by name, including draining shards.
+    private final transient @NotNull Map<String, ConnectionManager> shards;
+    // Assigns UUIDs to the names of the active shards.
+    private final transient @NotNull ConsistentHashRing<String> ring;
+    // Runs scatter queries.
+    private final transient @NotNull ExecutorService executor;
+
+    /**
+     * Creates a new sharded connection manager.
+     *
+     * @param logger       The logger.
+     * @param shards       Every shard by name. The names decide which shard owns which keys.
+     * @param draining     The names of shards which own no keys.
+     * @param virtualNodes The number of points per shard on the hash ring.
+     * @param threads      The number of threads used to query shards in parallel.
+     *
+     * @throws IllegalArgumentException Thrown when every shard is draining.
+     * @since 1.11.0
+     */
+    public ShardedConnectionManager(final @NotNull Logger logger, final @NotNull Map<String, ConnectionManager> shards, final @NotNull Set<String> draining, final int virtualNodes, final int threads) {
+        this.logger = logger;
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        final @NotNull Map<String, String> active = new LinkedHashMap<>();
+        for (final @NotNull String name : this.shards.keySet()) {
+            if (!draining.contains(name)) {
+                active.put(name, name);
+            }
+        }
+        this.ring = new ConsistentHashRing<>(active, virtualNodes);
+        final @NotNull AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(threads, 1), runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "Shard-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a sharded connection manager over the shards listed in a MySQL configuration.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The MySQL configuration. Its connection settings are the defaults for every shard.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics.
+     *
+     * @return The sharded connection manager.
+     *
+     * @throws IllegalArgumentException Thrown when no usable shard is configured.
+     * @since 1.11.0
+     */
+    public static @NotNull ShardedConnectionManager open(final @NotNull Plugin plugin, final @NotNull MySQLConfiguration configuration, final @Nullable StorageMetrics metrics) {
+        final @NotNull ShardingConfiguration sharding = configuration.sharding;
+        final @NotNull Map<String, ConnectionManager> shards = new LinkedHashMap<>();
+        final @NotNull Set<String> draining = new HashSet<>();
+        for (final @NotNull Map<?, ?> endpoint : sharding.shards.value()) {
+            final @Nullable Object name = endpoint.get("name");
+            if (name == null || shards.containsKey(name.toString())) {
+                plugin.getLogger()
+                        .log(Level.WARNING, String.format("[Storage] Ignoring shard entry %s: every shard needs a unique name.", endpoint.get("hostname")));
+                continue;
+            }
+            shards.put(name.toString(), new MySQLConnectionManager(plugin, configuration, endpoint, metrics));
+            if (Boolean.TRUE.equals(endpoint.get("draining"))) {
+                draining.add(name.toString());
+            }
+        }
+        return new ShardedConnectionManager(plugin.getLogger(), shards, draining, sharding.virtualNodes.value(), sharding.threads.value());
+    }
+
+    /**
+     * Gets the name of the shard which owns a UUID.
+     *
+     * @param key The UUID.
+     *
+     * @return The shard name.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull String shardFor(final @NotNull UUID key) {
+        return this.ring.get(key);
+    }
+
+    /**
+     * Gets the shards.
+     *
+     * @return Every shard by name, including draining shards.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable Map<String, ConnectionManager> getShards() {
+        return this.shards;
+    }
+
+    /**
+     * Opens a connection to the first shard.
+     *
+     * @return The connection.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable Connection connect() {
+        return this.shards.values().iterator().next().connect();
+    }
+
+    /**
+     * Opens a connection to the shard which owns a UUID.
+     *
+     * @param key The UUID.
+     *
+     * @return The connection.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable Connection connect(final @NotNull UUID key) {
+        return this.shards.get(this.shardFor(key)).connect();
+    }
+
+    /**
+     * Opens a read-only connection to the shard which owns a UUID.
+     *
+     * @param key The UUID.
+     *
+     * @return The connection.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable Connection connectReadOnly(final @NotNull UUID key) {
+        return this.shards.get(this.shardFor(key)).connectReadOnly();
+    }
+
+    /**
+     * Checks whether every shard is currently considered reachable.
+     *
+     * @return {@code true} if every shard is available; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public boolean isAvailable() {
+        for (final @NotNull ConnectionManager shard : this.shards.values()) {
+            if (!shard.isAvailable()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs work on every shard in parallel, and gathers the results.
+     *
+     * @param work The work to run.
+     * @param <T>  The result type.
+     *
+     * @return The result of each shard, by shard name.
+     *
+     * @throws IOException Thrown when the work fails on any shard. The failures of other shards are suppressed.
+     * @since 1.11.0
+     */
+    public <T> @NotNull Map<String, T> scatter(final @NotNull ShardWork<T> work) throws IOException {
+        return this.scatter(work, false);
+    }
+
+    /**
+     * Runs read-only work on every shard in parallel, and gathers the results. The work may run on read replicas.
+     *
+     * @param work The work to run.
+     * @param <T>  The result type.
+     *
+     * @return The result of each shard, by shard name.
+     *
+     * @throws IOException Thrown when the work fails on any shard. The failures of other shards are suppressed.
+     * @since 1.11.0
+     */
+    public <T> @NotNull Map<String, T> scatterReadOnly(final @NotNull ShardWork<T> work) throws IOException {
+        return this.scatter(work, true);
+    }
+
+    /**
+     * Stops the scatter threads and closes every shard which holds resources of its own.
+     *
+     * @throws IOException Thrown when a shard cannot be closed.
+     * @since 1.11.0
+     */
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdownNow();
+        for (final @NotNull ConnectionManager shard : this.shards.values()) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+
+    // Runs work on every shard in parallel.
+    private <T> @NotNull Map<String, T> scatter(final @NotNull ShardWork<T> work, final boolean readOnly) throws IOException {
+        final @NotNull Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (final @NotNull Map.Entry<String, ConnectionManager> shard : this.shards.entrySet()) {
+            futures.put(shard.getKey(), this.executor.submit(() -> {
+                try (final @Nullable Connection connection = readOnly ? shard.getValue().connectReadOnly() : shard.getValue().connect()) {
+                    if (connection == null) {
+                        throw new StorageUnavailableException(String.format("Unable to connect to shard %s.", shard.getKey()));
+                    }
+                    return work.apply(shard.getKey(), connection);
+                }
+            }));
+        }
+        final @NotNull Map<String, T> results = new LinkedHashMap<>();
+        @Nullable IOException failure = null;
+        for (final @NotNull Map.Entry<String, Future<T>> future : futures.entrySet()) {
+            try {
+                results.put(future.getKey(), future.getValue().get());
+            } catch (ExecutionException ex) {
+                final @NotNull IOException shardFailure = new IOException(String.format("Shard %s failed: %s", future.getKey(), ex.getCause().getMessage()), ex.getCause());
+                if (failure == null) {
+                    failure = shardFailure;
+                } else {
+                    failure.addSuppressed(shardFailure);
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(pending -> pending.cancel(true));
+                throw new IOException("Interrupted while waiting for shards.", ex);
+            }
+        }
+        if (failure != null) {
+            this.logger.log(Level.FINE, String.format("[Storage] Scatter query failed: %s", failure.getMessage()));
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Work which runs against a connection to one shard.
+     *
+     * @param <T> The result type.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    public interface ShardWork<T> {
+        /**
+         * Runs the work.
+         *
+         * @param shard      The shard name.
+         * @param connection The connection to the shard.
+         *
+         * @return The result.
+         *
+         * @throws SQLException Thrown when the work fails.
+         * @since 1.11.0
+         */
+        T apply(final @NotNull String shard, final @NotNull Connection connection) throws SQLException;
+    }
+}
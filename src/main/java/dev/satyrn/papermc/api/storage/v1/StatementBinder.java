@@ -0,0 +1,25 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Binds values to the parameters of a prepared statement.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@FunctionalInterface
+public interface StatementBinder {
+    /**
+     * Binds the parameters.
+     *
+     * @param statement The statement.
+     *
+     * @throws SQLException Thrown when a parameter cannot be bound.
+     * @since 1.11.0
+     */
+    void bind(final @NotNull PreparedStatement statement) throws SQLException;
+}
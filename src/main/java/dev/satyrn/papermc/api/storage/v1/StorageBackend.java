@@ -0,0 +1,270 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.JournalConfiguration;
+import dev.satyrn.papermc.api.configuration.v1.StorageConfiguration;
+import dev.satyrn.papermc.api.configuration.v2.MySQLConfiguration;
+import dev.satyrn.papermc.api.storage.v2.MySQLConnectionManager;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A key/value storage backend.
+ * <p>
+ * Backends store raw bytes under string keys. Caching, encoding and asynchronous execution are provided on top of a
+ * backend by a {@link Repository}, so that they behave the same regardless of the configured {@link StorageType}.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public interface StorageBackend extends Closeable {
+    /**
+     * Opens the backend selected by the storage configuration.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The storage configuration.
+     * @param name          The name of the data set. Used as the flat-file directory or SQL table name.
+     *
+     * @return The storage backend.
+     *
+     * @throws IOException Thrown when the backend cannot be opened.
+     * @since 1.11.0
+     */
+    static @NotNull StorageBackend open(final @NotNull Plugin plugin, final @NotNull StorageConfiguration configuration, final @NotNull String name) throws IOException {
+        return open(plugin, configuration, name, null);
+    }
+
+    /**
+     * Opens the backend selected by the storage configuration, recording connection and statement timings.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The storage configuration.
+     * @param name          The name of the data set. Used as the flat-file directory or SQL table name.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics. Only used by SQL backends.
+     *
+     * @return The storage backend.
+     *
+     * @throws IOException Thrown when the backend cannot be opened.
+     * @since 1.11.0
+     */
+    static @NotNull StorageBackend open(final @NotNull Plugin plugin, final @NotNull StorageConfiguration configuration, final @NotNull String name, final @Nullable StorageMetrics metrics) throws IOException {
+        return open(plugin, configuration, name, configuration.type.value(), metrics);
+    }
+
+    /**
+     * Opens a backend of a given type, regardless of the type selected by the storage configuration.
+     * <p>
+     * Used to migrate data between storage types.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The storage configuration.
+     * @param name          The name of the data set. Used as the flat-file directory or SQL table name.
+     * @param type          The storage type.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics. Only used by SQL backends.
+     *
+     * @return The storage backend.
+     *
+     * @throws IOException Thrown when the backend cannot be opened.
+     * @since 1.11.0
+     */
+    static @NotNull StorageBackend open(final @NotNull Plugin plugin, final @NotNull StorageConfiguration configuration, final @NotNull String name, final @NotNull StorageType type, final @Nullable StorageMetrics metrics) throws IOException {
+        return open(plugin, configuration, name, type, metrics, true);
+    }
+
+    /**
+     * Opens a backend of a given type, regardless of the type selected by the storage configuration, optionally
+     * without the write journal.
+     * <p>
+     * Used to migrate data between storage types. A migration must see the failures of its writes, and must not share
+     * the journal file of the backend the plugin is using.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The storage configuration.
+     * @param name          The name of the data set. Used as the flat-file directory or SQL table name.
+     * @param type          The storage type.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics. Only used by SQL backends.
+     * @param journaled     Whether SQL writes are journaled while the data source is unreachable, if the storage
+     *                      configuration enables the journal.
+     *
+     * @return The storage backend.
+     *
+     * @throws IOException Thrown when the backend cannot be opened.
+     * @since 1.11.0
+     */
+    static @NotNull StorageBackend open(final @NotNull Plugin plugin, final @NotNull StorageConfiguration configuration, final @NotNull String name, final @NotNull StorageType type, final @Nullable StorageMetrics metrics, final boolean journaled) throws IOException {
+        switch (type) {
+            case MYSQL:
+                final @NotNull MySQLConfiguration mysql = configuration.mysql;
+                final @NotNull StorageBackend backend = new SQLStorageBackend(new MySQLConnectionManager(plugin, mysql, metrics),
+                        SQLStorageBackend.tableName(mysql.tablePrefix.value(), mysql.appendUnderscoreToPrefix.value(), name), metrics);
+                final @NotNull JournalConfiguration journal = configuration.journal;
+                if (!journaled || !journal.enabled.value()) {
+                    return backend;
+                }
+                return new JournaledStorageBackend(plugin.getLogger(), backend,
+                        new WriteJournal(new File(new File(plugin.getDataFolder(), journal.directory.value()), name + ".journal")),
+                        journal.replayInterval.value(), journal.batchSize.value());
+            case SQLITE:
+                return new SQLiteStorageBackend(new SQLiteConnectionManager(plugin, configuration.sqlite, metrics), name, metrics);
+            case FLAT_FILE:
+                return new FlatFileStorageBackend(new FlatFileStore(plugin, configuration.flatFile, name));
+            default:
+                throw new IOException(String.format("Unsupported storage type %s", type));
+        }
+    }
+
+    /**
+     * Gets the value stored under a key.
+     *
+     * @param key The key.
+     *
+     * @return The stored value, or {@code null} if the key is not present.
+     *
+     * @throws IOException Thrown when the value cannot be read.
+     * @since 1.11.0
+     */
+    @Nullable byte[] get(final @NotNull String key) throws IOException;
+
+    /**
+     * Gets the values stored under several keys.
+     *
+     * @param keys The keys.
+     *
+     * @return The stored values by key. Keys which are not present are omitted.
+     *
+     * @throws IOException Thrown when the values cannot be read.
+     * @since 1.11.0
+     */
+    default @NotNull Map<String, byte[]> getAll(final @NotNull Collection<String> keys) throws IOException {
+        final @NotNull Map<String, byte[]> values = new HashMap<>();
+        for (final @NotNull String key : keys) {
+            final @Nullable byte[] value = this.get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Stores a value under a key, replacing any previous value.
+     *
+     * @param key   The key.
+     * @param value The value.
+     *
+     * @throws IOException Thrown when the value cannot be written.
+     * @since 1.11.0
+     */
+    void put(final @NotNull String key, final @NotNull byte[] value) throws IOException;
+
+    /**
+     * Stores several values.
+     *
+     * @param values The values by key.
+     *
+     * @throws IOException Thrown when the values cannot be written.
+     * @since 1.11.0
+     */
+    default void putAll(final @NotNull Map<String, byte[]> values) throws IOException {
+        for (final @NotNull Map.Entry<String, byte[]> entry : values.entrySet()) {
+            this.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Removes a key.
+     *
+     * @param key The key.
+     *
+     * @return {@code true} if the key was present; otherwise, {@code false}.
+     *
+     * @throws IOException Thrown when the key cannot be removed.
+     * @since 1.11.0
+     */
+    boolean delete(final @NotNull String key) throws IOException;
+
+    /**
+     * Removes several keys.
+     *
+     * @param keys The keys.
+     *
+     * @throws IOException Thrown when the keys cannot be removed.
+     * @since 1.11.0
+     */
+    default void deleteAll(final @NotNull Collection<String> keys) throws IOException {
+        for (final @NotNull String key : keys) {
+            this.delete(key);
+        }
+    }
+
+    /**
+     * Visits every key which starts with a prefix, in ascending key order.
+     *
+     * @param prefix   The key prefix. An empty prefix visits every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    void scan(final @NotNull String prefix, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException;
+
+    /**
+     * Visits every key which sorts after a key, in ascending key order.
+     * <p>
+     * Used to resume long scans. The order is the order of {@link #scan(String, BiConsumer)}, which for SQL backends
+     * is the collation of the database.
+     *
+     * @param after    The key to start after, or {@code null} to visit every key.
+     * @param consumer Receives each key and its value.
+     *
+     * @throws IOException Thrown when the keys cannot be read.
+     * @since 1.11.0
+     */
+    default void scanAfter(final @Nullable String after, final @NotNull BiConsumer<String, byte[]> consumer) throws IOException {
+        this.scan("", (key, value) -> {
+            if (after == null || key.compareTo(after) > 0) {
+                consumer.accept(key, value);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the data source of the backend is currently considered reachable.
+     *
+     * @return {@code true} if operations are expected to succeed; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * Gets the metrics collector of the backend.
+     *
+     * @return The metrics collector, or {@code null} if the backend does not record metrics.
+     *
+     * @since 1.11.0
+     */
+    default @Nullable StorageMetrics getMetrics() {
+        return null;
+    }
+
+    /**
+     * Releases any resources held by the backend.
+     *
+     * @throws IOException Thrown when the backend cannot be closed cleanly.
+     * @since 1.11.0
+     */
+    @Override
+    default void close() throws IOException { }
+}
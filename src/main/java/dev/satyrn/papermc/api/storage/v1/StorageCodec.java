@@ -0,0 +1,112 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts repository values to and from the bytes kept by a {@link StorageBackend}.
+ *
+ * @param <V> The value type.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public interface StorageCodec<V> {
+    /**
+     * Gets a codec which stores raw bytes as they are.
+     *
+     * @return The codec.
+     *
+     * @since 1.11.0
+     */
+    static @NotNull StorageCodec<byte[]> bytes() {
+        return new StorageCodec<>() {
+            @Override
+            public @NotNull byte[] encode(final @NotNull byte[] value) {
+                return value;
+            }
+
+            @Override
+            public @NotNull byte[] decode(final @NotNull byte[] data) {
+                return data;
+            }
+        };
+    }
+
+    /**
+     * Gets a codec which stores strings as UTF-8.
+     *
+     * @return The codec.
+     *
+     * @since 1.11.0
+     */
+    static @NotNull StorageCodec<String> string() {
+        return new StorageCodec<>() {
+            @Override
+            public @NotNull byte[] encode(final @NotNull String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public @NotNull String decode(final @NotNull byte[] data) {
+                return new String(data, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    /**
+     * Gets a codec which stores YAML configurations as UTF-8 YAML text.
+     *
+     * @return The codec.
+     *
+     * @since 1.11.0
+     */
+    static @NotNull StorageCodec<YamlConfiguration> yaml() {
+        return new StorageCodec<>() {
+            @Override
+            public @NotNull byte[] encode(final @NotNull YamlConfiguration value) {
+                return value.saveToString().getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public @NotNull YamlConfiguration decode(final @NotNull byte[] data) throws IOException {
+                final @NotNull YamlConfiguration configuration = new YamlConfiguration();
+                try {
+                    configuration.loadFromString(new String(data, StandardCharsets.UTF_8));
+                } catch (InvalidConfigurationException ex) {
+                    throw new IOException(ex.getMessage(), ex);
+                }
+                return configuration;
+            }
+        };
+    }
+
+    /**
+     * Encodes a value.
+     *
+     * @param value The value.
+     *
+     * @return The encoded bytes.
+     *
+     * @throws IOException Thrown when the value cannot be encoded.
+     * @since 1.11.0
+     */
+    @NotNull byte[] encode(final @NotNull V value) throws IOException;
+
+    /**
+     * Decodes a value.
+     *
+     * @param data The encoded bytes.
+     *
+     * @return The value.
+     *
+     * @throws IOException Thrown when the bytes cannot be decoded.
+     * @since 1.11.0
+     */
+    @NotNull V decode(final @NotNull byte[] data) throws IOException;
+}
@@ -0,0 +1,336 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects timing and error statistics for the storage layer.
+ * <p>
+ * Records how long callers wait for a connection, how long statements take, how many rows they return and how often
+ * each statement fails. Statements slower than the configured threshold are logged. All recording is lock-free, so a
+ * single instance can be shared by every backend and connection manager of a plugin.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class StorageMetrics {
+    // The logger for slow statements.
+    private final transient @NotNull Logger logger;
+    // The time spent waiting for a connection.
+    private final transient @NotNull LatencyHistogram borrowWait = new LatencyHistogram();
+    // The time spent running statements.
+    private final transient @NotNull LatencyHistogram queryLatency = new LatencyHistogram();
+    // The number of rows returned by queries.
+    private final transient @NotNull LongAdder rowsReturned = new LongAdder();
+    // The number of failed connection attempts.
+    private final transient @NotNull LongAdder connectionFailures = new LongAdder();
+    // The number of failures per statement.
+    private final transient @NotNull ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    // The number of connections held past the leak threshold.
+    private final transient @NotNull LongAdder leakedConnections = new LongAdder();
+    // The number of leaked connections which were closed by the leak detector.
+    private final transient @NotNull LongAdder reclaimedConnections = new LongAdder();
+    // The number of statements which exceeded the slow statement threshold.
+    private final transient @NotNull LongAdder slowQueries = new LongAdder();
+    // The duration, in nanoseconds, above which a statement is logged as slow.
+    private transient volatile long slowQueryThreshold;
+
+    /**
+     * Creates a new metrics collector.
+     *
+     * @param logger             The logger for slow statements.
+     * @param slowQueryThreshold The duration, in milliseconds, above which a statement is logged as slow. {@code 0}
+     *                           disables the slow statement log.
+     *
+     * @since 1.11.0
+     */
+    public StorageMetrics(final @NotNull Logger logger, final long slowQueryThreshold) {
+        this.logger = logger;
+        this.setSlowQueryThreshold(slowQueryThreshold);
+    }
+
+    /**
+     * Records the time spent waiting for a connection.
+     *
+     * @param nanos The wait time, in nanoseconds.
+     *
+     * @since 1.11.0
+     */
+    public void recordBorrow(final long nanos) {
+        this.borrowWait.record(nanos);
+    }
+
+    /**
+     * Records a failed connection attempt.
+     *
+     * @since 1.11.0
+     */
+    public void recordConnectionFailure() {
+        this.connectionFailures.increment();
+    }
+
+    /**
+     * Records a connection which was held past the leak threshold.
+     *
+     * @since 1.11.0
+     */
+    public void recordLeak() {
+        this.leakedConnections.increment();
+    }
+
+    /**
+     * Records a leaked connection which was closed by the leak detector.
+     *
+     * @since 1.11.0
+     */
+    public void recordReclaim() {
+        this.reclaimedConnections.increment();
+    }
+
+    /**
+     * Records a completed statement, and logs it if it was slow.
+     *
+     * @param statement The statement.
+     * @param nanos     The execution time, in nanoseconds.
+     *
+     * @since 1.11.0
+     */
+    public void recordQuery(final @NotNull String statement, final long nanos) {
+        this.queryLatency.record(nanos);
+        final long threshold = this.slowQueryThreshold;
+        if (threshold > 0 && nanos >= threshold) {
+            this.slowQueries.increment();
+            this.logger.log(Level.WARNING, String.format("[Storage] Slow statement (%d ms): %s", TimeUnit.NANOSECONDS.toMillis(nanos), statement));
+        }
+    }
+
+    /**
+     * Records rows returned by a query.
+     *
+     * @param rows The number of rows.
+     *
+     * @since 1.11.0
+     */
+    public void recordRows(final long rows) {
+        this.rowsReturned.add(rows);
+    }
+
+    /**
+     * Records a failed statement.
+     *
+     * @param statement The statement.
+     *
+     * @since 1.11.0
+     */
+    public void recordError(final @NotNull String statement) {
+        this.errors.computeIfAbsent(statement, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Sets the duration above which a statement is logged as slow.
+     *
+     * @param milliseconds The threshold, in milliseconds. {@code 0} disables the slow statement log.
+     *
+     * @since 1.11.0
+     */
+    public void setSlowQueryThreshold(final long milliseconds) {
+        this.slowQueryThreshold = TimeUnit.MILLISECONDS.toNanos(Math.max(milliseconds, 0L));
+    }
+
+    /**
+     * Gets the histogram of time spent waiting for a connection.
+     *
+     * @return The connection wait histogram.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull LatencyHistogram getBorrowWait() {
+        return this.borrowWait;
+    }
+
+    /**
+     * Gets the histogram of statement execution times.
+     *
+     * @return The statement latency histogram.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull LatencyHistogram getQueryLatency() {
+        return this.queryLatency;
+    }
+
+    /**
+     * Gets the number of rows returned by queries.
+     *
+     * @return The number of rows.
+     *
+     * @since 1.11.0
+     */
+    public long getRowsReturned() {
+        return this.rowsReturned.sum();
+    }
+
+    /**
+     * Gets the number of failed connection attempts.
+     *
+     * @return The number of failures.
+     *
+     * @since 1.11.0
+     */
+    public long getConnectionFailures() {
+        return this.connectionFailures.sum();
+    }
+
+    /**
+     * Gets the number of connections which were held past the leak threshold.
+     *
+     * @return The number of leaked connections.
+     *
+     * @since 1.11.0
+     */
+    public long getLeakedConnections() {
+        return this.leakedConnections.sum();
+    }
+
+    /**
+     * Gets the number of leaked connections which were closed by the leak detector.
+     *
+     * @return The number of reclaimed connections.
+     *
+     * @since 1.11.0
+     */
+    public long getReclaimedConnections() {
+        return this.reclaimedConnections.sum();
+    }
+
+    /**
+     * Gets the number of statements which exceeded the slow statement threshold.
+     *
+     * @return The number of slow statements.
+     *
+     * @since 1.11.0
+     */
+    public long getSlowQueries() {
+        return this.slowQueries.sum();
+    }
+
+    /**
+     * Gets the number of failures per statement.
+     *
+     * @return A snapshot of the failure counts, ordered by statement.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull @Unmodifiable Map<String, Long> getErrors() {
+        final @NotNull Map<String, Long> errors = new TreeMap<>();
+        this.errors.forEach((statement, count) -> errors.put(statement, count.sum()));
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Clears all collected statistics.
+     *
+     * @since 1.11.0
+     */
+    public void reset() {
+        this.borrowWait.reset();
+        this.queryLatency.reset();
+        this.rowsReturned.reset();
+        this.connectionFailures.reset();
+        this.leakedConnections.reset();
+        this.reclaimedConnections.reset();
+        this.slowQueries.reset();
+        this.errors.clear();
+    }
+
+    /**
+     * Builds a human-readable summary of the collected statistics.
+     *
+     * @return The summary, one statistic per line.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull String report() {
+        final @NotNull StringBuilder builder = new StringBuilder();
+        this.report(builder, "");
+        return builder.toString();
+    }
+
+    /**
+     * Writes the collected statistics to a local file, in {@code name=value} form.
+     * <p>
+     * The file is replaced atomically, so it can be read by external tools at any time.
+     *
+     * @param file The file to write.
+     *
+     * @throws IOException Thrown when the file cannot be written.
+     * @since 1.11.0
+     */
+    public void export(final @NotNull Path file) throws IOException {
+        final @NotNull StringBuilder builder = new StringBuilder("# Storage metrics at ").append(Instant.now()).append('\n');
+        this.report(builder, "storage.");
+        final @Nullable Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        final @NotNull Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final @NotNull Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write(builder.toString());
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Appends the statistics to a builder, one {@code name=value} line each.
+     *
+     * @param builder The builder.
+     * @param prefix  The prefix for every statistic name.
+     *
+     * @since 1.11.0
+     */
+    protected void report(final @NotNull StringBuilder builder, final @NotNull String prefix) {
+        histogram(builder, prefix + "borrowWait", this.borrowWait);
+        histogram(builder, prefix + "queryLatency", this.queryLatency);
+        line(builder, prefix + "rowsReturned", this.getRowsReturned());
+        line(builder, prefix + "connectionFailures", this.getConnectionFailures());
+        line(builder, prefix + "leakedConnections", this.getLeakedConnections());
+        line(builder, prefix + "reclaimedConnections", this.getReclaimedConnections());
+        line(builder, prefix + "slowQueries", this.getSlowQueries());
+        for (final @NotNull Map.Entry<String, Long> entry : this.getErrors().entrySet()) {
+            line(builder, prefix + "errors[" + entry.getKey().replace('\n', ' ') + "]", entry.getValue());
+        }
+    }
+
+    // Appends the summary statistics of a histogram.
+    private static void histogram(final @NotNull StringBuilder builder, final @NotNull String name, final @NotNull LatencyHistogram histogram) {
+        line(builder, name + ".count", histogram.count());
+        builder.append(name).append(".meanMicros=").append(String.format(Locale.ROOT, "%.1f", histogram.mean(TimeUnit.MICROSECONDS))).append('\n');
+        line(builder, name + ".p50Micros", histogram.percentile(50.0D, TimeUnit.MICROSECONDS));
+        line(builder, name + ".p99Micros", histogram.percentile(99.0D, TimeUnit.MICROSECONDS));
+        line(builder, name + ".maxMicros", histogram.max(TimeUnit.MICROSECONDS));
+    }
+
+    // Appends a single statistic.
+    private static void line(final @NotNull StringBuilder builder, final @NotNull String name, final long value) {
+        builder.append(name).append('=').append(value).append('\n');
+    }
+}
@@ -0,0 +1,455 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.StorageConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+/**
+ * Copies every record of one storage backend into another, such as when switching from {@link StorageType#FLAT_FILE}
+ * to {@link StorageType#MYSQL}.
+ * <p>
+ * The source is scanned in key order and cut into chunks, which worker threads write to the target with
+ * {@link StorageBackend#putAll(Map)}. After each chunk, the last key before which every chunk has been written is saved
+ * to a checkpoint file, so an interrupted migration resumes from there instead of starting over. Once every record has
+ * been copied, both backends are scanned again and their record counts and checksums compared.
+ * <p>
+ * The target should be empty, and neither backend should be written to while the migration runs.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class StorageMigration {
+    // The checkpoint property which holds the last migrated key.
+    private static final String CHECKPOINT_KEY = "lastKey";
+    // The checkpoint property which holds the number of migrated records.
+    private static final String CHECKPOINT_COUNT = "migrated";
+    // The number of chunks between progress messages.
+    private static final int PROGRESS_INTERVAL = 100;
+
+    // The logger.
+    private final transient @NotNull Logger logger;
+    // The backend to copy from.
+    private final transient @NotNull StorageBackend source;
+    // The backend to copy to.
+    private final transient @NotNull StorageBackend target;
+    // The checkpoint file.
+    private final transient @NotNull File checkpoint;
+    // The number of records per chunk.
+    private final transient int chunkSize;
+    // The number of worker threads.
+    private final transient int threads;
+
+    /**
+     * Creates a new storage migration.
+     *
+     * @param logger     The logger to report progress to.
+     * @param source     The backend to copy from.
+     * @param target     The backend to copy to. A {@link JournaledStorageBackend} is bypassed, so that writes which
+     *                   fail abort the migration instead of being journaled, and verification reads the data source.
+     * @param checkpoint The checkpoint file. Deleted once the migration has been verified.
+     * @param chunkSize  The number of records written per batch.
+     * @param threads    The number of worker threads writing to the target.
+     *
+     * @since 1.11.0
+     */
+    public StorageMigration(final @NotNull Logger logger, final @NotNull StorageBackend source, final @NotNull StorageBackend target, final @NotNull File checkpoint, final int chunkSize, final int threads) {
+        this.logger = logger;
+        this.source = source;
+        this.target = target instanceof JournaledStorageBackend ? ((JournaledStorageBackend) target).getBackend() : target;
+        this.checkpoint = checkpoint;
+        this.chunkSize = Math.max(chunkSize, 1);
+        this.threads = Math.max(threads, 1);
+    }
+
+    /**
+     * Migrates a data set between two storage types, using the settings of the storage configuration for both.
+     * <p>
+     * The checkpoint is kept in the plugin data folder. Both backends are opened without the write journal, so that a
+     * write which fails aborts the migration, and the journal of the backend the plugin is using is left alone.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The storage configuration.
+     * @param name          The name of the data set.
+     * @param from          The storage type to copy from.
+     * @param to            The storage type to copy to.
+     * @param chunkSize     The number of records written per batch.
+     *
+     * @return The result of the migration.
+     *
+     * @throws IOException Thrown when a backend cannot be opened, read or written.
+     * @since 1.11.0
+     */
+    public static @NotNull Result migrate(final @NotNull Plugin plugin, final @NotNull StorageConfiguration configuration, final @NotNull String name, final @NotNull StorageType from, final @NotNull StorageType to, final int chunkSize) throws IOException {
+        if (from == to) {
+            throw new IOException(String.format("Cannot migrate %s onto itself.", from));
+        }
+        try (final @NotNull StorageBackend source = StorageBackend.open(plugin, configuration, name, from, null, false);
+             final @NotNull StorageBackend target = StorageBackend.open(plugin, configuration, name, to, null, false)) {
+            final @NotNull File checkpoint = new File(plugin.getDataFolder(), String.format("migration-%s-%s-%s.checkpoint", name, from, to).toLowerCase(Locale.ROOT));
+            return new StorageMigration(plugin.getLogger(), source, target, checkpoint, chunkSize, configuration.threads.value()).run();
+        }
+    }
+
+    /**
+     * Runs the migration, resuming from the checkpoint if there is one, and verifies the result.
+     *
+     * @return The result of the migration.
+     *
+     * @throws IOException Thrown when a backend cannot be read or written. Progress up to the failure is kept in the
+     *                     checkpoint.
+     * @since 1.11.0
+     */
+    public @NotNull Result run() throws IOException {
+        final long start = System.nanoTime();
+        final @NotNull Properties progress = this.readCheckpoint();
+        final @Nullable String resumeAfter = progress.getProperty(CHECKPOINT_KEY);
+        final long resumedCount = Long.parseLong(progress.getProperty(CHECKPOINT_COUNT, "0"));
+        if (resumeAfter != null) {
+            this.logger.log(Level.INFO, String.format("[Storage] Resuming migration after %d records.", resumedCount));
+        }
+
+        final @NotNull ChunkTracker tracker = new ChunkTracker(resumeAfter, resumedCount);
+        final @NotNull AtomicInteger workerCount = new AtomicInteger();
+        final @NotNull ExecutorService workers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            final @NotNull Thread thread = new Thread(runnable, "StorageMigration-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounds the chunks held in memory, so that a fast source cannot outrun the workers.
+        final @NotNull Semaphore inFlight = new Semaphore(this.threads * 2);
+        final @NotNull AtomicReference<IOException> failure = new AtomicReference<>();
+        final @NotNull AtomicReference<Map<String, byte[]>> chunk = new AtomicReference<>(new HashMap<>());
+        final @NotNull AtomicReference<String> lastKey = new AtomicReference<>();
+        final long[] sequence = {0};
+        try {
+            this.source.scanAfter(resumeAfter, (key, value) -> {
+                if (failure.get() != null) {
+                    throw new MigrationAbortedException();
+                }
+                chunk.get().put(key, value);
+                lastKey.set(key);
+                if (chunk.get().size() >= this.chunkSize) {
+                    this.submit(workers, inFlight, tracker, failure, sequence[0]++, chunk.getAndSet(new HashMap<>()), key);
+                }
+            });
+            if (!chunk.get().isEmpty() && failure.get() == null) {
+                this.submit(workers, inFlight, tracker, failure, sequence[0]++, chunk.get(), lastKey.get());
+            }
+        } catch (MigrationAbortedException ignored) {
+            // A worker failed; the failure is thrown below.
+        } catch (InterruptedMigrationException ex) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, new IOException("Interrupted while migrating.", ex.getCause()));
+        } finally {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                    failure.compareAndSet(null, new IOException("Timed out waiting for migration workers."));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                workers.shutdownNow();
+                failure.compareAndSet(null, new IOException("Interrupted while migrating.", ex));
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+
+        final long migrated = tracker.getCount();
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        this.logger.log(Level.INFO, String.format("[Storage] Copied %d records in %d ms; verifying.", migrated, elapsed));
+        final @NotNull Result result = this.verify(migrated, elapsed);
+        if (result.isVerified()) {
+            Files.deleteIfExists(this.checkpoint.toPath());
+            this.logger.log(Level.INFO, String.format("[Storage] Migration verified: %d records, checksum %016x.", result.getTargetCount(), result.getTargetChecksum()));
+        } else {
+            this.logger.log(Level.WARNING, String.format("[Storage] Migration verification failed: source has %d records (checksum %016x), target has %d (checksum %016x).",
+                    result.getSourceCount(), result.getSourceChecksum(), result.getTargetCount(), result.getTargetChecksum()));
+        }
+        return result;
+    }
+
+    /**
+     * Scans both backends in parallel and compares their record counts and checksums.
+     *
+     * @param migrated The number of records copied.
+     * @param elapsed  The time spent copying, in milliseconds.
+     *
+     * @return The result of the comparison.
+     *
+     * @throws IOException Thrown when a backend cannot be read.
+     * @since 1.11.0
+     */
+    protected @NotNull Result verify(final long migrated, final long elapsed) throws IOException {
+        final @NotNull CompletableFuture<long[]> sourceDigest = CompletableFuture.supplyAsync(() -> digest(this.source));
+        final long[] targetDigest = digest(this.target);
+        final long[] sourceResult;
+        try {
+            sourceResult = sourceDigest.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof UncheckedIOException ? ((UncheckedIOException) ex.getCause()).getCause() : new IOException(ex.getCause());
+        }
+        return new Result(migrated, elapsed, sourceResult[0], sourceResult[1], targetDigest[0], targetDigest[1]);
+    }
+
+    // Hands a chunk to a worker, waiting while too many chunks are in flight.
+    private void submit(final @NotNull ExecutorService workers, final @NotNull Semaphore inFlight, final @NotNull ChunkTracker tracker, final @NotNull AtomicReference<IOException> failure,
+                        final long sequence, final @NotNull Map<String, byte[]> chunk, final @NotNull String lastKey) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ex) {
+            throw new InterruptedMigrationException(ex);
+        }
+        workers.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    this.target.putAll(chunk);
+                    final @Nullable Properties checkpoint = tracker.complete(sequence, lastKey, chunk.size());
+                    if (checkpoint != null) {
+                        this.writeCheckpoint(checkpoint);
+                        if (sequence % PROGRESS_INTERVAL == 0) {
+                            this.logger.log(Level.INFO, String.format("[Storage] Migrated %s records.", checkpoint.getProperty(CHECKPOINT_COUNT)));
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                failure.compareAndSet(null, ex);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    // Reads the checkpoint, if there is one.
+    private @NotNull Properties readCheckpoint() throws IOException {
+        final @NotNull Properties properties = new Properties();
+        if (this.checkpoint.isFile()) {
+            try (final @NotNull Reader reader = Files.newBufferedReader(this.checkpoint.toPath(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    // Replaces the checkpoint atomically.
+    private synchronized void writeCheckpoint(final @NotNull Properties properties) throws IOException {
+        final @Nullable File parent = this.checkpoint.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        final @NotNull File temporary = new File(this.checkpoint.getPath() + ".tmp");
+        try (final @NotNull Writer writer = Files.newBufferedWriter(temporary.toPath(), StandardCharsets.UTF_8)) {
+            properties.store(writer, "Storage migration checkpoint");
+        }
+        Files.move(temporary.toPath(), this.checkpoint.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Counts the records of a backend and sums their checksums, which does not depend on the scan order.
+    private static long[] digest(final @NotNull StorageBackend backend) {
+        final long[] digest = new long[2];
+        final @NotNull CRC32C crc = new CRC32C();
+        try {
+            backend.scan("", (key, value) -> {
+                crc.reset();
+                crc.update(key.getBytes(StandardCharsets.UTF_8));
+                crc.update(0);
+                crc.update(value);
+                ++digest[0];
+                digest[1] += crc.getValue() * 0x9e3779b97f4a7c15L + value.length;
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return digest;
+    }
+
+    /**
+     * Tracks which chunks have been written, and the key up to which every chunk has been written.
+     *
+     * @since 1.11.0
+     */
+    private static final class ChunkTracker {
+        // Chunks which finished before an earlier chunk, by sequence number.
+        private final @NotNull Map<Long, String> finishedKeys = new HashMap<>();
+        // The record counts of the finished chunks, by sequence number.
+        private final @NotNull Map<Long, Integer> finishedCounts = new HashMap<>();
+        // The sequence number of the next chunk which must finish before the checkpoint moves.
+        private long next;
+        // The key up to which every chunk has been written.
+        private @Nullable String lastKey;
+        // The number of records up to the last key.
+        private long count;
+
+        private ChunkTracker(final @Nullable String lastKey, final long count) {
+            this.lastKey = lastKey;
+            this.count = count;
+        }
+
+        // Marks a chunk as written. Returns the new checkpoint if it moved.
+        private synchronized @Nullable Properties complete(final long sequence, final @NotNull String lastKey, final int size) {
+            this.finishedKeys.put(sequence, lastKey);
+            this.finishedCounts.put(sequence, size);
+            boolean moved = false;
+            while (this.finishedKeys.containsKey(this.next)) {
+                this.lastKey = this.finishedKeys.remove(this.next);
+                this.count += this.finishedCounts.remove(this.next);
+                ++this.next;
+                moved = true;
+            }
+            if (!moved) {
+                return null;
+            }
+            final @NotNull Properties properties = new Properties();
+            properties.setProperty(CHECKPOINT_KEY, Objects.requireNonNull(this.lastKey));
+            properties.setProperty(CHECKPOINT_COUNT, Long.toString(this.count));
+            return properties;
+        }
+
+        private synchronized long getCount() {
+            return this.count;
+        }
+    }
+
+    /**
+     * The outcome of a migration.
+     *
+     * @since 1.11.0
+     */
+    public static final class Result {
+        // The number of records copied, including those copied before a resume.
+        private final long migrated;
+        // The time spent copying, in milliseconds.
+        private final long elapsed;
+        // The number of records in the source.
+        private final long sourceCount;
+        // The checksum of the source.
+        private final long sourceChecksum;
+        // The number of records in the target.
+        private final long targetCount;
+        // The checksum of the target.
+        private final long targetChecksum;
+
+        private Result(final long migrated, final long elapsed, final long sourceCount, final long sourceChecksum, final long targetCount, final long targetChecksum) {
+            this.migrated = migrated;
+            this.elapsed = elapsed;
+            this.sourceCount = sourceCount;
+            this.sourceChecksum = sourceChecksum;
+            this.targetCount = targetCount;
+            this.targetChecksum = targetChecksum;
+        }
+
+        /**
+         * Checks whether the target holds exactly the records of the source.
+         *
+         * @return {@code true} if the record counts and checksums match; otherwise, {@code false}.
+         *
+         * @since 1.11.0
+         */
+        public boolean isVerified() {
+            return this.sourceCount == this.targetCount && this.sourceChecksum == this.targetChecksum;
+        }
+
+        /**
+         * Gets the number of records copied, including those copied before a resume.
+         *
+         * @return The number of records.
+         *
+         * @since 1.11.0
+         */
+        public long getMigrated() {
+            return this.migrated;
+        }
+
+        /**
+         * Gets the time spent copying records in this run.
+         *
+         * @return The time, in milliseconds.
+         *
+         * @since 1.11.0
+         */
+        public long getElapsed() {
+            return this.elapsed;
+        }
+
+        /**
+         * Gets the number of records in the source.
+         *
+         * @return The number of records.
+         *
+         * @since 1.11.0
+         */
+        public long getSourceCount() {
+            return this.sourceCount;
+        }
+
+        /**
+         * Gets the checksum of the source records.
+         *
+         * @return The checksum.
+         *
+         * @since 1.11.0
+         */
+        public long getSourceChecksum() {
+            return this.sourceChecksum;
+        }
+
+        /**
+         * Gets the number of records in the target.
+         *
+         * @return The number of records.
+         *
+         * @since 1.11.0
+         */
+        public long getTargetCount() {
+            return this.targetCount;
+        }
+
+        /**
+         * Gets the checksum of the target records.
+         *
+         * @return The checksum.
+         *
+         * @since 1.11.0
+         */
+        public long getTargetChecksum() {
+            return this.targetChecksum;
+        }
+    }
+
+    /**
+     * Stops the source scan after a worker has failed.
+     *
+     * @since 1.11.0
+     */
+    private static final class MigrationAbortedException extends RuntimeException {
+        private MigrationAbortedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Stops the source scan when the migrating thread is interrupted.
+     *
+     * @since 1.11.0
+     */
+    private static final class InterruptedMigrationException extends RuntimeException {
+        private InterruptedMigrationException(final @NotNull InterruptedException cause) {
+            super(cause);
+        }
+    }
+}
@@ -11,6 +11,8 @@ public enum StorageType {
     /**
      * Flat-file storage, such as YAML or text files.
      * Generally uses YAML configuration file structure.
+     * <p>
+     * Key/value data can be kept in a {@link FlatFileStore}.
      *
      * @since 1.6.0
      */
@@ -20,5 +22,13 @@ public enum StorageType {
      *
      * @since 1.6.0
      */
-    MYSQL
+    MYSQL,
+    /**
+     * Storage which is handled via an embedded SQLite database file in the plugin data folder.
+     * <p>
+     * Suited to single-server setups which do not want to run a database server.
+     *
+     * @since 1.11.0
+     */
+    SQLITE
 }
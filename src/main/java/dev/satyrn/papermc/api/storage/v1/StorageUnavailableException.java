@@ -0,0 +1,78 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+
+/**
+ * Thrown when a storage operation fails because the data source cannot be reached, rather than because it rejected
+ * the operation.
+ * <p>
+ * Such failures are expected to go away once the data source recovers, so callers may hold the operation and retry it
+ * later. Any other failure should be reported to the caller instead.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class StorageUnavailableException extends IOException {
+    // The SQL state class of connection exceptions.
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    /**
+     * Creates a new storage unavailable exception.
+     *
+     * @param message The detail message.
+     *
+     * @since 1.11.0
+     */
+    public StorageUnavailableException(final @NotNull String message) {
+        super(message);
+    }
+
+    /**
+     * Creates a new storage unavailable exception.
+     *
+     * @param message The detail message.
+     * @param cause   The cause.
+     *
+     * @since 1.11.0
+     */
+    public StorageUnavailableException(final @NotNull String message, final @Nullable Throwable cause) {
+        super(message, cause);
+    }
+
+    /**
+     * Checks whether a failure, or any of its causes, means that the data source could not be reached.
+     * <p>
+     * Connection failures are a {@link StorageUnavailableException}, a {@link SQLTransientConnectionException}, a
+     * {@link SQLNonTransientConnectionException}, or any other {@link SQLException} in the {@code 08} SQL state class.
+     *
+     * @param failure The failure.
+     *
+     * @return {@code true} if the failure is a connection failure; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public static boolean isConnectionFailure(final @Nullable Throwable failure) {
+        for (@Nullable Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StorageUnavailableException || cause instanceof SQLTransientConnectionException || cause instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                final @Nullable String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith(CONNECTION_EXCEPTION_CLASS)) {
+                    return true;
+                }
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+}
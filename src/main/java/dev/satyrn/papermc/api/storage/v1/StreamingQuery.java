@@ -0,0 +1,333 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A query whose rows are read from the database as they are consumed, rather than loaded into memory at once.
+ * <p>
+ * By default the driver is asked to fetch {@value #DEFAULT_FETCH_SIZE} rows per round trip through a cursor. MySQL
+ * only honours this when the {@code useCursorFetch=true} connection flag is set; otherwise use {@link #streaming()},
+ * which makes MySQL send rows one at a time over the open connection.
+ * <p>
+ * Each query holds a connection of its own until its rows are exhausted or the iterator or stream is closed. Always
+ * close streams in a try-with-resources block.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class StreamingQuery {
+    /**
+     * The default number of rows fetched per round trip.
+     *
+     * @since 1.11.0
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    // The fetch size which asks MySQL to stream rows one at a time.
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    // The connection manager.
+    private final transient @NotNull ConnectionManager connectionManager;
+    // The statement.
+    private final transient @NotNull String sql;
+    // Binds the statement parameters.
+    private transient @Nullable StatementBinder binder;
+    // The number of rows fetched per round trip.
+    private transient int fetchSize = DEFAULT_FETCH_SIZE;
+    // Whether the query may run on a read replica.
+    private transient boolean readOnly;
+
+    /**
+     * Creates a new streaming query.
+     *
+     * @param connectionManager The connection manager for the database.
+     * @param sql               The statement.
+     *
+     * @since 1.11.0
+     */
+    public StreamingQuery(final @NotNull ConnectionManager connectionManager, final @NotNull String sql) {
+        this.connectionManager = connectionManager;
+        this.sql = sql;
+    }
+
+    /**
+     * Sets the binder for the statement parameters.
+     *
+     * @param binder The binder.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "_ -> this", mutates = "this")
+    public @NotNull StreamingQuery bind(final @NotNull StatementBinder binder) {
+        this.binder = binder;
+        return this;
+    }
+
+    /**
+     * Sets the number of rows fetched per round trip through a cursor.
+     *
+     * @param fetchSize The number of rows.
+     *
+     * @return Self.
+     *
+     * @throws IllegalArgumentException Thrown when the fetch size is not positive.
+     * @since 1.11.0
+     */
+    @Contract(value = "_ -> this", mutates = "this")
+    public @NotNull StreamingQuery fetchSize(final int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("The fetch size must be positive.");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Asks the driver to stream rows one at a time, as supported by MySQL.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "-> this", mutates = "this")
+    public @NotNull StreamingQuery streaming() {
+        this.fetchSize = STREAMING_FETCH_SIZE;
+        return this;
+    }
+
+    /**
+     * Allows the query to run on a read replica, through {@link ConnectionManager#connectReadOnly()}.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "-> this", mutates = "this")
+    public @NotNull StreamingQuery readOnly() {
+        this.readOnly = true;
+        return this;
+    }
+
+    /**
+     * Runs the query and returns an iterator over its rows.
+     *
+     * @param mapper Maps each row.
+     * @param <T>    The row type.
+     *
+     * @return The row iterator. Closed automatically once exhausted.
+     *
+     * @throws IOException Thrown when no connection could be opened, or the query fails.
+     * @since 1.11.0
+     */
+    public <T> @NotNull RowIterator<T> iterator(final @NotNull RowMapper<T> mapper) throws IOException {
+        final @Nullable Connection connection = this.readOnly ? this.connectionManager.connectReadOnly() : this.connectionManager.connect();
+        if (connection == null) {
+            throw new StorageUnavailableException("Unable to connect to the data source.");
+        }
+        @Nullable PreparedStatement statement = null;
+        try {
+            // Cursors only stay open inside a transaction on most drivers.
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(this.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(this.fetchSize);
+            if (this.binder != null) {
+                this.binder.bind(statement);
+            }
+            return new RowIterator<>(connection, statement, statement.executeQuery(), mapper);
+        } catch (SQLException ex) {
+            closeQuietly(null, statement, connection);
+            throw new IOException(String.format("Streaming query failed: %s", ex.getMessage()), ex);
+        }
+    }
+
+    /**
+     * Runs the query and returns a lazy stream of its rows.
+     * <p>
+     * Closing the stream releases the connection. Failures while reading rows are thrown as
+     * {@link UncheckedIOException}.
+     *
+     * @param mapper Maps each row.
+     * @param <T>    The row type.
+     *
+     * @return The row stream.
+     *
+     * @throws IOException Thrown when no connection could be opened, or the query fails.
+     * @since 1.11.0
+     */
+    public <T> @NotNull Stream<T> stream(final @NotNull RowMapper<T> mapper) throws IOException {
+        final @NotNull RowIterator<T> iterator = this.iterator(mapper);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * Runs the query and passes each row to a consumer, releasing the connection afterwards.
+     *
+     * @param mapper   Maps each row.
+     * @param consumer Receives each row.
+     * @param <T>      The row type.
+     *
+     * @return The number of rows.
+     *
+     * @throws IOException Thrown when no connection could be opened, or the query fails.
+     * @since 1.11.0
+     */
+    public <T> long forEach(final @NotNull RowMapper<T> mapper, final @NotNull Consumer<? super T> consumer) throws IOException {
+        long rows = 0;
+        try (final @NotNull RowIterator<T> iterator = this.iterator(mapper)) {
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                ++rows;
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return rows;
+    }
+
+    // Closes query resources, ignoring failures.
+    private static void closeQuietly(final @Nullable ResultSet resultSet, final @Nullable PreparedStatement statement, final @NotNull Connection connection) {
+        try {
+            if (resultSet != null) {
+                resultSet.close();
+            }
+        } catch (SQLException ignored) {
+            // Closing anyway.
+        }
+        try {
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException ignored) {
+            // Closing anyway.
+        }
+        try {
+            // Nothing was written; end the read transaction before the connection is returned.
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // Closing anyway.
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+            // Already closed.
+        }
+    }
+
+    /**
+     * An iterator over the rows of a streaming query.
+     *
+     * @param <T> The row type.
+     *
+     * @since 1.11.0
+     */
+    public static final class RowIterator<T> implements Iterator<T>, AutoCloseable {
+        // The connection which holds the cursor.
+        private final @NotNull Connection connection;
+        // The statement.
+        private final @NotNull PreparedStatement statement;
+        // The result set.
+        private final @NotNull ResultSet resultSet;
+        // Maps each row.
+        private final @NotNull RowMapper<T> mapper;
+        // The object returned for the previous row, passed back to the mapper.
+        private @Nullable T previous;
+        // Whether the result set is positioned on a row which has not been returned yet.
+        private boolean ready;
+        // Whether the iterator has been closed.
+        private boolean closed;
+
+        private RowIterator(final @NotNull Connection connection, final @NotNull PreparedStatement statement, final @NotNull ResultSet resultSet, final @NotNull RowMapper<T> mapper) {
+            this.connection = connection;
+            this.statement = statement;
+            this.resultSet = resultSet;
+            this.mapper = mapper;
+        }
+
+        /**
+         * Checks whether there is another row, closing the iterator once the rows are exhausted.
+         *
+         * @return {@code true} if there is another row; otherwise, {@code false}.
+         *
+         * @throws UncheckedIOException Thrown when the next row cannot be read.
+         * @since 1.11.0
+         */
+        @Override
+        public boolean hasNext() {
+            if (this.ready) {
+                return true;
+            }
+            if (this.closed) {
+                return false;
+            }
+            try {
+                this.ready = this.resultSet.next();
+            } catch (SQLException ex) {
+                this.close();
+                throw new UncheckedIOException(new IOException(String.format("Streaming query failed: %s", ex.getMessage()), ex));
+            }
+            if (!this.ready) {
+                this.close();
+            }
+            return this.ready;
+        }
+
+        /**
+         * Maps and returns the next row.
+         *
+         * @return The mapped row. May be the same object as the previous row if the mapper reuses objects.
+         *
+         * @throws NoSuchElementException Thrown when there are no more rows.
+         * @throws UncheckedIOException   Thrown when the row cannot be read.
+         * @since 1.11.0
+         */
+        @Override
+        public @NotNull T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            this.ready = false;
+            try {
+                this.previous = this.mapper.map(this.resultSet, this.previous);
+                return this.previous;
+            } catch (SQLException ex) {
+                this.close();
+                throw new UncheckedIOException(new IOException(String.format("Streaming query failed: %s", ex.getMessage()), ex));
+            }
+        }
+
+        /**
+         * Releases the result set, statement and connection. Safe to call more than once.
+         *
+         * @since 1.11.0
+         */
+        @Override
+        public void close() {
+            if (!this.closed) {
+                this.closed = true;
+                this.ready = false;
+                this.previous = null;
+                closeQuietly(this.resultSet, this.statement, this.connection);
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects statements and runs them as a single transaction.
+ * <p>
+ * Consecutive statements with the same SQL are sent as one JDBC batch, so a multi-row update costs one round trip per
+ * distinct statement and a single commit, rather than one autocommitted round trip per row. A transaction which is
+ * rolled back by a deadlock or a lock wait timeout is retried from the start after a random delay, which grows with
+ * each attempt. Any other failure rolls the transaction back and is thrown.
+ * <p>
+ * Every attempt borrows its own connection, restores its autocommit mode and closes it again before returning, even
+ * when the work fails.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class UnitOfWork {
+    /**
+     * The default maximum number of attempts at a transaction.
+     *
+     * @since 1.11.0
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    // The MySQL error code of a deadlock.
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    // The MySQL error code of a lock wait timeout.
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    // The upper bound of the delay before the first retry, in milliseconds.
+    private static final long BASE_RETRY_DELAY = 20L;
+    // The upper bound of the delay before any retry, in milliseconds.
+    private static final long MAX_RETRY_DELAY = 1000L;
+
+    // The connection manager.
+    private final transient @NotNull ConnectionManager connectionManager;
+    // The operations, in order.
+    private final transient @NotNull List<Operation> operations = new ArrayList<>();
+    // The maximum number of attempts.
+    private transient int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    // Records the transaction timings, if set.
+    private transient @Nullable StorageMetrics metrics;
+    // The label the timings are recorded under.
+    private transient @NotNull String label = "transaction";
+
+    /**
+     * Creates a new, empty unit of work.
+     *
+     * @param connectionManager The connection manager for the database.
+     *
+     * @since 1.11.0
+     */
+    public UnitOfWork(final @NotNull ConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    /**
+     * Checks whether a failure rolled back the whole transaction because of lock contention, so that running the
+     * transaction again may succeed.
+     *
+     * @param ex The failure.
+     *
+     * @return {@code true} if the failure was a deadlock, a lock wait timeout or a serialization failure; otherwise,
+     *         {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public static boolean isRetryable(final @NotNull SQLException ex) {
+        for (@Nullable SQLException current = ex; current != null; current = current.getNextException()) {
+            if (current instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            final @Nullable String state = current.getSQLState();
+            if (state != null && state.startsWith("40")) {
+                return true;
+            }
+            if (current.getErrorCode() == ER_LOCK_DEADLOCK || current.getErrorCode() == ER_LOCK_WAIT_TIMEOUT) {
+                return true;
+            }
+            if (current.getCause() instanceof SQLException && current.getCause() != current && isRetryable((SQLException) current.getCause())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds a statement. Consecutive statements with the same SQL are sent as one batch.
+     *
+     * @param sql    The statement.
+     * @param binder Binds the statement parameters.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "_, _ -> this", mutates = "this")
+    public @NotNull UnitOfWork add(final @NotNull String sql, final @NotNull StatementBinder binder) {
+        final @Nullable Operation last = this.operations.isEmpty() ? null : this.operations.get(this.operations.size() - 1);
+        if (last instanceof Batch && ((Batch) last).sql.equals(sql)) {
+            ((Batch) last).binders.add(binder);
+        } else {
+            final @NotNull Batch batch = new Batch(sql);
+            batch.binders.add(binder);
+            this.operations.add(batch);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a statement once per item, sent as one batch.
+     *
+     * @param sql    The statement.
+     * @param items  The items.
+     * @param binder Binds an item to the statement parameters.
+     * @param <T>    The item type.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "_, _, _ -> this", mutates = "this")
+    public <T> @NotNull UnitOfWork addAll(final @NotNull String sql, final @NotNull Collection<T> items, final @NotNull RowBinder<T> binder) {
+        for (final T item : items) {
+            this.add(sql, statement -> binder.bind(statement, item));
+        }
+        return this;
+    }
+
+    /**
+     * Adds work which uses the connection directly, such as a query whose result decides the next statement.
+     * <p>
+     * The work runs again on every attempt, so it must not have side effects outside the transaction.
+     *
+     * @param work The work.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "_ -> this", mutates = "this")
+    public @NotNull UnitOfWork run(final @NotNull Work work) {
+        this.operations.add(connection -> {
+            work.run(connection);
+            return 0L;
+        });
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of attempts at the transaction.
+     *
+     * @param maxAttempts The maximum number of attempts. {@code 1} disables retries.
+     *
+     * @return Self.
+     *
+     * @throws IllegalArgumentException Thrown when the number of attempts is not positive.
+     * @since 1.11.0
+     */
+    @Contract(value = "_ -> this", mutates = "this")
+    public @NotNull UnitOfWork maxAttempts(final int maxAttempts) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("The maximum number of attempts must be positive.");
+        }
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Records the time taken by each attempt, and failed transactions, into storage metrics.
+     *
+     * @param metrics The metrics.
+     * @param label   The label the timings are recorded under.
+     *
+     * @return Self.
+     *
+     * @since 1.11.0
+     */
+    @Contract(value = "_, _ -> this", mutates = "this")
+    public @NotNull UnitOfWork metrics(final @Nullable StorageMetrics metrics, final @NotNull String label) {
+        this.metrics = metrics;
+        this.label = label;
+        return this;
+    }
+
+    /**
+     * Checks whether any operations have been added.
+     *
+     * @return {@code true} if there is nothing to run; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public boolean isEmpty() {
+        return this.operations.isEmpty();
+    }
+
+    /**
+     * Runs every operation in a single transaction and commits it, retrying the whole transaction on deadlock.
+     * <p>
+     * The operations are kept, so committing again runs them again.
+     *
+     * @return The number of rows changed by the statements, as reported by the driver.
+     *
+     * @throws IOException Thrown when no connection could be opened, a statement fails, or the transaction still
+     *                     deadlocks after the last attempt. The transaction is rolled back.
+     * @since 1.11.0
+     */
+    public long commit() throws IOException {
+        if (this.operations.isEmpty()) {
+            return 0L;
+        }
+        for (int attempt = 1; ; ++attempt) {
+            final long start = System.nanoTime();
+            try {
+                final long rows = this.attempt();
+                if (this.metrics != null) {
+                    this.metrics.recordQuery(this.label, System.nanoTime() - start);
+                }
+                return rows;
+            } catch (SQLException ex) {
+                if (this.metrics != null) {
+                    this.metrics.recordError(this.label);
+                }
+                if (attempt >= this.maxAttempts || !isRetryable(ex)) {
+                    throw new IOException(String.format("Transaction failed after %d attempt(s): %s", attempt, ex.getMessage()), ex);
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Opens the connection for an attempt at the transaction.
+     *
+     * @return The connection.
+     *
+     * @throws IOException  Thrown when no connection could be opened.
+     * @throws SQLException Thrown when the connection cannot be prepared.
+     * @since 1.11.0
+     */
+    protected @NotNull Connection connect() throws IOException, SQLException {
+        final @Nullable Connection connection = this.connectionManager.connect();
+        if (connection == null) {
+            throw new StorageUnavailableException("Unable to connect to the data source.");
+        }
+        return connection;
+    }
+
+    // Runs the operations once, in a transaction on a connection of its own.
+    private long attempt() throws IOException, SQLException {
+        try (final @NotNull Connection connection = this.connect()) {
+            final boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                long rows = 0L;
+                for (final @NotNull Operation operation : this.operations) {
+                    rows += operation.execute(connection);
+                }
+                connection.commit();
+                return rows;
+            } catch (SQLException | RuntimeException ex) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackEx) {
+                    ex.addSuppressed(rollbackEx);
+                }
+                throw ex;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // Waits a random time before a retry, with a bound which doubles every attempt.
+    private static void backOff(final int attempt) throws IOException {
+        final long bound = Math.min(BASE_RETRY_DELAY << Math.min(attempt - 1, 16), MAX_RETRY_DELAY);
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry a transaction.", ex);
+        }
+    }
+
+    /**
+     * Binds an item to the parameters of a statement.
+     *
+     * @param <T> The item type.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    public interface RowBinder<T> {
+        /**
+         * Binds the parameters.
+         *
+         * @param statement The statement.
+         * @param item      The item.
+         *
+         * @throws SQLException Thrown when a parameter cannot be bound.
+         * @since 1.11.0
+         */
+        void bind(final @NotNull PreparedStatement statement, final T item) throws SQLException;
+    }
+
+    /**
+     * Work which uses the connection of a transaction directly.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    public interface Work {
+        /**
+         * Runs the work.
+         *
+         * @param connection The connection. Must not be committed, rolled back or closed by the work.
+         *
+         * @throws SQLException Thrown when the work fails.
+         * @since 1.11.0
+         */
+        void run(final @NotNull Connection connection) throws SQLException;
+    }
+
+    /**
+     * A step of the transaction.
+     *
+     * @since 1.11.0
+     */
+    @FunctionalInterface
+    private interface Operation {
+        long execute(final @NotNull Connection connection) throws SQLException;
+    }
+
+    /**
+     * Consecutive executions of the same statement, sent as one batch.
+     *
+     * @since 1.11.0
+     */
+    private static final class Batch implements Operation {
+        // The statement.
+        private final @NotNull String sql;
+        // Binds the parameters of each execution.
+        private final @NotNull List<StatementBinder> binders = new ArrayList<>();
+
+        private Batch(final @NotNull String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public long execute(final @NotNull Connection connection) throws SQLException {
+            try (final @NotNull PreparedStatement statement = connection.prepareStatement(this.sql)) {
+                if (this.binders.size() == 1) {
+                    this.binders.get(0).bind(statement);
+                    return Math.max(statement.executeUpdate(), 0);
+                }
+                for (final @NotNull StatementBinder binder : this.binders) {
+                    binder.bind(statement);
+                    statement.addBatch();
+                }
+                long rows = 0L;
+                for (final int count : statement.executeBatch()) {
+                    rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                }
+                return rows;
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only local file of writes which could not be sent to a data source yet.
+ * <p>
+ * Each record holds one write and a checksum, so a record torn by a crash is detected and discarded. Replay works on a
+ * frozen copy of the journal: {@link #beginReplay()} moves the current records aside, new writes start a fresh
+ * journal, and {@link #completeReplay()} deletes the frozen copy once the data source has acknowledged it.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+@SuppressWarnings("unused")
+public class WriteJournal implements Closeable {
+    // The size of the record header: checksum, key length and value length.
+    private static final int HEADER_SIZE = 12;
+    // The value length which marks a delete.
+    private static final int TOMBSTONE = -1;
+
+    // The journal which receives new writes.
+    private final transient @NotNull File file;
+    // The frozen journal which is being replayed.
+    private final transient @NotNull File replayFile;
+    // The open journal channel, if any.
+    private transient @Nullable FileChannel channel;
+
+    /**
+     * Creates a new write journal. The file is created on the first append.
+     *
+     * @param file The journal file.
+     *
+     * @since 1.11.0
+     */
+    public WriteJournal(final @NotNull File file) {
+        this.file = file;
+        this.replayFile = new File(file.getPath() + ".replay");
+    }
+
+    /**
+     * Gets the journal file.
+     *
+     * @return The journal file.
+     *
+     * @since 1.11.0
+     */
+    public @NotNull File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Appends writes to the journal, and flushes them to disk before returning.
+     *
+     * @param writes The writes by key. A {@code null} value records a delete.
+     *
+     * @throws IOException Thrown when the writes cannot be appended.
+     * @since 1.11.0
+     */
+    public synchronized void append(final @NotNull Map<String, byte[]> writes) throws IOException {
+        if (writes.isEmpty()) {
+            return;
+        }
+        if (this.channel == null) {
+            final @Nullable File parent = this.file.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                Files.createDirectories(parent.toPath());
+            }
+            this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        for (final @NotNull Map.Entry<String, byte[]> entry : writes.entrySet()) {
+            final @NotNull ByteBuffer record = encode(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue());
+            while (record.hasRemaining()) {
+                this.channel.write(record);
+            }
+        }
+        this.channel.force(false);
+    }
+
+    /**
+     * Reads every journaled write, including any frozen for replay, in the order they were made.
+     *
+     * @return The latest write per key. A {@code null} value is a delete.
+     *
+     * @throws IOException Thrown when the journal cannot be read.
+     * @since 1.11.0
+     */
+    public synchronized @NotNull Map<String, byte[]> read() throws IOException {
+        final @NotNull Map<String, byte[]> writes = new LinkedHashMap<>();
+        read(this.replayFile, writes);
+        read(this.file, writes);
+        return writes;
+    }
+
+    /**
+     * Freezes every journaled write for replay. New writes start a fresh journal.
+     * <p>
+     * If an earlier replay was not completed, the writes made since then are added to its frozen writes, so that
+     * they are all replayed together.
+     *
+     * @return The latest frozen write per key, in the order they were made. A {@code null} value is a delete.
+     *
+     * @throws IOException Thrown when the journal cannot be frozen or read.
+     * @since 1.11.0
+     */
+    public synchronized @NotNull Map<String, byte[]> beginReplay() throws IOException {
+        final @NotNull Map<String, byte[]> writes = new LinkedHashMap<>();
+        if (this.file.exists()) {
+            this.closeChannel();
+            if (this.replayFile.exists()) {
+                // Cut off any torn tail of the frozen journal before appending to it.
+                read(this.replayFile, writes);
+                writes.clear();
+                read(this.file, writes);
+                writes.clear();
+                try (final @NotNull FileChannel source = FileChannel.open(this.file.toPath(), StandardOpenOption.READ);
+                     final @NotNull FileChannel target = FileChannel.open(this.replayFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    long position = 0;
+                    final long size = source.size();
+                    while (position < size) {
+                        position += source.transferTo(position, size - position, target);
+                    }
+                    target.force(false);
+                }
+                Files.delete(this.file.toPath());
+            } else {
+                Files.move(this.file.toPath(), this.replayFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        read(this.replayFile, writes);
+        return writes;
+    }
+
+    /**
+     * Discards the frozen writes after the data source has acknowledged them.
+     *
+     * @throws IOException Thrown when the frozen journal cannot be deleted.
+     * @since 1.11.0
+     */
+    public synchronized void completeReplay() throws IOException {
+        Files.deleteIfExists(this.replayFile.toPath());
+    }
+
+    /**
+     * Checks whether the journal holds any writes.
+     *
+     * @return {@code true} if there is nothing to replay; otherwise, {@code false}.
+     *
+     * @since 1.11.0
+     */
+    public synchronized boolean isEmpty() {
+        return this.replayFile.length() == 0 && this.file.length() == 0;
+    }
+
+    /**
+     * Closes the journal file. Journaled writes stay on disk and are read again by the next journal on the same file.
+     *
+     * @throws IOException Thrown when the file cannot be closed.
+     * @since 1.11.0
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.closeChannel();
+    }
+
+    // Closes the open journal channel.
+    private void closeChannel() throws IOException {
+        if (this.channel != null) {
+            this.channel.close();
+            this.channel = null;
+        }
+    }
+
+    // Reads the valid records of a journal file. A torn or corrupt tail is cut off, so later appends follow valid data.
+    private static void read(final @NotNull File file, final @NotNull Map<String, byte[]> writes) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        long valid = 0;
+        try (final @NotNull DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                final int checksum = input.readInt();
+                final int keyLength = input.readInt();
+                final int valueLength = input.readInt();
+                if (keyLength < 0 || valueLength < TOMBSTONE) {
+                    break;
+                }
+                final @NotNull byte[] key = input.readNBytes(keyLength);
+                final @Nullable byte[] value = valueLength == TOMBSTONE ? null : input.readNBytes(valueLength);
+                if (key.length != keyLength || (value != null && value.length != valueLength)) {
+                    break;
+                }
+                final @NotNull CRC32C crc = new CRC32C();
+                crc.update(ByteBuffer.allocate(Integer.BYTES * 2).putInt(keyLength).putInt(valueLength).flip());
+                crc.update(key);
+                if (value != null) {
+                    crc.update(value);
+                }
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                final @NotNull String decodedKey = new String(key, StandardCharsets.UTF_8);
+                // Keep the order of the latest write per key.
+                writes.remove(decodedKey);
+                writes.put(decodedKey, value);
+                valid += HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+            }
+        } catch (EOFException ignored) {
+            // Torn tail.
+        }
+        if (valid < file.length()) {
+            try (final @NotNull FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+    }
+
+    // Encodes a record. A null value encodes a delete.
+    private static @NotNull ByteBuffer encode(final @NotNull byte[] key, final @Nullable byte[] value) {
+        final int valueLength = value == null ? TOMBSTONE : value.length;
+        final @NotNull ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + key.length + Math.max(valueLength, 0));
+        buffer.putInt(0).putInt(key.length).putInt(valueLength).put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+        final @NotNull CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), Integer.BYTES, buffer.capacity() - Integer.BYTES);
+        buffer.putInt(0, (int) crc.getValue());
+        return buffer.flip();
+    }
+}
@@ -1,28 +1,48 @@
 package dev.satyrn.papermc.api.storage.v2;
 
+import dev.satyrn.papermc.api.configuration.v1.CircuitBreakerConfiguration;
+import dev.satyrn.papermc.api.configuration.v1.LeakDetectionConfiguration;
+import dev.satyrn.papermc.api.configuration.v1.ReplicaConfiguration;
 import dev.satyrn.papermc.api.configuration.v2.MySQLConfiguration;
+import dev.satyrn.papermc.api.storage.v1.CircuitBreaker;
+import dev.satyrn.papermc.api.storage.v1.ConnectionLeakDetector;
 import dev.satyrn.papermc.api.storage.v1.ConnectionManager;
+import dev.satyrn.papermc.api.storage.v1.ReplicaRouter;
+import dev.satyrn.papermc.api.storage.v1.StorageMetrics;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 
 /**
  * Handles connections to a MySQL-like data source.
+ * <p>
+ * When read replicas are configured, {@link #connectReadOnly()} spreads read-only work across them, while
+ * {@link #connect()} always goes to the primary server.
  *
  * @author Isabel Maskrey
  * @since 1.9.0
  */
-@SuppressWarnings({"unused", "ClassCanBeRecord"})
-public class MySQLConnectionManager implements ConnectionManager {
+@SuppressWarnings("unused")
+public class MySQLConnectionManager implements ConnectionManager, Closeable {
+    private static final int PROBE_TIMEOUT_SECONDS = 5;
+
     private final transient @NotNull Plugin plugin;
     private final transient @NotNull MySQLConfiguration configuration;
+    private final transient @NotNull Map<?, ?> endpoint;
+    private final transient @Nullable StorageMetrics metrics;
+    private final transient @Nullable CircuitBreaker circuitBreaker;
+    private final transient @Nullable ReplicaRouter replicaRouter;
+    private final transient @Nullable ConnectionLeakDetector leakDetector;
 
     /**
      * Creates a new MySQL connection manager
@@ -33,12 +53,117 @@ public class MySQLConnectionManager implements ConnectionManager {
      * @since 1.9.0
      */
     public MySQLConnectionManager(final @NotNull Plugin plugin, final @NotNull MySQLConfiguration configuration) {
+        this(plugin, configuration, null);
+    }
+
+    /**
+     * Creates a new MySQL connection manager which records connection timings.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The connection configuration.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics.
+     *
+     * @since 1.11.0
+     */
+    public MySQLConnectionManager(final @NotNull Plugin plugin, final @NotNull MySQLConfiguration configuration, final @Nullable StorageMetrics metrics) {
+        this(plugin, configuration, Map.of(), metrics);
+    }
+
+    /**
+     * Creates a new MySQL connection manager for one server of a sharded setup.
+     * <p>
+     * The {@code hostname}, {@code port}, {@code database}, {@code userID} and {@code password} entries of the
+     * endpoint override the configuration; everything else, such as the flags, is shared. Read replicas are not used.
+     *
+     * @param plugin        The plugin instance.
+     * @param configuration The connection configuration.
+     * @param endpoint      The endpoint settings.
+     * @param metrics       The metrics collector, or {@code null} to disable metrics.
+     *
+     * @since 1.11.0
+     */
+    public MySQLConnectionManager(final @NotNull Plugin plugin, final @NotNull MySQLConfiguration configuration, final @NotNull Map<?, ?> endpoint, final @Nullable StorageMetrics metrics) {
         this.plugin = plugin;
         this.configuration = configuration;
+        this.endpoint = endpoint;
+        this.metrics = metrics;
+        final @NotNull CircuitBreakerConfiguration breaker = configuration.circuitBreaker;
+        this.circuitBreaker = breaker.enabled.value()
+                ? new CircuitBreaker(plugin.getLogger(), "MySQL database " + this.getHostname(), breaker.failureThreshold.value(),
+                        breaker.initialBackoff.value(), breaker.maxBackoff.value(), this::probe)
+                : null;
+        final @NotNull Map<String, ConnectionManager> replicas = endpoint.isEmpty() ? this.createReplicas(configuration.replicas) : Map.of();
+        this.replicaRouter = replicas.isEmpty()
+                ? null
+                : new ReplicaRouter(plugin.getLogger(), this::connectPrimary, replicas, configuration.replicas.routing.value(), configuration.replicas.healthCheckInterval.value());
+        final @NotNull LeakDetectionConfiguration leakDetection = configuration.leakDetection;
+        this.leakDetector = leakDetection.enabled.value()
+                ? new ConnectionLeakDetector(plugin.getLogger(), "MySQL database " + this.getHostname(), metrics, leakDetection.threshold.value(),
+                        leakDetection.trace.value(), leakDetection.reclaim.value())
+                : null;
+    }
+
+    /**
+     * Gets the metrics collector.
+     *
+     * @return The metrics collector, or {@code null} if metrics are disabled.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable StorageMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Gets the circuit breaker which guards the data source.
+     *
+     * @return The circuit breaker, or {@code null} if it is disabled.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable CircuitBreaker getCircuitBreaker() {
+        return this.circuitBreaker;
+    }
+
+    /**
+     * Checks whether the data source is currently considered reachable.
+     *
+     * @return {@code false} while the circuit breaker is open; otherwise, {@code true}.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public boolean isAvailable() {
+        return this.circuitBreaker == null || this.circuitBreaker.isAvailable();
+    }
+
+    /**
+     * Gets the detector which reports connections that are never closed.
+     *
+     * @return The leak detector, or {@code null} if leak detection is disabled.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable ConnectionLeakDetector getLeakDetector() {
+        return this.leakDetector;
+    }
+
+    /**
+     * Gets the read replica router.
+     *
+     * @return The replica router, or {@code null} if no replicas are configured.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable ReplicaRouter getReplicaRouter() {
+        return this.replicaRouter;
     }
 
     /**
      * Opens a connection to the data source.
+     * <p>
+     * While the circuit breaker is open, returns {@code null} immediately instead of waiting for the driver to time
+     * out.
      *
      * @return The connection to the data source.
      *
@@ -46,11 +171,129 @@ public class MySQLConnectionManager implements ConnectionManager {
      */
     @Override
     public @Nullable Connection connect() {
-        final @NotNull StringBuilder connectionURLBuilder = new StringBuilder("jdbc:mysql://").append(this.configuration.hostname.value())
+        return this.measure(this::connectPrimary);
+    }
+
+    /**
+     * Opens a connection for work which only reads.
+     * <p>
+     * The connection goes to a healthy read replica if any are configured, and to the primary server otherwise.
+     *
+     * @return The connection to the data source.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public @Nullable Connection connectReadOnly() {
+        return this.replicaRouter == null ? this.connect() : this.measure(this.replicaRouter::connectReadOnly);
+    }
+
+    /**
+     * Stops the background replica health checks, the circuit breaker probes and the leak detection sweep.
+     *
+     * @since 1.11.0
+     */
+    @Override
+    public void close() {
+        if (this.circuitBreaker != null) {
+            this.circuitBreaker.close();
+        }
+        if (this.replicaRouter != null) {
+            this.replicaRouter.close();
+        }
+        if (this.leakDetector != null) {
+            this.leakDetector.close();
+        }
+    }
+
+    // Opens a connection to the primary server, unless the circuit breaker is open.
+    private @Nullable Connection connectPrimary() {
+        if (this.circuitBreaker != null && !this.circuitBreaker.allowRequest()) {
+            this.plugin.getLogger()
+                    .log(Level.FINE, "[Storage] Skipping connection attempt while the database is unreachable.");
+            return null;
+        }
+
+        @Nullable Connection connection = null;
+        try {
+            connection = this.open(this.getConnectionURL(), true);
+            if (this.circuitBreaker != null) {
+                this.circuitBreaker.recordSuccess();
+            }
+        } catch (SQLException ex) {
+            this.plugin.getLogger()
+                    .log(Level.SEVERE, String.format("[Storage] Failed to connect to the database: %s", ex.getMessage()), ex);
+            if (this.circuitBreaker != null) {
+                this.circuitBreaker.recordFailure();
+            }
+        }
+
+        return connection;
+    }
+
+    // Records how long it took to obtain a connection, and tracks the connection for leaks.
+    private @Nullable Connection measure(final @NotNull Supplier<Connection> connector) {
+        final long start = System.nanoTime();
+        final @Nullable Connection connection = connector.get();
+        if (this.metrics != null) {
+            this.metrics.recordBorrow(System.nanoTime() - start);
+            if (connection == null) {
+                this.metrics.recordConnectionFailure();
+            }
+        }
+        return this.leakDetector == null ? connection : this.leakDetector.track(connection);
+    }
+
+    /**
+     * Builds the JDBC URL of the primary server.
+     *
+     * @return The connection URL.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String getConnectionURL() {
+        return this.getConnectionURL(this.getHostname(), this.getPort());
+    }
+
+    /**
+     * Gets the hostname of the server.
+     *
+     * @return The hostname.
+     *
+     * @since 1.11.0
+     */
+    public @Nullable String getHostname() {
+        return this.setting("hostname", this.configuration.hostname.value());
+    }
+
+    /**
+     * Gets the port of the server.
+     *
+     * @return The port.
+     *
+     * @since 1.11.0
+     */
+    public int getPort() {
+        final @Nullable Object port = this.endpoint.get("port");
+        return port instanceof Number ? ((Number) port).intValue() : this.configuration.port.value();
+    }
+
+    /**
+     * Builds the JDBC URL of a server, with the configured database and flags.
+     *
+     * @param hostname The server hostname.
+     * @param port     The server port.
+     *
+     * @return The connection URL.
+     *
+     * @since 1.11.0
+     */
+    protected @NotNull String getConnectionURL(final @Nullable String hostname, final int port) {
+        final @NotNull StringBuilder connectionURLBuilder = new StringBuilder("jdbc:mysql://").append(hostname)
                 .append(':')
-                .append(this.configuration.port.value())
+                .append(port)
                 .append('/')
-                .append(this.configuration.database.value());
+                .append(this.setting("database", this.configuration.database.value()));
 
         final @NotNull List<Map<?, ?>> flagsList = this.configuration.flags.value();
         if (!flagsList.isEmpty()) {
@@ -64,19 +307,57 @@ public class MySQLConnectionManager implements ConnectionManager {
                 }
             }
         }
+        return connectionURLBuilder.toString();
+    }
 
-        @Nullable Connection connection = null;
-        try {
-            final @NotNull String connectionURL = connectionURLBuilder.toString();
-            final @Nullable String userID = this.configuration.userID.value();
+    // Opens a connection through the driver.
+    private @NotNull Connection open(final @NotNull String connectionURL, final boolean log) throws SQLException {
+        final @Nullable String userID = this.setting("userID", this.configuration.userID.value());
+        if (log) {
             this.plugin.getLogger()
                     .log(Level.FINE, String.format("[Storage] Attempting connection to MySQL-like database at %s with %s", connectionURL, userID == null ? "anonymous user" : "user " + userID));
-            connection = DriverManager.getConnection(connectionURL, userID, this.configuration.password.value());
+        }
+        return DriverManager.getConnection(connectionURL, userID, this.setting("password", this.configuration.password.value()));
+    }
+
+    // Gets an endpoint setting, or the configured value if the endpoint does not override it.
+    private @Nullable String setting(final @NotNull String key, final @Nullable String configured) {
+        final @Nullable Object value = this.endpoint.get(key);
+        return value == null ? configured : value.toString();
+    }
+
+    // Checks whether the data source accepts connections again. Runs on the circuit breaker thread.
+    private boolean probe() {
+        try (final @NotNull Connection connection = this.open(this.getConnectionURL(), false)) {
+            return connection.isValid(PROBE_TIMEOUT_SECONDS);
         } catch (SQLException ex) {
-            this.plugin.getLogger()
-                    .log(Level.SEVERE, String.format("[Storage] Failed to connect to the database: %s", ex.getMessage()), ex);
+            return false;
         }
+    }
 
-        return connection;
+    // Creates a connection manager per configured replica endpoint.
+    private @NotNull Map<String, ConnectionManager> createReplicas(final @NotNull ReplicaConfiguration replicas) {
+        final @NotNull Map<String, ConnectionManager> managers = new LinkedHashMap<>();
+        for (final @NotNull Map<?, ?> endpoint : replicas.endpoints.value()) {
+            final @Nullable Object hostname = endpoint.get("hostname");
+            final @Nullable Object port = endpoint.get("port");
+            if (hostname == null || (port != null && !(port instanceof Number))) {
+                this.plugin.getLogger()
+                        .log(Level.WARNING, String.format("[Storage] Ignoring read replica entry %s: expected a hostname and a numeric port.", endpoint));
+                continue;
+            }
+            final int replicaPort = port == null ? this.getPort() : ((Number) port).intValue();
+            final @NotNull String connectionURL = this.getConnectionURL(hostname.toString(), replicaPort);
+            managers.put(hostname + ":" + replicaPort, () -> {
+                try {
+                    return this.open(connectionURL, true);
+                } catch (SQLException ex) {
+                    this.plugin.getLogger()
+                            .log(Level.FINE, String.format("[Storage] Failed to connect to read replica %s:%d: %s", hostname, replicaPort, ex.getMessage()));
+                    return null;
+                }
+            });
+        }
+        return managers;
     }
 }
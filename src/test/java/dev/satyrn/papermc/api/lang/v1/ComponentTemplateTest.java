@@ -0,0 +1,86 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that compiled component templates render like the formatted translation parsed on every call.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class ComponentTemplateTest {
+    private static final LegacyComponentSerializer SERIALIZER = LegacyComponentSerializer.legacySection();
+
+    private static final List<String> PATTERNS = List.of(
+            "Hello, {0}!",
+            "\u00a7aHello, \u00a7b{1}\u00a7a!",
+            "\u00a76{1} \u00a7lgave\u00a7r {0,number,integer} coins to \u00a7c{2}",
+            "\u00a7e{2}\u00a7k{1}\u00a7r{0}",
+            "{1}\u00a7a{1}\u00a7b{1}",
+            "\u00a7aNo arguments",
+            "");
+
+    private static final Object[] ARGUMENTS = {1234, "Steve", "Alex"};
+
+    private static boolean contains(Component component, Predicate<Component> predicate) {
+        if (predicate.test(component)) {
+            return true;
+        }
+        for (Component child : component.children()) {
+            if (contains(child, predicate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A rendered template should read the same as the formatted translation deserialized with the same serializer.
+     */
+    @Test void rendered_templates_should_match_the_deserialized_translation() {
+        for (String pattern : PATTERNS) {
+            MessageTemplate template = MessageTemplate.compile(pattern, Locale.US);
+            Component rendered = ComponentTemplate.compile(template, SERIALIZER).render(ARGUMENTS);
+            assertEquals(SERIALIZER.serialize(SERIALIZER.deserialize(template.format(ARGUMENTS))), SERIALIZER.serialize(rendered), pattern);
+        }
+
+        MessageTemplate constant = MessageTemplate.compile("\u00a7aNo \u00a7oarguments", Locale.US);
+        assertEquals(SERIALIZER.deserialize(constant.format()), ComponentTemplate.compile(constant, SERIALIZER).render());
+    }
+
+    /**
+     * A template with more arguments than it can mark should fall back to parsing the formatted translation.
+     */
+    @Test void templates_with_too_many_arguments_should_be_parsed_on_every_call() {
+        StringBuilder pattern = new StringBuilder("\u00a7a");
+        for (int i = 0; i < 40; ++i) {
+            pattern.append('{').append(i % 3).append("} ");
+        }
+        MessageTemplate template = MessageTemplate.compile(pattern.toString(), Locale.US);
+        assertEquals(SERIALIZER.deserialize(template.format(ARGUMENTS)), ComponentTemplate.compile(template, SERIALIZER).render(ARGUMENTS));
+    }
+
+    /**
+     * Component arguments should be inserted as they are, and formatting codes in any other argument should be
+     * inserted as plain text.
+     */
+    @Test void component_arguments_should_be_inserted_as_they_are() {
+        Component name = Component.text("Steve", NamedTextColor.RED);
+        ComponentTemplate template = ComponentTemplate.compile(MessageTemplate.compile("\u00a7aHello, {0}! {1}", Locale.US), SERIALIZER);
+        Component rendered = template.render(name, "\u00a7cnot red");
+
+        assertTrue(contains(rendered, component -> component == name));
+        assertTrue(contains(rendered, component -> component instanceof TextComponent && "\u00a7cnot red".equals(((TextComponent) component).content())));
+        assertFalse(contains(rendered, component -> component instanceof TextComponent && "not red".equals(((TextComponent) component).content())));
+    }
+}
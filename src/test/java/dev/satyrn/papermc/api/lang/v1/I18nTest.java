@@ -0,0 +1,150 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests how locales resolve to the language files in the plugin data folder, and how their translations are shared.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class I18nTest {
+    private static final Logger LOGGER = Logger.getLogger(I18nTest.class.getName());
+    private static final Locale AUSTRALIA = new Locale("en", "AU");
+
+    @TempDir File dataFolder;
+    @Mock Plugin testPlugin = mock(Plugin.class);
+
+    private final Map<Locale, AtomicInteger> loads = new ConcurrentHashMap<>();
+
+    /**
+     * Writes an English and a French language file into the data folder, and opens a handler which counts the loads
+     * of each bundle locale.
+     */
+    private I18n i18n() throws IOException {
+        when(testPlugin.getLogger()).thenReturn(LOGGER);
+        when(testPlugin.getDataFolder()).thenReturn(this.dataFolder);
+        this.write("messages/en.lang", "greeting=Hello there, {0}!");
+        this.write("messages/fr.lang", "greeting=Bonjour, {0} !");
+        return new CountingI18n(testPlugin, this.loads);
+    }
+
+    private void write(String name, String contents) throws IOException {
+        Path file = this.dataFolder.toPath().resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, contents, StandardCharsets.UTF_8);
+    }
+
+    private int loads(Locale locale) {
+        AtomicInteger count = this.loads.get(locale);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Locales which load the same language files should resolve to the same bundle locale, and share one set of
+     * translations which is loaded once.
+     */
+    @Test void locales_with_the_same_files_should_share_translations() throws IOException {
+        I18n i18n = this.i18n();
+        assertEquals(Locale.ENGLISH, i18n.resolveLocale(Locale.UK));
+        assertEquals(Locale.ENGLISH, i18n.resolveLocale(AUSTRALIA));
+        assertEquals(Locale.FRENCH, i18n.resolveLocale(Locale.CANADA_FRENCH));
+        assertEquals(Locale.ROOT, i18n.resolveLocale(Locale.ROOT));
+
+        LocaleTranslations english = i18n.getTranslations(Locale.UK);
+        assertSame(english, i18n.getTranslations(AUSTRALIA));
+        assertSame(english, i18n.getTranslations(Locale.ENGLISH));
+        assertEquals(Locale.ENGLISH, english.getLocale());
+        assertNotSame(english, i18n.getTranslations(Locale.CANADA_FRENCH));
+        assertEquals(1, this.loads(Locale.ENGLISH));
+        assertEquals(1, this.loads(Locale.FRENCH));
+        assertEquals(0, this.loads(Locale.UK));
+
+        assertEquals("Hello there, Alex!", i18n.translate(Locale.UK, "greeting", "Alex"));
+        assertEquals("Hello there, Sam!", i18n.translate(AUSTRALIA, "greeting", "Sam"));
+        assertEquals("Bonjour, Alex !", i18n.translate(Locale.CANADA_FRENCH, "greeting", "Alex"));
+        assertEquals("Default only", i18n.translate(AUSTRALIA, "default.only"));
+    }
+
+    /**
+     * A changed language file should reload only the loaded locales whose bundle chain includes it, and a changed base
+     * file should reload every locale.
+     */
+    @Test void a_changed_file_should_reload_only_the_locales_it_contributes_to() throws IOException {
+        I18n i18n = this.i18n();
+        LocaleTranslations english = i18n.getTranslations(Locale.UK);
+        i18n.getTranslations(Locale.FRENCH);
+
+        this.write("messages/fr.lang", "greeting=Salut, {0} !");
+        i18n.reloadFiles(Set.of(Locale.FRENCH));
+        assertEquals(1, this.loads(Locale.ENGLISH));
+        assertEquals(2, this.loads(Locale.FRENCH));
+        assertSame(english, i18n.getTranslations(AUSTRALIA));
+        assertEquals("Salut, Alex !", i18n.translate(Locale.CANADA_FRENCH, "greeting", "Alex"));
+
+        i18n.reloadFiles(Set.of(Locale.GERMAN, Locale.CANADA_FRENCH, Locale.UK));
+        assertEquals(1, this.loads(Locale.ENGLISH));
+        assertEquals(2, this.loads(Locale.FRENCH));
+
+        i18n.reloadFiles(Set.of(Locale.ROOT));
+        assertEquals(2, this.loads(Locale.ENGLISH));
+        assertEquals(3, this.loads(Locale.FRENCH));
+        assertNotSame(english, i18n.getTranslations(Locale.UK));
+
+        i18n.reloadFiles(null);
+        assertEquals(3, this.loads(Locale.ENGLISH));
+        assertEquals(4, this.loads(Locale.FRENCH));
+    }
+
+    /**
+     * A handler with a fixed default bundle, which counts the loads of each bundle locale.
+     */
+    private static final class CountingI18n extends I18n {
+        private final Map<Locale, AtomicInteger> loads;
+
+        private CountingI18n(Plugin plugin, Map<Locale, AtomicInteger> loads) {
+            super(plugin, new DefaultBundle());
+            this.loads = loads;
+        }
+
+        @Override
+        protected LocaleTranslations loadTranslations(Locale locale) {
+            this.loads.computeIfAbsent(locale, key -> new AtomicInteger()).incrementAndGet();
+            return super.loadTranslations(locale);
+        }
+    }
+
+    /**
+     * The default bundle, as it would be shipped in the plugin jar.
+     */
+    private static final class DefaultBundle extends ListResourceBundle {
+        @Override
+        public String getBaseBundleName() {
+            return "messages";
+        }
+
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][]{{"greeting", "Hello, {0}!"}, {"default.only", "Default only"}};
+        }
+    }
+}
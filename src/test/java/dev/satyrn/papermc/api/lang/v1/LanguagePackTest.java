@@ -0,0 +1,93 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that language packs return every compiled translation and nothing else.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class LanguagePackTest {
+    @Test
+    void pack_round_trips_translations_through_mapped_file() throws IOException {
+        final Map<String, String> translations = new HashMap<>();
+        for (int i = 0; i < 20000; ++i) {
+            translations.put("message.key." + i, "Value " + (i % 100));
+        }
+        translations.put("quoted", "It''s {0}''s turn");
+        translations.put("unicode", "Gr\u00fc\u00dfe, {0}!");
+        translations.put("empty", "");
+
+        final Path file = Files.createTempDirectory("pack").resolve("messages.en_us.pack");
+        LanguagePack.write(translations, 42L, file);
+        final LanguagePack pack = LanguagePack.open(file);
+
+        assertEquals(42L, pack.getStamp());
+        assertEquals(translations.size(), pack.size());
+        // Values are stored once; keys are distinct strings.
+        assertEquals(translations.size() + 100 + 4, pack.getStringCount());
+        for (final Map.Entry<String, String> entry : translations.entrySet()) {
+            assertEquals(entry.getValue(), pack.get(entry.getKey()));
+        }
+        assertEquals("It's {0}'s turn", pack.getText("quoted"));
+        assertNull(pack.get("message.key.20000"));
+        assertNull(pack.get(""));
+        assertEquals(translations, pack.toMap());
+    }
+
+    @Test
+    void empty_pack_contains_nothing() throws IOException {
+        final LanguagePack pack = LanguagePack.read(LanguagePack.compile(Map.of(), 0L));
+        assertEquals(0, pack.size());
+        assertNull(pack.get("anything"));
+        assertThrows(IOException.class, () -> LanguagePack.read(new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    void corrupt_pack_fails_to_open() throws IOException {
+        final byte[] data = LanguagePack.compile(Map.of("greeting", "Hello, {0}!", "farewell", "Goodbye"), 7L);
+        final ByteBuffer header = ByteBuffer.wrap(data);
+        final int stringCount = header.getInt(20);
+        final int bucketCount = header.getInt(24);
+        final int slotCount = header.getInt(28);
+        final int slotsOffset = 32 + 4 * bucketCount;
+        final int stringEndsOffset = slotsOffset + 12 * slotCount;
+        int slot = slotsOffset;
+        while (header.getInt(slot) < 0) {
+            slot += 12;
+        }
+        final int occupied = slot;
+        assertEquals(2, LanguagePack.read(data).size());
+
+        assertThrows(IOException.class, () -> LanguagePack.read(Arrays.copyOf(data, stringEndsOffset + 4 * stringCount - 1)));
+        assertThrows(IOException.class, () -> LanguagePack.read(Arrays.copyOf(data, data.length - 1)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, 24, Integer.MAX_VALUE)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, 16, 1)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, 32, -1)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, occupied + 4, stringCount)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, occupied + 8, -2)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, stringEndsOffset, -1)));
+        assertThrows(IOException.class, () -> LanguagePack.read(corrupt(data, stringEndsOffset, header.getInt(stringEndsOffset + 4) + 1)));
+
+        final Path file = Files.createTempDirectory("pack").resolve("messages.en_us.pack");
+        Files.write(file, corrupt(data, occupied, stringCount));
+        assertThrows(IOException.class, () -> LanguagePack.open(file));
+    }
+
+    private static byte[] corrupt(final byte[] data, final int offset, final int value) {
+        final byte[] copy = data.clone();
+        ByteBuffer.wrap(copy).putInt(offset, value);
+        return copy;
+    }
+}
@@ -0,0 +1,115 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests that broadcasts translate each message once per bundle locale.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class LocaleBroadcastTest {
+    private static final Logger LOGGER = Logger.getLogger(LocaleBroadcastTest.class.getName());
+
+    @TempDir File dataFolder;
+    @Mock Plugin testPlugin = mock(Plugin.class);
+    @Mock CommandSender console = mock(CommandSender.class);
+
+    private final AtomicInteger formatted = new AtomicInteger();
+    // An argument which counts how often it is formatted.
+    private final Object name = new Object() {
+        @Override
+        public String toString() {
+            formatted.incrementAndGet();
+            return "Alex";
+        }
+    };
+
+    /**
+     * Writes an English and a French language file into the data folder, and opens a handler for them.
+     */
+    private I18n i18n() throws IOException {
+        when(testPlugin.getLogger()).thenReturn(LOGGER);
+        when(testPlugin.getDataFolder()).thenReturn(this.dataFolder);
+        Path folder = Files.createDirectories(this.dataFolder.toPath().resolve("messages"));
+        Files.writeString(folder.resolve("en.lang"), "greeting=Hello there, {0}!", StandardCharsets.UTF_8);
+        Files.writeString(folder.resolve("fr.lang"), "greeting=Bonjour, {0} !", StandardCharsets.UTF_8);
+        return new I18n(testPlugin, new DefaultBundle());
+    }
+
+    private static Player player(Locale locale) {
+        Player player = mock(Player.class);
+        when(player.locale()).thenReturn(locale);
+        return player;
+    }
+
+    /**
+     * Recipients should be grouped by the bundle locale their locale resolves to, in the order the locales are first
+     * met; anyone but a player reads the current locale.
+     */
+    @Test void recipients_should_be_grouped_by_bundle_locale() throws IOException {
+        I18n i18n = this.i18n();
+        Player british = player(Locale.UK);
+        Player canadian = player(Locale.CANADA_FRENCH);
+        Player australian = player(new Locale("en", "AU"));
+
+        Map<Locale, List<CommandSender>> groups = LocaleBroadcast.groupByLocale(i18n, List.of(british, canadian, australian, console));
+        assertEquals(List.of(Locale.ENGLISH, Locale.FRENCH), new ArrayList<>(groups.keySet()));
+        assertEquals(List.of(british, australian, console), groups.get(Locale.ENGLISH));
+        assertEquals(List.of(canadian), groups.get(Locale.FRENCH));
+    }
+
+    /**
+     * A broadcast should format the message once for each bundle locale, and send it to every recipient.
+     */
+    @Test void a_broadcast_should_format_once_per_bundle_locale() throws IOException {
+        I18n i18n = this.i18n();
+        List<CommandSender> recipients = List.of(player(Locale.UK), player(Locale.CANADA_FRENCH), player(new Locale("en", "AU")), player(Locale.FRENCH), console);
+
+        assertEquals(2, LocaleBroadcast.broadcast(i18n, recipients, "greeting", this.name));
+        assertEquals(2, this.formatted.get());
+        verify(recipients.get(0)).sendMessage("Hello there, Alex!");
+        verify(recipients.get(1)).sendMessage("Bonjour, Alex !");
+        verify(recipients.get(2)).sendMessage("Hello there, Alex!");
+        verify(recipients.get(3)).sendMessage("Bonjour, Alex !");
+        verify(console).sendMessage("Hello there, Alex!");
+
+        this.formatted.set(0);
+        LocaleBroadcast.broadcastAsync(i18n, recipients, Runnable::run, "greeting", this.name).join();
+        assertEquals(2, this.formatted.get());
+        verify(recipients.get(0), times(2)).sendMessage("Hello there, Alex!");
+        verify(recipients.get(3), times(2)).sendMessage("Bonjour, Alex !");
+    }
+
+    /**
+     * The default bundle, as it would be shipped in the plugin jar.
+     */
+    private static final class DefaultBundle extends ListResourceBundle {
+        @Override
+        public String getBaseBundleName() {
+            return "messages";
+        }
+
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][]{{"greeting", "Hello, {0}!"}};
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that compiled message templates format exactly like {@link MessageFormat}.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class MessageTemplateTest {
+    private static final List<String> PATTERNS = List.of(
+            "Hello, {0}!",
+            "{1} gave {0} to {2}",
+            "It''s {0}''s turn",
+            "'{0}' is literal, {0} is not",
+            "Missing {3} argument",
+            "You have {0,number,integer} coins ({1,number,percent})",
+            "Balance: {0,number,#,##0.00}",
+            "There {0,choice,0#are no files|1#is one file|1<are {0,number,integer} files}.",
+            "{0,choice,0#none|1#one|1<many for {2}}",
+            "On {0,date,short} at {0,time,short}",
+            "Unmatched } is literal",
+            "{0}{1}{0}",
+            "");
+
+    private static final Object[] ARGUMENTS = {1234, 0.5D, "Steve"};
+
+    /**
+     * Every supported pattern should produce the same output as MessageFormat, in several locales.
+     */
+    @Test void templates_should_format_like_message_format() {
+        for (Locale locale : List.of(Locale.US, Locale.GERMANY, Locale.FRANCE)) {
+            for (String pattern : PATTERNS) {
+                Object[] arguments = pattern.contains("date") ? new Object[]{new Date(0L)} : ARGUMENTS;
+                assertEquals(new MessageFormat(pattern, locale).format(arguments), MessageTemplate.compile(pattern, locale).format(arguments), pattern);
+            }
+        }
+    }
+
+    /**
+     * Untyped numbers, nulls and missing arguments should be formatted like MessageFormat formats them.
+     */
+    @Test void untyped_arguments_should_format_like_message_format() {
+        Object[] arguments = {1234567, null, 2.5D};
+        String pattern = "{0} {1} {2} {3}";
+        assertEquals(new MessageFormat(pattern, Locale.GERMANY).format(arguments), MessageTemplate.compile(pattern, Locale.GERMANY).format(arguments));
+    }
+
+    /**
+     * Invalid patterns should be rejected like MessageFormat rejects them.
+     */
+    @Test void invalid_patterns_should_be_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("Unclosed {0", Locale.US));
+        assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("Named {player}", Locale.US));
+    }
+}
@@ -0,0 +1,48 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests that missing translation keys are reported once and counted by locale and key.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class MissingTranslationTrackerTest {
+    @Test
+    void first_miss_is_reported_once_per_locale_and_key() {
+        final MissingTranslationTracker tracker = new MissingTranslationTracker();
+        assertTrue(tracker.record(Locale.US, "greeting"));
+        assertFalse(tracker.record(Locale.US, "greeting"));
+        assertTrue(tracker.record(Locale.GERMANY, "greeting"));
+        assertFalse(tracker.record(Locale.US, "greeting"));
+
+        assertEquals(3L, tracker.getCount(Locale.US, "greeting"));
+        assertEquals(1L, tracker.getCount(Locale.GERMANY, "greeting"));
+        assertEquals(2, tracker.size());
+        assertEquals(4L, tracker.getTotal());
+
+        tracker.clear();
+        assertEquals(0, tracker.size());
+        assertTrue(tracker.record(Locale.US, "greeting"));
+    }
+
+    @Test
+    void top_lists_most_frequent_misses_first() {
+        final MissingTranslationTracker tracker = new MissingTranslationTracker();
+        tracker.record(Locale.US, "rare");
+        for (int i = 0; i < 5; ++i) {
+            tracker.record(Locale.US, "common");
+        }
+        final List<MissingTranslationTracker.Entry> top = tracker.getTop(1);
+        assertEquals(1, top.size());
+        assertEquals("common", top.get(0).getKey());
+        assertEquals(5L, top.get(0).getCount());
+        assertEquals("en_US common=5\nen_US rare=1\n", tracker.report());
+    }
+}
@@ -0,0 +1,63 @@
+package dev.satyrn.papermc.api.lang.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the bounded cache of compiled message templates.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class TemplateCacheTest {
+    /**
+     * A cached pattern should be compiled once, and a pattern which does not compile should not be cached.
+     */
+    @Test void patterns_should_be_compiled_once() {
+        TemplateCache<String> cache = new TemplateCache<>(4);
+        AtomicInteger compiled = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", pattern -> {
+            compiled.incrementAndGet();
+            return pattern.toUpperCase();
+        }));
+        assertEquals("A", cache.get("a", pattern -> {
+            compiled.incrementAndGet();
+            return "other";
+        }));
+        assertEquals(1, compiled.get());
+
+        assertNull(cache.get("invalid", pattern -> null));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * The cache should never hold more templates than its maximum size, and should keep caching new patterns once
+     * full.
+     */
+    @Test void the_cache_should_not_grow_past_its_maximum_size() {
+        TemplateCache<String> cache = new TemplateCache<>(8);
+        for (int i = 0; i < 100; ++i) {
+            String pattern = "pattern " + i;
+            assertEquals(pattern, cache.get(pattern, p -> p));
+            assertTrue(cache.size() <= 8, "size " + cache.size());
+        }
+        assertEquals(8, cache.size());
+        AtomicInteger compiled = new AtomicInteger();
+        cache.get("pattern 99", pattern -> {
+            compiled.incrementAndGet();
+            return pattern;
+        });
+        assertEquals(0, compiled.get());
+
+        TemplateCache<String> single = new TemplateCache<>(0);
+        single.get("a", pattern -> pattern);
+        single.get("b", pattern -> pattern);
+        assertEquals(1, single.size());
+    }
+}
@@ -0,0 +1,170 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the circuit breaker which guards connections to a data source.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class CircuitBreakerTest {
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreakerTest.class.getName());
+
+    private final AtomicBoolean reachable = new AtomicBoolean();
+    private final List<Long> probes = new CopyOnWriteArrayList<>();
+    private final List<CircuitBreaker.State> states = new CopyOnWriteArrayList<>();
+
+    private CircuitBreaker open(int failureThreshold, long initialBackoff, long maxBackoff) {
+        CircuitBreaker breaker = new CircuitBreaker(LOGGER, "test", failureThreshold, initialBackoff, maxBackoff, () -> {
+            this.probes.add(System.nanoTime());
+            return this.reachable.get();
+        });
+        breaker.addListener(this.states::add);
+        return breaker;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(2L);
+        }
+    }
+
+    /**
+     * The circuit should open only after the threshold of consecutive failures, and then refuse every request.
+     */
+    @Test void the_circuit_should_open_after_consecutive_failures() {
+        try (CircuitBreaker breaker = this.open(3, 60000L, 60000L)) {
+            breaker.recordFailure();
+            breaker.recordFailure();
+            breaker.recordSuccess();
+            assertEquals(0, breaker.getConsecutiveFailures());
+            breaker.recordFailure();
+            breaker.recordFailure();
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertTrue(breaker.allowRequest());
+
+            breaker.recordFailure();
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            assertFalse(breaker.isAvailable());
+            assertFalse(breaker.allowRequest());
+            assertFalse(breaker.allowRequest());
+            assertEquals(2L, breaker.getRejectedCount());
+            breaker.recordFailure();
+            assertEquals(List.of(CircuitBreaker.State.OPEN), this.states);
+        }
+    }
+
+    /**
+     * A probe delay should be the backoff plus at most a fifth of it.
+     */
+    @Test void probe_delays_should_stay_within_the_jitter_bounds() {
+        for (long backoff : new long[]{1L, 4L, 5L, 100L, 30000L}) {
+            for (int i = 0; i < 1000; ++i) {
+                long delay = CircuitBreaker.probeDelay(backoff);
+                assertTrue(delay >= backoff && delay <= backoff + backoff / 5L, "delay " + delay + " for backoff " + backoff);
+            }
+        }
+    }
+
+    /**
+     * Each failed probe should double the backoff up to the maximum, and no probe should run before its backoff.
+     */
+    @Test void failed_probes_should_back_off_exponentially() throws InterruptedException {
+        try (CircuitBreaker breaker = this.open(1, 10L, 40L)) {
+            long opened = System.nanoTime();
+            breaker.recordFailure();
+            waitFor(() -> this.probes.size() >= 4);
+
+            assertEquals(40L, breaker.getBackoff());
+            long[] backoffs = {10L, 20L, 40L, 40L};
+            long previous = opened;
+            for (int i = 0; i < backoffs.length; ++i) {
+                long gap = TimeUnit.NANOSECONDS.toMillis(this.probes.get(i) - previous);
+                assertTrue(gap >= backoffs[i], "probe " + i + " after " + gap + " ms");
+                previous = this.probes.get(i);
+            }
+            assertTrue(this.states.containsAll(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.HALF_OPEN)));
+            assertFalse(this.states.contains(CircuitBreaker.State.CLOSED));
+        }
+    }
+
+    /**
+     * A successful probe should close the circuit, and the next opening should start from the initial backoff.
+     */
+    @Test void a_successful_probe_should_close_the_circuit() throws InterruptedException {
+        try (CircuitBreaker breaker = this.open(2, 10L, 1000L)) {
+            breaker.recordFailure();
+            breaker.recordFailure();
+            waitFor(() -> this.probes.size() >= 2);
+            this.reachable.set(true);
+            waitFor(() -> this.states.contains(CircuitBreaker.State.CLOSED));
+
+            assertTrue(breaker.allowRequest());
+            assertEquals(0, breaker.getConsecutiveFailures());
+            assertEquals(CircuitBreaker.State.HALF_OPEN, this.states.get(this.states.size() - 2));
+            assertEquals(CircuitBreaker.State.CLOSED, this.states.get(this.states.size() - 1));
+
+            this.reachable.set(false);
+            breaker.recordFailure();
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            breaker.recordFailure();
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+            assertEquals(10L, breaker.getBackoff());
+        }
+    }
+
+    /**
+     * A reset should close an open circuit at once, without a probe.
+     */
+    @Test void a_reset_should_close_the_circuit() {
+        try (CircuitBreaker breaker = this.open(1, 60000L, 60000L)) {
+            breaker.reset();
+            assertTrue(this.states.isEmpty());
+
+            breaker.recordFailure();
+            assertFalse(breaker.allowRequest());
+            breaker.reset();
+
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertTrue(breaker.allowRequest());
+            assertEquals(0, breaker.getConsecutiveFailures());
+            assertEquals(List.of(CircuitBreaker.State.OPEN, CircuitBreaker.State.CLOSED), this.states);
+            assertTrue(this.probes.isEmpty());
+        }
+    }
+
+    /**
+     * Closing the breaker should stop the probes of an open circuit, and a closed breaker should still open without
+     * failing.
+     */
+    @Test void closing_should_stop_the_probes() throws InterruptedException {
+        CircuitBreaker breaker = this.open(1, 5L, 5L);
+        breaker.recordFailure();
+        waitFor(() -> this.probes.size() >= 2);
+        breaker.close();
+        Thread.sleep(20L);
+        int probed = this.probes.size();
+        Thread.sleep(50L);
+        assertEquals(probed, this.probes.size());
+        assertNotEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        CircuitBreaker closed = this.open(1, 5L, 5L);
+        closed.close();
+        closed.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, closed.getState());
+        Thread.sleep(20L);
+        assertEquals(probed, this.probes.size());
+    }
+}
@@ -0,0 +1,128 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the detector which reports connections that are never closed.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class ConnectionLeakDetectorTest {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionLeakDetectorTest.class.getName());
+
+    private final AtomicInteger closes = new AtomicInteger();
+    private final AtomicInteger statements = new AtomicInteger();
+
+    /**
+     * Opens a connection which counts its calls, and can be unwrapped to a driver class.
+     */
+    private DriverConnection connection() {
+        return (DriverConnection) Proxy.newProxyInstance(DriverConnection.class.getClassLoader(), new Class<?>[]{DriverConnection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    this.closes.incrementAndGet();
+                    return null;
+                case "isClosed":
+                    return this.closes.get() > 0;
+                case "unwrap":
+                    return ((Class<?>) args[0]).cast(proxy);
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                case "createStatement":
+                    this.statements.incrementAndGet();
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * A tracked connection should stop being tracked once closed, and closing it again should be harmless.
+     */
+    @Test void closing_should_stop_tracking() throws SQLException {
+        try (ConnectionLeakDetector detector = new ConnectionLeakDetector(LOGGER, "test", null, 60000L, false, false)) {
+            assertNull(detector.track(null));
+            Connection connection = detector.track(this.connection());
+            assertNotNull(connection);
+            assertEquals(1, detector.getBorrowedCount());
+
+            connection.createStatement();
+            connection.close();
+            assertEquals(0, detector.getBorrowedCount());
+            assertTrue(connection.isClosed());
+
+            connection.close();
+            assertEquals(0, detector.getBorrowedCount());
+            assertEquals(1, this.statements.get());
+        }
+    }
+
+    /**
+     * A tracked connection should still unwrap to the driver connection underneath it.
+     */
+    @Test void a_tracked_connection_should_unwrap_to_the_driver_class() throws SQLException {
+        try (ConnectionLeakDetector detector = new ConnectionLeakDetector(LOGGER, "test", null, 60000L, false, false)) {
+            DriverConnection driver = this.connection();
+            Connection connection = detector.track(driver);
+            assertNotNull(connection);
+
+            assertFalse(connection instanceof DriverConnection);
+            assertTrue(connection.isWrapperFor(DriverConnection.class));
+            assertSame(driver, connection.unwrap(DriverConnection.class));
+            connection.close();
+        }
+    }
+
+    /**
+     * A connection held past the threshold should be reported once, and closed only when reclaiming is enabled.
+     */
+    @Test void a_leaked_connection_should_be_reclaimed_only_when_enabled() throws SQLException, InterruptedException {
+        StorageMetrics metrics = new StorageMetrics(LOGGER, 0L);
+        try (ConnectionLeakDetector detector = new ConnectionLeakDetector(LOGGER, "test", metrics, 1L, false, false)) {
+            Connection connection = detector.track(this.connection());
+            assertNotNull(connection);
+            Thread.sleep(5L);
+            detector.sweep();
+            detector.sweep();
+            assertEquals(1, detector.getBorrowedCount());
+            assertEquals(0, this.closes.get());
+            connection.createStatement();
+            connection.close();
+        }
+
+        this.closes.set(0);
+        try (ConnectionLeakDetector detector = new ConnectionLeakDetector(LOGGER, "test", metrics, 1L, false, true)) {
+            Connection connection = detector.track(this.connection());
+            assertNotNull(connection);
+            Thread.sleep(5L);
+            detector.sweep();
+            assertEquals(0, detector.getBorrowedCount());
+            assertEquals(1, this.closes.get());
+
+            assertTrue(connection.isClosed());
+            assertThrows(SQLException.class, connection::createStatement);
+            connection.close();
+            assertEquals(1, this.closes.get());
+        }
+    }
+
+    /**
+     * A connection class of a driver.
+     */
+    private interface DriverConnection extends Connection {
+    }
+}
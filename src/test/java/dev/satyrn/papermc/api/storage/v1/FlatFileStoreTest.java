@@ -0,0 +1,184 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the flat-file storage engine.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class FlatFileStoreTest {
+    private static final Logger LOGGER = Logger.getLogger(FlatFileStoreTest.class.getName());
+
+    @TempDir File directory;
+
+    /**
+     * Opens a store with small segments, so that tests can roll and compact them.
+     */
+    private FlatFileStore open() throws IOException {
+        return new FlatFileStore(LOGGER, this.directory, 256, 0, 0.5D);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Set<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory.toPath())) {
+            return files.map(path -> path.getFileName().toString()).filter(name -> name.endsWith(".seg")).collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * A value should be readable after it has been written, and gone after it has been deleted.
+     */
+    @Test void a_value_should_be_readable_until_it_is_deleted() throws IOException {
+        try (FlatFileStore store = this.open()) {
+            store.put("key", bytes("value"));
+            assertArrayEquals(bytes("value"), store.get("key"));
+
+            assertTrue(store.delete("key"));
+            assertNull(store.get("key"));
+            assertFalse(store.delete("key"));
+        }
+    }
+
+    /**
+     * Reopening a store should load its index from the hint file written on close.
+     */
+    @Test void values_should_survive_a_reopen() throws IOException {
+        try (FlatFileStore store = this.open()) {
+            for (int i = 0; i < 100; ++i) {
+                store.put("key" + i, bytes("value" + i));
+            }
+            store.delete("key50");
+        }
+
+        try (FlatFileStore store = this.open()) {
+            assertEquals(99, store.size());
+            assertArrayEquals(bytes("value99"), store.get("key99"));
+            assertNull(store.get("key50"));
+        }
+    }
+
+    /**
+     * Without a hint file, the index should be rebuilt by replaying the log.
+     */
+    @Test void values_should_survive_a_reopen_without_a_hint_file() throws IOException {
+        try (FlatFileStore store = this.open()) {
+            store.put("first", bytes("one"));
+            store.put("second", bytes("two"));
+            store.put("first", bytes("three"));
+            store.delete("second");
+        }
+        Files.delete(this.directory.toPath().resolve("index.hint"));
+
+        try (FlatFileStore store = this.open()) {
+            assertEquals(1, store.size());
+            assertArrayEquals(bytes("three"), store.get("first"));
+            assertNull(store.get("second"));
+        }
+    }
+
+    /**
+     * Compaction should remove stale segments without losing live values.
+     */
+    @Test void compaction_should_keep_live_values() throws IOException {
+        try (FlatFileStore store = this.open()) {
+            for (int round = 0; round < 10; ++round) {
+                for (int i = 0; i < 10; ++i) {
+                    store.put("key" + i, bytes("value" + round));
+                }
+            }
+            store.delete("key0");
+            store.compact();
+
+            assertNull(store.get("key0"));
+            for (int i = 1; i < 10; ++i) {
+                assertArrayEquals(bytes("value9"), store.get("key" + i));
+            }
+        }
+
+        try (FlatFileStore store = this.open()) {
+            assertEquals(9, store.size());
+            assertNull(store.get("key0"));
+            assertArrayEquals(bytes("value9"), store.get("key9"));
+        }
+    }
+
+    /**
+     * Tombstones which are still needed should count as live data, so that compaction does not keep rewriting the
+     * segments which hold them, and deleted keys should stay deleted when the log is replayed.
+     */
+    @Test void compaction_should_not_keep_rewriting_tombstones() throws IOException {
+        try (FlatFileStore store = this.open()) {
+            for (int i = 0; i < 11; ++i) {
+                store.put(String.format("live%02d", i), bytes("value"));
+            }
+            for (int i = 0; i < 20; ++i) {
+                store.put(String.format("gone%02d", i), bytes("value"));
+            }
+            for (int i = 0; i < 20; ++i) {
+                store.delete(String.format("gone%02d", i));
+            }
+            store.put("last", bytes("value"));
+            store.compact();
+            store.compact();
+
+            Set<String> files = this.segmentFiles();
+            store.compact();
+            assertEquals(files, this.segmentFiles());
+            assertNull(store.get("gone00"));
+        }
+        Files.delete(this.directory.toPath().resolve("index.hint"));
+
+        try (FlatFileStore store = this.open()) {
+            assertEquals(12, store.size());
+            assertArrayEquals(bytes("value"), store.get("live00"));
+            for (int i = 0; i < 20; ++i) {
+                assertNull(store.get(String.format("gone%02d", i)));
+            }
+        }
+    }
+
+    /**
+     * Reads from memory-mapped segments should return the same data as reads through the file channel, including
+     * after the mapped segments have been compacted away.
+     */
+    @Test void memory_mapped_reads_should_match_written_values() throws IOException {
+        try (FlatFileStore store = new FlatFileStore(LOGGER, this.directory, 256, 0, 0.5D, true)) {
+            for (int round = 0; round < 5; ++round) {
+                for (int i = 0; i < 10; ++i) {
+                    store.put("key" + i, bytes("value" + round + i));
+                }
+            }
+            assertArrayEquals(bytes("value40"), store.get("key0"));
+            ByteBuffer buffer = store.getBuffer("key9");
+            assertNotNull(buffer);
+            assertEquals(ByteBuffer.wrap(bytes("value49")), buffer);
+
+            store.compact();
+            assertArrayEquals(bytes("value45"), store.get("key5"));
+        }
+
+        try (FlatFileStore store = new FlatFileStore(LOGGER, this.directory, 256, 0, 0.5D, true)) {
+            assertEquals(10, store.size());
+            assertArrayEquals(bytes("value41"), store.get("key1"));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the write journal which holds writes while a data source is unreachable.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class JournaledStorageBackendTest {
+    private static final Logger LOGGER = Logger.getLogger(JournaledStorageBackendTest.class.getName());
+
+    @TempDir File directory;
+
+    private final MemoryBackend remote = new MemoryBackend();
+
+    /**
+     * Opens a journaled backend which never replays on its own, so that tests control when replay happens.
+     */
+    private JournaledStorageBackend open() throws IOException {
+        return new JournaledStorageBackend(LOGGER, this.remote, new WriteJournal(new File(this.directory, "test.journal")), Long.MAX_VALUE, 2);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes made while the data source is down should be readable at once, and reach the data source on replay.
+     */
+    @Test void writes_during_an_outage_should_be_replayed() throws IOException {
+        this.remote.values.put("gone", bytes("old"));
+        try (JournaledStorageBackend backend = this.open()) {
+            this.remote.available = false;
+            backend.putAll(Map.of("a", bytes("1"), "b", bytes("2"), "c", bytes("3")));
+            backend.delete("gone");
+            backend.put("a", bytes("4"));
+
+            assertArrayEquals(bytes("4"), backend.get("a"));
+            assertNull(backend.get("gone"));
+            assertEquals(4, backend.getPendingCount());
+            assertFalse(this.remote.values.containsKey("a"));
+
+            this.remote.available = true;
+            assertEquals(4, backend.replay());
+            assertEquals(0, backend.getPendingCount());
+            assertArrayEquals(bytes("4"), this.remote.values.get("a"));
+            assertArrayEquals(bytes("3"), this.remote.values.get("c"));
+            assertFalse(this.remote.values.containsKey("gone"));
+        }
+    }
+
+    /**
+     * Writes which could not be replayed before shutdown should be replayed after the next start.
+     */
+    @Test void journaled_writes_should_survive_a_restart() throws IOException {
+        this.remote.available = false;
+        try (JournaledStorageBackend backend = this.open()) {
+            backend.put("key", bytes("value"));
+        }
+        assertTrue(this.remote.values.isEmpty());
+
+        try (JournaledStorageBackend backend = this.open()) {
+            assertArrayEquals(bytes("value"), backend.get("key"));
+            this.remote.available = true;
+            backend.replay();
+        }
+        assertArrayEquals(bytes("value"), this.remote.values.get("key"));
+        assertFalse(new File(this.directory, "test.journal").exists());
+    }
+
+    /**
+     * A replay which fails part-way should be retried in full, without losing writes made in between.
+     */
+    @Test void a_failed_replay_should_be_retried() throws IOException {
+        try (JournaledStorageBackend backend = this.open()) {
+            this.remote.available = false;
+            backend.putAll(Map.of("a", bytes("1"), "b", bytes("2"), "c", bytes("3")));
+
+            this.remote.failPuts = true;
+            assertThrows(IOException.class, backend::replay);
+            backend.put("d", bytes("4"));
+
+            this.remote.failPuts = false;
+            this.remote.available = true;
+            assertEquals(4, backend.replay());
+            assertEquals(List.of("a", "b", "c", "d"), List.copyOf(this.remote.values.keySet()));
+
+            backend.put("e", bytes("5"));
+            assertArrayEquals(bytes("5"), this.remote.values.get("e"));
+        }
+    }
+
+    /**
+     * A write which the data source rejects while it is reachable should fail, rather than being journaled.
+     */
+    @Test void a_rejected_write_should_not_be_journaled() throws IOException {
+        this.remote.poison.add("long");
+        try (JournaledStorageBackend backend = this.open()) {
+            IOException ex = assertThrows(IOException.class, () -> backend.put("long", bytes("1")));
+            assertEquals("data too long", ex.getMessage());
+            assertEquals(0, backend.getPendingCount());
+
+            backend.put("a", bytes("2"));
+            assertArrayEquals(bytes("2"), this.remote.values.get("a"));
+            assertFalse(new File(this.directory, "test.journal").exists());
+        }
+    }
+
+    /**
+     * A journaled write which the data source rejects on replay should be set aside, so that the writes around it
+     * still reach the data source and later writes are no longer journaled.
+     */
+    @Test void a_poison_write_should_not_block_the_journal() throws IOException {
+        try (JournaledStorageBackend backend = this.open()) {
+            this.remote.available = false;
+            backend.putAll(new TreeMap<>(Map.of("a", bytes("1"), "long", bytes("2"), "c", bytes("3"))));
+            backend.delete("d");
+            this.remote.poison.add("long");
+
+            this.remote.available = true;
+            assertEquals(4, backend.replay());
+            assertEquals(0, backend.getPendingCount());
+            assertEquals(List.of("a", "c"), List.copyOf(this.remote.values.keySet()));
+            assertNull(backend.get("long"));
+            assertEquals(1, new WriteJournal(new File(this.directory, "test.journal.rejected")).read().size());
+
+            backend.put("e", bytes("5"));
+            assertArrayEquals(bytes("5"), this.remote.values.get("e"));
+        }
+    }
+
+    /**
+     * An in-memory backend which can be switched off, and rejects some keys.
+     */
+    private static final class MemoryBackend implements StorageBackend {
+        private final Map<String, byte[]> values = new ConcurrentSkipListMap<>();
+        private volatile boolean available = true;
+        private volatile boolean failPuts;
+        private final Set<String> poison = Collections.synchronizedSet(new HashSet<>());
+
+        private void check() throws IOException {
+            if (!this.available) {
+                throw new StorageUnavailableException("unavailable");
+            }
+        }
+
+        @Override
+        public byte[] get(String key) throws IOException {
+            this.check();
+            return this.values.get(key);
+        }
+
+        @Override
+        public void put(String key, byte[] value) throws IOException {
+            this.check();
+            if (this.failPuts) {
+                throw new StorageUnavailableException("connection lost");
+            }
+            if (this.poison.contains(key)) {
+                throw new IOException("data too long");
+            }
+            this.values.put(key, value);
+        }
+
+        @Override
+        public boolean delete(String key) throws IOException {
+            this.check();
+            return this.values.remove(key) != null;
+        }
+
+        @Override
+        public void scan(String prefix, BiConsumer<String, byte[]> consumer) throws IOException {
+            this.check();
+            new TreeMap<>(this.values).forEach((key, value) -> {
+                if (key.startsWith(prefix)) {
+                    consumer.accept(key, value);
+                }
+            });
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return this.available;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the bucketed latency histogram.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class LatencyHistogramTest {
+    /**
+     * An empty histogram should report zero for every statistic.
+     */
+    @Test void an_empty_histogram_should_report_zero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0L, histogram.count());
+        assertEquals(0.0D, histogram.mean(TimeUnit.MICROSECONDS));
+        assertEquals(0L, histogram.percentile(99.0D, TimeUnit.MICROSECONDS));
+        assertEquals(0L, histogram.max(TimeUnit.MICROSECONDS));
+    }
+
+    /**
+     * Percentiles should be accurate to within a factor of two, and never exceed the largest recorded duration.
+     */
+    @Test void percentiles_should_be_bounded_by_their_bucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; ++i) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(10L));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5L));
+
+        assertEquals(100L, histogram.count());
+        assertEquals(59.9D, histogram.mean(TimeUnit.MICROSECONDS), 1.0E-9D);
+        assertEquals(5000L, histogram.max(TimeUnit.MICROSECONDS));
+        long p50 = histogram.percentile(50.0D, TimeUnit.MICROSECONDS);
+        assertTrue(p50 >= 10L && p50 <= 20L, "p50 " + p50);
+        assertEquals(p50, histogram.percentile(99.0D, TimeUnit.MICROSECONDS));
+        assertEquals(5000L, histogram.percentile(100.0D, TimeUnit.MICROSECONDS));
+    }
+
+    /**
+     * Negative durations should count as zero, and a reset should clear every statistic.
+     */
+    @Test void negative_durations_and_reset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5L);
+        assertEquals(1L, histogram.count());
+        assertEquals(0L, histogram.max(TimeUnit.NANOSECONDS));
+        assertEquals(0L, histogram.percentile(100.0D, TimeUnit.NANOSECONDS));
+
+        histogram.record(TimeUnit.SECONDS.toNanos(1L));
+        histogram.reset();
+        assertEquals(0L, histogram.count());
+        assertEquals(0L, histogram.max(TimeUnit.NANOSECONDS));
+        assertEquals(0L, histogram.percentile(50.0D, TimeUnit.NANOSECONDS));
+    }
+}
@@ -0,0 +1,91 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the in-memory leaderboard against a sorted list.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class LeaderboardTest {
+    private static final Logger LOGGER = Logger.getLogger(LeaderboardTest.class.getName());
+
+    private final Map<UUID, Double> stored = new HashMap<>();
+
+    private Leaderboard open() throws IOException {
+        Leaderboard leaderboard = new Leaderboard(LOGGER, "test", consumer -> this.stored.forEach(consumer));
+        leaderboard.reconcile();
+        return leaderboard;
+    }
+
+    private static List<UUID> expectedOrder(Map<UUID, Double> scores) {
+        List<UUID> order = new ArrayList<>(scores.keySet());
+        order.sort(Comparator.comparing((UUID uuid) -> scores.get(uuid)).reversed().thenComparing(Comparator.naturalOrder()));
+        return order;
+    }
+
+    /**
+     * Ranks and pages should match a full sort after any mix of updates and removals.
+     */
+    @Test void ranks_should_follow_updates_and_removals() throws IOException {
+        Random random = new Random(42L);
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            players.add(uuid);
+            this.stored.put(uuid, (double) random.nextInt(100));
+        }
+        Leaderboard leaderboard = this.open();
+        Map<UUID, Double> expected = new HashMap<>(this.stored);
+
+        for (int i = 0; i < 5000; ++i) {
+            UUID uuid = players.get(random.nextInt(players.size()));
+            if (random.nextInt(10) == 0) {
+                assertEquals(expected.remove(uuid) != null, leaderboard.remove(uuid));
+            } else {
+                double score = random.nextInt(100);
+                expected.put(uuid, score);
+                leaderboard.update(uuid, score);
+            }
+        }
+
+        List<UUID> order = expectedOrder(expected);
+        assertEquals(order.size(), leaderboard.size());
+        for (int rank = 1; rank <= order.size(); ++rank) {
+            assertEquals(rank, leaderboard.getRank(order.get(rank - 1)));
+        }
+        List<Leaderboard.Entry> page = leaderboard.range(101, 50);
+        assertEquals(50, page.size());
+        for (int i = 0; i < page.size(); ++i) {
+            assertEquals(order.get(100 + i), page.get(i).getUniqueId());
+            assertEquals(101 + i, page.get(i).getRank());
+        }
+        assertEquals(order.subList(0, 10), leaderboard.top(10).stream().map(Leaderboard.Entry::getUniqueId).toList());
+        assertTrue(leaderboard.range(order.size() + 1, 10).isEmpty());
+    }
+
+    /**
+     * A reconciliation should pick up scores written behind the leaderboard's back.
+     */
+    @Test void reconciliation_should_correct_missed_writes() throws IOException {
+        UUID first = new UUID(0L, 1L);
+        UUID second = new UUID(0L, 2L);
+        this.stored.put(first, 10.0D);
+        Leaderboard leaderboard = this.open();
+        assertEquals(1, leaderboard.getRank(first));
+
+        this.stored.put(second, 20.0D);
+        assertEquals(0, leaderboard.getRank(second));
+        assertEquals(1, leaderboard.reconcile());
+        assertEquals(1, leaderboard.getRank(second));
+        assertEquals(2, leaderboard.getRank(first));
+        assertEquals(0, leaderboard.reconcile());
+    }
+}
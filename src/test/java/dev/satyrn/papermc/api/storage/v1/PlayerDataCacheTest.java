@@ -0,0 +1,240 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the player data cache and the sessions it keeps for online players.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class PlayerDataCacheTest {
+    private static final Logger LOGGER = Logger.getLogger(PlayerDataCacheTest.class.getName());
+    private static final UUID PLAYER = UUID.fromString("a5a8e5ec-6f8b-4ad0-9a3b-5d0e7b2f9c41");
+
+    @Mock Plugin testPlugin = mock(Plugin.class);
+    @Mock Server server = mock(Server.class);
+
+    private final MemoryBackend backend = new MemoryBackend();
+    private final Repository<String> repository = new Repository<>(LOGGER, this.backend, StorageCodec.string(), 16, 1);
+    private final PlayerDataCache<String> cache;
+
+    /**
+     * Initializes the mocks, and opens a cache which only writes back when asked to.
+     */
+    PlayerDataCacheTest() {
+        when(testPlugin.getLogger()).thenReturn(LOGGER);
+        when(testPlugin.getName()).thenReturn("Test");
+        when(testPlugin.getServer()).thenReturn(server);
+        when(server.isPrimaryThread()).thenReturn(false);
+        this.cache = new PlayerDataCache<>(testPlugin, this.repository, uuid -> "new", 3600000L, 5000L);
+    }
+
+    /**
+     * Closes the cache and the repository.
+     */
+    @AfterEach void close() throws IOException {
+        this.cache.close();
+        this.repository.close();
+    }
+
+    /**
+     * Runs both pre-login handlers, as the server does for a login attempt.
+     */
+    private AsyncPlayerPreLoginEvent preLogin(AsyncPlayerPreLoginEvent.Result first, AsyncPlayerPreLoginEvent.Result... later) {
+        AsyncPlayerPreLoginEvent event = mock(AsyncPlayerPreLoginEvent.class);
+        when(event.getUniqueId()).thenReturn(PLAYER);
+        when(event.getName()).thenReturn("alice");
+        when(event.getLoginResult()).thenReturn(first, later);
+        this.cache.onAsyncPlayerPreLoginStart(event);
+        this.cache.onAsyncPlayerPreLoginComplete(event);
+        return event;
+    }
+
+    private AsyncPlayerPreLoginEvent preLogin() {
+        return this.preLogin(AsyncPlayerPreLoginEvent.Result.ALLOWED);
+    }
+
+    private Player player() {
+        Player player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(PLAYER);
+        return player;
+    }
+
+    private void login(PlayerLoginEvent.Result result) {
+        PlayerLoginEvent event = mock(PlayerLoginEvent.class);
+        Player player = this.player();
+        when(event.getPlayer()).thenReturn(player);
+        when(event.getResult()).thenReturn(result);
+        this.cache.onPlayerLogin(event);
+    }
+
+    private void quit() {
+        PlayerQuitEvent event = mock(PlayerQuitEvent.class);
+        Player player = this.player();
+        when(event.getPlayer()).thenReturn(player);
+        this.cache.onPlayerQuit(event);
+    }
+
+    private String stored() {
+        byte[] value = this.backend.values.get(PLAYER.toString());
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A second login of an online player should share their session and its unsaved changes, and only the last quit
+     * should write the data back.
+     */
+    @Test void a_second_login_should_share_the_session() throws IOException {
+        this.backend.values.put(PLAYER.toString(), "stored".getBytes(StandardCharsets.UTF_8));
+        this.preLogin();
+        this.login(PlayerLoginEvent.Result.ALLOWED);
+        assertEquals("stored", this.cache.get(PLAYER));
+        this.cache.set(PLAYER, "changed");
+
+        this.preLogin();
+        this.login(PlayerLoginEvent.Result.ALLOWED);
+        assertEquals("changed", this.cache.get(PLAYER));
+
+        this.quit();
+        this.repository.flush();
+        assertEquals(Set.of(PLAYER), this.cache.getSessions());
+        assertTrue(this.cache.isDirty(PLAYER));
+        assertEquals(0, this.backend.puts.get());
+        assertEquals("stored", this.stored());
+
+        this.quit();
+        this.repository.flush();
+        assertTrue(this.cache.getSessions().isEmpty());
+        assertNull(this.cache.getIfLoaded(PLAYER));
+        assertEquals("changed", this.stored());
+    }
+
+    /**
+     * A login refused after the data started loading should release its hold on the session, without closing a
+     * session which an earlier connection still holds.
+     */
+    @Test void a_refused_login_should_release_the_session() throws IOException {
+        this.preLogin(AsyncPlayerPreLoginEvent.Result.ALLOWED, AsyncPlayerPreLoginEvent.Result.KICK_BANNED);
+        assertTrue(this.cache.getSessions().isEmpty());
+
+        this.preLogin();
+        this.login(PlayerLoginEvent.Result.KICK_FULL);
+        assertTrue(this.cache.getSessions().isEmpty());
+
+        this.preLogin();
+        this.login(PlayerLoginEvent.Result.ALLOWED);
+        this.preLogin(AsyncPlayerPreLoginEvent.Result.ALLOWED, AsyncPlayerPreLoginEvent.Result.KICK_WHITELIST);
+        assertEquals(Set.of(PLAYER), this.cache.getSessions());
+        assertEquals("new", this.cache.get(PLAYER));
+
+        this.quit();
+        assertTrue(this.cache.getSessions().isEmpty());
+    }
+
+    /**
+     * A login whose data cannot be read should be refused, and leave no session behind.
+     */
+    @SuppressWarnings("deprecation")
+    @Test void a_failed_load_should_disallow_the_login() throws IOException {
+        this.backend.failGets = true;
+        AsyncPlayerPreLoginEvent event = this.preLogin();
+
+        verify(event).disallow(eq(AsyncPlayerPreLoginEvent.Result.KICK_OTHER), anyString());
+        assertTrue(this.cache.getSessions().isEmpty());
+        assertNull(this.cache.getIfLoaded(PLAYER));
+        assertThrows(IllegalStateException.class, () -> this.cache.get(PLAYER));
+    }
+
+    /**
+     * Changes should mark the session dirty until they have been written back, and a failed write should keep it
+     * dirty.
+     */
+    @Test void changes_should_stay_dirty_until_written() throws IOException {
+        this.preLogin();
+        assertFalse(this.cache.isDirty(PLAYER));
+
+        this.cache.set(PLAYER, "set");
+        assertTrue(this.cache.isDirty(PLAYER));
+        this.cache.flush();
+        assertFalse(this.cache.isDirty(PLAYER));
+        assertEquals("set", this.stored());
+
+        assertEquals("set!", this.cache.update(PLAYER, value -> value + "!"));
+        assertTrue(this.cache.isDirty(PLAYER));
+        this.backend.failPuts = true;
+        assertThrows(IOException.class, this.cache::flush);
+        assertTrue(this.cache.isDirty(PLAYER));
+
+        this.backend.failPuts = false;
+        this.cache.flush();
+        assertFalse(this.cache.isDirty(PLAYER));
+        assertEquals("set!", this.stored());
+
+        this.cache.markDirty(PLAYER);
+        assertTrue(this.cache.isDirty(PLAYER));
+        this.cache.update(PLAYER, value -> "closed");
+        this.cache.close();
+        assertEquals("closed", this.stored());
+    }
+
+    /**
+     * A backend which keeps its values in memory, counts writes, and can reject reads and writes.
+     */
+    private static final class MemoryBackend implements StorageBackend {
+        private final Map<String, byte[]> values = new ConcurrentSkipListMap<>();
+        private final AtomicInteger puts = new AtomicInteger();
+        private volatile boolean failGets;
+        private volatile boolean failPuts;
+
+        @Override
+        public byte[] get(String key) throws IOException {
+            if (this.failGets) {
+                throw new IOException("unreadable");
+            }
+            return this.values.get(key);
+        }
+
+        @Override
+        public void put(String key, byte[] value) throws IOException {
+            if (this.failPuts) {
+                throw new IOException("rejected");
+            }
+            this.puts.incrementAndGet();
+            this.values.put(key, value);
+        }
+
+        @Override
+        public boolean delete(String key) {
+            return this.values.remove(key) != null;
+        }
+
+        @Override
+        public void scan(String prefix, BiConsumer<String, byte[]> consumer) {
+            new TreeMap<>(this.values).forEach((key, value) -> {
+                if (key.startsWith(prefix)) {
+                    consumer.accept(key, value);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the caching, batching repository against an in-memory backend.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class RepositoryTest {
+    private static final Logger LOGGER = Logger.getLogger(RepositoryTest.class.getName());
+
+    private final MemoryBackend backend = new MemoryBackend();
+
+    private Repository<String> open() {
+        return new Repository<>(LOGGER, this.backend, StorageCodec.string(), 16, 1);
+    }
+
+    /**
+     * Values should be read back from the cache after a write, and from the backend after the cache is cleared.
+     */
+    @Test void values_should_be_cached_and_stored() throws IOException {
+        try (Repository<String> repository = this.open()) {
+            repository.put("a", "1");
+            repository.putAll(Map.of("b", "2", "c", "3"));
+            int reads = this.backend.reads;
+
+            assertEquals("1", repository.get("a"));
+            assertEquals(Map.of("a", "1", "b", "2"), repository.getAll(List.of("a", "b", "missing")));
+            assertEquals(reads + 1, this.backend.reads);
+
+            repository.invalidate();
+            assertEquals("3", repository.get("c"));
+            assertTrue(repository.delete("c"));
+            assertNull(repository.get("c"));
+            assertFalse(this.backend.values.containsKey("c"));
+        }
+    }
+
+    /**
+     * Asynchronous writes should be stored with their batch, and a later synchronous write should win over a pending
+     * one.
+     */
+    @Test void asynchronous_writes_should_be_batched() throws IOException {
+        try (Repository<String> repository = this.open()) {
+            CompletableFuture<Void> first = repository.putAsync("a", "1");
+            CompletableFuture<Void> second = repository.deleteAsync("b");
+            assertEquals("1", repository.get("a"));
+            first.join();
+            second.join();
+            assertEquals("1", new String(this.backend.values.get("a"), StandardCharsets.UTF_8));
+
+            repository.putAsync("a", "2");
+            repository.put("a", "3");
+            repository.flush();
+            assertEquals("3", repository.get("a"));
+            assertEquals("3", new String(this.backend.values.get("a"), StandardCharsets.UTF_8));
+
+            List<String> scanned = new ArrayList<>();
+            repository.putAsync("b", "4");
+            repository.scan("", (key, value) -> scanned.add(key + "=" + value));
+            assertEquals(List.of("a=3", "b=4"), scanned);
+        }
+    }
+
+    /**
+     * A batch which cannot be stored should fail its future and drop its cached values, so that reads return what the
+     * backend holds.
+     */
+    @Test void a_failed_batch_should_not_stay_cached() throws IOException {
+        try (Repository<String> repository = this.open()) {
+            repository.put("a", "stored");
+            this.backend.failPuts = true;
+
+            CompletableFuture<Void> write = repository.putAsync("a", "lost");
+            CompletableFuture<Void> other = repository.putAsync("b", "lost");
+            CompletionException ex = assertThrows(CompletionException.class, write::join);
+            assertEquals("rejected", ex.getCause().getMessage());
+            assertTrue(other.isCompletedExceptionally());
+
+            assertEquals("stored", repository.get("a"));
+            assertNull(repository.get("b"));
+            this.backend.failPuts = false;
+        }
+    }
+
+    /**
+     * A backend which keeps its values in memory and can reject writes.
+     */
+    private static final class MemoryBackend implements StorageBackend {
+        private final Map<String, byte[]> values = new ConcurrentSkipListMap<>();
+        private volatile boolean failPuts;
+        private volatile int reads;
+
+        @Override
+        public byte[] get(String key) {
+            ++this.reads;
+            return this.values.get(key);
+        }
+
+        @Override
+        public Map<String, byte[]> getAll(Collection<String> keys) {
+            ++this.reads;
+            Map<String, byte[]> found = new HashMap<>();
+            for (String key : keys) {
+                byte[] value = this.values.get(key);
+                if (value != null) {
+                    found.put(key, value);
+                }
+            }
+            return found;
+        }
+
+        @Override
+        public void put(String key, byte[] value) throws IOException {
+            if (this.failPuts) {
+                throw new IOException("rejected");
+            }
+            this.values.put(key, value);
+        }
+
+        @Override
+        public boolean delete(String key) {
+            return this.values.remove(key) != null;
+        }
+
+        @Override
+        public void scan(String prefix, BiConsumer<String, byte[]> consumer) {
+            new TreeMap<>(this.values).forEach((key, value) -> {
+                if (key.startsWith(prefix)) {
+                    consumer.accept(key, value);
+                }
+            });
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import dev.satyrn.papermc.api.configuration.v1.RootNode;
+import dev.satyrn.papermc.api.configuration.v1.SQLiteConfiguration;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests the SQL storage backend against an embedded SQLite database, which stands in for a MySQL server.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class SQLiteStorageBackendTest {
+    @TempDir File dataFolder;
+    @Mock Plugin testPlugin = mock(Plugin.class);
+    @Mock FileConfiguration fileConfiguration = mock(FileConfiguration.class);
+
+    /**
+     * Initializes the mocks. Every configuration node reads its default value.
+     */
+    SQLiteStorageBackendTest() {
+        when(testPlugin.getConfig()).thenReturn(fileConfiguration);
+        when(testPlugin.getLogger()).thenReturn(Logger.getLogger(SQLiteStorageBackendTest.class.getName()));
+        when(testPlugin.getDataFolder()).thenAnswer(invocation -> this.dataFolder);
+        when(fileConfiguration.getString(anyString(), any())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(fileConfiguration.getBoolean(anyString(), anyBoolean())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(fileConfiguration.getInt(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+    }
+
+    private SQLiteStorageBackend open() {
+        RootNode rootNode = new RootNode(testPlugin) {
+            @Override
+            public void upgrade() {
+            }
+        };
+        return new SQLiteStorageBackend(new SQLiteConnectionManager(testPlugin, new SQLiteConfiguration(rootNode)), "test");
+    }
+
+    /**
+     * Closed connections should be kept for reuse, up to the pool size, and closed along with the backend.
+     */
+    @Test void connections_should_be_reused() throws IOException, java.sql.SQLException {
+        RootNode rootNode = new RootNode(testPlugin) {
+            @Override
+            public void upgrade() {
+            }
+        };
+        SQLiteConnectionManager connectionManager = new SQLiteConnectionManager(testPlugin, new SQLiteConfiguration(rootNode));
+        SQLiteStorageBackend backend = new SQLiteStorageBackend(connectionManager, "test");
+
+        backend.put("key", bytes("value"));
+        assertArrayEquals(bytes("value"), backend.get("key"));
+        assertEquals(1, connectionManager.getIdleCount());
+
+        java.sql.Connection first = connectionManager.connect();
+        java.sql.Connection second = connectionManager.connect();
+        assertEquals(0, connectionManager.getIdleCount());
+        first.close();
+        second.close();
+        assertTrue(first.isClosed());
+        assertThrows(java.sql.SQLException.class, first::createStatement);
+        assertEquals(2, connectionManager.getIdleCount());
+
+        backend.close();
+        assertEquals(0, connectionManager.getIdleCount());
+        assertNull(connectionManager.connect());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Values should be created, replaced and removed through the upsert and delete statements.
+     */
+    @Test void a_value_should_be_replaced_and_removed() throws IOException {
+        SQLiteStorageBackend backend = this.open();
+
+        backend.put("key", bytes("first"));
+        backend.put("key", bytes("second"));
+        assertArrayEquals(bytes("second"), backend.get("key"));
+
+        assertTrue(backend.delete("key"));
+        assertNull(backend.get("key"));
+        assertFalse(backend.delete("key"));
+    }
+
+    /**
+     * Batched writes and reads should cover every key, and a scan should only visit keys with the prefix, in order,
+     * even if the prefix contains LIKE wildcards.
+     */
+    @Test void batches_and_scans_should_cover_every_matching_key() throws IOException {
+        SQLiteStorageBackend backend = this.open();
+
+        Map<String, byte[]> values = new HashMap<>();
+        for (int i = 0; i < 1200; ++i) {
+            values.put(String.format("player_%04d", i), bytes("value" + i));
+        }
+        values.put("playerX0001", bytes("not matched"));
+        backend.putAll(values);
+
+        assertEquals(values.size(), backend.getAll(values.keySet()).size());
+
+        List<String> scanned = new ArrayList<>();
+        backend.scan("player_", (key, value) -> scanned.add(key));
+        assertEquals(1200, scanned.size());
+        assertEquals("player_0000", scanned.get(0));
+        assertEquals("player_1199", scanned.get(scanned.size() - 1));
+
+        backend.deleteAll(values.keySet());
+        assertTrue(backend.getAll(values.keySet()).isEmpty());
+    }
+
+    /**
+     * Keys which only differ in case should be distinct, and a scan should match its prefix case-sensitively and visit
+     * the keys in the order the flat-file backend uses.
+     */
+    @Test void keys_should_be_case_sensitive() throws IOException {
+        SQLiteStorageBackend backend = this.open();
+
+        backend.put("Foo", bytes("upper"));
+        backend.put("foo", bytes("lower"));
+        backend.put("food", bytes("lower, longer"));
+        backend.put("fop", bytes("after the prefix"));
+        assertArrayEquals(bytes("upper"), backend.get("Foo"));
+        assertArrayEquals(bytes("lower"), backend.get("foo"));
+
+        List<String> scanned = new ArrayList<>();
+        backend.scan("foo", (key, value) -> scanned.add(key));
+        assertEquals(List.of("foo", "food"), scanned);
+
+        List<String> all = new ArrayList<>();
+        backend.scan("", (key, value) -> all.add(key));
+        assertEquals(List.of("Foo", "foo", "food", "fop"), all);
+    }
+}
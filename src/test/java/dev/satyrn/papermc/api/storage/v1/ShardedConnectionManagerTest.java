@@ -0,0 +1,130 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests UUID sharding, using embedded SQLite databases as shards.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class ShardedConnectionManagerTest {
+    private static final Logger LOGGER = Logger.getLogger(ShardedConnectionManagerTest.class.getName());
+
+    @TempDir File directory;
+
+    private ConnectionManager shard(String name) {
+        String url = "jdbc:sqlite:" + new File(this.directory, name + ".db").getAbsolutePath();
+        return () -> {
+            try {
+                return DriverManager.getConnection(url);
+            } catch (SQLException ex) {
+                return null;
+            }
+        };
+    }
+
+    private static Map<String, String> nodes(String... names) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (String name : names) {
+            nodes.put(name, name);
+        }
+        return nodes;
+    }
+
+    /**
+     * Keys should spread evenly, and adding a node should only move keys to the new node.
+     */
+    @Test void adding_a_node_should_only_move_keys_to_it() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(nodes("a", "b", "c"), 160);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(nodes("a", "b", "c", "d"), 160);
+
+        Map<String, Integer> counts = new HashMap<>();
+        int moved = 0;
+        Random random = new Random(42);
+        for (int i = 0; i < 30000; ++i) {
+            UUID key = new UUID(random.nextLong(), random.nextLong());
+            String owner = before.get(key);
+            counts.merge(owner, 1, Integer::sum);
+            if (!owner.equals(after.get(key))) {
+                assertEquals("d", after.get(key));
+                ++moved;
+            }
+        }
+        for (int count : counts.values()) {
+            assertTrue(count > 7000 && count < 13000, "uneven spread: " + counts);
+        }
+        assertTrue(moved > 4500 && moved < 10500, "moved " + moved);
+    }
+
+    /**
+     * Rows should be readable from every shard at once, and a rebalance should move each row to its owner.
+     */
+    @Test void a_rebalance_should_move_rows_to_their_owners() throws IOException, SQLException {
+        List<UUID> players = new ArrayList<>();
+        try (Connection connection = this.shard("a").connect()) {
+            assertNotNull(connection);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE `players` (`id` TEXT PRIMARY KEY, `score` INTEGER NOT NULL)");
+            }
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO `players` VALUES (?, ?)")) {
+                for (int i = 0; i < 300; ++i) {
+                    UUID player = UUID.randomUUID();
+                    players.add(player);
+                    statement.setString(1, player.toString());
+                    statement.setInt(2, i);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        }
+        try (Connection connection = this.shard("b").connect(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE `players` (`id` TEXT PRIMARY KEY, `score` INTEGER NOT NULL)");
+        }
+
+        Map<String, ConnectionManager> shards = new LinkedHashMap<>();
+        shards.put("a", this.shard("a"));
+        shards.put("b", this.shard("b"));
+        try (ShardedConnectionManager manager = new ShardedConnectionManager(LOGGER, shards, Set.of(), 160, 2)) {
+            long moved = new ShardRebalancer(LOGGER, manager, 50).rebalance("players", "id");
+            assertTrue(moved > 0 && moved < 300);
+
+            Map<String, Integer> counts = manager.scatterReadOnly((shard, connection) -> {
+                try (Statement statement = connection.createStatement();
+                     ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM `players`")) {
+                    resultSet.next();
+                    return resultSet.getInt(1);
+                }
+            });
+            assertEquals(300, counts.get("a") + counts.get("b"));
+            assertEquals(moved, (long) counts.get("b"));
+
+            for (UUID player : players) {
+                try (Connection connection = manager.connect(player);
+                     PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM `players` WHERE `id` = ?")) {
+                    statement.setString(1, player.toString());
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        assertEquals(1, resultSet.getInt(1));
+                    }
+                }
+            }
+
+            assertEquals(0, new ShardRebalancer(LOGGER, manager, 50).rebalance("players", "id"));
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the storage metrics collector and its exported report.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class StorageMetricsTest {
+    private static final Logger LOGGER = Logger.getLogger(StorageMetricsTest.class.getName());
+
+    @TempDir File directory;
+
+    /**
+     * Statements at or above the threshold should count as slow, and failures should be counted per statement.
+     */
+    @Test void slow_statements_and_errors_should_be_counted() {
+        StorageMetrics metrics = new StorageMetrics(LOGGER, 10L);
+
+        metrics.recordQuery("SELECT 1", TimeUnit.MILLISECONDS.toNanos(1L));
+        metrics.recordQuery("SELECT 2", TimeUnit.MILLISECONDS.toNanos(10L));
+        metrics.recordRows(3L);
+        metrics.recordRows(4L);
+        metrics.recordError("DELETE");
+        metrics.recordError("DELETE");
+        metrics.recordError("INSERT");
+
+        assertEquals(2L, metrics.getQueryLatency().count());
+        assertEquals(1L, metrics.getSlowQueries());
+        assertEquals(7L, metrics.getRowsReturned());
+        assertEquals(Map.of("DELETE", 2L, "INSERT", 1L), metrics.getErrors());
+
+        metrics.setSlowQueryThreshold(0L);
+        metrics.recordQuery("SELECT 3", TimeUnit.SECONDS.toNanos(10L));
+        assertEquals(1L, metrics.getSlowQueries());
+
+        metrics.reset();
+        assertEquals(0L, metrics.getQueryLatency().count());
+        assertEquals(0L, metrics.getRowsReturned());
+        assertTrue(metrics.getErrors().isEmpty());
+    }
+
+    /**
+     * The exported file should use a period as the decimal separator, whatever the default locale of the host.
+     */
+    @Test void the_export_should_not_depend_on_the_default_locale() throws IOException {
+        StorageMetrics metrics = new StorageMetrics(LOGGER, 0L);
+        metrics.recordBorrow(1500L);
+        metrics.recordConnectionFailure();
+        Path file = this.directory.toPath().resolve("metrics").resolve("storage.properties");
+
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            metrics.export(file);
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertTrue(lines.get(0).startsWith("# Storage metrics at "));
+        assertTrue(lines.contains("storage.borrowWait.count=1"), lines.toString());
+        assertTrue(lines.contains("storage.borrowWait.meanMicros=1.5"), lines.toString());
+        assertTrue(lines.contains("storage.connectionFailures=1"), lines.toString());
+        assertFalse(Files.exists(file.resolveSibling("storage.properties.tmp")));
+    }
+}
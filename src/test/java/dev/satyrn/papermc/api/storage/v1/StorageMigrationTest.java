@@ -0,0 +1,195 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the resumable storage migration between two flat-file backends.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class StorageMigrationTest {
+    private static final Logger LOGGER = Logger.getLogger(StorageMigrationTest.class.getName());
+    private static final int RECORDS = 1000;
+    private static final int CHUNK_SIZE = 64;
+
+    @TempDir File directory;
+
+    private TestBackend open(String name) throws IOException {
+        return new TestBackend(new FlatFileStorageBackend(new FlatFileStore(LOGGER, new File(this.directory, name), 65536, 0, 0.5D)));
+    }
+
+    private File checkpoint() {
+        return new File(this.directory, "test.checkpoint");
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void fill(StorageBackend backend) throws IOException {
+        Map<String, byte[]> values = new HashMap<>();
+        for (int i = 0; i < RECORDS; ++i) {
+            values.put(String.format("player_%04d", i), bytes("value" + i));
+        }
+        backend.putAll(values);
+    }
+
+    /**
+     * Every record should be copied by several workers, and the copy should pass verification.
+     */
+    @Test void every_record_should_be_copied_and_verified() throws IOException {
+        try (TestBackend source = this.open("source"); TestBackend target = this.open("target")) {
+            fill(source);
+
+            StorageMigration.Result result = new StorageMigration(LOGGER, source, target, this.checkpoint(), CHUNK_SIZE, 4).run();
+
+            assertTrue(result.isVerified());
+            assertEquals(RECORDS, result.getMigrated());
+            assertEquals(RECORDS, result.getTargetCount());
+            assertEquals(result.getSourceChecksum(), result.getTargetChecksum());
+            assertArrayEquals(bytes("value123"), target.get("player_0123"));
+            assertFalse(this.checkpoint().exists());
+        }
+    }
+
+    /**
+     * A migration which failed partway through should resume after the last checkpointed key, without copying the
+     * records before it again.
+     */
+    @Test void a_failed_migration_should_resume_from_the_checkpoint() throws IOException {
+        try (TestBackend source = this.open("source"); TestBackend target = this.open("target")) {
+            fill(source);
+            target.failAfter = 4;
+
+            assertThrows(IOException.class, () -> new StorageMigration(LOGGER, source, target, this.checkpoint(), CHUNK_SIZE, 1).run());
+            Properties checkpoint = new Properties();
+            try (Reader reader = new FileReader(this.checkpoint(), StandardCharsets.UTF_8)) {
+                checkpoint.load(reader);
+            }
+            assertEquals(String.valueOf(4 * CHUNK_SIZE), checkpoint.getProperty("migrated"));
+            String lastKey = checkpoint.getProperty("lastKey");
+            assertEquals(String.format("player_%04d", 4 * CHUNK_SIZE - 1), lastKey);
+
+            target.failAfter = Integer.MAX_VALUE;
+            target.written.clear();
+            StorageMigration.Result result = new StorageMigration(LOGGER, source, target, this.checkpoint(), CHUNK_SIZE, 1).run();
+
+            assertTrue(result.isVerified());
+            assertEquals(RECORDS, result.getMigrated());
+            assertEquals(RECORDS - 4 * CHUNK_SIZE, target.written.size());
+            assertTrue(target.written.stream().allMatch(key -> key.compareTo(lastKey) > 0));
+            assertFalse(this.checkpoint().exists());
+        }
+    }
+
+    /**
+     * A worker which fails should stop the source scan, rather than letting it read every remaining record.
+     */
+    @Test void a_worker_failure_should_abort_the_scan() throws IOException {
+        try (TestBackend source = this.open("source"); TestBackend target = this.open("target")) {
+            fill(source);
+            target.failAfter = 0;
+
+            IOException ex = assertThrows(IOException.class, () -> new StorageMigration(LOGGER, source, target, this.checkpoint(), 10, 1).run());
+            assertEquals("rejected", ex.getMessage());
+            // At most the chunks allowed in flight, and one more record, are read before the scan stops.
+            assertTrue(source.scanned.get() <= 3 * 10 + 1, "scanned " + source.scanned.get());
+            assertFalse(this.checkpoint().exists());
+            assertNull(target.get("player_0000"));
+        }
+    }
+
+    /**
+     * A journaled target should be bypassed, so that writes which cannot reach it abort the migration rather than
+     * being journaled.
+     */
+    @Test void a_journaled_target_should_not_hide_failed_writes() throws IOException {
+        TestBackend target = this.open("target");
+        try (TestBackend source = this.open("source");
+             JournaledStorageBackend journaled = new JournaledStorageBackend(LOGGER, target, new WriteJournal(new File(this.directory, "target.journal")), Long.MAX_VALUE, 16)) {
+            fill(source);
+            target.unavailable = true;
+
+            IOException ex = assertThrows(IOException.class, () -> new StorageMigration(LOGGER, source, journaled, this.checkpoint(), CHUNK_SIZE, 2).run());
+            assertEquals("unavailable", ex.getMessage());
+            assertEquals(0, journaled.getPendingCount());
+            assertFalse(new File(this.directory, "target.journal").exists());
+            assertFalse(this.checkpoint().exists());
+        }
+    }
+
+    /**
+     * A backend which counts the records scanned and written, and rejects batches after a number of them.
+     */
+    private static final class TestBackend implements StorageBackend {
+        private final StorageBackend delegate;
+        private final AtomicInteger scanned = new AtomicInteger();
+        private final Set<String> written = Collections.synchronizedSet(new HashSet<>());
+        private final AtomicInteger batches = new AtomicInteger();
+        private volatile int failAfter = Integer.MAX_VALUE;
+        private volatile boolean unavailable;
+
+        private TestBackend(StorageBackend delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public byte[] get(String key) throws IOException {
+            return this.delegate.get(key);
+        }
+
+        @Override
+        public void put(String key, byte[] value) throws IOException {
+            this.putAll(Map.of(key, value));
+        }
+
+        @Override
+        public void putAll(Map<String, byte[]> values) throws IOException {
+            if (this.unavailable) {
+                throw new StorageUnavailableException("unavailable");
+            }
+            if (this.batches.getAndIncrement() >= this.failAfter) {
+                throw new IOException("rejected");
+            }
+            this.delegate.putAll(values);
+            this.written.addAll(values.keySet());
+        }
+
+        @Override
+        public boolean delete(String key) throws IOException {
+            return this.delegate.delete(key);
+        }
+
+        @Override
+        public void scan(String prefix, BiConsumer<String, byte[]> consumer) throws IOException {
+            this.delegate.scan(prefix, consumer);
+        }
+
+        @Override
+        public void scanAfter(String after, BiConsumer<String, byte[]> consumer) throws IOException {
+            this.delegate.scanAfter(after, (key, value) -> {
+                this.scanned.incrementAndGet();
+                consumer.accept(key, value);
+            });
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.delegate.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package dev.satyrn.papermc.api.storage.v1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests transactions against an embedded SQLite database, which stands in for a MySQL server.
+ *
+ * @author Isabel Maskrey
+ * @since 1.11.0
+ */
+class UnitOfWorkTest {
+    private static final String INSERT = "INSERT INTO `players` (`id`, `name`) VALUES (?, ?)";
+    private static final String RENAME = "UPDATE `players` SET `name` = ? WHERE `id` = ?";
+
+    @TempDir File directory;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final List<Boolean> autoCommitOnClose = new CopyOnWriteArrayList<>();
+
+    private Connection raw() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + new File(this.directory, "test.db").getAbsolutePath());
+    }
+
+    /**
+     * Creates the table, and opens a connection manager which counts connections and prepared statements, and
+     * records the autocommit mode of each connection when it is closed.
+     */
+    private ConnectionManager database() throws SQLException {
+        try (Connection connection = this.raw(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS `players` (`id` INTEGER PRIMARY KEY, `name` TEXT NOT NULL)");
+        }
+        return () -> {
+            try {
+                Connection connection = this.raw();
+                this.connections.incrementAndGet();
+                return ConnectionProxy.wrap((proxy, method, args) -> {
+                    if ("prepareStatement".equals(method.getName())) {
+                        this.prepared.incrementAndGet();
+                    } else if ("close".equals(method.getName())) {
+                        this.autoCommitOnClose.add(connection.getAutoCommit());
+                    }
+                    return ConnectionProxy.invoke(connection, method, args);
+                });
+            } catch (SQLException ex) {
+                return null;
+            }
+        };
+    }
+
+    private int count() throws SQLException {
+        try (Connection connection = this.raw(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM `players`")) {
+            assertTrue(resultSet.next());
+            return resultSet.getInt(1);
+        }
+    }
+
+    private static StatementBinder player(int id, String name) {
+        return statement -> {
+            statement.setInt(1, id);
+            statement.setString(2, name);
+        };
+    }
+
+    /**
+     * Deadlocks, lock wait timeouts and serialization failures should be retryable, also when wrapped; other failures
+     * should not.
+     */
+    @Test void only_lock_contention_should_be_retryable() {
+        assertTrue(UnitOfWork.isRetryable(new SQLTransactionRollbackException("rolled back")));
+        assertTrue(UnitOfWork.isRetryable(new SQLException("serialization failure", "40001")));
+        assertTrue(UnitOfWork.isRetryable(new SQLException("deadlock", "HY000", 1213)));
+        assertTrue(UnitOfWork.isRetryable(new SQLException("lock wait timeout", "HY000", 1205)));
+        SQLException chained = new SQLException("batch failed", "HY000");
+        chained.setNextException(new SQLException("deadlock", "HY000", 1213));
+        assertTrue(UnitOfWork.isRetryable(chained));
+        assertTrue(UnitOfWork.isRetryable(new SQLException("wrapped", "HY000", new SQLTransactionRollbackException())));
+
+        assertFalse(UnitOfWork.isRetryable(new SQLException("duplicate key", "23000", 1062)));
+        assertFalse(UnitOfWork.isRetryable(new SQLException("no state")));
+    }
+
+    /**
+     * A transaction which deadlocks should be rolled back and run again, up to the maximum number of attempts.
+     */
+    @Test void a_deadlocked_transaction_should_be_retried() throws IOException, SQLException {
+        ConnectionManager database = this.database();
+        AtomicInteger attempts = new AtomicInteger();
+        UnitOfWork work = new UnitOfWork(database)
+                .add(INSERT, player(1, "alice"))
+                .run(connection -> {
+                    if (attempts.incrementAndGet() < 3) {
+                        throw new SQLTransactionRollbackException("Deadlock found when trying to get lock", "40001", 1213);
+                    }
+                })
+                .maxAttempts(3);
+
+        assertEquals(1L, work.commit());
+        assertEquals(3, attempts.get());
+        assertEquals(3, this.connections.get());
+        assertEquals(1, this.count());
+        assertEquals(List.of(true, true, true), this.autoCommitOnClose);
+
+        attempts.set(-100);
+        this.connections.set(0);
+        UnitOfWork failing = new UnitOfWork(database)
+                .add(INSERT, player(2, "bob"))
+                .run(connection -> {
+                    attempts.incrementAndGet();
+                    throw new SQLTransactionRollbackException("Deadlock found when trying to get lock", "40001", 1213);
+                })
+                .maxAttempts(2);
+
+        IOException ex = assertThrows(IOException.class, failing::commit);
+        assertTrue(ex.getCause() instanceof SQLTransactionRollbackException);
+        assertEquals(2, this.connections.get());
+        assertEquals(1, this.count());
+    }
+
+    /**
+     * Any other failure should roll the whole transaction back and be thrown without a retry, and the connection should
+     * get its autocommit mode back.
+     */
+    @Test void other_failures_should_roll_back_without_a_retry() throws SQLException {
+        UnitOfWork work = new UnitOfWork(this.database())
+                .add(INSERT, player(1, "alice"))
+                .add(RENAME, statement -> {
+                    statement.setString(1, "carol");
+                    statement.setInt(2, 1);
+                })
+                .add(INSERT, player(1, "duplicate"));
+
+        IOException ex = assertThrows(IOException.class, work::commit);
+        assertTrue(ex.getCause() instanceof SQLException);
+        assertFalse(UnitOfWork.isRetryable((SQLException) ex.getCause()));
+        assertEquals(1, this.connections.get());
+        assertEquals(0, this.count());
+        assertEquals(List.of(true), this.autoCommitOnClose);
+    }
+
+    /**
+     * Consecutive statements with the same SQL should be prepared once and sent as one batch.
+     */
+    @Test void consecutive_statements_should_be_batched() throws IOException, SQLException {
+        UnitOfWork work = new UnitOfWork(this.database())
+                .add(INSERT, player(1, "alice"))
+                .add(INSERT, player(2, "bob"))
+                .add(RENAME, statement -> {
+                    statement.setString(1, "carol");
+                    statement.setInt(2, 2);
+                })
+                .addAll(INSERT, List.of(3, 4, 5), (statement, id) -> {
+                    statement.setInt(1, id);
+                    statement.setString(2, "player" + id);
+                });
+
+        assertFalse(work.isEmpty());
+        assertEquals(6L, work.commit());
+        assertEquals(3, this.prepared.get());
+        assertEquals(1, this.connections.get());
+        assertEquals(5, this.count());
+        try (Connection connection = this.raw(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT `name` FROM `players` WHERE `id` = 2")) {
+            assertTrue(resultSet.next());
+            assertEquals("carol", resultSet.getString(1));
+        }
+    }
+}